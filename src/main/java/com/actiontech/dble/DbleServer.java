@@ -10,8 +10,8 @@ import com.actiontech.dble.backend.datasource.PhysicalDBNode;
 import com.actiontech.dble.backend.datasource.PhysicalDBPool;
 import com.actiontech.dble.backend.mysql.xa.*;
 import com.actiontech.dble.backend.mysql.xa.recovery.Repository;
-import com.actiontech.dble.backend.mysql.xa.recovery.impl.FileSystemRepository;
 import com.actiontech.dble.backend.mysql.xa.recovery.impl.KVStoreRepository;
+import com.actiontech.dble.backend.mysql.xa.recovery.impl.SegmentLogRepository;
 import com.actiontech.dble.buffer.BufferPool;
 import com.actiontech.dble.buffer.DirectByteBufferPool;
 import com.actiontech.dble.cache.CacheService;
@@ -71,6 +71,8 @@ import java.util.concurrent.locks.ReentrantLock;
 public final class DbleServer {
 
     public static final String NAME = "Dble_";
+    public static final String BUSINESS_EXECUTOR_NAME = "BusinessExecutor";
+    public static final String BACKEND_BUSINESS_EXECUTOR_NAME = "backendBusinessExecutor";
     private static final long TIME_UPDATE_PERIOD = 20L;
     private static final long DEFAULT_SQL_STAT_RECYCLE_PERIOD = 5 * 1000L;
     private static final long DEFAULT_OLD_CONNECTION_CLEAR_PERIOD = 5 * 1000L;
@@ -324,8 +326,8 @@ public final class DbleServer {
         }
         bufferPool = new DirectByteBufferPool(bufferPoolPageSize, bufferPoolChunkSize, bufferPoolPageNumber);
 
-        businessExecutor = ExecutorUtil.createFixed("BusinessExecutor", system.getProcessorExecutor());
-        backendBusinessExecutor = ExecutorUtil.createFixed("backendBusinessExecutor", system.getBackendProcessorExecutor());
+        businessExecutor = ExecutorUtil.createFixed(BUSINESS_EXECUTOR_NAME, system.getProcessorExecutor());
+        backendBusinessExecutor = ExecutorUtil.createFixed(BACKEND_BUSINESS_EXECUTOR_NAME, system.getBackendProcessorExecutor());
         complexQueryExecutor = ExecutorUtil.createCached("complexQueryExecutor", system.getComplexExecutor());
         timerExecutor = ExecutorUtil.createFixed("Timer", 1);
         if (system.getUsePerformanceMode() == 1) {
@@ -1023,7 +1025,7 @@ public final class DbleServer {
      * covert the collection to array
      **/
     private CoordinatorLogEntry[] getCoordinatorLogEntries() {
-        Repository fileRepository = isUseZK() ? new KVStoreRepository() : new FileSystemRepository();
+        Repository fileRepository = isUseZK() ? new KVStoreRepository() : new SegmentLogRepository();
         Collection<CoordinatorLogEntry> allCoordinatorLogEntries = fileRepository.getAllCoordinatorLogEntries();
         fileRepository.close();
         if (allCoordinatorLogEntries == null) {
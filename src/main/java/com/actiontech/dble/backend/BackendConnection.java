@@ -60,6 +60,13 @@ public interface BackendConnection extends ClosableConnection {
 
     void setBorrowed(boolean borrowed);
 
+    void setBorrowTime(long borrowTime);
+
+    /**
+     * @return the borrow time set by the pool before clearing, 0 if not borrowed from the pool
+     */
+    long clearBorrowTime();
+
     int getTxIsolation();
 
     boolean isAutocommit();
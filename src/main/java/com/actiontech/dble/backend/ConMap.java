@@ -10,15 +10,30 @@ import com.actiontech.dble.backend.datasource.PhysicalDatasource;
 import com.actiontech.dble.backend.mysql.nio.MySQLConnection;
 import com.actiontech.dble.net.NIOProcessor;
 
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Iterator;
 import java.util.Map.Entry;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
 
 public class ConMap {
     // key--schema
     private final ConcurrentMap<String, ConQueue> items = new ConcurrentHashMap<>();
+    /* the idle connections of all the schemas if shared, the queues of the schemas only count the executions */
+    private final ConQueue sharedQueue;
+    /* the borrowed connections, kept apart from the queues which are cleared with the idle connections */
+    private final AtomicInteger activeCount = new AtomicInteger();
+    private final ConcurrentMap<String, AtomicInteger> schemaActiveCounts = new ConcurrentHashMap<>();
+
+    public ConMap() {
+        this(false);
+    }
+
+    public ConMap(boolean shared) {
+        this.sharedQueue = shared ? new ConQueue() : null;
+    }
 
     public ConQueue getSchemaConQueue(String schema) {
         ConQueue queue = items.get(schema);
@@ -30,7 +45,18 @@ public class ConMap {
         return queue;
     }
 
+    /**
+     * the queue the idle connection of the schema is kept in
+     */
+    public ConQueue getIdleConQueue(String schema) {
+        return sharedQueue != null ? sharedQueue : getSchemaConQueue(schema);
+    }
+
     public BackendConnection tryTakeCon(final String schema, boolean autoCommit) {
+        if (sharedQueue != null) {
+            // the schema is switched by COM_INIT_DB sent with the next query
+            return tryTakeCon(sharedQueue, autoCommit);
+        }
         final ConQueue queue = items.get(schema);
         BackendConnection con = tryTakeCon(queue, autoCommit);
         if (con != null) {
@@ -60,41 +86,63 @@ public class ConMap {
     }
 
     public Collection<ConQueue> getAllConQueue() {
-        return items.values();
+        if (sharedQueue == null) {
+            return items.values();
+        }
+        Collection<ConQueue> queues = new ArrayList<>(items.values());
+        queues.add(sharedQueue);
+        return queues;
     }
 
-    public int getActiveCountForSchema(String schema, PhysicalDatasource dataSource) {
+    public int getIdleCount() {
+        if (sharedQueue != null) {
+            return sharedQueue.getIdleCount();
+        }
         int total = 0;
-        for (NIOProcessor processor : DbleServer.getInstance().getBackendProcessors()) {
-            for (BackendConnection con : processor.getBackends().values()) {
-                if (con instanceof MySQLConnection) {
-                    MySQLConnection mysqlCon = (MySQLConnection) con;
-
-                    if (mysqlCon.getSchema().equals(schema) &&
-                            mysqlCon.getPool() == dataSource &&
-                            mysqlCon.isBorrowed()) {
-                        total++;
-                    }
-                }
-            }
+        for (ConQueue queue : items.values()) {
+            total += queue.getIdleCount();
         }
         return total;
     }
 
-    public int getActiveCountForDs(PhysicalDatasource dataSource) {
-        int total = 0;
-        for (NIOProcessor processor : DbleServer.getInstance().getBackendProcessors()) {
-            for (BackendConnection con : processor.getBackends().values()) {
-                if (con instanceof MySQLConnection) {
-                    MySQLConnection mysqlCon = (MySQLConnection) con;
+    /**
+     * the idle connections of the schema, all the idle connections can be used by the schema if shared
+     */
+    public int getIdleCountForSchema(String schema) {
+        return getIdleConQueue(schema).getIdleCount();
+    }
 
-                    if (mysqlCon.getPool() == dataSource && mysqlCon.isBorrowed() && !mysqlCon.isClosed()) {
-                        total++;
-                    }
-                }
+    /**
+     * count the connection borrowed from the pool, its schema must not change until it's returned
+     */
+    public void incActiveCount(String schema) {
+        activeCount.incrementAndGet();
+        AtomicInteger count = schemaActiveCounts.get(schema);
+        if (count == null) {
+            AtomicInteger newCount = new AtomicInteger();
+            count = schemaActiveCounts.putIfAbsent(schema, newCount);
+            if (count == null) {
+                count = newCount;
             }
         }
-        return total;
+        count.incrementAndGet();
+    }
+
+    public void decActiveCount(String schema) {
+        activeCount.decrementAndGet();
+        AtomicInteger count = schemaActiveCounts.get(schema);
+        if (count != null) {
+            count.decrementAndGet();
+        }
+    }
+
+    public int getActiveCountForSchema(String schema) {
+        AtomicInteger count = schemaActiveCounts.get(schema);
+        return count == null ? 0 : Math.max(0, count.get());
+    }
+
+    public int getActiveCount() {
+        return Math.max(0, activeCount.get());
     }
 
     public void clearConnections(String reason, PhysicalDatasource dataSource) {
@@ -114,5 +162,8 @@ public class ConMap {
             }
         }
         items.clear();
+        if (sharedQueue != null) {
+            sharedQueue.getIdleConsToClose();
+        }
     }
 }
@@ -6,11 +6,15 @@
 package com.actiontech.dble.backend;
 
 import java.util.ArrayList;
+import java.util.List;
 import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
 
 public class ConQueue {
     private final ConcurrentLinkedQueue<BackendConnection> autoCommitCons = new ConcurrentLinkedQueue<>();
     private final ConcurrentLinkedQueue<BackendConnection> manCommitCons = new ConcurrentLinkedQueue<>();
+    /* the size of ConcurrentLinkedQueue traverses the queue */
+    private final AtomicInteger idleCount = new AtomicInteger();
     private long executeCount;
 
     public BackendConnection takeIdleCon(boolean autoCommit) {
@@ -22,9 +26,9 @@ public class ConQueue {
             f2 = autoCommitCons;
 
         }
-        BackendConnection con = f1.poll();
+        BackendConnection con = poll(f1);
         if (con == null || con.isClosedOrQuit()) {
-            con = f2.poll();
+            con = poll(f2);
         }
         if (con == null || con.isClosedOrQuit()) {
             return null;
@@ -34,6 +38,31 @@ public class ConQueue {
 
     }
 
+    public boolean offerIdleCon(BackendConnection con) {
+        boolean ok;
+        if (con.isAutocommit()) {
+            ok = autoCommitCons.offer(con);
+        } else {
+            ok = manCommitCons.offer(con);
+        }
+        if (ok) {
+            idleCount.incrementAndGet();
+        }
+        return ok;
+    }
+
+    private BackendConnection poll(ConcurrentLinkedQueue<BackendConnection> cons) {
+        BackendConnection con = cons.poll();
+        if (con != null) {
+            idleCount.decrementAndGet();
+        }
+        return con;
+    }
+
+    public int getIdleCount() {
+        return Math.max(0, idleCount.get());
+    }
+
     public long getExecuteCount() {
         return executeCount;
     }
@@ -43,31 +72,53 @@ public class ConQueue {
     }
 
     public void removeCon(BackendConnection con) {
-        if (!autoCommitCons.remove(con)) {
-            manCommitCons.remove(con);
+        if (autoCommitCons.remove(con) || manCommitCons.remove(con)) {
+            idleCount.decrementAndGet();
         }
     }
 
-    public ConcurrentLinkedQueue<BackendConnection> getAutoCommitCons() {
-        return autoCommitCons;
+    /**
+     * take the connections idle since before the time out of the queue, the closed ones are dropped
+     */
+    public List<BackendConnection> getLongIdleCons(long lastTime) {
+        List<BackendConnection> longIdleCons = new ArrayList<>();
+        pollLongIdleCons(autoCommitCons, lastTime, longIdleCons);
+        pollLongIdleCons(manCommitCons, lastTime, longIdleCons);
+        return longIdleCons;
     }
 
-    public ConcurrentLinkedQueue<BackendConnection> getManCommitCons() {
-        return manCommitCons;
+    private void pollLongIdleCons(ConcurrentLinkedQueue<BackendConnection> cons, long lastTime, List<BackendConnection> longIdleCons) {
+        int length = cons.size();
+        for (int i = 0; i < length; i++) {
+            BackendConnection con = poll(cons);
+            if (con == null) {
+                break;
+            } else if (con.isClosedOrQuit()) {
+                continue;
+            } else if (con.getLastTime() < lastTime) {
+                longIdleCons.add(con);
+            } else {
+                // the queue is ordered by the last time
+                if (cons.offer(con)) {
+                    idleCount.incrementAndGet();
+                }
+                break;
+            }
+        }
     }
 
     public ArrayList<BackendConnection> getIdleConsToClose(int count) {
         ArrayList<BackendConnection> readyCloseCons = new ArrayList<>(count);
 
         while (!manCommitCons.isEmpty() && readyCloseCons.size() < count) {
-            BackendConnection theCon = manCommitCons.poll();
+            BackendConnection theCon = poll(manCommitCons);
             if (theCon != null) {
                 readyCloseCons.add(theCon);
             }
         }
 
         while (!autoCommitCons.isEmpty() && readyCloseCons.size() < count) {
-            BackendConnection theCon = autoCommitCons.poll();
+            BackendConnection theCon = poll(autoCommitCons);
             if (theCon != null) {
                 readyCloseCons.add(theCon);
             }
@@ -77,17 +128,16 @@ public class ConQueue {
     }
 
     public ArrayList<BackendConnection> getIdleConsToClose() {
-        ArrayList<BackendConnection> readyCloseCons = new ArrayList<>(
-                autoCommitCons.size() + manCommitCons.size());
+        ArrayList<BackendConnection> readyCloseCons = new ArrayList<>(getIdleCount());
         while (!manCommitCons.isEmpty()) {
-            BackendConnection theCon = manCommitCons.poll();
+            BackendConnection theCon = poll(manCommitCons);
             if (theCon != null) {
                 readyCloseCons.add(theCon);
             }
         }
 
         while (!autoCommitCons.isEmpty()) {
-            BackendConnection theCon = autoCommitCons.poll();
+            BackendConnection theCon = poll(autoCommitCons);
             if (theCon != null) {
                 readyCloseCons.add(theCon);
             }
@@ -18,6 +18,8 @@ import org.slf4j.LoggerFactory;
 
 import java.util.*;
 import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.locks.ReentrantLock;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
 
@@ -46,6 +48,9 @@ public class PhysicalDBPool {
 
     private final int balance;
     private final Random random = new Random();
+    /* the sources for the read balance, built again when the version changes by heartbeat, switch or reload */
+    private final AtomicInteger balanceVersion = new AtomicInteger();
+    private volatile BalanceSources balanceSources;
     private String[] schemas;
     private final DataHostConfig dataHostConfig;
 
@@ -156,6 +161,7 @@ public class PhysicalDBPool {
         } finally {
             adjustLock.writeLock().unlock();
         }
+        resetBalanceSources();
     }
 
     // ensure never be invocated concurrently
@@ -183,6 +189,7 @@ public class PhysicalDBPool {
         } finally {
             adjustLock.writeLock().unlock();
         }
+        resetBalanceSources();
     }
 
     public String getHostName() {
@@ -284,6 +291,7 @@ public class PhysicalDBPool {
             if (current != newIndex) {
                 // switch index
                 activeIndex = newIndex;
+                resetBalanceSources();
                 // init again
                 int result = this.init(activeIndex);
                 if (result >= 0) {
@@ -327,6 +335,7 @@ public class PhysicalDBPool {
             int j = loop(i + index);
             if (initSource(j, writeSources[j])) {
                 activeIndex = j;
+                resetBalanceSources();
                 initSuccess = true;
                 LOGGER.info(getMessage(j, " init success"));
                 return activeIndex;
@@ -503,29 +512,12 @@ public class PhysicalDBPool {
 
     PhysicalDatasource getRWBalanceNode() {
         PhysicalDatasource theNode;
-        ArrayList<PhysicalDatasource> okSources;
         switch (balance) {
-            case BALANCE_ALL_BACK: {
-                // all read nodes and the stand by masters
-                okSources = getAllActiveRWSources(true, false, checkSlaveSynStatus());
-                if (okSources.isEmpty()) {
-                    theNode = this.getSource();
-
-                } else {
-                    theNode = randomSelect(okSources);
-                }
-                break;
-            }
-            case BALANCE_ALL: {
-                okSources = getAllActiveRWSources(true, true, checkSlaveSynStatus());
-                theNode = randomSelect(okSources);
-                break;
-            }
-            case BALANCE_ALL_READ: {
-                okSources = getAllActiveRWSources(false, false, checkSlaveSynStatus());
-                theNode = randomSelect(okSources);
+            case BALANCE_ALL_BACK:
+            case BALANCE_ALL:
+            case BALANCE_ALL_READ:
+                theNode = balanceSelect(getBalanceSources());
                 break;
-            }
             case BALANCE_NONE:
             default:
                 // return default write data source
@@ -539,6 +531,98 @@ public class PhysicalDBPool {
         return theNode;
     }
 
+    /**
+     * the heartbeat results, the active write source or the sources changed
+     */
+    public void resetBalanceSources() {
+        balanceVersion.incrementAndGet();
+    }
+
+    private List<PhysicalDatasource> getBalanceSources() {
+        int version = balanceVersion.get();
+        BalanceSources cached = balanceSources;
+        if (cached == null || cached.version != version) {
+            ArrayList<PhysicalDatasource> okSources;
+            switch (balance) {
+                case BALANCE_ALL_BACK:
+                    // all read nodes and the stand by masters
+                    okSources = getAllActiveRWSources(true, false, checkSlaveSynStatus());
+                    break;
+                case BALANCE_ALL:
+                    okSources = getAllActiveRWSources(true, true, checkSlaveSynStatus());
+                    break;
+                default:
+                    okSources = getAllActiveRWSources(false, false, checkSlaveSynStatus());
+                    break;
+            }
+            // a reset while building makes the next read build again
+            cached = new BalanceSources(version, okSources);
+            balanceSources = cached;
+        }
+        return cached.sources;
+    }
+
+    /**
+     * power of two choices: two sources are taken randomly by weight, the one with the lower score is selected
+     *
+     * @param okSources okSources
+     * @return PhysicalDatasource
+     */
+    PhysicalDatasource balanceSelect(List<PhysicalDatasource> okSources) {
+        if (okSources.isEmpty()) {
+            return this.getSource();
+        } else if (okSources.size() == 1) {
+            return okSources.get(0);
+        }
+        int first = weightRandomIndex(okSources, -1);
+        int second = weightRandomIndex(okSources, first);
+        if (second < 0) {
+            return okSources.get(first);
+        }
+        PhysicalDatasource firstSource = okSources.get(first);
+        PhysicalDatasource secondSource = okSources.get(second);
+        return firstSource.getBalanceScore() <= secondSource.getBalanceScore() ? firstSource : secondSource;
+    }
+
+    /**
+     * @return the index selected randomly by weight except the excluded one, -1 if none left
+     */
+    private static int weightRandomIndex(List<PhysicalDatasource> okSources, int exclude) {
+        int totalWeight = 0;
+        int leftWeight = 0;
+        for (int i = 0; i < okSources.size(); i++) {
+            int weight = Math.max(0, okSources.get(i).getConfig().getWeight());
+            totalWeight += weight;
+            if (i != exclude) {
+                leftWeight += weight;
+            }
+        }
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        if (totalWeight > 0) {
+            // the sources of weight 0 are not selected while the others have weight
+            if (leftWeight == 0) {
+                return -1;
+            }
+            int offset = random.nextInt(leftWeight);
+            for (int i = 0; i < okSources.size(); i++) {
+                if (i == exclude) {
+                    continue;
+                }
+                offset -= Math.max(0, okSources.get(i).getConfig().getWeight());
+                if (offset < 0) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+        // all zero then random
+        int left = exclude < 0 ? okSources.size() : okSources.size() - 1;
+        if (left == 0) {
+            return -1;
+        }
+        int index = random.nextInt(left);
+        return exclude >= 0 && index >= exclude ? index + 1 : index;
+    }
 
     /**
      * get a random readHost connection from writeHost, used by slave hint
@@ -605,49 +689,6 @@ public class PhysicalDBPool {
                 (dataHostConfig.getSwitchType() == DataHostConfig.SYN_STATUS_SWITCH_DS);
     }
 
-    /**
-     * TODO: modify by zhuam
-     * <p>
-     * randomSelect by weight
-     *
-     * @param okSources okSources
-     * @return PhysicalDatasource
-     */
-    public PhysicalDatasource randomSelect(ArrayList<PhysicalDatasource> okSources) {
-
-        if (okSources.isEmpty()) {
-            return this.getSource();
-
-        } else {
-            int length = okSources.size();
-            int totalWeight = 0;
-            boolean sameWeight = true;
-            for (int i = 0; i < length; i++) {
-                int weight = okSources.get(i).getConfig().getWeight();
-                totalWeight += weight;
-                if (sameWeight && i > 0 && weight != okSources.get(i - 1).getConfig().getWeight()) {
-                    sameWeight = false;
-                }
-            }
-
-            if (totalWeight > 0 && !sameWeight) {
-                // random by different weight
-                int offset = random.nextInt(totalWeight);
-                for (PhysicalDatasource okSource : okSources) {
-                    offset -= okSource.getConfig().getWeight();
-                    if (offset < 0) {
-                        return okSource;
-                    }
-                }
-            }
-
-            // sameWeight or all zero then random
-            return okSources.get(random.nextInt(length));
-            // int index = Math.abs(random.nextInt()) % okSources.size();
-            // return okSources.get(index);
-        }
-    }
-
     private boolean isAlive(PhysicalDatasource theSource) {
         return theSource.isAlive();
     }
@@ -737,4 +778,14 @@ public class PhysicalDBPool {
     public void setSchemas(String[] mySchemas) {
         this.schemas = mySchemas;
     }
+
+    private static final class BalanceSources {
+        private final int version;
+        private final List<PhysicalDatasource> sources;
+
+        private BalanceSources(int version, List<PhysicalDatasource> sources) {
+            this.version = version;
+            this.sources = sources;
+        }
+    }
 }
@@ -19,6 +19,7 @@ import com.actiontech.dble.config.Alarms;
 import com.actiontech.dble.config.model.DBHostConfig;
 import com.actiontech.dble.config.model.DataHostConfig;
 import com.actiontech.dble.log.alarm.AlarmCode;
+import com.actiontech.dble.statistic.DataSourceLoadRecorder;
 import com.actiontech.dble.util.TimeUtil;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -26,7 +27,6 @@ import org.slf4j.LoggerFactory;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicLong;
 
@@ -37,7 +37,7 @@ public abstract class PhysicalDatasource {
     private final String name;
     private final int size;
     private final DBHostConfig config;
-    private final ConMap conMap = new ConMap();
+    private final ConMap conMap;
     private DBHeartbeat heartbeat;
     private final boolean readNode;
     private volatile long heartbeatRecoveryTime;
@@ -48,12 +48,17 @@ public abstract class PhysicalDatasource {
     private AtomicLong readCount = new AtomicLong(0);
 
     private AtomicLong writeCount = new AtomicLong(0);
+    /* the borrows which change the schema of the connection */
+    private final AtomicLong schemaSwitchCount = new AtomicLong(0);
+
+    private final DataSourceLoadRecorder loadRecorder = new DataSourceLoadRecorder();
 
     public PhysicalDatasource(DBHostConfig config, DataHostConfig hostConfig, boolean isReadNode) {
         this.size = config.getMaxCon();
         this.config = config;
         this.name = config.getHostName();
         this.hostConfig = hostConfig;
+        this.conMap = new ConMap(config.isSharedPool());
         heartbeat = this.createHeartBeat();
         this.readNode = isReadNode;
     }
@@ -73,6 +78,9 @@ public abstract class PhysicalDatasource {
     public void setDying() {
         heartbeat.stop();
         dying.compareAndSet(false, true);
+        if (dbPool != null) {
+            dbPool.resetBalanceSources();
+        }
         closeByDyingAll();
     }
 
@@ -96,6 +104,18 @@ public abstract class PhysicalDatasource {
         return hostConfig;
     }
 
+    public DataSourceLoadRecorder getLoadRecorder() {
+        return loadRecorder;
+    }
+
+    /**
+     * the read balance score of the data source, the lower the better
+     */
+    public long getBalanceScore() {
+        Integer slaveBehindMaster = heartbeat.getSlaveBehindMaster();
+        return loadRecorder.getScore(slaveBehindMaster == null ? 0 : slaveBehindMaster);
+    }
+
     public boolean isReadNode() {
         return readNode;
     }
@@ -127,20 +147,21 @@ public abstract class PhysicalDatasource {
         return executeCount;
     }
 
+    public long getSchemaSwitchCount() {
+        return schemaSwitchCount.get();
+    }
+
     public long getExecuteCountForSchema(String schema) {
         return conMap.getSchemaConQueue(schema).getExecuteCount();
 
     }
 
     public int getActiveCountForSchema(String schema) {
-        return conMap.getActiveCountForSchema(schema, this);
+        return conMap.getActiveCountForSchema(schema);
     }
 
     public int getIdleCountForSchema(String schema) {
-        ConQueue queue = conMap.getSchemaConQueue(schema);
-        int total = 0;
-        total += queue.getAutoCommitCons().size() + queue.getManCommitCons().size();
-        return total;
+        return conMap.getIdleCountForSchema(schema);
     }
 
     public DBHeartbeat getHeartbeat() {
@@ -148,11 +169,7 @@ public abstract class PhysicalDatasource {
     }
 
     public int getIdleCount() {
-        int total = 0;
-        for (ConQueue queue : conMap.getAllConQueue()) {
-            total += queue.getAutoCommitCons().size() + queue.getManCommitCons().size();
-        }
-        return total;
+        return conMap.getIdleCount();
     }
 
     public boolean isSalveOrRead() {
@@ -169,8 +186,11 @@ public abstract class PhysicalDatasource {
         long hearBeatTime = TimeUtil.currentTimeMillis() - conHeartBeatPeriod;
 
         for (ConQueue queue : conMap.getAllConQueue()) {
-            longIdleHeartBeat(queue.getAutoCommitCons(), hearBeatTime);
-            longIdleHeartBeat(queue.getManCommitCons(), hearBeatTime);
+            for (BackendConnection con : queue.getLongIdleCons(hearBeatTime)) {
+                con.setBorrowed(true);
+                borrowCon(con);
+                new ConnectionHeartBeatHandler().doHeartBeat(con);
+            }
         }
 
         //the following is about the idle connection number control
@@ -195,29 +215,6 @@ public abstract class PhysicalDatasource {
     }
 
 
-    /**
-     * check if the connection is not be used for a while & do connection heart beat
-     *
-     * @param linkedQueue
-     * @param hearBeatTime
-     */
-    private void longIdleHeartBeat(ConcurrentLinkedQueue<BackendConnection> linkedQueue, long hearBeatTime) {
-        long length = linkedQueue.size();
-        for (int i = 0; i < length; i++) {
-            BackendConnection con = linkedQueue.poll();
-            if (con.isClosedOrQuit()) {
-                continue;
-            } else if (con.getLastTime() < hearBeatTime) { //if the connection is idle for a long time
-                con.setBorrowed(true);
-                new ConnectionHeartBeatHandler().doHeartBeat(con);
-            } else {
-                linkedQueue.offer(con);
-                break;
-            }
-        }
-    }
-
-
     private void closeByDyingAll() {
         List<BackendConnection> readyCloseCons = new ArrayList<>(this.getIdleCount());
 
@@ -235,7 +232,7 @@ public abstract class PhysicalDatasource {
                 break;
             }
         }
-        if (this.conMap.getActiveCountForDs(this) == 0) {
+        if (this.conMap.getActiveCount() == 0) {
             this.dbPool.delRDs(this);
         }
     }
@@ -244,7 +241,7 @@ public abstract class PhysicalDatasource {
         LOGGER.info("too many ilde cons ,close some for datasouce  " + name + " want close :" + idleCloseCount + " total idle " + idleCons);
         List<BackendConnection> readyCloseCons = new ArrayList<BackendConnection>(idleCloseCount);
         for (ConQueue queue : conMap.getAllConQueue()) {
-            int closeNumber = (queue.getManCommitCons().size() + queue.getAutoCommitCons().size()) * idleCloseCount / idleCons;
+            int closeNumber = queue.getIdleCount() * idleCloseCount / idleCons;
             readyCloseCons.addAll(queue.getIdleConsToClose(closeNumber));
         }
 
@@ -277,7 +274,7 @@ public abstract class PhysicalDatasource {
     }
 
     public int getActiveCount() {
-        return this.conMap.getActiveCountForDs(this);
+        return this.conMap.getActiveCount();
     }
 
     public void clearCons(String reason) {
@@ -312,14 +309,38 @@ public abstract class PhysicalDatasource {
         if (!conn.getSchema().equals(schema)) {
             // need do schema syn in before sql send
             conn.setSchema(schema);
+            schemaSwitchCount.incrementAndGet();
         }
         ConQueue queue = conMap.getSchemaConQueue(schema);
         queue.incExecuteCount();
         // update last time, the schedule job will not close it
         conn.setLastTime(System.currentTimeMillis());
+        borrowCon(conn);
         return conn;
     }
 
+    /**
+     * count the connection as active and in flight until it is returned or closed
+     */
+    private void borrowCon(BackendConnection conn) {
+        conn.setBorrowTime(System.nanoTime());
+        conMap.incActiveCount(conn.getSchema());
+        loadRecorder.start();
+    }
+
+    /**
+     * @param responded false if the connection is closed, no response time is recorded
+     */
+    private void giveBackCon(BackendConnection conn, boolean responded) {
+        long borrowTime = conn.clearBorrowTime();
+        if (borrowTime == 0) {
+            return;
+        }
+        conMap.decActiveCount(conn.getSchema());
+        // a connection kept by a transaction tells nothing about the response time
+        loadRecorder.end(responded && conn.isAutocommit() ? System.nanoTime() - borrowTime : -1);
+    }
+
     private BackendConnection takeCon(BackendConnection conn,
                                       final ResponseHandler handler, final Object attachment,
                                       String schema) {
@@ -406,6 +427,7 @@ public abstract class PhysicalDatasource {
     }
 
     private void returnCon(BackendConnection c) {
+        giveBackCon(c, true);
         if (dying.get()) {
             c.close("dying");
             closeByDyingAll();
@@ -415,14 +437,9 @@ public abstract class PhysicalDatasource {
         c.setAttachment(null);
         c.setBorrowed(false);
         c.setLastTime(TimeUtil.currentTimeMillis());
-        ConQueue queue = this.conMap.getSchemaConQueue(c.getSchema());
+        ConQueue queue = this.conMap.getIdleConQueue(c.getSchema());
 
-        boolean ok = false;
-        if (c.isAutocommit()) {
-            ok = queue.getAutoCommitCons().offer(c);
-        } else {
-            ok = queue.getManCommitCons().offer(c);
-        }
+        boolean ok = queue.offerIdleCon(c);
 
         if (!ok) {
 
@@ -440,7 +457,8 @@ public abstract class PhysicalDatasource {
     }
 
     public void connectionClosed(BackendConnection conn) {
-        ConQueue queue = this.conMap.getSchemaConQueue(conn.getSchema());
+        giveBackCon(conn, false);
+        ConQueue queue = this.conMap.getIdleConQueue(conn.getSchema());
         if (queue != null) {
             queue.removeCon(conn);
         }
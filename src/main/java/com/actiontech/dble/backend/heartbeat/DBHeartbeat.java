@@ -43,13 +43,24 @@ public abstract class DBHeartbeat {
     }
 
     public void setDbSynStatus(int dbSynStatus) {
-        this.dbSynStatus = dbSynStatus;
+        if (this.dbSynStatus != dbSynStatus) {
+            this.dbSynStatus = dbSynStatus;
+            onResultChanged();
+        }
     }
 
     public void setSlaveBehindMaster(Integer slaveBehindMaster) {
-        this.slaveBehindMaster = slaveBehindMaster;
+        if (slaveBehindMaster == null ? this.slaveBehindMaster != null : !slaveBehindMaster.equals(this.slaveBehindMaster)) {
+            this.slaveBehindMaster = slaveBehindMaster;
+            onResultChanged();
+        }
     }
 
+    /**
+     * the status or the synchronization of the data source changed
+     */
+    protected abstract void onResultChanged();
+
     public int getStatus() {
         return status;
     }
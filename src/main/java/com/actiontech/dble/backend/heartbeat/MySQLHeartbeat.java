@@ -67,7 +67,10 @@ public class MySQLHeartbeat extends DBHeartbeat {
         reentrantLock.lock();
         try {
             isStop.compareAndSet(true, false);
-            super.status = OK_STATUS;
+            if (super.status != OK_STATUS) {
+                super.status = OK_STATUS;
+                onResultChanged();
+            }
         } finally {
             reentrantLock.unlock();
         }
@@ -128,6 +131,7 @@ public class MySQLHeartbeat extends DBHeartbeat {
 
     public void setResult(int result, String msg) {
         this.isChecking.set(false);
+        int oldStatus = this.status;
         switch (result) {
             case OK_STATUS:
                 setOk();
@@ -141,11 +145,22 @@ public class MySQLHeartbeat extends DBHeartbeat {
             default:
                 break;
         }
+        if (this.status != oldStatus) {
+            onResultChanged();
+        }
         if (this.status != OK_STATUS) {
             switchSourceIfNeed("heartbeat error");
         }
     }
 
+    @Override
+    protected void onResultChanged() {
+        PhysicalDBPool pool = this.source.getDbPool();
+        if (pool != null) {
+            pool.resetBalanceSources();
+        }
+    }
+
     private void setOk() {
         switch (status) {
             case TIMEOUT_STATUS:
@@ -9,6 +9,7 @@ import com.actiontech.dble.DbleServer;
 import com.actiontech.dble.backend.BackendConnection;
 import com.actiontech.dble.net.BackendAIOConnection;
 import com.actiontech.dble.net.mysql.BinaryPacket;
+import com.actiontech.dble.route.RouteResultset;
 import com.actiontech.dble.route.RouteResultsetNode;
 import com.actiontech.dble.sqlengine.mpp.LoadData;
 
@@ -28,6 +29,11 @@ public final class LoadDataUtil {
         BackendAIOConnection backendAIOConnection = (BackendAIOConnection) conn;
         RouteResultsetNode rrn = (RouteResultsetNode) conn.getAttachment();
         LoadData loadData = rrn.getLoadData();
+        if (loadData.getStream() != null) {
+            // the rows are still being parsed, the stream sends them as they come
+            loadData.getStream().start(packId, backendAIOConnection);
+            return;
+        }
         List<String> loadDataData = loadData.getData();
         try {
             if (loadDataData != null && loadDataData.size() > 0) {
@@ -62,6 +68,22 @@ public final class LoadDataUtil {
 
     }
 
+    /**
+     * the load failed, stop streaming rows to all the nodes. The streams are found by the route result
+     * rather than by the backend connection, which is null if it could not be acquired
+     */
+    public static void abortStreams(RouteResultset rrs) {
+        if (rrs == null || !rrs.isLoadData() || rrs.getNodes() == null) {
+            return;
+        }
+        for (RouteResultsetNode node : rrs.getNodes()) {
+            LoadData loadData = node.getLoadData();
+            if (loadData != null && loadData.getStream() != null) {
+                loadData.getStream().abort();
+            }
+        }
+    }
+
     public static byte writeToBackConnection(byte packID, InputStream inputStream, BackendAIOConnection backendAIOConnection) throws IOException {
         try {
             int packSize = DbleServer.getInstance().getConfig().getSystem().getBufferPoolChunkSize() - 5;
@@ -5,6 +5,8 @@
 */
 package com.actiontech.dble.backend.mysql;
 
+import com.actiontech.dble.route.RouteShapePlan;
+
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.util.HashMap;
@@ -28,6 +30,11 @@ public class PreparedStatement {
      * </pre>
      */
     private Map<Long, ByteArrayOutputStream> longDataMap;
+    /* made by the first execution, see RouteService.routePrepared */
+    private RouteShapePlan routePlan;
+    private int sqlType;
+    private String routeSchema;
+    private long routePlanVersion;
 
     public PreparedStatement(long id, String statement, int columnsNumber, int parametersNumber) {
         this.id = id;
@@ -58,6 +65,29 @@ public class PreparedStatement {
         return parametersType;
     }
 
+    public RouteShapePlan getRoutePlan() {
+        return routePlan;
+    }
+
+    public int getSqlType() {
+        return sqlType;
+    }
+
+    public String getRouteSchema() {
+        return routeSchema;
+    }
+
+    public long getRoutePlanVersion() {
+        return routePlanVersion;
+    }
+
+    public void setRoutePlan(RouteShapePlan plan, int type, String schema, long version) {
+        this.routePlan = plan;
+        this.sqlType = type;
+        this.routeSchema = schema;
+        this.routePlanVersion = version;
+    }
+
     public ByteArrayOutputStream getLongData(long paramId) {
         return longDataMap.get(paramId);
     }
@@ -32,6 +32,7 @@ import java.security.NoSuchAlgorithmException;
 import java.util.*;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * @author mycat
@@ -43,6 +44,7 @@ public class MySQLConnection extends BackendAIOConnection {
     private volatile String schema = null;
     private volatile String oldSchema;
     private volatile boolean borrowed = false;
+    private final AtomicLong borrowTime = new AtomicLong(0);
     private volatile boolean modifiedSQLExecuted = false;
     private volatile boolean isDDL = false;
     private volatile boolean isRunning;
@@ -605,6 +607,16 @@ public class MySQLConnection extends BackendAIOConnection {
         this.borrowed = borrowed;
     }
 
+    @Override
+    public void setBorrowTime(long borrowTime) {
+        this.borrowTime.set(borrowTime);
+    }
+
+    @Override
+    public long clearBorrowTime() {
+        return borrowTime.getAndSet(0);
+    }
+
     @Override
     public String toString() {
         StringBuilder result = new StringBuilder();
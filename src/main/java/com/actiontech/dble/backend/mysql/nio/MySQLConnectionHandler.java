@@ -9,6 +9,8 @@ import com.actiontech.dble.DbleServer;
 import com.actiontech.dble.backend.mysql.ByteUtil;
 import com.actiontech.dble.backend.mysql.nio.handler.LoadDataResponseHandler;
 import com.actiontech.dble.backend.mysql.nio.handler.ResponseHandler;
+import com.actiontech.dble.backend.mysql.nio.handler.RowBufferResponseHandler;
+import com.actiontech.dble.net.NIOBufferHandler;
 import com.actiontech.dble.net.handler.BackendAsyncHandler;
 import com.actiontech.dble.net.mysql.EOFPacket;
 import com.actiontech.dble.net.mysql.ErrorPacket;
@@ -18,6 +20,7 @@ import com.actiontech.dble.server.NonBlockingSession;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -26,7 +29,7 @@ import java.util.List;
  *
  * @author mycat
  */
-public class MySQLConnectionHandler extends BackendAsyncHandler {
+public class MySQLConnectionHandler extends BackendAsyncHandler implements NIOBufferHandler {
     private static final Logger LOGGER = LoggerFactory.getLogger(MySQLConnectionHandler.class);
     private static final int RESULT_STATUS_INIT = 0;
     private static final int RESULT_STATUS_HEADER = 1;
@@ -70,6 +73,41 @@ public class MySQLConnectionHandler extends BackendAsyncHandler {
         }
     }
 
+    /**
+     * row packets for a RowBufferResponseHandler are passed through from the read buffer in the
+     * reactor thread, as long as no packet of this connection is queued or being handled
+     */
+    @Override
+    public boolean handle(ByteBuffer buffer, int offset, int length) {
+        if (resultStatus != RESULT_STATUS_FIELD_EOF || !(responseHandler instanceof RowBufferResponseHandler)) {
+            return false;
+        }
+        byte type = buffer.get(offset + 4);
+        if (type == ErrorPacket.FIELD_COUNT || type == EOFPacket.FIELD_COUNT) {
+            return false;
+        }
+        if (!isHandling.compareAndSet(false, true)) {
+            return false;
+        }
+        try {
+            // check again, the status may be changed by the handling just finished
+            ResponseHandler respHand = responseHandler;
+            if (!dataQueue.isEmpty() || resultStatus != RESULT_STATUS_FIELD_EOF ||
+                    !(respHand instanceof RowBufferResponseHandler)) {
+                return false;
+            }
+            if (session != null) {
+                session.setBackendResponseTime(source.getId());
+            }
+            return ((RowBufferResponseHandler) respHand).rowBufferResponse(buffer, offset, length, source);
+        } catch (Exception e) {
+            handleDataError(e);
+            return true;
+        } finally {
+            isHandling.set(false);
+        }
+    }
+
     @Override
     protected void offerDataError() {
         resultStatus = RESULT_STATUS_INIT;
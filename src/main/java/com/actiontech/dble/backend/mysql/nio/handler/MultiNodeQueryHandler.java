@@ -40,7 +40,7 @@ import java.util.Set;
 /**
  * @author mycat
  */
-public class MultiNodeQueryHandler extends MultiNodeHandler implements LoadDataResponseHandler {
+public class MultiNodeQueryHandler extends MultiNodeHandler implements LoadDataResponseHandler, RowBufferResponseHandler {
     private static final Logger LOGGER = LoggerFactory.getLogger(MultiNodeQueryHandler.class);
     protected final RouteResultset rrs;
     protected final NonBlockingSession session;
@@ -143,6 +143,7 @@ public class MultiNodeQueryHandler extends MultiNodeHandler implements LoadDataR
 
     @Override
     public void connectionClose(BackendConnection conn, String reason) {
+        LoadDataUtil.abortStreams(rrs);
         if (checkClosedConn(conn)) {
             return;
         }
@@ -157,6 +158,7 @@ public class MultiNodeQueryHandler extends MultiNodeHandler implements LoadDataR
 
     @Override
     public void connectionError(Throwable e, BackendConnection conn) {
+        LoadDataUtil.abortStreams(rrs);
         LOGGER.info("backend connect", e);
         ErrorPacket errPacket = new ErrorPacket();
         errPacket.setPacketId(++packetId);
@@ -179,6 +181,7 @@ public class MultiNodeQueryHandler extends MultiNodeHandler implements LoadDataR
         errPacket.read(data);
         errPacket.setPacketId(1); //TODO :CONFIRM ?++packetId??
         err = errPacket;
+        LoadDataUtil.abortStreams(rrs);
         lock.lock();
         try {
             if (!isFail()) {
@@ -369,6 +372,33 @@ public class MultiNodeQueryHandler extends MultiNodeHandler implements LoadDataR
         return false;
     }
 
+    @Override
+    public boolean rowBufferResponse(ByteBuffer src, int offset, int length, BackendConnection conn) {
+        if (errorResponse.get()) {
+            return true;
+        }
+        lock.lock();
+        try {
+            if (primaryKeyIndex != -1 || prepared) {
+                return false;
+            }
+            this.selectRows++;
+            if (rrs.getLimitSize() >= 0) {
+                if (selectRows <= rrs.getLimitStart() ||
+                        (selectRows > (rrs.getLimitStart() < 0 ? 0 : rrs.getLimitStart()) + rrs.getLimitSize())) {
+                    return true;
+                }
+            }
+            src.put(offset + 3, ++packetId);
+            byteBuffer = session.getSource().writeToBuffer(src, offset, length, byteBuffer);
+        } catch (Exception e) {
+            handleDataProcessException(e);
+        } finally {
+            lock.unlock();
+        }
+        return true;
+    }
+
     @Override
     public void clearResources() {
         if (closedConnSet != null) {
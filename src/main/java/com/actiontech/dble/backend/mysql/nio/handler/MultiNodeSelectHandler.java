@@ -23,6 +23,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.util.*;
 import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.ConcurrentHashMap;
@@ -95,6 +96,12 @@ public class MultiNodeSelectHandler extends MultiNodeQueryHandler {
         }
     }
 
+    @Override
+    public boolean rowBufferResponse(ByteBuffer src, int offset, int length, BackendConnection conn) {
+        // the rows are rewritten, take them as byte[] in rowResponse
+        return false;
+    }
+
     @Override
     public boolean rowResponse(final byte[] row, RowDataPacket rowPacketNull, boolean isLeft, BackendConnection conn) {
         if (errorResponse.get() || noNeedRows) {
@@ -0,0 +1,24 @@
+/*
+ * Copyright (C) 2016-2018 ActionTech.
+ * License: http://www.gnu.org/licenses/gpl.html GPL version 2 or higher.
+ */
+
+package com.actiontech.dble.backend.mysql.nio.handler;
+
+import com.actiontech.dble.backend.BackendConnection;
+
+import java.nio.ByteBuffer;
+
+/**
+ * a ResponseHandler which passes the row packets through without reading them,
+ * so the rows can be taken right from the read buffer of the backend connection
+ */
+public interface RowBufferResponseHandler {
+    /**
+     * the row is only valid during the call and must not be kept, the position
+     * and limit of the buffer must be kept
+     *
+     * @return false if the row is not handled, it is then passed to rowResponse as a byte[]
+     */
+    boolean rowBufferResponse(ByteBuffer buffer, int offset, int length, BackendConnection conn);
+}
@@ -22,6 +22,7 @@ import com.actiontech.dble.server.response.ShowTablesStmtInfo;
 import com.actiontech.dble.server.response.ShowTables;
 import com.actiontech.dble.util.StringUtil;
 
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
@@ -78,6 +79,12 @@ public class ShowTablesHandler extends SingleNodeHandler {
         }
     }
 
+    @Override
+    public boolean rowBufferResponse(ByteBuffer src, int offset, int length, BackendConnection conn) {
+        // the rows are rewritten, take them as byte[] in rowResponse
+        return false;
+    }
+
     @Override
     public boolean rowResponse(byte[] row, RowDataPacket rowPacket, boolean isLeft, BackendConnection conn) {
         RowDataPacket rowDataPacket = new RowDataPacket(1);
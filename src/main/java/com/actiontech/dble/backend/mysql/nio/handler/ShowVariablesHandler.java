@@ -11,6 +11,7 @@ import com.actiontech.dble.route.RouteResultset;
 import com.actiontech.dble.server.NonBlockingSession;
 import com.actiontech.dble.util.StringUtil;
 
+import java.nio.ByteBuffer;
 import java.util.Map;
 
 public class ShowVariablesHandler extends SingleNodeHandler {
@@ -21,6 +22,12 @@ public class ShowVariablesHandler extends SingleNodeHandler {
         shadowVars = session.getSource().getSysVariables();
     }
 
+    @Override
+    public boolean rowBufferResponse(ByteBuffer src, int offset, int length, BackendConnection conn) {
+        // the rows are rewritten, take them as byte[] in rowResponse
+        return false;
+    }
+
     @Override
     public boolean rowResponse(byte[] row, RowDataPacket rowPacket, boolean isLeft, BackendConnection conn) {
         String charset = session.getSource().getCharset().getResults();
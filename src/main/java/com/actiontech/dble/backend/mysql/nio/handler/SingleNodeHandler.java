@@ -31,7 +31,7 @@ import java.util.List;
 /**
  * @author mycat
  */
-public class SingleNodeHandler implements ResponseHandler, LoadDataResponseHandler {
+public class SingleNodeHandler implements ResponseHandler, LoadDataResponseHandler, RowBufferResponseHandler {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(SingleNodeHandler.class);
 
@@ -115,6 +115,7 @@ public class SingleNodeHandler implements ResponseHandler, LoadDataResponseHandl
 
     @Override
     public void connectionError(Throwable e, BackendConnection conn) {
+        LoadDataUtil.abortStreams(rrs);
         session.handleSpecial(rrs, session.getSource().getSchema(), true);
         recycleResources();
         session.getSource().close(e.getMessage());
@@ -125,6 +126,7 @@ public class SingleNodeHandler implements ResponseHandler, LoadDataResponseHandl
         ErrorPacket err = new ErrorPacket();
         err.read(data);
         err.setPacketId(++packetId);
+        LoadDataUtil.abortStreams(rrs);
         backConnectionErr(err, conn);
     }
 
@@ -345,6 +347,18 @@ public class SingleNodeHandler implements ResponseHandler, LoadDataResponseHandl
         return false;
     }
 
+    @Override
+    public boolean rowBufferResponse(ByteBuffer src, int offset, int length, BackendConnection conn) {
+        if (primaryKeyIndex != -1 || prepared) {
+            return false;
+        }
+        this.netOutBytes += length;
+        this.selectRows++;
+        src.put(offset + 3, ++packetId);
+        buffer = session.getSource().writeToBuffer(src, offset, length, allocBuffer());
+        return true;
+    }
+
     @Override
     public void writeQueueAvailable() {
 
@@ -352,6 +366,7 @@ public class SingleNodeHandler implements ResponseHandler, LoadDataResponseHandl
 
     @Override
     public void connectionClose(BackendConnection conn, String reason) {
+        LoadDataUtil.abortStreams(rrs);
         ErrorPacket err = new ErrorPacket();
         err.setPacketId(++packetId);
         err.setErrNo(ErrorCode.ER_ERROR_ON_CLOSE);
@@ -221,8 +221,7 @@ public abstract class BaseHandlerBuilder {
                 // can not merge,need distinct then order by
                 DistinctHandler dh = new DistinctHandler(getSequenceId(), session, node.getColumnsSelected());
                 addHandler(dh);
-                OrderByHandler oh = new OrderByHandler(getSequenceId(), session, node.getOrderBys());
-                addHandler(oh);
+                addOrderByHandler(node.getOrderBys());
             } else {
                 DistinctHandler dh = new DistinctHandler(getSequenceId(), session, node.getColumnsSelected(),
                         mergedOrders);
@@ -237,12 +236,10 @@ public abstract class BaseHandlerBuilder {
             if (node.getOrderBys().size() > 0) {
                 if (node.getGroupBys().size() > 0) {
                     if (!PlanUtil.orderContains(node.getGroupBys(), node.getOrderBys())) {
-                        OrderByHandler oh = new OrderByHandler(getSequenceId(), session, node.getOrderBys());
-                        addHandler(oh);
+                        addOrderByHandler(node.getOrderBys());
                     }
                 } else if (isOrderNeeded(node, node.getOrderBys())) {
-                    OrderByHandler oh = new OrderByHandler(getSequenceId(), session, node.getOrderBys());
-                    addHandler(oh);
+                    addOrderByHandler(node.getOrderBys());
                 }
             }
         }
@@ -253,6 +250,20 @@ public abstract class BaseHandlerBuilder {
 
     }
 
+    /**
+     * order by with a small limit only keeps the top rows
+     */
+    private void addOrderByHandler(List<Order> orderBys) {
+        long topN = node.getLimitTo() > 0 ? Math.max(node.getLimitFrom(), 0) + node.getLimitTo() : -1;
+        if (topN > 0 && topN <= DbleServer.getInstance().getConfig().getSystem().getTopNRowsSize()) {
+            TopNHandler th = new TopNHandler(getSequenceId(), session, orderBys, (int) topN);
+            addHandler(th);
+        } else {
+            OrderByHandler oh = new OrderByHandler(getSequenceId(), session, orderBys);
+            addHandler(oh);
+        }
+    }
+
     /**
      * add a handler into handler chain
      */
@@ -298,6 +309,10 @@ public abstract class BaseHandlerBuilder {
      * @return
      */
     private boolean isJoinNodeOrderMatch(JoinNode jn, List<Order> orderBys) {
+        if (jn.getStrategy() == JoinNode.Strategy.HASH) {
+            // the rows of hash join are in the order of the probe side
+            return false;
+        }
         // onCondition column in orderBys will be saved to onOrders,
         // eg: if jn.onCond = (t1.id=t2.id),
         // orderBys is t1.id,t2.id,t1.name, and onOrders = {t1.id,t2.id};
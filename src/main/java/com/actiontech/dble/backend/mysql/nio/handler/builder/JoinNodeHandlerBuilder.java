@@ -9,6 +9,7 @@ import com.actiontech.dble.backend.mysql.nio.handler.builder.sqlvisitor.PushDown
 import com.actiontech.dble.backend.mysql.nio.handler.query.DMLResponseHandler;
 import com.actiontech.dble.backend.mysql.nio.handler.query.impl.OrderByHandler;
 import com.actiontech.dble.backend.mysql.nio.handler.query.impl.TempTableHandler;
+import com.actiontech.dble.backend.mysql.nio.handler.query.impl.join.HashJoinHandler;
 import com.actiontech.dble.backend.mysql.nio.handler.query.impl.join.JoinHandler;
 import com.actiontech.dble.backend.mysql.nio.handler.query.impl.join.NotInHandler;
 import com.actiontech.dble.backend.mysql.nio.handler.util.CallBackHandler;
@@ -124,7 +125,7 @@ class JoinNodeHandlerBuilder extends BaseHandlerBuilder {
             }
             tempHandler.setTempDoneCallBack(tempDone);
 
-        } else if (node.getStrategy() == JoinNode.Strategy.SORTMERGE) {
+        } else if (node.getStrategy() == JoinNode.Strategy.SORTMERGE || node.getStrategy() == JoinNode.Strategy.HASH) {
             DMLResponseHandler lh = buildJoinChild(left, true);
             pres.add(lh);
             DMLResponseHandler rh = buildJoinChild(right, false);
@@ -142,15 +143,16 @@ class JoinNodeHandlerBuilder extends BaseHandlerBuilder {
             this.getSubQueryBuilderList().addAll(builder.getSubQueryBuilderList());
         }
         DMLResponseHandler endHandler = builder.getEndHandler();
+        boolean needOrder = node.getStrategy() != JoinNode.Strategy.HASH;
         if (isLeft) {
-            if (!node.isLeftOrderMatch()) {
+            if (needOrder && !node.isLeftOrderMatch()) {
                 OrderByHandler oh = new OrderByHandler(getSequenceId(), session, node.getLeftJoinOnOrders());
                 endHandler.setNextHandler(oh);
                 endHandler = oh;
             }
             endHandler.setLeft(true);
         } else {
-            if (!node.isRightOrderMatch()) {
+            if (needOrder && !node.isRightOrderMatch()) {
                 OrderByHandler oh = new OrderByHandler(getSequenceId(), session, node.getRightJoinOnOrders());
                 endHandler.setNextHandler(oh);
                 endHandler = oh;
@@ -165,6 +167,11 @@ class JoinNodeHandlerBuilder extends BaseHandlerBuilder {
             NotInHandler nh = new NotInHandler(getSequenceId(), session, node.getLeftJoinOnOrders(),
                     node.getRightJoinOnOrders());
             addHandler(nh);
+        } else if (node.getStrategy() == JoinNode.Strategy.HASH) {
+            HashJoinHandler hh = new HashJoinHandler(getSequenceId(), session, node.isLeftOuterJoin(),
+                    node.isHashBuildLeft(), node.getLeftJoinOnOrders(), node.getRightJoinOnOrders(),
+                    node.getOtherJoinOnFilter());
+            addHandler(hh);
         } else {
             JoinHandler jh = new JoinHandler(getSequenceId(), session, node.isLeftOuterJoin(),
                     node.getLeftJoinOnOrders(), node.getRightJoinOnOrders(), node.getOtherJoinOnFilter());
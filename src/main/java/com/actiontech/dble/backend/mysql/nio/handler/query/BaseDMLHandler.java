@@ -85,6 +85,18 @@ public abstract class BaseDMLHandler implements DMLResponseHandler {
 
     protected abstract void onTerminate() throws Exception;
 
+    /**
+     * the handlers which do not deal with the batch as a whole get its rows one by one
+     */
+    @Override
+    public boolean rowBatchResponse(RowBatch batch, boolean left, BackendConnection conn) {
+        for (int i = 0; i < batch.size(); i++) {
+            if (rowResponse(null, batch.get(i), left, conn))
+                return true;
+        }
+        return false;
+    }
+
     @Override
     public void connectionError(Throwable e, BackendConnection conn) {
         // TODO Auto-generated method stub
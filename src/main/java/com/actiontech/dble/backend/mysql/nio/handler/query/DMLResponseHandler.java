@@ -5,6 +5,7 @@
 
 package com.actiontech.dble.backend.mysql.nio.handler.query;
 
+import com.actiontech.dble.backend.BackendConnection;
 import com.actiontech.dble.backend.mysql.nio.handler.ResponseHandler;
 
 import java.util.List;
@@ -28,6 +29,13 @@ public interface DMLResponseHandler extends ResponseHandler {
 
     void setLeft(boolean left);
 
+    /**
+     * the rows of the batch in order, as if rowResponse were called for each of them
+     *
+     * @return true if no more rows are needed
+     */
+    boolean rowBatchResponse(RowBatch batch, boolean isLeft, BackendConnection conn);
+
     void terminate();
 
 }
@@ -0,0 +1,55 @@
+/*
+ * Copyright (C) 2016-2018 ActionTech.
+ * License: http://www.gnu.org/licenses/gpl.html GPL version 2 or higher.
+ */
+
+package com.actiontech.dble.backend.mysql.nio.handler.query;
+
+import com.actiontech.dble.net.mysql.RowDataPacket;
+
+/**
+ * RowBatch
+ * <p>
+ * rows passed to the next handler by one rowBatchResponse call. The handler which receives the batch
+ * may keep its rows but not the batch, the sender reuses it after the call.
+ * </p>
+ */
+public final class RowBatch {
+    private final RowDataPacket[] rows;
+    private int size;
+
+    public RowBatch(int capacity) {
+        this.rows = new RowDataPacket[capacity];
+    }
+
+    public boolean add(RowDataPacket row) {
+        rows[size++] = row;
+        return size == rows.length;
+    }
+
+    public RowDataPacket get(int index) {
+        return rows[index];
+    }
+
+    /**
+     * the value of a column in the row without copying it, the batch is read column by column with it
+     */
+    public byte[] getValue(int index, int column) {
+        return rows[index].getValue(column);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public void clear() {
+        for (int i = 0; i < size; i++) {
+            rows[i] = null;
+        }
+        size = 0;
+    }
+}
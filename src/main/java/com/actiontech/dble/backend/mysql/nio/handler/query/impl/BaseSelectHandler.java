@@ -11,6 +11,7 @@ import com.actiontech.dble.backend.datasource.PhysicalDBNode;
 import com.actiontech.dble.backend.mysql.CharsetUtil;
 import com.actiontech.dble.backend.mysql.nio.MySQLConnection;
 import com.actiontech.dble.backend.mysql.nio.handler.query.BaseDMLHandler;
+import com.actiontech.dble.backend.mysql.nio.handler.query.RowBatch;
 import com.actiontech.dble.net.mysql.ErrorPacket;
 import com.actiontech.dble.net.mysql.FieldPacket;
 import com.actiontech.dble.net.mysql.RowDataPacket;
@@ -30,7 +31,8 @@ public class BaseSelectHandler extends BaseDMLHandler {
 
     private final boolean autocommit;
     private volatile int fieldCounts = -1;
-
+    /* the rows are read by the thread of the connection only, null when they are passed one by one */
+    private final RowBatch batch;
 
     private RouteResultsetNode rrss;
 
@@ -39,6 +41,8 @@ public class BaseSelectHandler extends BaseDMLHandler {
         super(id, session);
         this.rrss = rrss;
         this.autocommit = autocommit;
+        int batchSize = DbleServer.getInstance().getConfig().getSystem().getRowBatchSize();
+        this.batch = batchSize > 1 ? new RowBatch(batchSize) : null;
     }
 
     public MySQLConnection initConnection() throws Exception {
@@ -112,10 +116,22 @@ public class BaseSelectHandler extends BaseDMLHandler {
             return true;
         RowDataPacket rp = new RowDataPacket(fieldCounts);
         rp.read(row);
-        nextHandler.rowResponse(null, rp, this.isLeft, conn);
+        if (batch == null) {
+            nextHandler.rowResponse(null, rp, this.isLeft, conn);
+        } else if (batch.add(rp)) {
+            flushBatch(conn);
+        }
         return false;
     }
 
+    private void flushBatch(BackendConnection conn) {
+        try {
+            nextHandler.rowBatchResponse(batch, this.isLeft, conn);
+        } finally {
+            batch.clear();
+        }
+    }
+
     @Override
     public void rowEofResponse(byte[] data, boolean isLeft, BackendConnection conn) {
         if (LOGGER.isDebugEnabled()) {
@@ -124,6 +140,9 @@ public class BaseSelectHandler extends BaseDMLHandler {
         ((MySQLConnection) conn).setRunning(false);
         if (this.terminate.get())
             return;
+        if (batch != null && !batch.isEmpty()) {
+            flushBatch(conn);
+        }
         nextHandler.rowEofResponse(data, this.isLeft, conn);
     }
 
@@ -7,7 +7,10 @@ package com.actiontech.dble.backend.mysql.nio.handler.query.impl;
 
 import com.actiontech.dble.backend.BackendConnection;
 import com.actiontech.dble.backend.mysql.nio.handler.query.BaseDMLHandler;
+import com.actiontech.dble.backend.mysql.nio.handler.query.RowBatch;
+import com.actiontech.dble.backend.mysql.nio.handler.util.CompiledCondition;
 import com.actiontech.dble.backend.mysql.nio.handler.util.HandlerTool;
+import com.actiontech.dble.backend.mysql.nio.handler.util.ItemCompiler;
 import com.actiontech.dble.net.mysql.FieldPacket;
 import com.actiontech.dble.net.mysql.RowDataPacket;
 import com.actiontech.dble.plan.common.field.Field;
@@ -35,6 +38,7 @@ public class HavingHandler extends BaseDMLHandler {
     private Item having = null;
     private Item havingItem = null;
     private List<Field> sourceFields;
+    private CompiledCondition condition;
     private ReentrantLock lock = new ReentrantLock();
 
     @Override
@@ -52,27 +56,63 @@ public class HavingHandler extends BaseDMLHandler {
          * having will not be pushed down because of aggregate function
          */
         this.havingItem = HandlerTool.createItem(this.having, this.sourceFields, 0, false, this.type());
+        condition = ItemCompiler.compile(havingItem, this.sourceFields);
         nextHandler.fieldEofResponse(null, null, this.fieldPackets, null, this.isLeft, conn);
     }
 
     public boolean rowResponse(byte[] rowNull, final RowDataPacket rowPacket, boolean isLeft, BackendConnection conn) {
         if (terminate.get())
             return true;
+        if (condition.isThreadSafe()) {
+            filter(rowPacket, conn);
+            return false;
+        }
         lock.lock();
         try {
-            HandlerTool.initFields(this.sourceFields, rowPacket.fieldValues);
-            /* filter by having statement */
-            if (havingItem.valBool()) {
-                nextHandler.rowResponse(null, rowPacket, this.isLeft, conn);
-            } else {
-                // nothing
-            }
+            filter(rowPacket, conn);
             return false;
         } finally {
             lock.unlock();
         }
     }
 
+    @Override
+    public boolean rowBatchResponse(RowBatch batch, boolean isLeft, BackendConnection conn) {
+        if (terminate.get())
+            return true;
+        RowBatch matched = new RowBatch(batch.size());
+        if (condition.isThreadSafe()) {
+            filter(batch, matched);
+        } else {
+            lock.lock();
+            try {
+                filter(batch, matched);
+            } finally {
+                lock.unlock();
+            }
+        }
+        if (!matched.isEmpty()) {
+            nextHandler.rowBatchResponse(matched, this.isLeft, conn);
+        }
+        return false;
+    }
+
+    private void filter(RowBatch batch, RowBatch matched) {
+        for (int i = 0; i < batch.size(); i++) {
+            RowDataPacket rowPacket = batch.get(i);
+            if (condition.match(rowPacket)) {
+                matched.add(rowPacket);
+            }
+        }
+    }
+
+    private void filter(RowDataPacket rowPacket, BackendConnection conn) {
+        /* filter by having statement */
+        if (condition.match(rowPacket)) {
+            nextHandler.rowResponse(null, rowPacket, this.isLeft, conn);
+        }
+    }
+
     @Override
     public void rowEofResponse(byte[] data, boolean isLeft, BackendConnection conn) {
         LOGGER.debug("roweof");
@@ -10,6 +10,7 @@ import com.actiontech.dble.backend.BackendConnection;
 import com.actiontech.dble.backend.mysql.nio.MySQLConnection;
 import com.actiontech.dble.backend.mysql.nio.handler.query.DMLResponseHandler;
 import com.actiontech.dble.backend.mysql.nio.handler.query.OwnThreadDMLHandler;
+import com.actiontech.dble.backend.mysql.nio.handler.query.RowBatch;
 import com.actiontech.dble.backend.mysql.nio.handler.util.ArrayMinHeap;
 import com.actiontech.dble.backend.mysql.nio.handler.util.HeapItem;
 import com.actiontech.dble.backend.mysql.nio.handler.util.RowDataComparator;
@@ -20,13 +21,12 @@ import com.actiontech.dble.plan.Order;
 import com.actiontech.dble.plan.common.exception.MySQLOutPutException;
 import com.actiontech.dble.route.RouteResultsetNode;
 import com.actiontech.dble.server.NonBlockingSession;
+import com.actiontech.dble.util.SpscRingQueue;
 import org.apache.log4j.Logger;
 
 import java.util.*;
 import java.util.Map.Entry;
-import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.locks.ReentrantLock;
 
 /**
@@ -38,10 +38,12 @@ public class MultiNodeMergeHandler extends OwnThreadDMLHandler {
     private static final Logger LOGGER = Logger.getLogger(MultiNodeMergeHandler.class);
 
     private final int queueSize;
+    // stop reading from the backend at queueSize rows and read again at lowWatermark
+    private final int lowWatermark;
     private final ReentrantLock lock;
     private final List<BaseSelectHandler> exeHandlers;
-    // map;conn->blocking queue.if receive row packet, add to the queue,if receive rowEof packet, add NullHeapItem into queue;
-    private Map<MySQLConnection, BlockingQueue<HeapItem>> queues;
+    // map;conn->ring queue.if receive row packet, add to the queue,if receive rowEof packet, add NullHeapItem into queue;
+    private Map<MySQLConnection, SpscRingQueue<HeapItem>> queues;
     private List<Order> orderBys;
     private RowDataComparator rowComparator;
     private RouteResultsetNode[] route;
@@ -64,6 +66,7 @@ public class MultiNodeMergeHandler extends OwnThreadDMLHandler {
         this.route = route;
         this.orderBys = orderBys;
         this.queueSize = DbleServer.getInstance().getConfig().getSystem().getMergeQueueSize();
+        this.lowWatermark = queueSize / 2;
         this.isEasyMerge = route.length == 1 || (orderBys == null || orderBys.size() == 0);
         this.queues = new ConcurrentHashMap<>();
         this.merges.add(this);
@@ -81,7 +84,8 @@ public class MultiNodeMergeHandler extends OwnThreadDMLHandler {
                 MySQLConnection exeConn = exeHandler.initConnection();
                 if (exeConn != null) {
                     exeConn.setComplexQuery(true);
-                    queues.put(exeConn, new LinkedBlockingQueue<HeapItem>(queueSize));
+                    // the rows already read when the connection is paused still come, leave room for them
+                    queues.put(exeConn, new SpscRingQueue<HeapItem>(queueSize * 2));
                     exeHandler.execute(exeConn);
                 }
             }
@@ -127,19 +131,34 @@ public class MultiNodeMergeHandler extends OwnThreadDMLHandler {
             nextHandler.rowResponse(null, rowPacket, this.isLeft, conn);
         } else {
             MySQLConnection mySQLConn = (MySQLConnection) conn;
-            BlockingQueue<HeapItem> queue = queues.get(mySQLConn);
+            SpscRingQueue<HeapItem> queue = queues.get(mySQLConn);
             if (queue == null)
                 return true;
-            HeapItem item = new HeapItem(row, rowPacket, mySQLConn);
-            try {
-                queue.put(item);
-            } catch (InterruptedException e) {
-                //ignore error
+            // the thread of the connection never waits, the ring is full only when the read buffer
+            // holds more rows than the free room, then the rows are kept in the overflow of the queue
+            queue.offerOrOverflow(new HeapItem(row, rowPacket, mySQLConn));
+            if (queue.size() >= queueSize && !mySQLConn.isReadPaused()) {
+                mySQLConn.disableRead();
+                // the merge thread may have drained the queue before it saw the pause
+                if (queue.size() <= lowWatermark) {
+                    mySQLConn.enableRead();
+                }
             }
         }
         return false;
     }
 
+    @Override
+    public boolean rowBatchResponse(RowBatch batch, boolean isLeft, BackendConnection conn) {
+        if (terminate.get() || noNeedRows)
+            return true;
+        if (isEasyMerge) {
+            nextHandler.rowBatchResponse(batch, this.isLeft, conn);
+            return false;
+        }
+        return super.rowBatchResponse(batch, isLeft, conn);
+    }
+
     @Override
     public void rowEofResponse(byte[] data, boolean isLeft, BackendConnection conn) {
         if (LOGGER.isInfoEnabled()) {
@@ -157,14 +176,10 @@ public class MultiNodeMergeHandler extends OwnThreadDMLHandler {
                 lock.unlock();
             }
         } else {
-            BlockingQueue<HeapItem> queue = queues.get(conn);
+            SpscRingQueue<HeapItem> queue = queues.get(conn);
             if (queue == null)
                 return;
-            try {
-                queue.put(HeapItem.nullItem());
-            } catch (InterruptedException e) {
-                //ignore error
-            }
+            queue.offerOrOverflow(HeapItem.nullItem());
         }
     }
 
@@ -188,8 +203,10 @@ public class MultiNodeMergeHandler extends OwnThreadDMLHandler {
                 }
             });
             // init heap
-            for (Map.Entry<MySQLConnection, BlockingQueue<HeapItem>> entry : queues.entrySet()) {
-                HeapItem firstItem = entry.getValue().take();
+            for (Map.Entry<MySQLConnection, SpscRingQueue<HeapItem>> entry : queues.entrySet()) {
+                HeapItem firstItem = takeItem(entry.getKey(), entry.getValue());
+                if (firstItem == null)
+                    return;
                 heap.add(firstItem);
             }
             while (!heap.isEmpty()) {
@@ -199,17 +216,19 @@ public class MultiNodeMergeHandler extends OwnThreadDMLHandler {
                 if (top.isNullItem()) {
                     heap.poll();
                 } else {
-                    BlockingQueue<HeapItem> topItemQueue = queues.get(top.getIndex());
-                    HeapItem item = topItemQueue.take();
+                    HeapItem item = takeItem(top.getIndex(), queues.get(top.getIndex()));
+                    if (item == null)
+                        return;
                     heap.replaceTop(item);
                     if (nextHandler.rowResponse(top.getRowData(), top.getRowPacket(), this.isLeft, top.getIndex())) {
                         noNeedRows = true;
                         while (!heap.isEmpty()) {
                             HeapItem itemToDiscard = heap.poll();
                             if (!itemToDiscard.isNullItem()) {
-                                BlockingQueue<HeapItem> discardQueue = queues.get(itemToDiscard.getIndex());
+                                SpscRingQueue<HeapItem> discardQueue = queues.get(itemToDiscard.getIndex());
                                 while (true) {
-                                    if (discardQueue.take().isNullItem() || terminate.get()) {
+                                    HeapItem discard = takeItem(itemToDiscard.getIndex(), discardQueue);
+                                    if (discard == null || discard.isNullItem() || terminate.get()) {
                                         break;
                                     }
                                 }
@@ -230,27 +249,44 @@ public class MultiNodeMergeHandler extends OwnThreadDMLHandler {
         }
     }
 
+    /**
+     * take the next item of the connection, read from the connection again if the queue is low
+     *
+     * @return null if the queue is closed
+     */
+    private HeapItem takeItem(MySQLConnection conn, SpscRingQueue<HeapItem> queue) throws InterruptedException {
+        HeapItem item = queue.poll();
+        if (item == null) {
+            if (conn.isReadPaused()) {
+                conn.enableRead();
+            }
+            item = queue.take();
+        }
+        if (queue.size() <= lowWatermark && conn.isReadPaused()) {
+            conn.enableRead();
+        }
+        return item;
+    }
+
     @Override
     protected void terminateThread() throws Exception {
-        for (Entry<MySQLConnection, BlockingQueue<HeapItem>> entry : this.queues.entrySet()) {
-            // add EOF to signal atoMerge thread
-            entry.getValue().clear();
-            entry.getValue().put(new HeapItem(null, null, entry.getKey()));
+        for (Entry<MySQLConnection, SpscRingQueue<HeapItem>> entry : this.queues.entrySet()) {
+            // wake up the merge thread and the backend threads
+            entry.getValue().close();
+            entry.getKey().enableRead();
         }
         recycleConn();
     }
 
     @Override
     protected void recycleResources() {
-        Iterator<Entry<MySQLConnection, BlockingQueue<HeapItem>>> iterator = this.queues.entrySet().iterator();
+        Iterator<Entry<MySQLConnection, SpscRingQueue<HeapItem>>> iterator = this.queues.entrySet().iterator();
         while (iterator.hasNext()) {
-            Entry<MySQLConnection, BlockingQueue<HeapItem>> entry = iterator.next();
-            // fair lock queue,poll for clear
-            while (true) {
-                if (entry.getValue().poll() == null) {
-                    break;
-                }
-            }
+            Entry<MySQLConnection, SpscRingQueue<HeapItem>> entry = iterator.next();
+            entry.getValue().close();
+            entry.getValue().clear();
+            // never give a paused connection back
+            entry.getKey().enableRead();
             iterator.remove();
         }
     }
@@ -7,6 +7,7 @@ package com.actiontech.dble.backend.mysql.nio.handler.query.impl;
 
 import com.actiontech.dble.backend.BackendConnection;
 import com.actiontech.dble.backend.mysql.nio.handler.query.BaseDMLHandler;
+import com.actiontech.dble.backend.mysql.nio.handler.query.RowBatch;
 import com.actiontech.dble.backend.mysql.nio.handler.util.HandlerTool;
 import com.actiontech.dble.config.ErrorCode;
 import com.actiontech.dble.net.mysql.*;
@@ -126,21 +127,22 @@ public class OutputHandler extends BaseDMLHandler {
         }
         lock.lock();
         try {
-            byte[] row;
-            if (this.isBinary) {
-                BinaryRowDataPacket binRowPacket = new BinaryRowDataPacket();
-                binRowPacket.read(this.fieldPackets, rowPacket);
-                binRowPacket.setPacketId(++packetId);
-                buffer = binRowPacket.write(buffer, session.getSource(), true);
-            } else {
-                if (rowPacket != null) {
-                    rowPacket.setPacketId(++packetId);
-                    buffer = rowPacket.write(buffer, session.getSource(), true);
-                } else {
-                    row = rowNull;
-                    row[3] = ++packetId;
-                    buffer = session.getSource().writeToBuffer(row, buffer);
-                }
+            writeRow(rowNull, rowPacket);
+        } finally {
+            lock.unlock();
+        }
+        return false;
+    }
+
+    @Override
+    public boolean rowBatchResponse(RowBatch batch, boolean isLeft, BackendConnection conn) {
+        if (terminate.get()) {
+            return true;
+        }
+        lock.lock();
+        try {
+            for (int i = 0; i < batch.size(); i++) {
+                writeRow(null, batch.get(i));
             }
         } finally {
             lock.unlock();
@@ -148,6 +150,21 @@ public class OutputHandler extends BaseDMLHandler {
         return false;
     }
 
+    private void writeRow(byte[] rowNull, RowDataPacket rowPacket) {
+        if (this.isBinary) {
+            BinaryRowDataPacket binRowPacket = new BinaryRowDataPacket();
+            binRowPacket.read(this.fieldPackets, rowPacket);
+            binRowPacket.setPacketId(++packetId);
+            buffer = binRowPacket.write(buffer, session.getSource(), true);
+        } else if (rowPacket != null) {
+            rowPacket.setPacketId(++packetId);
+            buffer = rowPacket.write(buffer, session.getSource(), true);
+        } else {
+            rowNull[3] = ++packetId;
+            buffer = session.getSource().writeToBuffer(rowNull, buffer);
+        }
+    }
+
     @Override
     public void rowEofResponse(byte[] data, boolean isLeft, BackendConnection conn) {
         if (terminate.get()) {
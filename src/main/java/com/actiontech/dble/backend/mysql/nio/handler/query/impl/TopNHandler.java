@@ -0,0 +1,116 @@
+/*
+ * Copyright (C) 2016-2018 ActionTech.
+ * License: http://www.gnu.org/licenses/gpl.html GPL version 2 or higher.
+ */
+
+package com.actiontech.dble.backend.mysql.nio.handler.query.impl;
+
+import com.actiontech.dble.backend.BackendConnection;
+import com.actiontech.dble.backend.mysql.nio.handler.query.BaseDMLHandler;
+import com.actiontech.dble.backend.mysql.nio.handler.util.ArrayMinHeap;
+import com.actiontech.dble.backend.mysql.nio.handler.util.RowDataComparator;
+import com.actiontech.dble.net.mysql.FieldPacket;
+import com.actiontech.dble.net.mysql.RowDataPacket;
+import com.actiontech.dble.plan.Order;
+import com.actiontech.dble.server.NonBlockingSession;
+import org.apache.log4j.Logger;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * order by with a small limit, only the first topN rows are kept in a heap whose top is the last
+ * one of them, so the memory is O(topN) and nothing is sorted or written to disk.
+ * The rows are sent ordered when all the rows arrived, the limit handler after it skips the offset.
+ *
+ * @author ActionTech
+ */
+public class TopNHandler extends BaseDMLHandler {
+    private static final Logger LOGGER = Logger.getLogger(TopNHandler.class);
+    private static final int MAX_INITIAL_CAPACITY = 1024;
+
+    private final List<Order> orders;
+    private final int topN;
+    private RowDataComparator cmp;
+    private ArrayMinHeap<RowDataPacket> heap;
+    private final ReentrantLock lock = new ReentrantLock();
+
+    public TopNHandler(long id, NonBlockingSession session, List<Order> orders, int topN) {
+        super(id, session);
+        this.orders = orders;
+        this.topN = topN;
+    }
+
+    @Override
+    public HandlerType type() {
+        return HandlerType.ORDERBY;
+    }
+
+    @Override
+    public void fieldEofResponse(byte[] headerNull, List<byte[]> fieldsNull, final List<FieldPacket> fieldPackets,
+                                 byte[] eofNull, boolean isLeft, BackendConnection conn) {
+        if (terminate.get())
+            return;
+        this.fieldPackets = fieldPackets;
+        cmp = new RowDataComparator(this.fieldPackets, orders, isAllPushDown(), type());
+        heap = new ArrayMinHeap<>(Math.min(topN, MAX_INITIAL_CAPACITY), new Comparator<RowDataPacket>() {
+            @Override
+            public int compare(RowDataPacket o1, RowDataPacket o2) {
+                return cmp.compare(o2, o1);
+            }
+        });
+        nextHandler.fieldEofResponse(null, null, fieldPackets, null, this.isLeft, conn);
+    }
+
+    @Override
+    public boolean rowResponse(byte[] rowNull, RowDataPacket rowPacket, boolean isLeft, BackendConnection conn) {
+        if (terminate.get())
+            return true;
+        lock.lock();
+        try {
+            if (heap.size() < topN) {
+                heap.add(rowPacket);
+            } else if (cmp.compare(rowPacket, heap.peak()) < 0) {
+                heap.replaceTop(rowPacket);
+            }
+        } finally {
+            lock.unlock();
+        }
+        return false;
+    }
+
+    @Override
+    public void rowEofResponse(byte[] data, boolean isLeft, BackendConnection conn) {
+        LOGGER.debug("roweof");
+        if (terminate.get())
+            return;
+        RowDataPacket[] rows;
+        lock.lock();
+        try {
+            rows = new RowDataPacket[heap.size()];
+            for (int i = rows.length - 1; i >= 0; i--) {
+                rows[i] = heap.poll();
+            }
+        } finally {
+            lock.unlock();
+        }
+        for (RowDataPacket row : rows) {
+            if (nextHandler.rowResponse(null, row, this.isLeft, conn))
+                break;
+        }
+        nextHandler.rowEofResponse(null, this.isLeft, conn);
+    }
+
+    @Override
+    protected void onTerminate() {
+        lock.lock();
+        try {
+            if (heap != null)
+                heap.clear();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+}
@@ -7,7 +7,10 @@ package com.actiontech.dble.backend.mysql.nio.handler.query.impl;
 
 import com.actiontech.dble.backend.BackendConnection;
 import com.actiontech.dble.backend.mysql.nio.handler.query.BaseDMLHandler;
+import com.actiontech.dble.backend.mysql.nio.handler.query.RowBatch;
+import com.actiontech.dble.backend.mysql.nio.handler.util.CompiledCondition;
 import com.actiontech.dble.backend.mysql.nio.handler.util.HandlerTool;
+import com.actiontech.dble.backend.mysql.nio.handler.util.ItemCompiler;
 import com.actiontech.dble.net.mysql.FieldPacket;
 import com.actiontech.dble.net.mysql.RowDataPacket;
 import com.actiontech.dble.plan.common.field.Field;
@@ -28,7 +31,9 @@ public class WhereHandler extends BaseDMLHandler {
     private Item where = null;
     private Item whereItem = null;
     private List<Field> sourceFields;
-    // if merge handler have no order by, the row response is not thread safe
+    private CompiledCondition condition;
+    // if merge handler have no order by, the row response is not thread safe,
+    // the lock is needed when a part of the condition is evaluated by the Item on the shared fields
     private ReentrantLock lock = new ReentrantLock();
 
     @Override
@@ -44,27 +49,63 @@ public class WhereHandler extends BaseDMLHandler {
         this.sourceFields = HandlerTool.createFields(this.fieldPackets);
         whereItem = HandlerTool.createItem(this.where, this.sourceFields, 0, this.isAllPushDown(), this.type()
         );
+        condition = ItemCompiler.compile(whereItem, this.sourceFields);
         nextHandler.fieldEofResponse(null, null, this.fieldPackets, null, this.isLeft, conn);
     }
 
     public boolean rowResponse(byte[] rowNull, final RowDataPacket rowPacket, boolean isLeft, BackendConnection conn) {
         if (terminate.get())
             return true;
+        if (condition.isThreadSafe()) {
+            filter(rowPacket, conn);
+            return false;
+        }
         lock.lock();
         try {
-            HandlerTool.initFields(this.sourceFields, rowPacket.fieldValues);
-            /* use whereto filter */
-            if (whereItem.valBool()) {
-                nextHandler.rowResponse(null, rowPacket, this.isLeft, conn);
-            } else {
-                // nothing
-            }
+            filter(rowPacket, conn);
             return false;
         } finally {
             lock.unlock();
         }
     }
 
+    @Override
+    public boolean rowBatchResponse(RowBatch batch, boolean isLeft, BackendConnection conn) {
+        if (terminate.get())
+            return true;
+        RowBatch matched = new RowBatch(batch.size());
+        if (condition.isThreadSafe()) {
+            filter(batch, matched);
+        } else {
+            lock.lock();
+            try {
+                filter(batch, matched);
+            } finally {
+                lock.unlock();
+            }
+        }
+        if (!matched.isEmpty()) {
+            nextHandler.rowBatchResponse(matched, this.isLeft, conn);
+        }
+        return false;
+    }
+
+    private void filter(RowBatch batch, RowBatch matched) {
+        for (int i = 0; i < batch.size(); i++) {
+            RowDataPacket rowPacket = batch.get(i);
+            if (condition.match(rowPacket)) {
+                matched.add(rowPacket);
+            }
+        }
+    }
+
+    private void filter(RowDataPacket rowPacket, BackendConnection conn) {
+        /* use whereto filter */
+        if (condition.match(rowPacket)) {
+            nextHandler.rowResponse(null, rowPacket, this.isLeft, conn);
+        }
+    }
+
     public void rowEofResponse(byte[] data, boolean isLeft, BackendConnection conn) {
         if (terminate.get())
             return;
@@ -0,0 +1,484 @@
+/*
+ * Copyright (C) 2016-2018 ActionTech.
+ * License: http://www.gnu.org/licenses/gpl.html GPL version 2 or higher.
+ */
+
+package com.actiontech.dble.backend.mysql.nio.handler.query.impl.join;
+
+import com.actiontech.dble.DbleServer;
+import com.actiontech.dble.backend.BackendConnection;
+import com.actiontech.dble.backend.mysql.CharsetUtil;
+import com.actiontech.dble.backend.mysql.nio.MySQLConnection;
+import com.actiontech.dble.backend.mysql.nio.handler.query.OwnThreadDMLHandler;
+import com.actiontech.dble.backend.mysql.nio.handler.util.HandlerTool;
+import com.actiontech.dble.backend.mysql.nio.handler.util.TwoTableComparator;
+import com.actiontech.dble.backend.mysql.store.LocalResult;
+import com.actiontech.dble.backend.mysql.store.UnSortedLocalResult;
+import com.actiontech.dble.backend.mysql.store.memalloc.MemSizeController;
+import com.actiontech.dble.buffer.BufferPool;
+import com.actiontech.dble.net.mysql.FieldPacket;
+import com.actiontech.dble.net.mysql.RowDataPacket;
+import com.actiontech.dble.plan.Order;
+import com.actiontech.dble.plan.common.field.Field;
+import com.actiontech.dble.plan.common.item.Item;
+import com.actiontech.dble.server.NonBlockingSession;
+import org.apache.log4j.Logger;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * join strategy is hash, the rows of the build side are put into a hash table by the join
+ * columns and every row of the probe side looks it up, so neither side need to be ordered.
+ * If the build side is larger than the join memory, the rows of both sides are split into
+ * partitions by the hash of the join columns, the partitions are stored by LocalResult
+ * which flushes them to disk, and then joined one by one.
+ * The probe side of the left join is always the left one.
+ *
+ * @author ActionTech
+ */
+public class HashJoinHandler extends OwnThreadDMLHandler {
+    private static final Logger LOGGER = Logger.getLogger(HashJoinHandler.class);
+    private static final int PARTITION_BITS = 4;
+    private static final int PARTITION_COUNT = 1 << PARTITION_BITS;
+
+    private final boolean isLeftJoin;
+    private final boolean isBuildLeft;
+    private final List<Order> leftOrders;
+    private final List<Order> rightOrders;
+    private final Item otherJoinOn;
+    private List<FieldPacket> leftFieldPackets;
+    private List<FieldPacket> rightFieldPackets;
+    private AtomicBoolean fieldSent = new AtomicBoolean(false);
+    private BufferPool pool;
+    private MemSizeController joinBufferMC;
+    private List<Field> joinRowFields;
+    private Item otherJoinOnItem;
+    private HashJoinKey buildKey;
+    private HashJoinKey probeKey;
+    private TwoTableComparator joinComparator;
+    private String charset = "UTF-8";
+
+    /* only accessed by the own thread */
+    private Map<List<Object>, List<RowDataPacket>> hashTable = new HashMap<>();
+    private long hashTableMemory = 0;
+    private LocalResult[] buildPartitions;
+    private LocalResult[] probePartitions;
+
+    private final BlockingQueue<RowDataPacket> buildQueue;
+    private final BlockingQueue<RowDataPacket> probeQueue;
+    /* the probe rows are kept here until the build side ends */
+    private LocalResult probeBuffer;
+    private boolean isBuildEnd = false;
+    private boolean isProbeEndEarly = false;
+    private final ReentrantLock probeLock = new ReentrantLock();
+
+    public HashJoinHandler(long id, NonBlockingSession session, boolean isLeftJoin, boolean isBuildLeft,
+                           List<Order> leftOrder, List<Order> rightOrder, Item otherJoinOn) {
+        super(id, session);
+        this.isLeftJoin = isLeftJoin;
+        this.isBuildLeft = isBuildLeft && !isLeftJoin;
+        this.leftOrders = leftOrder;
+        this.rightOrders = rightOrder;
+        int queueSize = DbleServer.getInstance().getConfig().getSystem().getJoinQueueSize();
+        this.buildQueue = new LinkedBlockingQueue<>(queueSize);
+        this.probeQueue = new LinkedBlockingQueue<>(queueSize);
+        this.leftFieldPackets = new ArrayList<>();
+        this.rightFieldPackets = new ArrayList<>();
+        this.otherJoinOn = otherJoinOn;
+    }
+
+    @Override
+    public HandlerType type() {
+        return HandlerType.JOIN;
+    }
+
+    @Override
+    public void fieldEofResponse(byte[] headerNull, List<byte[]> fieldsNull, final List<FieldPacket> fieldPackets,
+                                 byte[] eofNull, boolean isLeft, final BackendConnection conn) {
+        if (this.pool == null)
+            this.pool = DbleServer.getInstance().getBufferPool();
+
+        probeLock.lock();
+        try {
+            if (isLeft) {
+                leftFieldPackets = fieldPackets;
+            } else {
+                rightFieldPackets = fieldPackets;
+            }
+            if (isLeft != isBuildLeft) {
+                // the probe side may come first, so the charset is taken from its connection
+                probeBuffer = new UnSortedLocalResult(fieldPackets.size(), pool,
+                        CharsetUtil.getJavaCharset(conn.getCharset().getResults()));
+            }
+        } finally {
+            probeLock.unlock();
+        }
+        if (!fieldSent.compareAndSet(false, true)) {
+            this.charset = CharsetUtil.getJavaCharset(conn.getCharset().getResults());
+            this.joinBufferMC = session.getJoinBufferMC();
+            List<FieldPacket> newFieldPacket = new ArrayList<>();
+            newFieldPacket.addAll(leftFieldPackets);
+            newFieldPacket.addAll(rightFieldPackets);
+            nextHandler.fieldEofResponse(null, null, newFieldPacket, null, this.isLeft, conn);
+            initJoinKeys(newFieldPacket);
+            startOwnThread(conn);
+        }
+    }
+
+    private void initJoinKeys(List<FieldPacket> rowPackets) {
+        HashJoinKey leftKey = new HashJoinKey(leftFieldPackets, leftOrders, this.isAllPushDown(), this.type());
+        HashJoinKey rightKey = new HashJoinKey(rightFieldPackets, rightOrders, this.isAllPushDown(), this.type());
+        HashJoinKey.bind(leftKey, rightKey);
+        buildKey = isBuildLeft ? leftKey : rightKey;
+        probeKey = isBuildLeft ? rightKey : leftKey;
+        if (!leftKey.isExact()) {
+            joinComparator = new TwoTableComparator(leftFieldPackets, rightFieldPackets, leftOrders, rightOrders,
+                    this.isAllPushDown(), this.type());
+        }
+        this.joinRowFields = HandlerTool.createFields(rowPackets);
+        if (otherJoinOn != null) {
+            otherJoinOnItem = HandlerTool.createItem(this.otherJoinOn, this.joinRowFields, 0, this.isAllPushDown(),
+                    this.type());
+        }
+    }
+
+    @Override
+    public boolean rowResponse(byte[] rowNull, RowDataPacket rowPacket, boolean isLeft, BackendConnection conn) {
+        if (terminate.get()) {
+            return true;
+        }
+        try {
+            if (isLeft == isBuildLeft) {
+                buildQueue.put(rowPacket);
+            } else {
+                addProbeRow(rowPacket);
+            }
+        } catch (InterruptedException e) {
+            LOGGER.info("hash join row response exception", e);
+            return true;
+        }
+        return false;
+    }
+
+    @Override
+    public void rowEofResponse(byte[] data, boolean isLeft, BackendConnection conn) {
+        if (terminate.get()) {
+            return;
+        }
+        RowDataPacket eofRow = new RowDataPacket(0);
+        try {
+            if (isLeft == isBuildLeft) {
+                buildQueue.put(eofRow);
+            } else {
+                addProbeRow(eofRow);
+            }
+        } catch (InterruptedException e) {
+            LOGGER.info("hash join row eof response exception", e);
+        }
+    }
+
+    private void addProbeRow(RowDataPacket row) throws InterruptedException {
+        probeLock.lock();
+        try {
+            if (!isBuildEnd) {
+                if (row.getFieldCount() == 0) {
+                    isProbeEndEarly = true;
+                } else {
+                    probeBuffer.add(row);
+                }
+                return;
+            }
+        } finally {
+            probeLock.unlock();
+        }
+        probeQueue.put(row);
+    }
+
+    @Override
+    protected void ownThreadJob(Object... objects) {
+        MySQLConnection conn = (MySQLConnection) objects[0];
+        try {
+            if (!build())
+                return;
+            boolean isProbeEnd;
+            probeLock.lock();
+            try {
+                isBuildEnd = true;
+                isProbeEnd = isProbeEndEarly;
+            } finally {
+                probeLock.unlock();
+            }
+            probeBuffer.done();
+            if (buildPartitions != null) {
+                probeByPartitions(isProbeEnd, conn);
+            } else if (!hashTable.isEmpty() || isLeftJoin) {
+                probeInMemory(isProbeEnd, conn);
+            }
+            if (terminate.get())
+                return;
+            nextHandler.rowEofResponse(null, isLeft, conn);
+            HandlerTool.terminateHandlerTree(this);
+        } catch (Exception e) {
+            String msg = "hash join thread error, " + e.getLocalizedMessage();
+            LOGGER.info(msg, e);
+            session.onQueryError(msg.getBytes());
+        }
+    }
+
+    /**
+     * @return false if terminated
+     */
+    private boolean build() throws InterruptedException {
+        while (true) {
+            RowDataPacket row = buildQueue.take();
+            if (terminate.get())
+                return false;
+            if (row.getFieldCount() == 0)
+                return true;
+            List<Object> key = buildKey.keyOf(row);
+            if (key == null)
+                continue;
+            if (buildPartitions != null) {
+                buildPartitions[partitionOf(key)].add(row);
+            } else if (!putIntoHashTable(key, row)) {
+                spillHashTable();
+            }
+        }
+    }
+
+    /**
+     * @return false if the join memory is used up
+     */
+    private boolean putIntoHashTable(List<Object> key, RowDataPacket row) {
+        List<RowDataPacket> rows = hashTable.get(key);
+        if (rows == null) {
+            rows = new ArrayList<>(1);
+            hashTable.put(key, rows);
+        }
+        rows.add(row);
+        int size = row.calcPacketSize();
+        hashTableMemory += size;
+        return joinBufferMC.addSize(size);
+    }
+
+    private void clearHashTable() {
+        hashTable.clear();
+        joinBufferMC.subSize(hashTableMemory);
+        hashTableMemory = 0;
+    }
+
+    private void spillHashTable() {
+        LOGGER.debug("hash join build side is larger than join memory, spill to partitions");
+        int buildFieldCount = isBuildLeft ? leftFieldPackets.size() : rightFieldPackets.size();
+        int probeFieldCount = isBuildLeft ? rightFieldPackets.size() : leftFieldPackets.size();
+        buildPartitions = new LocalResult[PARTITION_COUNT];
+        probePartitions = new LocalResult[PARTITION_COUNT];
+        for (int i = 0; i < PARTITION_COUNT; i++) {
+            buildPartitions[i] = new UnSortedLocalResult(buildFieldCount, pool, charset);
+            probePartitions[i] = new UnSortedLocalResult(probeFieldCount, pool, charset);
+        }
+        for (Map.Entry<List<Object>, List<RowDataPacket>> entry : hashTable.entrySet()) {
+            LocalResult partition = buildPartitions[partitionOf(entry.getKey())];
+            for (RowDataPacket row : entry.getValue()) {
+                partition.add(row);
+            }
+        }
+        clearHashTable();
+    }
+
+    private static int partitionOf(List<Object> key) {
+        // the hash table uses the low bits, so partition by the high bits
+        return (key.hashCode() * 0x9E3779B9) >>> (32 - PARTITION_BITS);
+    }
+
+    private void probeInMemory(boolean isProbeEnd, MySQLConnection conn) throws Exception {
+        RowDataPacket row;
+        while ((row = probeBuffer.next()) != null) {
+            if (probeAndSend(row, conn))
+                return;
+        }
+        if (isProbeEnd)
+            return;
+        while (true) {
+            row = probeQueue.take();
+            if (terminate.get() || row.getFieldCount() == 0)
+                return;
+            if (probeAndSend(row, conn))
+                return;
+        }
+    }
+
+    /**
+     * @return true if interrupted by next handler
+     */
+    private boolean probeAndSend(RowDataPacket probeRow, MySQLConnection conn) {
+        int matchCount = probe(probeRow, conn);
+        if (matchCount < 0)
+            return true;
+        if (matchCount == 0 && isLeftJoin)
+            return nextHandler.rowResponse(null, joinWithNull(probeRow), isLeft, conn);
+        return false;
+    }
+
+    /**
+     * @return the count of joined rows, -1 if interrupted by next handler
+     */
+    private int probe(RowDataPacket probeRow, MySQLConnection conn) {
+        List<Object> key = probeKey.keyOf(probeRow);
+        List<RowDataPacket> buildRows = key == null ? null : hashTable.get(key);
+        if (buildRows == null)
+            return 0;
+        int matchCount = 0;
+        for (RowDataPacket buildRow : buildRows) {
+            RowDataPacket leftRow = isBuildLeft ? buildRow : probeRow;
+            RowDataPacket rightRow = isBuildLeft ? probeRow : buildRow;
+            if (joinComparator != null && joinComparator.compare(leftRow, rightRow) != 0)
+                continue;
+            RowDataPacket rowPacket = new RowDataPacket(leftFieldPackets.size() + rightFieldPackets.size());
+            for (byte[] value : leftRow.fieldValues) {
+                rowPacket.add(value);
+            }
+            for (byte[] value : rightRow.fieldValues) {
+                rowPacket.add(value);
+            }
+            if (otherJoinOnItem != null) {
+                HandlerTool.initFields(joinRowFields, rowPacket.fieldValues);
+                if (!otherJoinOnItem.valBool())
+                    continue;
+            }
+            matchCount++;
+            if (nextHandler.rowResponse(null, rowPacket, isLeft, conn))
+                return -1;
+        }
+        return matchCount;
+    }
+
+    private RowDataPacket joinWithNull(RowDataPacket leftRow) {
+        RowDataPacket rowPacket = new RowDataPacket(leftFieldPackets.size() + rightFieldPackets.size());
+        for (byte[] value : leftRow.fieldValues) {
+            rowPacket.add(value);
+        }
+        for (int i = 0; i < rightFieldPackets.size(); i++) {
+            rowPacket.add(null);
+        }
+        return rowPacket;
+    }
+
+    private void probeByPartitions(boolean isProbeEnd, MySQLConnection conn) throws Exception {
+        RowDataPacket row;
+        while ((row = probeBuffer.next()) != null) {
+            addToProbePartition(row);
+        }
+        if (!isProbeEnd) {
+            while (true) {
+                row = probeQueue.take();
+                if (terminate.get())
+                    return;
+                if (row.getFieldCount() == 0)
+                    break;
+                addToProbePartition(row);
+            }
+        }
+        for (int i = 0; i < PARTITION_COUNT; i++) {
+            buildPartitions[i].done();
+            probePartitions[i].done();
+            if (joinPartition(buildPartitions[i], probePartitions[i], conn))
+                return;
+            buildPartitions[i].close();
+            probePartitions[i].close();
+        }
+    }
+
+    private void addToProbePartition(RowDataPacket row) {
+        List<Object> key = probeKey.keyOf(row);
+        if (key != null) {
+            probePartitions[partitionOf(key)].add(row);
+        } else if (isLeftJoin) {
+            // never matches, any partition is ok
+            probePartitions[0].add(row);
+        }
+    }
+
+    /**
+     * load the build partition into the hash table chunk by chunk, each chunk is as large as the join
+     * memory, and probe it with the whole probe partition
+     *
+     * @return true if interrupted by next handler or terminated
+     */
+    private boolean joinPartition(LocalResult buildRows, LocalResult probeRows, MySQLConnection conn) {
+        BitSet matched = isLeftJoin ? new BitSet(probeRows.getRowCount()) : null;
+        RowDataPacket buildRow = buildRows.next();
+        while (buildRow != null) {
+            boolean isFull = false;
+            while (buildRow != null && !isFull) {
+                List<Object> key = buildKey.keyOf(buildRow);
+                isFull = !putIntoHashTable(key, buildRow);
+                buildRow = buildRows.next();
+            }
+            probeRows.reset();
+            RowDataPacket probeRow;
+            while ((probeRow = probeRows.next()) != null) {
+                if (terminate.get())
+                    return true;
+                int matchCount = probe(probeRow, conn);
+                if (matchCount < 0)
+                    return true;
+                if (matchCount > 0 && matched != null)
+                    matched.set(probeRows.getRowId());
+            }
+            clearHashTable();
+        }
+        if (matched != null) {
+            probeRows.reset();
+            RowDataPacket probeRow;
+            while ((probeRow = probeRows.next()) != null) {
+                if (!matched.get(probeRows.getRowId()) &&
+                        nextHandler.rowResponse(null, joinWithNull(probeRow), isLeft, conn))
+                    return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    protected void terminateThread() throws Exception {
+        buildQueue.clear();
+        buildQueue.offer(new RowDataPacket(0));
+        probeQueue.clear();
+        probeQueue.offer(new RowDataPacket(0));
+    }
+
+    @Override
+    protected void recycleResources() {
+        buildQueue.clear();
+        probeQueue.clear();
+        if (hashTableMemory > 0)
+            clearHashTable();
+        probeLock.lock();
+        try {
+            if (probeBuffer != null)
+                probeBuffer.close();
+        } finally {
+            probeLock.unlock();
+        }
+        closePartitions(buildPartitions);
+        closePartitions(probePartitions);
+    }
+
+    private void closePartitions(LocalResult[] partitions) {
+        if (partitions == null)
+            return;
+        for (LocalResult partition : partitions) {
+            partition.close();
+        }
+    }
+
+}
@@ -0,0 +1,127 @@
+/*
+ * Copyright (C) 2016-2018 ActionTech.
+ * License: http://www.gnu.org/licenses/gpl.html GPL version 2 or higher.
+ */
+
+package com.actiontech.dble.backend.mysql.nio.handler.query.impl.join;
+
+import com.actiontech.dble.backend.mysql.nio.handler.query.DMLResponseHandler;
+import com.actiontech.dble.backend.mysql.nio.handler.util.HandlerTool;
+import com.actiontech.dble.net.mysql.FieldPacket;
+import com.actiontech.dble.net.mysql.RowDataPacket;
+import com.actiontech.dble.plan.Order;
+import com.actiontech.dble.plan.common.MySQLcom;
+import com.actiontech.dble.plan.common.field.Field;
+import com.actiontech.dble.plan.common.item.FieldTypes;
+import com.actiontech.dble.plan.common.item.Item;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * HashJoinKey
+ * <p>
+ * the hash key of a row made of its join columns. The columns are hashed by the type they are
+ * compared as, strings by their value and int/decimal numbers by their normalized decimal value.
+ * The real numbers and the temporal values are compared approximately or after conversion, so
+ * they have a constant part in the key and the rows with the same key must be checked again by
+ * the TwoTableComparator, see {@link #isExact()}.
+ * </p>
+ */
+final class HashJoinKey {
+    private static final Object ANY_VALUE = Boolean.TRUE;
+
+    private enum KeyType {
+        STRING, NUMBER, ANY
+    }
+
+    private final List<Field> fields;
+    private final List<Item> items;
+    private KeyType[] keyTypes;
+    private boolean exact;
+
+    HashJoinKey(List<FieldPacket> fieldPackets, List<Order> orders, boolean isAllPushDown,
+                DMLResponseHandler.HandlerType type) {
+        this.fields = HandlerTool.createFields(fieldPackets);
+        this.items = new ArrayList<>(orders.size());
+        for (Order order : orders) {
+            items.add(HandlerTool.createItem(order.getItem(), fields, 0, isAllPushDown, type));
+        }
+    }
+
+    /**
+     * both sides of the join must hash the columns in the same way
+     */
+    static void bind(HashJoinKey left, HashJoinKey right) {
+        int size = left.items.size();
+        KeyType[] types = new KeyType[size];
+        boolean exact = true;
+        for (int i = 0; i < size; i++) {
+            types[i] = keyType(left.items.get(i), right.items.get(i));
+            exact &= types[i] != KeyType.ANY;
+        }
+        left.keyTypes = types;
+        left.exact = exact;
+        right.keyTypes = types;
+        right.exact = exact;
+    }
+
+    private static KeyType keyType(Item a, Item b) {
+        if (a.isTemporal() || b.isTemporal() ||
+                a.fieldType() == FieldTypes.MYSQL_TYPE_YEAR || b.fieldType() == FieldTypes.MYSQL_TYPE_YEAR) {
+            return KeyType.ANY;
+        }
+        switch (MySQLcom.itemCmpType(a.resultType(), b.resultType())) {
+            case STRING_RESULT:
+                return KeyType.STRING;
+            case INT_RESULT:
+            case DECIMAL_RESULT:
+                return KeyType.NUMBER;
+            default:
+                return KeyType.ANY;
+        }
+    }
+
+    /**
+     * @return true if the rows with the same key are equal on the join columns
+     */
+    boolean isExact() {
+        return exact;
+    }
+
+    /**
+     * @return the key of the row, null if any join column is null, which never joins
+     */
+    List<Object> keyOf(RowDataPacket row) {
+        HandlerTool.initFields(fields, row.fieldValues);
+        Object[] values = new Object[items.size()];
+        for (int i = 0; i < values.length; i++) {
+            Item item = items.get(i);
+            Object value;
+            switch (keyTypes[i]) {
+                case STRING:
+                    value = item.valStr();
+                    break;
+                case NUMBER:
+                    BigDecimal decimal = item.valDecimal();
+                    if (decimal != null) {
+                        value = decimal.signum() == 0 ? BigDecimal.ZERO : decimal.stripTrailingZeros();
+                    } else {
+                        value = null;
+                    }
+                    break;
+                default:
+                    item.valStr();
+                    value = ANY_VALUE;
+                    break;
+            }
+            if (value == null || item.isNullValue()) {
+                return null;
+            }
+            values[i] = value;
+        }
+        return Arrays.asList(values);
+    }
+}
@@ -18,6 +18,7 @@ import com.actiontech.dble.log.alarm.AlarmCode;
 import com.actiontech.dble.net.mysql.ErrorPacket;
 import com.actiontech.dble.net.mysql.OkPacket;
 import com.actiontech.dble.server.NonBlockingSession;
+import com.actiontech.dble.statistic.XACommitStat;
 import com.actiontech.dble.util.StringUtil;
 
 import static com.actiontech.dble.config.ErrorCode.ER_ERROR_DURING_COMMIT;
@@ -26,6 +27,9 @@ public class XACommitNodesHandler extends AbstractCommitNodesHandler {
     private static final int COMMIT_TIMES = 5;
     private int tryCommitTimes = 0;
     private ParticipantLogEntry[] participantLogEntry = null;
+    /* only one data node, 'XA COMMIT ... ONE PHASE' without PREPARE and the xa log */
+    private boolean onePhase = false;
+    private long commitStartTime = 0;
     byte[] sendData = OkPacket.OK;
 
     public XACommitNodesHandler(NonBlockingSession session) {
@@ -36,6 +40,8 @@ public class XACommitNodesHandler extends AbstractCommitNodesHandler {
     public void clearResources() {
         tryCommitTimes = 0;
         participantLogEntry = null;
+        onePhase = false;
+        commitStartTime = 0;
         sendData = OkPacket.OK;
         if (closedConnSet != null) {
             closedConnSet.clear();
@@ -50,10 +56,17 @@ public class XACommitNodesHandler extends AbstractCommitNodesHandler {
                 participantLogEntry = new ParticipantLogEntry[nodeCount];
                 CoordinatorLogEntry coordinatorLogEntry = new CoordinatorLogEntry(session.getSessionXaID(), participantLogEntry, session.getXaState());
                 XAStateLog.flushMemoryRepository(session.getSessionXaID(), coordinatorLogEntry);
+                onePhase = nodeCount == 1 && DbleServer.getInstance().getConfig().getSystem().getUseXAOnePhaseCommit() == 1;
+                commitStartTime = System.nanoTime();
             }
             XAStateLog.initRecoveryLog(session.getSessionXaID(), position, mysqlCon);
             endPhase(mysqlCon);
         } else if (state == TxState.TX_ENDED_STATE) {
+            if (onePhase) {
+                // nothing to recover if it fails, the only participant commits or rolls back by itself
+                onePhaseCommit(mysqlCon);
+                return true;
+            }
             if (position == 0) {
                 if (!XAStateLog.saveXARecoveryLog(session.getSessionXaID(), TxState.TX_PREPARING_STATE)) {
                     String errMsg = "saveXARecoveryLog error, the stage is TX_PREPARING_STATE";
@@ -119,6 +132,11 @@ public class XACommitNodesHandler extends AbstractCommitNodesHandler {
         mysqlCon.execCmd("XA PREPARE " + xaTxId);
     }
 
+    private void onePhaseCommit(MySQLConnection mysqlCon) {
+        String xaTxId = mysqlCon.getConnXID(session);
+        mysqlCon.execCmd("XA COMMIT " + xaTxId + " ONE PHASE");
+    }
+
     private void commitPhase(MySQLConnection mysqlCon) {
         if (session.getXaState() == TxState.TX_COMMIT_FAILED_STATE) {
             MySQLConnection newConn = session.freshConn(mysqlCon, this);
@@ -145,6 +163,15 @@ public class XACommitNodesHandler extends AbstractCommitNodesHandler {
                 session.setXaState(TxState.TX_ENDED_STATE);
                 nextParse();
             }
+        } else if (state == TxState.TX_ENDED_STATE && onePhase) {
+            //ONE PHASE COMMIT OK
+            mysqlCon.setXaStatus(TxState.TX_COMMITTED_STATE);
+            XAStateLog.saveXARecoveryLog(session.getSessionXaID(), mysqlCon);
+            mysqlCon.setXaStatus(TxState.TX_INITIALIZE_STATE);
+            if (decrementCountBy(1)) {
+                session.setXaState(TxState.TX_INITIALIZE_STATE);
+                cleanAndFeedback();
+            }
         } else if (state == TxState.TX_ENDED_STATE) {
             //PREPARE OK
             mysqlCon.setXaStatus(TxState.TX_PREPARED_STATE);
@@ -189,7 +216,7 @@ public class XACommitNodesHandler extends AbstractCommitNodesHandler {
                     nextParse();
                 }
 
-                // 'xa prepare' error
+                // 'xa prepare' or 'xa commit ... one phase' error
             } else if (mysqlCon.getXaStatus() == TxState.TX_ENDED_STATE) {
                 mysqlCon.quit();
                 mysqlCon.setXaStatus(TxState.TX_CONN_QUIT);
@@ -311,6 +338,7 @@ public class XACommitNodesHandler extends AbstractCommitNodesHandler {
     private void cleanAndFeedback() {
         if (session.getXaState() == TxState.TX_INITIALIZE_STATE) { // clear all resources
             XAStateLog.saveXARecoveryLog(session.getSessionXaID(), TxState.TX_COMMITTED_STATE);
+            recordCommitTime();
             session.cancelableStatusSet(NonBlockingSession.CANCEL_STATUS_INIT);
             session.clearResources(false);
             if (session.closed()) {
@@ -335,6 +363,7 @@ public class XACommitNodesHandler extends AbstractCommitNodesHandler {
                 }
             } else {
                 XAStateLog.saveXARecoveryLog(session.getSessionXaID(), TxState.TX_COMMITTED_STATE);
+                recordCommitTime();
                 session.setXaState(TxState.TX_INITIALIZE_STATE);
                 session.cancelableStatusSet(NonBlockingSession.CANCEL_STATUS_INIT);
                 byte[] toSend = sendData;
@@ -355,6 +384,17 @@ public class XACommitNodesHandler extends AbstractCommitNodesHandler {
         }
     }
 
+    private void recordCommitTime() {
+        if (commitStartTime == 0) {
+            return;
+        }
+        long costTime = System.nanoTime() - commitStartTime;
+        if (onePhase) {
+            XACommitStat.ONE_PHASE.record(costTime);
+        } else {
+            XACommitStat.TWO_PHASE.record(costTime);
+        }
+    }
 
     public void debugCommitDelay() {
         try {
@@ -0,0 +1,35 @@
+/*
+ * Copyright (C) 2016-2018 ActionTech.
+ * License: http://www.gnu.org/licenses/gpl.html GPL version 2 or higher.
+ */
+
+package com.actiontech.dble.backend.mysql.nio.handler.util;
+
+import com.actiontech.dble.net.mysql.RowDataPacket;
+
+import java.util.List;
+
+/**
+ * a condition compiled by {@link ItemCompiler}, it reads the values of the columns it refers to
+ * directly from the row, only when they are needed.
+ */
+public abstract class CompiledCondition {
+    static final int FALSE = 0;
+    static final int TRUE = 1;
+    static final int UNKNOWN = 2;
+
+    /**
+     * @return TRUE, FALSE or UNKNOWN when the result is null
+     */
+    abstract int eval(List<byte[]> row);
+
+    /**
+     * @return false if a part of the condition is evaluated by the Item, which shares the fields of
+     * the handler, the caller must not evaluate the rows concurrently then
+     */
+    public abstract boolean isThreadSafe();
+
+    public boolean match(RowDataPacket row) {
+        return eval(row.fieldValues) == TRUE;
+    }
+}
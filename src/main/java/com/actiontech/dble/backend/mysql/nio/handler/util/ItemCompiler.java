@@ -0,0 +1,506 @@
+/*
+ * Copyright (C) 2016-2018 ActionTech.
+ * License: http://www.gnu.org/licenses/gpl.html GPL version 2 or higher.
+ */
+
+package com.actiontech.dble.backend.mysql.nio.handler.util;
+
+import com.actiontech.dble.plan.common.MySQLcom;
+import com.actiontech.dble.plan.common.field.Field;
+import com.actiontech.dble.plan.common.field.FieldNull;
+import com.actiontech.dble.plan.common.field.num.FieldNum;
+import com.actiontech.dble.plan.common.field.string.FieldStr;
+import com.actiontech.dble.plan.common.item.FieldTypes;
+import com.actiontech.dble.plan.common.item.Item;
+import com.actiontech.dble.plan.common.item.ItemField;
+import com.actiontech.dble.plan.common.item.ItemInt;
+import com.actiontech.dble.plan.common.item.ItemString;
+import com.actiontech.dble.plan.common.item.function.ItemFunc;
+import com.actiontech.dble.plan.common.item.function.operator.ItemBoolFunc2;
+import com.actiontech.dble.plan.common.item.function.operator.cmpfunc.ItemFuncIn;
+import com.actiontech.dble.plan.common.item.function.operator.cmpfunc.ItemFuncIsnotnull;
+import com.actiontech.dble.plan.common.item.function.operator.cmpfunc.ItemFuncIsnull;
+import com.actiontech.dble.plan.common.item.function.operator.logic.ItemCondAnd;
+import com.actiontech.dble.plan.common.item.function.operator.logic.ItemCondOr;
+import com.actiontech.dble.plan.common.item.function.operator.logic.ItemFuncNot;
+
+import java.math.BigInteger;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * compiles the where/having Item created by HandlerTool.createItem into a CompiledCondition.
+ * <p>
+ * and, or, not, is [not] null, in and the comparisons of int columns and string columns with
+ * each other or with constants are compiled, they give the same result as the Item. The int
+ * values are parsed from the row bytes without BigInteger unless they are too long. Any other
+ * part of the condition is evaluated by its Item.
+ * </p>
+ */
+public final class ItemCompiler {
+    private static final BigInteger MIN_LONG = BigInteger.valueOf(Long.MIN_VALUE);
+    private static final BigInteger MAX_LONG = BigInteger.valueOf(Long.MAX_VALUE);
+    private static final int MAX_FAST_DIGITS = 18;
+
+    private final List<Field> sourceFields;
+
+    private ItemCompiler(List<Field> sourceFields) {
+        this.sourceFields = sourceFields;
+    }
+
+    public static CompiledCondition compile(Item item, List<Field> sourceFields) {
+        return new ItemCompiler(sourceFields).compile(item, false);
+    }
+
+    /**
+     * @param needNull the caller needs to know if the result is null, which is only true under a not,
+     *                 the and/or/in items of the interpreter do not tell it in the same way
+     */
+    private CompiledCondition compile(Item item, boolean needNull) {
+        CompiledCondition cond = null;
+        if (item instanceof ItemCondAnd) {
+            cond = compileCond(((ItemCondAnd) item).getCondList(), true);
+        } else if (item instanceof ItemCondOr) {
+            if (!needNull)
+                cond = compileCond(((ItemCondOr) item).getCondList(), false);
+        } else if (item instanceof ItemFuncNot) {
+            cond = new NotCondition(compile(item.arguments().get(0), true));
+        } else if (item instanceof ItemFuncIsnull || item instanceof ItemFuncIsnotnull) {
+            int index = columnIndex(item.arguments().get(0));
+            if (index >= 0)
+                cond = new IsNullCondition(index, item instanceof ItemFuncIsnull);
+        } else if (item instanceof ItemFuncIn) {
+            if (!needNull)
+                cond = compileIn((ItemFuncIn) item);
+        } else if (item instanceof ItemBoolFunc2) {
+            cond = compileCompare((ItemFunc) item);
+        }
+        return cond != null ? cond : new InterpretedCondition(item, sourceFields, needNull);
+    }
+
+    private CompiledCondition compileCond(List<Item> items, boolean isAnd) {
+        CompiledCondition[] conds = new CompiledCondition[items.size()];
+        for (int i = 0; i < conds.length; i++) {
+            conds[i] = compile(items.get(i), false);
+        }
+        return isAnd ? new AndCondition(conds) : new OrCondition(conds);
+    }
+
+    private CompiledCondition compileIn(ItemFuncIn in) {
+        List<Item> args = in.arguments();
+        int index = columnIndex(args.get(0));
+        if (index < 0 || !isIntColumn(sourceFields.get(index)))
+            return null;
+        long[] values = new long[args.size() - 1];
+        for (int i = 1; i < args.size(); i++) {
+            if (!isLongConst(args.get(i)))
+                return null;
+            values[i - 1] = args.get(i).valInt().longValue();
+        }
+        Arrays.sort(values);
+        return new InCondition(index, sourceFields.get(index).getJavaCharsetName(), values, in.isNegated());
+    }
+
+    private CompiledCondition compileCompare(ItemFunc func) {
+        ItemFunc.Functype op = func.functype();
+        switch (op) {
+            case EQ_FUNC:
+            case NE_FUNC:
+            case LT_FUNC:
+            case LE_FUNC:
+            case GT_FUNC:
+            case GE_FUNC:
+                break;
+            default:
+                return null;
+        }
+        Item a = func.arguments().get(0);
+        Item b = func.arguments().get(1);
+        IntOperand ia = intOperand(a);
+        IntOperand ib = intOperand(b);
+        if (ia != null && ib != null)
+            return new IntCompareCondition(op, ia, ib);
+        StringOperand sa = stringOperand(a);
+        StringOperand sb = stringOperand(b);
+        if (sa != null && sb != null)
+            return new StringCompareCondition(op, sa, sb);
+        return null;
+    }
+
+    private int columnIndex(Item item) {
+        if (!(item instanceof ItemField))
+            return -1;
+        Field field = ((ItemField) item).getField();
+        for (int i = 0; i < sourceFields.size(); i++) {
+            if (sourceFields.get(i) == field)
+                return i;
+        }
+        return -1;
+    }
+
+    /**
+     * the int types compared by CompareIntSigned, year and bit are compared in other ways
+     */
+    private static boolean isIntColumn(Field field) {
+        return field instanceof FieldNum && field.resultType() == Item.ItemResult.INT_RESULT &&
+                field.fieldType() != FieldTypes.MYSQL_TYPE_YEAR;
+    }
+
+    private static boolean isLongConst(Item item) {
+        if (!(item instanceof ItemInt))
+            return false;
+        BigInteger value = item.valInt();
+        return value.compareTo(MIN_LONG) >= 0 && value.compareTo(MAX_LONG) <= 0;
+    }
+
+    private IntOperand intOperand(Item item) {
+        if (isLongConst(item))
+            return new IntOperand(-1, null, item.valInt().longValue());
+        int index = columnIndex(item);
+        if (index >= 0 && isIntColumn(sourceFields.get(index)))
+            return new IntOperand(index, sourceFields.get(index).getJavaCharsetName(), 0);
+        return null;
+    }
+
+    /**
+     * the string types compared by CompareBinaryString
+     */
+    private StringOperand stringOperand(Item item) {
+        if (item instanceof ItemString)
+            return new StringOperand(-1, null, item.valStr().getBytes());
+        int index = columnIndex(item);
+        if (index < 0)
+            return null;
+        Field field = sourceFields.get(index);
+        if (!(field instanceof FieldStr) || field instanceof FieldNull ||
+                !Charset.isSupported(field.getJavaCharsetName()))
+            return null;
+        return new StringOperand(index, Charset.forName(field.getJavaCharsetName()), null);
+    }
+
+    private static int cmpResult(ItemFunc.Functype op, int cmp) {
+        boolean result;
+        switch (op) {
+            case EQ_FUNC:
+                result = cmp == 0;
+                break;
+            case NE_FUNC:
+                result = cmp != 0;
+                break;
+            case LT_FUNC:
+                result = cmp < 0;
+                break;
+            case LE_FUNC:
+                result = cmp <= 0;
+                break;
+            case GT_FUNC:
+                result = cmp > 0;
+                break;
+            default:
+                result = cmp >= 0;
+                break;
+        }
+        return result ? CompiledCondition.TRUE : CompiledCondition.FALSE;
+    }
+
+    /**
+     * @return true if b is an int of at most 18 digits, which is parsed by parseLong
+     */
+    static boolean isFastLong(byte[] b) {
+        int start = b.length > 0 && (b[0] == '-' || b[0] == '+') ? 1 : 0;
+        int digits = b.length - start;
+        if (digits == 0 || digits > MAX_FAST_DIGITS)
+            return false;
+        for (int i = start; i < b.length; i++) {
+            if (b[i] < '0' || b[i] > '9')
+                return false;
+        }
+        return true;
+    }
+
+    static long parseLong(byte[] b) {
+        boolean negative = b[0] == '-';
+        int start = negative || b[0] == '+' ? 1 : 0;
+        long value = 0;
+        for (int i = start; i < b.length; i++) {
+            value = value * 10 + (b[i] - '0');
+        }
+        return negative ? -value : value;
+    }
+
+    /**
+     * the value of FieldNum.valInt
+     */
+    static BigInteger parseBigInteger(byte[] b, String charset) {
+        try {
+            return new BigInteger(MySQLcom.getFullString(charset, b));
+        } catch (Exception e) {
+            return BigInteger.ZERO;
+        }
+    }
+
+    private static final class IntOperand {
+        private final int index;
+        private final String charset;
+        private final long value;
+
+        IntOperand(int index, String charset, long value) {
+            this.index = index;
+            this.charset = charset;
+            this.value = value;
+        }
+
+        BigInteger bigValue(byte[] b) {
+            return index < 0 ? BigInteger.valueOf(value) : parseBigInteger(b, charset);
+        }
+    }
+
+    private static final class StringOperand {
+        private final int index;
+        private final Charset charset;
+        private final byte[] value;
+
+        StringOperand(int index, Charset charset, byte[] value) {
+            this.index = index;
+            this.charset = charset;
+            this.value = value;
+        }
+
+        /**
+         * the bytes compared by CompareBinaryString, the string in the default charset
+         */
+        byte[] bytes(byte[] b) {
+            if (index < 0)
+                return value;
+            return new String(b, charset).getBytes();
+        }
+    }
+
+    private static final class AndCondition extends CompiledCondition {
+        private final CompiledCondition[] conds;
+
+        AndCondition(CompiledCondition[] conds) {
+            this.conds = conds;
+        }
+
+        /**
+         * ItemCondAnd aborts on null, so it is never null
+         */
+        @Override
+        int eval(List<byte[]> row) {
+            for (CompiledCondition cond : conds) {
+                if (cond.eval(row) != TRUE)
+                    return FALSE;
+            }
+            return TRUE;
+        }
+
+        @Override
+        public boolean isThreadSafe() {
+            for (CompiledCondition cond : conds) {
+                if (!cond.isThreadSafe())
+                    return false;
+            }
+            return true;
+        }
+    }
+
+    private static final class OrCondition extends CompiledCondition {
+        private final CompiledCondition[] conds;
+
+        OrCondition(CompiledCondition[] conds) {
+            this.conds = conds;
+        }
+
+        @Override
+        int eval(List<byte[]> row) {
+            for (CompiledCondition cond : conds) {
+                if (cond.eval(row) == TRUE)
+                    return TRUE;
+            }
+            return FALSE;
+        }
+
+        @Override
+        public boolean isThreadSafe() {
+            for (CompiledCondition cond : conds) {
+                if (!cond.isThreadSafe())
+                    return false;
+            }
+            return true;
+        }
+    }
+
+    private static final class NotCondition extends CompiledCondition {
+        private final CompiledCondition cond;
+
+        NotCondition(CompiledCondition cond) {
+            this.cond = cond;
+        }
+
+        @Override
+        int eval(List<byte[]> row) {
+            int result = cond.eval(row);
+            if (result == UNKNOWN)
+                return UNKNOWN;
+            return result == TRUE ? FALSE : TRUE;
+        }
+
+        @Override
+        public boolean isThreadSafe() {
+            return cond.isThreadSafe();
+        }
+    }
+
+    private static final class IsNullCondition extends CompiledCondition {
+        private final int index;
+        private final boolean isNull;
+
+        IsNullCondition(int index, boolean isNull) {
+            this.index = index;
+            this.isNull = isNull;
+        }
+
+        @Override
+        int eval(List<byte[]> row) {
+            return (row.get(index) == null) == isNull ? TRUE : FALSE;
+        }
+
+        @Override
+        public boolean isThreadSafe() {
+            return true;
+        }
+    }
+
+    private static final class IntCompareCondition extends CompiledCondition {
+        private final ItemFunc.Functype op;
+        private final IntOperand a;
+        private final IntOperand b;
+
+        IntCompareCondition(ItemFunc.Functype op, IntOperand a, IntOperand b) {
+            this.op = op;
+            this.a = a;
+            this.b = b;
+        }
+
+        @Override
+        int eval(List<byte[]> row) {
+            byte[] va = a.index < 0 ? null : row.get(a.index);
+            byte[] vb = b.index < 0 ? null : row.get(b.index);
+            if ((a.index >= 0 && va == null) || (b.index >= 0 && vb == null))
+                return UNKNOWN;
+            boolean fastA = a.index < 0 || isFastLong(va);
+            boolean fastB = b.index < 0 || isFastLong(vb);
+            int cmp;
+            if (fastA && fastB) {
+                cmp = Long.compare(a.index < 0 ? a.value : parseLong(va), b.index < 0 ? b.value : parseLong(vb));
+            } else {
+                cmp = a.bigValue(va).compareTo(b.bigValue(vb));
+            }
+            return cmpResult(op, cmp);
+        }
+
+        @Override
+        public boolean isThreadSafe() {
+            return true;
+        }
+    }
+
+    private static final class StringCompareCondition extends CompiledCondition {
+        private final ItemFunc.Functype op;
+        private final StringOperand a;
+        private final StringOperand b;
+
+        StringCompareCondition(ItemFunc.Functype op, StringOperand a, StringOperand b) {
+            this.op = op;
+            this.a = a;
+            this.b = b;
+        }
+
+        @Override
+        int eval(List<byte[]> row) {
+            byte[] va = a.index < 0 ? null : row.get(a.index);
+            byte[] vb = b.index < 0 ? null : row.get(b.index);
+            if ((a.index >= 0 && va == null) || (b.index >= 0 && vb == null))
+                return UNKNOWN;
+            byte[] b1 = a.bytes(va);
+            byte[] b2 = b.bytes(vb);
+            int cmp = MySQLcom.memcmp(b1, b2, Math.min(b1.length, b2.length));
+            return cmpResult(op, cmp != 0 ? cmp : b1.length - b2.length);
+        }
+
+        @Override
+        public boolean isThreadSafe() {
+            return true;
+        }
+    }
+
+    private static final class InCondition extends CompiledCondition {
+        private final int index;
+        private final String charset;
+        private final long[] values;
+        private final boolean negated;
+
+        InCondition(int index, String charset, long[] values, boolean negated) {
+            this.index = index;
+            this.charset = charset;
+            this.values = values;
+            this.negated = negated;
+        }
+
+        @Override
+        int eval(List<byte[]> row) {
+            byte[] v = row.get(index);
+            if (v == null)
+                return FALSE;
+            boolean found;
+            if (isFastLong(v)) {
+                found = Arrays.binarySearch(values, parseLong(v)) >= 0;
+            } else {
+                found = false;
+                BigInteger big = parseBigInteger(v, charset);
+                for (long value : values) {
+                    if (big.equals(BigInteger.valueOf(value))) {
+                        found = true;
+                        break;
+                    }
+                }
+            }
+            return found != negated ? TRUE : FALSE;
+        }
+
+        @Override
+        public boolean isThreadSafe() {
+            return true;
+        }
+    }
+
+    /**
+     * the part of the condition which is not compiled
+     */
+    private static final class InterpretedCondition extends CompiledCondition {
+        private final Item item;
+        private final List<Field> sourceFields;
+        private final boolean needNull;
+
+        InterpretedCondition(Item item, List<Field> sourceFields, boolean needNull) {
+            this.item = item;
+            this.sourceFields = sourceFields;
+            this.needNull = needNull;
+        }
+
+        @Override
+        int eval(List<byte[]> row) {
+            HandlerTool.initFields(sourceFields, row);
+            if (item.valBool())
+                return TRUE;
+            return needNull && item.isNull() ? UNKNOWN : FALSE;
+        }
+
+        @Override
+        public boolean isThreadSafe() {
+            return false;
+        }
+    }
+}
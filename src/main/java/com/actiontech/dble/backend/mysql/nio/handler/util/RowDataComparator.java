@@ -10,6 +10,7 @@ import com.actiontech.dble.net.mysql.FieldPacket;
 import com.actiontech.dble.net.mysql.RowDataPacket;
 import com.actiontech.dble.plan.Order;
 import com.actiontech.dble.plan.common.field.Field;
+import com.actiontech.dble.plan.common.field.SortKeyBuilder;
 import com.actiontech.dble.plan.common.item.Item;
 import com.alibaba.druid.sql.ast.SQLOrderingSpecification;
 
@@ -18,7 +19,13 @@ import java.util.Collections;
 import java.util.Comparator;
 import java.util.List;
 
+/**
+ * compares the rows by the normalized sort keys of their order columns, which are built once for a
+ * row and compared as unsigned bytes. If a column has no sort key, the rows are compared by the
+ * Field.compare of each column.
+ */
 public class RowDataComparator implements Comparator<RowDataPacket> {
+    private static final byte[] NO_SORT_KEY = new byte[0];
 
     private List<Field> sourceFields;
     private List<Item> cmpItems;
@@ -81,6 +88,11 @@ public class RowDataComparator implements Comparator<RowDataPacket> {
     @Override
     public int compare(RowDataPacket o1, RowDataPacket o2) {
         if (this.ascList != null && this.ascList.size() > 0) {
+            byte[] k1 = getSortKey(o1);
+            byte[] k2 = getSortKey(o2);
+            if (k1 != NO_SORT_KEY && k2 != NO_SORT_KEY) {
+                return SortKeyBuilder.compare(k1, k2);
+            }
             int cmpValue = cmp(o1, o2, 0);
             return cmpValue;
         } else {
@@ -88,6 +100,44 @@ public class RowDataComparator implements Comparator<RowDataPacket> {
         }
     }
 
+    private byte[] getSortKey(RowDataPacket o) {
+        byte[] key = o.getSortKey(this);
+        if (key == null) {
+            HandlerTool.initFields(sourceFields, o.fieldValues);
+            List<byte[]> bo = HandlerTool.getItemListBytes(cmpItems);
+            key = makeSortKey(bo);
+            if (key == NO_SORT_KEY) {
+                o.cacheCmpValue(this, bo);
+            }
+            o.cacheSortKey(this, key);
+        }
+        return key;
+    }
+
+    /**
+     * every column starts with 0 for null and 1 for the others, so the nulls are the smallest
+     * as in Field.compare, the columns of desc are inverted
+     */
+    private byte[] makeSortKey(List<byte[]> bo) {
+        SortKeyBuilder key = new SortKeyBuilder();
+        for (int i = 0; i < bo.size(); i++) {
+            byte[] b = bo.get(i);
+            int start = key.length();
+            if (b == null) {
+                key.writeByte(0);
+            } else {
+                key.writeByte(1);
+                if (!cmpFields.get(i).makeSortKey(b, key)) {
+                    return NO_SORT_KEY;
+                }
+            }
+            if (!ascList.get(i)) {
+                key.invert(start);
+            }
+        }
+        return key.toByteArray();
+    }
+
     private List<byte[]> getCmpBytes(RowDataPacket o) {
         if (o.getCmpValue(this) == null) {
             HandlerTool.initFields(sourceFields, o.fieldValues);
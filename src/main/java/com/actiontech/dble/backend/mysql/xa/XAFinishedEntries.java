@@ -0,0 +1,50 @@
+/*
+ * Copyright (C) 2016-2018 ActionTech.
+ * License: http://www.gnu.org/licenses/gpl.html GPL version 2 or higher.
+ */
+
+package com.actiontech.dble.backend.mysql.xa;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * the finished transactions not written to the append-only log yet, they are written with the next flush.
+ * A transaction which never got a state into the log, like a one phase commit, needs no finished state either.
+ */
+final class XAFinishedEntries {
+    private final Set<String> loggedXaTxIds = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+    private final Queue<CoordinatorLogEntry> entries = new ConcurrentLinkedQueue<>();
+
+    /**
+     * the state of the transaction is going to be written to the log
+     */
+    void logged(String xaTxId) {
+        loggedXaTxIds.add(xaTxId);
+    }
+
+    void finished(String xaTxId, CoordinatorLogEntry entry) {
+        if (!loggedXaTxIds.remove(xaTxId)) {
+            return;
+        }
+        CoordinatorLogEntry log = entry.getDeepCopy();
+        if (log != null) {
+            entries.add(log);
+        }
+    }
+
+    void drainTo(List<CoordinatorLogEntry> logs) {
+        CoordinatorLogEntry finished;
+        while ((finished = entries.poll()) != null) {
+            logs.add(finished);
+        }
+    }
+
+    int size() {
+        return entries.size();
+    }
+}
@@ -0,0 +1,82 @@
+/*
+ * Copyright (C) 2016-2018 ActionTech.
+ * License: http://www.gnu.org/licenses/gpl.html GPL version 2 or higher.
+ */
+
+package com.actiontech.dble.backend.mysql.xa;
+
+import com.actiontech.dble.log.alarm.AlarmCode;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * group commit of the XA recovery log.
+ * <p>
+ * The transactions which come while a flush is running wait in the next batch, when the flush finishes one of them
+ * flushes the whole batch for all, and the others wait for the result of their batch.
+ * </p>
+ */
+public class XAGroupCommitter {
+    private static final Logger LOGGER = LoggerFactory.getLogger(XAGroupCommitter.class);
+
+    public interface Flusher {
+        /**
+         * @return true if the states of all the transactions are written
+         */
+        boolean flush(Set<String> xaTxIds);
+    }
+
+    private final Flusher flusher;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition flushed = lock.newCondition();
+    private Batch pending = new Batch();
+    private boolean flushing = false;
+
+    public XAGroupCommitter(Flusher flusher) {
+        this.flusher = flusher;
+    }
+
+    public boolean commit(String xaTxId) {
+        lock.lock();
+        try {
+            Batch batch = pending;
+            batch.xaTxIds.add(xaTxId);
+            while (!batch.done) {
+                if (flushing) {
+                    flushed.awaitUninterruptibly();
+                    continue;
+                }
+                // the batch not flushed is always the pending one
+                flushing = true;
+                pending = new Batch();
+                boolean result = false;
+                lock.unlock();
+                try {
+                    result = flusher.flush(batch.xaTxIds);
+                } catch (RuntimeException e) {
+                    LOGGER.warn(AlarmCode.CORE_FILE_WRITE_WARN + "writeCheckpoint error, leader Xid is:" + xaTxId, e);
+                } finally {
+                    lock.lock();
+                    batch.success = result;
+                    batch.done = true;
+                    flushing = false;
+                    flushed.signalAll();
+                }
+            }
+            return batch.success;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private static final class Batch {
+        private final Set<String> xaTxIds = new LinkedHashSet<>();
+        private boolean done = false;
+        private boolean success = false;
+    }
+}
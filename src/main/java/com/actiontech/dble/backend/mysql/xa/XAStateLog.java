@@ -8,23 +8,16 @@ package com.actiontech.dble.backend.mysql.xa;
 import com.actiontech.dble.DbleServer;
 import com.actiontech.dble.backend.mysql.nio.MySQLConnection;
 import com.actiontech.dble.backend.mysql.xa.recovery.Repository;
-import com.actiontech.dble.backend.mysql.xa.recovery.impl.FileSystemRepository;
 import com.actiontech.dble.backend.mysql.xa.recovery.impl.InMemoryRepository;
 import com.actiontech.dble.backend.mysql.xa.recovery.impl.KVStoreRepository;
+import com.actiontech.dble.backend.mysql.xa.recovery.impl.SegmentLogRepository;
 import com.actiontech.dble.log.alarm.AlarmCode;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.ArrayList;
-import java.util.Collection;
 import java.util.List;
 import java.util.Set;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.ConcurrentMap;
-import java.util.concurrent.CopyOnWriteArraySet;
-import java.util.concurrent.atomic.AtomicBoolean;
-import java.util.concurrent.atomic.AtomicInteger;
-import java.util.concurrent.locks.Condition;
 import java.util.concurrent.locks.ReentrantLock;
 
 public final class XAStateLog {
@@ -38,19 +31,18 @@ public final class XAStateLog {
         if (DbleServer.getInstance().isUseZK()) {
             FILE_REPOSITORY = new KVStoreRepository();
         } else {
-            FILE_REPOSITORY = new FileSystemRepository();
+            FILE_REPOSITORY = new SegmentLogRepository();
         }
     }
 
     private static final Repository IN_MEMORY_REPOSITORY = new InMemoryRepository();
-    private static ReentrantLock lock = new ReentrantLock();
-    private static AtomicBoolean hasLeader = new AtomicBoolean(false);
-    private static volatile boolean isWriting = false;
-    private static Condition waitWriting = lock.newCondition();
-    private static ReentrantLock lockNum = new ReentrantLock();
-    private static AtomicInteger batchNum = new AtomicInteger(0);
-    private static Set<Long> waitSet = new CopyOnWriteArraySet<>();
-    private static ConcurrentMap<Long, Boolean> mapResult = new ConcurrentHashMap<>();
+    private static final XAFinishedEntries FINISHED_ENTRIES = new XAFinishedEntries();
+    private static final XAGroupCommitter GROUP_COMMITTER = new XAGroupCommitter(new XAGroupCommitter.Flusher() {
+        @Override
+        public boolean flush(Set<String> xaTxIds) {
+            return flushRecoveryLog(xaTxIds);
+        }
+    });
 
     public static boolean saveXARecoveryLog(String xaTxId, TxState sessionState) {
         CoordinatorLogEntry coordinatorLogEntry = IN_MEMORY_REPOSITORY.get(xaTxId);
@@ -65,8 +57,15 @@ public final class XAStateLog {
                 sessionState == TxState.TX_COMMITTING_STATE ||
                 //will rollbacking, may success send but failed received,should be rollback agagin
                 sessionState == TxState.TX_ROLLBACKING_STATE) {
+            if (isDeltaLog()) {
+                FINISHED_ENTRIES.logged(xaTxId);
+            }
             return writeCheckpoint(xaTxId);
         }
+        if (isDeltaLog() && (sessionState == TxState.TX_COMMITTED_STATE || sessionState == TxState.TX_ROLLBACKED_STATE)) {
+            // no need to wait, the transaction is recovered again at worst
+            FINISHED_ENTRIES.finished(xaTxId, coordinatorLogEntry);
+        }
         return true;
     }
 
@@ -92,95 +91,53 @@ public final class XAStateLog {
     }
 
     public static boolean writeCheckpoint(String xaTxId) {
-        lock.lock();
+        return GROUP_COMMITTER.commit(xaTxId);
+    }
+
+    /**
+     * the append-only log gets the states of the flushing transactions only, the others get all the transactions
+     */
+    private static boolean flushRecoveryLog(Set<String> xaTxIds) {
+        List<CoordinatorLogEntry> logs = new ArrayList<>();
+        ReentrantLock lockMap = ((InMemoryRepository) IN_MEMORY_REPOSITORY).getLock();
+        lockMap.lock();
         try {
-            while (isWriting) {
-                waitSet.add(Thread.currentThread().getId());
-                waitWriting.await();
+            if (isDeltaLog()) {
+                for (String xaTxId : xaTxIds) {
+                    addDeepCopy(logs, IN_MEMORY_REPOSITORY.get(xaTxId));
+                }
+            } else {
+                for (CoordinatorLogEntry coordinatorLogEntry : IN_MEMORY_REPOSITORY.getAllCoordinatorLogEntries()) {
+                    addDeepCopy(logs, coordinatorLogEntry);
+                }
             }
-        } catch (InterruptedException e) {
-            LOGGER.warn(AlarmCode.CORE_FILE_WRITE_WARN + "writeCheckpoint error, waiter XID is " + xaTxId, e);
+        } catch (Exception e) {
+            LOGGER.warn(AlarmCode.CORE_FILE_WRITE_WARN + "logCollection deep copy error, Xids are:" + xaTxIds, e);
+            logs.clear();
         } finally {
-            lock.unlock();
+            lockMap.unlock();
         }
-        lockNum.lock();
-        try {
-            batchNum.incrementAndGet();
-            mapResult.put(Thread.currentThread().getId(), false);
-        } finally {
-            lockNum.unlock();
+        if (logs.isEmpty()) {
+            return false;
         }
-        if (hasLeader.compareAndSet(false, true)) { // leader thread
-            waitSet.remove(Thread.currentThread().getId());
-            while (waitSet.size() > 0) {
-                //  make all wait thread all became leader or  follower
-                Thread.yield();
-            }
-            lockNum.lock();
-            try {
-                isWriting = true;
-                boolean writeResult = false;
-                // copy memoryRepository
-                List<CoordinatorLogEntry> logs = new ArrayList<>();
-                ReentrantLock lockMap = ((InMemoryRepository) IN_MEMORY_REPOSITORY).getLock();
-                lockMap.lock();
-                try {
-                    Collection<CoordinatorLogEntry> logCollection = IN_MEMORY_REPOSITORY.getAllCoordinatorLogEntries();
-                    for (CoordinatorLogEntry coordinatorLogEntry : logCollection) {
-                        CoordinatorLogEntry log = coordinatorLogEntry.getDeepCopy();
-                        if (log != null) {
-                            logs.add(log);
-                        }
-                    }
-                } catch (Exception e) {
-                    LOGGER.warn(AlarmCode.CORE_FILE_WRITE_WARN + "logCollection deep copy error, leader Xid is:" + xaTxId, e);
-                    logs.clear();
-                } finally {
-                    lockMap.unlock();
-                }
-                if (!logs.isEmpty()) {
-                    writeResult = FILE_REPOSITORY.writeCheckpoint(logs);
-                }
-                while (batchNum.get() != 1) {
-                    Thread.yield();
-                }
-                batchNum.decrementAndGet();
-                hasLeader.set(false);
-                lock.lock();
-                try {
-                    if (writeResult) {
-                        for (Long aLong : mapResult.keySet()) {
-                            mapResult.put(aLong, true);
-                        }
-                    }
-                    isWriting = false;
-                    mapResult.remove(Thread.currentThread().getId());
-                    // 1.wakeup follower to return 2.wake up waiting threads continue
-                    waitWriting.signalAll();
-                    return writeResult;
-                } finally {
-                    lock.unlock();
-                }
-            } finally {
-                lockNum.unlock();
-            }
-        } else { // follower thread
-            lock.lock();
-            try {
-                waitSet.remove(Thread.currentThread().getId());
-                batchNum.decrementAndGet();
-                // the follower's status has copied and ready to write
-                waitWriting.await();
-                boolean result = mapResult.get(Thread.currentThread().getId());
-                mapResult.remove(Thread.currentThread().getId());
-                return result;
-            } catch (InterruptedException e) {
-                LOGGER.warn(AlarmCode.CORE_FILE_WRITE_WARN + "writeCheckpoint error, follower Xid is:" + xaTxId, e);
-                return false;
-            } finally {
-                lock.unlock();
-            }
+        if (isDeltaLog()) {
+            FINISHED_ENTRIES.drainTo(logs);
         }
+        return FILE_REPOSITORY.writeCheckpoint(logs);
+    }
+
+    private static void addDeepCopy(List<CoordinatorLogEntry> logs, CoordinatorLogEntry coordinatorLogEntry) {
+        if (coordinatorLogEntry == null) {
+            return;
+        }
+        CoordinatorLogEntry log = coordinatorLogEntry.getDeepCopy();
+        if (log != null) {
+            logs.add(log);
+        }
+    }
+
+    private static boolean isDeltaLog() {
+        return FILE_REPOSITORY instanceof SegmentLogRepository;
     }
 
     public static void flushMemoryRepository(String xaTxId, CoordinatorLogEntry coordinatorLogEntry) {
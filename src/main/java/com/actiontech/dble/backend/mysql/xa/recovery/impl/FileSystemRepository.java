@@ -37,13 +37,17 @@ public class FileSystemRepository implements Repository {
         init();
     }
 
+    public FileSystemRepository(String baseDir, String baseName) {
+        init(baseDir, baseName);
+    }
+
     @Override
     public void init() {
         SystemConfig systemConfig = DbleServer.getInstance().getConfig().getSystem();
+        init(systemConfig.getXaRecoveryLogBaseDir(), systemConfig.getXaRecoveryLogBaseName());
+    }
 
-        String baseDir = systemConfig.getXaRecoveryLogBaseDir();
-        String baseName = systemConfig.getXaRecoveryLogBaseName();
-
+    private void init(String baseDir, String baseName) {
         LOGGER.debug("baseDir " + baseDir);
         LOGGER.debug("baseName " + baseName);
 
@@ -0,0 +1,386 @@
+/*
+ * Copyright (C) 2016-2018 ActionTech.
+ * License: http://www.gnu.org/licenses/gpl.html GPL version 2 or higher.
+ */
+
+package com.actiontech.dble.backend.mysql.xa.recovery.impl;
+
+import com.actiontech.dble.DbleServer;
+import com.actiontech.dble.backend.mysql.xa.CoordinatorLogEntry;
+import com.actiontech.dble.backend.mysql.xa.Deserializer;
+import com.actiontech.dble.backend.mysql.xa.Serializer;
+import com.actiontech.dble.backend.mysql.xa.TxState;
+import com.actiontech.dble.backend.mysql.xa.recovery.DeserializationException;
+import com.actiontech.dble.backend.mysql.xa.recovery.Repository;
+import com.actiontech.dble.config.model.SystemConfig;
+import com.actiontech.dble.log.alarm.AlarmCode;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+
+/**
+ * the XA recovery log kept as append-only segments.
+ * <p>
+ * Every write appends the states of the given transactions only and forces them once, the states of the other
+ * transactions are not written again. When a segment is full a new one is opened, and the transactions not finished
+ * are written to a checkpoint in background, the checkpoint replaces all the segments before it.
+ * Recovery reads the last checkpoint and replays the segments after it, the latest state of a transaction wins.
+ * </p>
+ * file: baseName.seq.seg and baseName.seq.cpt, record: length, crc32, json of CoordinatorLogEntry
+ */
+public class SegmentLogRepository implements Repository {
+    public static final Logger LOGGER = LoggerFactory.getLogger(SegmentLogRepository.class);
+    public static final long DEFAULT_SEGMENT_SIZE = 16L * 1024 * 1024;
+    private static final String SEGMENT_SUFFIX = ".seg";
+    private static final String CHECKPOINT_SUFFIX = ".cpt";
+    private static final String TMP_SUFFIX = ".tmp";
+    private static final String LEGACY_SUFFIX = ".log";
+    private static final int RECORD_HEAD_SIZE = 8;
+    private static final int MAX_RECORD_SIZE = 16 * 1024 * 1024;
+
+    private final long segmentSize;
+    private String baseDir;
+    private String baseName;
+
+    /* the latest record of every transaction not finished, for the checkpoint */
+    private final Map<String, byte[]> liveRecords = new HashMap<>();
+    private FileChannel channel;
+    private long segmentSeq = -1;
+    private long segmentPos;
+    private ExecutorService compactExecutor;
+    private boolean closed = false;
+
+    public SegmentLogRepository() {
+        this.segmentSize = DEFAULT_SEGMENT_SIZE;
+        init();
+    }
+
+    public SegmentLogRepository(String baseDir, String baseName, long segmentSize) {
+        this.segmentSize = segmentSize;
+        init(baseDir, baseName);
+    }
+
+    @Override
+    public void init() {
+        SystemConfig systemConfig = DbleServer.getInstance().getConfig().getSystem();
+        init(systemConfig.getXaRecoveryLogBaseDir(), systemConfig.getXaRecoveryLogBaseName());
+    }
+
+    private void init(String dir, String name) {
+        this.baseDir = dir;
+        this.baseName = name;
+        File baseDirFolder = new File(baseDir);
+        if (!baseDirFolder.exists() && !baseDirFolder.mkdirs()) {
+            LOGGER.warn(AlarmCode.CORE_FILE_WRITE_WARN + "can't create the directory " + baseDir);
+        }
+    }
+
+    @Override
+    public void put(String id, CoordinatorLogEntry coordinatorLogEntry) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void remove(String id) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public CoordinatorLogEntry get(String coordinatorId) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public Collection<CoordinatorLogEntry> getAllCoordinatorLogEntries() {
+        return replay().values();
+    }
+
+    /**
+     * append the states of the entries and force them to disk, the other transactions are kept as they are
+     */
+    @Override
+    public synchronized boolean writeCheckpoint(Collection<CoordinatorLogEntry> checkpointContent) {
+        if (closed) {
+            return false;
+        }
+        try {
+            if (channel == null) {
+                openSegment();
+            }
+            List<byte[]> records = new ArrayList<>(checkpointContent.size());
+            int size = 0;
+            for (CoordinatorLogEntry entry : checkpointContent) {
+                byte[] record;
+                if (isFinished(entry.getTxState())) {
+                    // never logged, such as the one phase commits
+                    if (liveRecords.remove(entry.getId()) == null) {
+                        continue;
+                    }
+                    record = encode(entry);
+                } else {
+                    record = encode(entry);
+                    liveRecords.put(entry.getId(), record);
+                }
+                records.add(record);
+                size += record.length;
+            }
+            if (records.isEmpty()) {
+                return true;
+            }
+            ByteBuffer buffer = ByteBuffer.allocate(size);
+            for (byte[] record : records) {
+                buffer.put(record);
+            }
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            channel.force(false);
+            segmentPos += size;
+            if (segmentPos >= segmentSize) {
+                rollSegment();
+            }
+            return true;
+        } catch (IOException e) {
+            LOGGER.warn(AlarmCode.CORE_FILE_WRITE_WARN + "Failed to write the xa recovery log", e);
+            // the tail of the segment may be broken, the next write goes to a new segment
+            closeChannel();
+            return false;
+        }
+    }
+
+    @Override
+    public synchronized void close() {
+        closed = true;
+        closeChannel();
+        if (compactExecutor != null) {
+            compactExecutor.shutdown();
+            try {
+                // a checkpoint half written is ignored, but the compaction needs to be done again
+                compactExecutor.awaitTermination(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                LOGGER.info("interrupted while waiting for the compaction of the xa recovery log");
+            }
+        }
+    }
+
+    /**
+     * the first segment of the writer is opened after the old logs are replayed and written to a checkpoint,
+     * the old segments and the legacy log are removed then
+     */
+    private void openSegment() throws IOException {
+        if (segmentSeq < 0) {
+            Map<String, CoordinatorLogEntry> entries = replay();
+            for (CoordinatorLogEntry entry : entries.values()) {
+                if (!isFinished(entry.getTxState())) {
+                    liveRecords.put(entry.getId(), encode(entry));
+                }
+            }
+            long lastSeq = Math.max(0, Math.max(lastSeq(SEGMENT_SUFFIX), lastSeq(CHECKPOINT_SUFFIX)));
+            writeCheckpointFile(lastSeq, liveRecords.values());
+            removeOldFiles(lastSeq, true);
+            segmentSeq = lastSeq;
+            compactExecutor = Executors.newSingleThreadExecutor(new ThreadFactoryBuilder().setNameFormat("XALogCompact-%d").setDaemon(true).build());
+        }
+        segmentSeq++;
+        channel = new RandomAccessFile(fileName(segmentSeq, SEGMENT_SUFFIX), "rw").getChannel();
+        segmentPos = channel.size();
+        channel.position(segmentPos);
+    }
+
+    private void rollSegment() throws IOException {
+        closeChannel();
+        final long sealedSeq = segmentSeq;
+        final List<byte[]> records = new ArrayList<>(liveRecords.values());
+        openSegment();
+        compactExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    writeCheckpointFile(sealedSeq, records);
+                    removeOldFiles(sealedSeq, false);
+                } catch (IOException e) {
+                    LOGGER.warn(AlarmCode.CORE_FILE_WRITE_WARN + "Failed to compact the xa recovery log", e);
+                }
+            }
+        });
+    }
+
+    private void closeChannel() {
+        if (channel != null) {
+            try {
+                channel.close();
+            } catch (IOException e) {
+                LOGGER.info("Error closing the xa recovery log - ignoring", e);
+            }
+            channel = null;
+        }
+    }
+
+    /**
+     * the checkpoint of seq replaces all the segments until seq, it's written to a temp file and renamed
+     */
+    private void writeCheckpointFile(long seq, Collection<byte[]> records) throws IOException {
+        File file = new File(fileName(seq, CHECKPOINT_SUFFIX));
+        File tmpFile = new File(file.getPath() + TMP_SUFFIX);
+        try (FileOutputStream fileOut = new FileOutputStream(tmpFile);
+             BufferedOutputStream out = new BufferedOutputStream(fileOut)) {
+            for (byte[] record : records) {
+                out.write(record);
+            }
+            out.flush();
+            fileOut.getFD().sync();
+        }
+        if (file.exists() && !file.delete()) {
+            throw new IOException("can't delete the old checkpoint " + file);
+        }
+        if (!tmpFile.renameTo(file)) {
+            throw new IOException("can't rename " + tmpFile + " to " + file);
+        }
+    }
+
+    private void removeOldFiles(long checkpointSeq, boolean withLegacy) {
+        File[] files = new File(baseDir).listFiles();
+        if (files == null) {
+            return;
+        }
+        for (File file : files) {
+            String name = file.getName();
+            if (!name.startsWith(baseName)) {
+                continue;
+            }
+            boolean old;
+            if (name.endsWith(SEGMENT_SUFFIX)) {
+                long seq = parseSeq(name, SEGMENT_SUFFIX);
+                old = seq >= 0 && seq <= checkpointSeq;
+            } else if (name.endsWith(CHECKPOINT_SUFFIX)) {
+                long seq = parseSeq(name, CHECKPOINT_SUFFIX);
+                old = seq >= 0 && seq < checkpointSeq;
+            } else {
+                old = withLegacy && (name.endsWith(TMP_SUFFIX) || name.endsWith(LEGACY_SUFFIX));
+            }
+            if (old && !file.delete()) {
+                LOGGER.info("can't delete the old xa recovery log " + file);
+            }
+        }
+    }
+
+    /**
+     * the last checkpoint and the segments after it, or the legacy log and all the segments without checkpoint
+     */
+    private Map<String, CoordinatorLogEntry> replay() {
+        Map<String, CoordinatorLogEntry> entries = new HashMap<>();
+        long checkpointSeq = lastSeq(CHECKPOINT_SUFFIX);
+        if (checkpointSeq < 0) {
+            FileSystemRepository legacy = new FileSystemRepository(baseDir, baseName);
+            for (CoordinatorLogEntry entry : legacy.getAllCoordinatorLogEntries()) {
+                entries.put(entry.getId(), entry);
+            }
+            legacy.close();
+        } else {
+            readRecords(new File(fileName(checkpointSeq, CHECKPOINT_SUFFIX)), entries);
+        }
+        for (long seq : listSeq(SEGMENT_SUFFIX)) {
+            if (seq > checkpointSeq) {
+                readRecords(new File(fileName(seq, SEGMENT_SUFFIX)), entries);
+            }
+        }
+        return entries;
+    }
+
+    private static void readRecords(File file, Map<String, CoordinatorLogEntry> entries) {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            while (true) {
+                int length;
+                try {
+                    length = in.readInt();
+                } catch (EOFException end) {
+                    return;
+                }
+                int crc = in.readInt();
+                if (length <= 0 || length > MAX_RECORD_SIZE) {
+                    LOGGER.info("the xa recovery log " + file + " is not closed properly last time, its tail is ignored");
+                    return;
+                }
+                byte[] data = new byte[length];
+                in.readFully(data);
+                CRC32 crc32 = new CRC32();
+                crc32.update(data);
+                if ((int) crc32.getValue() != crc) {
+                    LOGGER.info("the xa recovery log " + file + " is not closed properly last time, its tail is ignored");
+                    return;
+                }
+                try {
+                    CoordinatorLogEntry entry = Deserializer.fromJson(new String(data, StandardCharsets.UTF_8));
+                    entries.put(entry.getId(), entry);
+                } catch (DeserializationException e) {
+                    LOGGER.warn(AlarmCode.CORE_FILE_WRITE_WARN + "Error in recover " + e);
+                }
+            }
+        } catch (EOFException unexpectedEOF) {
+            LOGGER.info("Unexpected EOF - the xa recovery log " + file + " not closed properly last time?");
+        } catch (IOException e) {
+            LOGGER.warn(AlarmCode.CORE_FILE_WRITE_WARN + "Error in recover from " + file, e);
+        }
+    }
+
+    private static byte[] encode(CoordinatorLogEntry entry) {
+        byte[] data = Serializer.toJson(entry).getBytes(StandardCharsets.UTF_8);
+        CRC32 crc32 = new CRC32();
+        crc32.update(data);
+        ByteBuffer record = ByteBuffer.allocate(RECORD_HEAD_SIZE + data.length);
+        record.putInt(data.length);
+        record.putInt((int) crc32.getValue());
+        record.put(data);
+        return record.array();
+    }
+
+    private static boolean isFinished(TxState txState) {
+        return txState == TxState.TX_COMMITTED_STATE || txState == TxState.TX_ROLLBACKED_STATE;
+    }
+
+    private String fileName(long seq, String suffix) {
+        return new File(baseDir, baseName + "." + seq + suffix).getPath();
+    }
+
+    private long lastSeq(String suffix) {
+        List<Long> seqList = listSeq(suffix);
+        return seqList.isEmpty() ? -1 : seqList.get(seqList.size() - 1);
+    }
+
+    private List<Long> listSeq(String suffix) {
+        List<Long> seqList = new ArrayList<>();
+        File[] files = new File(baseDir).listFiles();
+        if (files != null) {
+            for (File file : files) {
+                String name = file.getName();
+                if (name.startsWith(baseName + ".") && name.endsWith(suffix)) {
+                    long seq = parseSeq(name, suffix);
+                    if (seq >= 0) {
+                        seqList.add(seq);
+                    }
+                }
+            }
+        }
+        Collections.sort(seqList);
+        return seqList;
+    }
+
+    private long parseSeq(String name, String suffix) {
+        try {
+            return Long.parseLong(name.substring(baseName.length() + 1, name.length() - suffix.length()));
+        } catch (NumberFormatException | StringIndexOutOfBoundsException e) {
+            return -1;
+        }
+    }
+}
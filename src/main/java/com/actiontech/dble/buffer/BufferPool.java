@@ -30,5 +30,9 @@ public interface BufferPool {
 
     int getChunkSize();
 
+    long getHeapAllocateCount();
+
     ConcurrentMap<Long, Long> getNetDirectMemoryUsage();
+
+    ConcurrentMap<Long, Long> getNetDirectMemoryCached();
 }
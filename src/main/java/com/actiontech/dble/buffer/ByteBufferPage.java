@@ -6,86 +6,127 @@
 package com.actiontech.dble.buffer;
 
 import java.nio.ByteBuffer;
-import java.util.BitSet;
+import java.util.Arrays;
 import java.util.concurrent.atomic.AtomicBoolean;
 
 /*
  * ByteBufferPage
+ * <p>
+ * buddy allocator over the chunks of one page: a block of order k holds 2^k chunks,
+ * free blocks are kept in one list per order, so allocate/recycle never scan the page.
+ * </p>
  */
 @SuppressWarnings("restriction")
 public class ByteBufferPage {
 
+    private static final int NONE = -1;
+
     private final ByteBuffer buf;
     private final int chunkSize;
     private final int chunkCount;
-    private final BitSet chunkAllocateTrack;
+    private final int maxOrder;
+    /**
+     * order -> first chunk of the first free block, NONE if the list is empty
+     */
+    private final int[] freeHead;
+    /**
+     * first chunk of a free block -> first chunk of the next/prev free block of the same order
+     */
+    private final int[] nextFree;
+    private final int[] prevFree;
+    /**
+     * first chunk of a free block -> its order, NONE if no free block starts at the chunk
+     */
+    private final byte[] freeOrder;
+    /**
+     * first chunk of an allocated block -> its order, NONE if no allocated block starts at the chunk,
+     * so a block recycled twice or never allocated is rejected
+     */
+    private final byte[] allocOrder;
+    /**
+     * bit k is set when the free list of order k is not empty, read without the lock
+     */
+    private volatile int freeMask;
+    private volatile int usedChunks;
     private final AtomicBoolean allocLockStatus = new AtomicBoolean(false);
 
     public ByteBufferPage(ByteBuffer buf, int chunkSize) {
         super();
         this.chunkSize = chunkSize;
         chunkCount = buf.capacity() / chunkSize;
-        chunkAllocateTrack = new BitSet(chunkCount);
+        maxOrder = chunkCount == 0 ? 0 : 31 - Integer.numberOfLeadingZeros(chunkCount);
+        freeHead = new int[maxOrder + 1];
+        Arrays.fill(freeHead, NONE);
+        nextFree = new int[chunkCount];
+        prevFree = new int[chunkCount];
+        freeOrder = new byte[chunkCount];
+        Arrays.fill(freeOrder, (byte) NONE);
+        allocOrder = new byte[chunkCount];
+        Arrays.fill(allocOrder, (byte) NONE);
         this.buf = buf;
+        // split the page into the biggest aligned blocks, chunkCount need not be a power of 2
+        int start = 0;
+        while (start < chunkCount) {
+            int order = maxOrder;
+            while ((start & ((1 << order) - 1)) != 0 || start + (1 << order) > chunkCount) {
+                order--;
+            }
+            addFree(start, order);
+            start += 1 << order;
+        }
+    }
+
+    /**
+     * the order of the smallest block that holds theChunkCount chunks
+     */
+    public static int orderOf(int theChunkCount) {
+        return theChunkCount <= 1 ? 0 : 32 - Integer.numberOfLeadingZeros(theChunkCount - 1);
     }
 
+    /**
+     * allocate a block of 2^orderOf(theChunkCount) chunks, the capacity of the
+     * returned buffer may be bigger than theChunkCount * chunkSize
+     *
+     * @return null if the page is busy or has no free block big enough
+     */
     public ByteBuffer allocateChunk(int theChunkCount) {
+        int order = orderOf(theChunkCount);
+        if (order > maxOrder || (freeMask >>> order) == 0) {
+            return null;
+        }
         if (!allocLockStatus.compareAndSet(false, true)) {
             return null;
         }
-        int startChunk = -1;
-        int continueCount = 0;
         try {
-            for (int i = 0; i < chunkCount; i++) {
-                if (!chunkAllocateTrack.get(i)) {
-                    if (startChunk == -1) {
-                        startChunk = i;
-                        continueCount = 1;
-                        if (theChunkCount == 1) {
-                            break;
-                        }
-                    } else {
-                        if (++continueCount == theChunkCount) {
-                            break;
-                        }
-                    }
-                } else {
-                    startChunk = -1;
-                    continueCount = 0;
-                }
-            }
-            if (continueCount == theChunkCount) {
-                int offStart = startChunk * chunkSize;
-                int offEnd = offStart + theChunkCount * chunkSize;
-                buf.limit(offEnd);
-                buf.position(offStart);
-
-                ByteBuffer newBuf = buf.slice();
-                //sun.nio.ch.DirectBuffer theBuf = (DirectBuffer) newBuf;
-                //System.out.println("offAddress " + (theBuf.address() - startAddress));
-                markChunksUsed(startChunk, theChunkCount);
-                return newBuf;
-            } else {
-                //System.out.println("contiue Count " + contiueCount + " theChunkCount " + theChunkCount);
+            int candidates = freeMask >>> order;
+            if (candidates == 0) {
                 return null;
             }
+            int blockOrder = order + Integer.numberOfTrailingZeros(candidates);
+            int startChunk = freeHead[blockOrder];
+            removeFree(startChunk, blockOrder);
+            // give back the upper halves until the block fits
+            while (blockOrder > order) {
+                blockOrder--;
+                addFree(startChunk + (1 << blockOrder), blockOrder);
+            }
+            int offStart = startChunk * chunkSize;
+            int offEnd = offStart + (1 << order) * chunkSize;
+            buf.limit(offEnd);
+            buf.position(offStart);
+
+            ByteBuffer newBuf = buf.slice();
+            allocOrder[startChunk] = (byte) order;
+            usedChunks += 1 << order;
+            return newBuf;
         } finally {
             allocLockStatus.set(false);
         }
     }
 
-    private void markChunksUsed(int startChunk, int theChunkCount) {
-        for (int i = 0; i < theChunkCount; i++) {
-            chunkAllocateTrack.set(startChunk + i);
-        }
-    }
-
-    private void markChunksUnused(int startChunk, int theChunkCount) {
-        for (int i = 0; i < theChunkCount; i++) {
-            chunkAllocateTrack.clear(startChunk + i);
-        }
-    }
-
+    /**
+     * @return false if the buffer is not of this page or its block is not allocated
+     */
     public boolean recycleBuffer(ByteBuffer parent, int startChunk, int chunkNum) {
 
         if (parent == this.buf) {
@@ -94,7 +135,24 @@ public class ByteBufferPage {
                 Thread.yield();
             }
             try {
-                markChunksUnused(startChunk, chunkNum);
+                int order = orderOf(chunkNum);
+                if (startChunk < 0 || startChunk >= chunkCount || allocOrder[startChunk] != order) {
+                    return false;
+                }
+                allocOrder[startChunk] = (byte) NONE;
+                usedChunks -= 1 << order;
+                int start = startChunk;
+                // merge with the free buddy as long as possible
+                while (order < maxOrder) {
+                    int buddy = start ^ (1 << order);
+                    if (buddy + (1 << order) > chunkCount || freeOrder[buddy] != order) {
+                        break;
+                    }
+                    removeFree(buddy, order);
+                    start = Math.min(start, buddy);
+                    order++;
+                }
+                addFree(start, order);
             } finally {
                 allocLockStatus.set(false);
             }
@@ -103,7 +161,36 @@ public class ByteBufferPage {
         return false;
     }
 
+    private void addFree(int start, int order) {
+        int head = freeHead[order];
+        nextFree[start] = head;
+        prevFree[start] = NONE;
+        if (head != NONE) {
+            prevFree[head] = start;
+        }
+        freeHead[order] = start;
+        freeOrder[start] = (byte) order;
+        freeMask |= 1 << order;
+    }
+
+    private void removeFree(int start, int order) {
+        int next = nextFree[start];
+        int prev = prevFree[start];
+        if (prev == NONE) {
+            freeHead[order] = next;
+        } else {
+            nextFree[prev] = next;
+        }
+        if (next != NONE) {
+            prevFree[next] = prev;
+        }
+        freeOrder[start] = (byte) NONE;
+        if (freeHead[order] == NONE) {
+            freeMask &= ~(1 << order);
+        }
+    }
+
     public long getUsage() {
-        return chunkAllocateTrack.cardinality() * (long) chunkSize;
+        return usedChunks * (long) chunkSize;
     }
 }
@@ -0,0 +1,136 @@
+/*
+ * Copyright (C) 2016-2018 ActionTech.
+ * License: http://www.gnu.org/licenses/gpl.html GPL version 2 or higher.
+ */
+
+package com.actiontech.dble.buffer;
+
+import java.nio.ByteBuffer;
+
+/**
+ * ChunkCache
+ * <p>
+ * the per thread state of DirectByteBufferPool: a magazine of recently recycled buffers
+ * per block order and the direct memory usage of the thread. Everything except the
+ * usage fields read by the manager is touched only by the owner thread, so allocate and
+ * recycle on the same thread need no shared state.
+ * </p>
+ */
+final class ChunkCache {
+    static final int MAX_CACHED_ORDER = 3;
+    static final int MAGAZINE_SIZE = 64;
+    /**
+     * every TRIM_INTERVAL polls, the cached buffers that were not reused are given back
+     */
+    static final int TRIM_INTERVAL = 8192;
+
+    private final Thread owner;
+    private final ByteBuffer[][] magazines;
+    private final int[] counts;
+    private final int[] hits;
+    private int polls;
+    /* written by the owner thread only */
+    private volatile long usage;
+    private volatile long cachedBytes;
+
+    ChunkCache(Thread owner, boolean enableCache) {
+        this.owner = owner;
+        if (enableCache) {
+            magazines = new ByteBuffer[MAX_CACHED_ORDER + 1][MAGAZINE_SIZE];
+            counts = new int[MAX_CACHED_ORDER + 1];
+            hits = new int[MAX_CACHED_ORDER + 1];
+        } else {
+            magazines = null;
+            counts = null;
+            hits = null;
+        }
+    }
+
+    ByteBuffer poll(int order, DirectByteBufferPool pool) {
+        if (magazines == null || order > MAX_CACHED_ORDER) {
+            return null;
+        }
+        if (++polls >= TRIM_INTERVAL) {
+            polls = 0;
+            trim(pool);
+        }
+        if (counts[order] == 0) {
+            return null;
+        }
+        hits[order]++;
+        ByteBuffer buffer = magazines[order][--counts[order]];
+        magazines[order][counts[order]] = null;
+        cachedBytes = cachedBytes - buffer.capacity();
+        return buffer;
+    }
+
+    /**
+     * @return false if the buffer is not cached and must go back to its page
+     */
+    boolean offer(ByteBuffer buffer, int order) {
+        if (magazines == null || order > MAX_CACHED_ORDER || counts[order] == MAGAZINE_SIZE) {
+            return false;
+        }
+        buffer.clear();
+        magazines[order][counts[order]++] = buffer;
+        cachedBytes = cachedBytes + buffer.capacity();
+        return true;
+    }
+
+    void addUsage(long size) {
+        usage = usage + size;
+    }
+
+    long getUsage() {
+        return usage;
+    }
+
+    long getCachedBytes() {
+        return cachedBytes;
+    }
+
+    Thread getOwner() {
+        return owner;
+    }
+
+    /**
+     * give back all the cached buffers, only called by the owner or after the owner died
+     */
+    void releaseAll(DirectByteBufferPool pool) {
+        if (magazines == null) {
+            return;
+        }
+        for (int order = 0; order <= MAX_CACHED_ORDER; order++) {
+            release(order, counts[order], pool);
+        }
+    }
+
+    private void trim(DirectByteBufferPool pool) {
+        for (int order = 0; order <= MAX_CACHED_ORDER; order++) {
+            int unused = counts[order] - hits[order];
+            if (unused > 0) {
+                release(order, unused, pool);
+            }
+            hits[order] = 0;
+        }
+    }
+
+    /**
+     * give back the oldest cached buffers of the order
+     */
+    private void release(int order, int num, DirectByteBufferPool pool) {
+        ByteBuffer[] magazine = magazines[order];
+        long releasedBytes = 0;
+        for (int i = 0; i < num; i++) {
+            releasedBytes += magazine[i].capacity();
+            pool.recycleToPage(magazine[i]);
+        }
+        int remain = counts[order] - num;
+        System.arraycopy(magazine, num, magazine, 0, remain);
+        for (int i = remain; i < counts[order]; i++) {
+            magazine[i] = null;
+        }
+        counts[order] = remain;
+        cachedBytes = cachedBytes - releasedBytes;
+    }
+}
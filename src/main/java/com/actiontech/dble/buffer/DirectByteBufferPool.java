@@ -5,14 +5,18 @@
 
 package com.actiontech.dble.buffer;
 
+import com.actiontech.dble.DbleServer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import sun.nio.ch.DirectBuffer;
 
 import java.nio.ByteBuffer;
+import java.util.IdentityHashMap;
+import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * DirectByteBufferPool
@@ -31,9 +35,25 @@ public class DirectByteBufferPool implements BufferPool {
     private final int pageSize;
     private final short pageCount;
     /**
-     * thread ID->the size of Direct Buffer
+     * page buffer -> page, built once and only read afterwards
      */
-    private final ConcurrentMap<Long, Long> memoryUsage;
+    private final Map<Object, ByteBufferPage> pageOfParent;
+    /**
+     * thread ID->the state(buffer cache and the size of Direct Buffer) of the thread
+     */
+    private final ConcurrentMap<Long, ChunkCache> threadCaches;
+    private final ThreadLocal<ChunkCache> localCache = new ThreadLocal<ChunkCache>() {
+        @Override
+        protected ChunkCache initialValue() {
+            Thread current = Thread.currentThread();
+            ChunkCache cache = new ChunkCache(current, isCacheThread(current.getName()));
+            // short-lived threads come and go, the map keeps only the live ones
+            releaseDeadThreadCaches();
+            threadCaches.put(current.getId(), cache);
+            return cache;
+        }
+    };
+    private final AtomicLong heapAllocateCount = new AtomicLong(0);
 
     public DirectByteBufferPool(int pageSize, short chunkSize, short pageCount) {
         allPages = new ByteBufferPage[pageCount];
@@ -41,10 +61,23 @@ public class DirectByteBufferPool implements BufferPool {
         this.pageSize = pageSize;
         this.pageCount = pageCount;
         prevAllocatedPage = new AtomicInteger(0);
+        pageOfParent = new IdentityHashMap<>(pageCount);
         for (int i = 0; i < pageCount; i++) {
-            allPages[i] = new ByteBufferPage(ByteBuffer.allocateDirect(pageSize), chunkSize);
+            ByteBuffer pageBuffer = ByteBuffer.allocateDirect(pageSize);
+            allPages[i] = new ByteBufferPage(pageBuffer, chunkSize);
+            pageOfParent.put(pageBuffer, allPages[i]);
         }
-        memoryUsage = new ConcurrentHashMap<>();
+        threadCaches = new ConcurrentHashMap<>();
+    }
+
+    /**
+     * the reactor threads(named with LOCAL_BUF_THREAD_PREX) and the business threads
+     * allocate and recycle most of the buffers, they keep a cache of recycled buffers
+     */
+    private static boolean isCacheThread(String threadName) {
+        return threadName.startsWith(LOCAL_BUF_THREAD_PREX) ||
+                threadName.startsWith(DbleServer.BUSINESS_EXECUTOR_NAME) ||
+                threadName.startsWith(DbleServer.BACKEND_BUSINESS_EXECUTOR_NAME);
     }
 
     /**
@@ -71,22 +104,20 @@ public class DirectByteBufferPool implements BufferPool {
 
     public ByteBuffer allocate(int size) {
         final int theChunkCount = size / chunkSize + (size % chunkSize == 0 ? 0 : 1);
-        int selectedPage = prevAllocatedPage.incrementAndGet() % allPages.length;
-        ByteBuffer byteBuf = allocateBuffer(theChunkCount, selectedPage, allPages.length);
+        ByteBuffer byteBuf = null;
+        ChunkCache cache = localCache.get();
+        byteBuf = cache.poll(ByteBufferPage.orderOf(theChunkCount), this);
         if (byteBuf == null) {
-            byteBuf = allocateBuffer(theChunkCount, 0, selectedPage);
-        }
-        final long threadId = Thread.currentThread().getId();
-
-        if (byteBuf != null) {
-            if (memoryUsage.containsKey(threadId)) {
-                memoryUsage.put(threadId, memoryUsage.get(threadId) + byteBuf.capacity());
-            } else {
-                memoryUsage.put(threadId, (long) byteBuf.capacity());
+            int selectedPage = prevAllocatedPage.incrementAndGet() % allPages.length;
+            byteBuf = allocateBuffer(theChunkCount, selectedPage, allPages.length);
+            if (byteBuf == null) {
+                byteBuf = allocateBuffer(theChunkCount, 0, selectedPage);
             }
         }
-
-        if (byteBuf == null) {
+        if (byteBuf != null) {
+            cache.addUsage(byteBuf.capacity());
+        } else {
+            heapAllocateCount.incrementAndGet();
             return ByteBuffer.allocate(size);
         }
         return byteBuf;
@@ -103,23 +134,34 @@ public class DirectByteBufferPool implements BufferPool {
         boolean recycled = false;
         DirectBuffer thisNavBuf = (DirectBuffer) theBuf;
         int chunkCount = theBuf.capacity() / chunkSize;
-        DirectBuffer parentBuf = (DirectBuffer) thisNavBuf.attachment();
-        int startChunk = (int) ((thisNavBuf.address() - parentBuf.address()) / this.chunkSize);
-        for (ByteBufferPage allPage : allPages) {
-            if ((recycled = allPage.recycleBuffer((ByteBuffer) parentBuf, startChunk, chunkCount))) {
-                break;
-            }
+        Object parentBuf = thisNavBuf.attachment();
+        ByteBufferPage page = parentBuf == null ? null : pageOfParent.get(parentBuf);
+        ChunkCache cache = localCache.get();
+        if (page != null) {
+            recycled = cache.offer(theBuf, ByteBufferPage.orderOf(chunkCount)) ||
+                    recycleToPage(page, thisNavBuf, (DirectBuffer) parentBuf, chunkCount);
         }
-        final long threadId = Thread.currentThread().getId();
-
-        if (memoryUsage.containsKey(threadId)) {
-            memoryUsage.put(threadId, memoryUsage.get(threadId) - size);
-        }
-        if (!recycled) {
+        if (recycled) {
+            cache.addUsage(-size);
+        } else {
             LOGGER.info("warning ,not recycled buffer " + theBuf);
         }
     }
 
+    /**
+     * give the buffer back to its page, bypassing the thread cache
+     */
+    void recycleToPage(ByteBuffer theBuf) {
+        DirectBuffer thisNavBuf = (DirectBuffer) theBuf;
+        DirectBuffer parentBuf = (DirectBuffer) thisNavBuf.attachment();
+        recycleToPage(pageOfParent.get(parentBuf), thisNavBuf, parentBuf, theBuf.capacity() / chunkSize);
+    }
+
+    private boolean recycleToPage(ByteBufferPage page, DirectBuffer thisNavBuf, DirectBuffer parentBuf, int chunkCount) {
+        int startChunk = (int) ((thisNavBuf.address() - parentBuf.address()) / this.chunkSize);
+        return page.recycleBuffer((ByteBuffer) parentBuf, startChunk, chunkCount);
+    }
+
     private ByteBuffer allocateBuffer(int theChunkCount, int startPage, int endPage) {
         for (int i = startPage; i < endPage; i++) {
             ByteBuffer buffer = allPages[i].allocateChunk(theChunkCount);
@@ -135,11 +177,62 @@ public class DirectByteBufferPool implements BufferPool {
         return chunkSize;
     }
 
+    /**
+     * return the count of allocations served from heap because no page had a free block
+     *
+     * @return
+     */
+    @Override
+    public long getHeapAllocateCount() {
+        return heapAllocateCount.get();
+    }
+
     @Override
     public ConcurrentMap<Long, Long> getNetDirectMemoryUsage() {
+        ConcurrentMap<Long, Long> memoryUsage = new ConcurrentHashMap<>(threadCaches.size());
+        for (Map.Entry<Long, ChunkCache> entry : threadCaches.entrySet()) {
+            memoryUsage.put(entry.getKey(), entry.getValue().getUsage());
+        }
+        // the usage of a dead thread is shown once more before it is dropped
+        releaseDeadThreadCaches();
         return memoryUsage;
     }
 
+    /**
+     * thread ID->the size of Direct Buffer kept in the cache of the thread
+     *
+     * @return
+     */
+    @Override
+    public ConcurrentMap<Long, Long> getNetDirectMemoryCached() {
+        ConcurrentMap<Long, Long> cached = new ConcurrentHashMap<>();
+        for (Map.Entry<Long, ChunkCache> entry : threadCaches.entrySet()) {
+            long cachedBytes = entry.getValue().getCachedBytes();
+            if (cachedBytes > 0) {
+                cached.put(entry.getKey(), cachedBytes);
+            }
+        }
+        return cached;
+    }
+
+    /**
+     * the buffers cached by a dead thread can't be reused any more, give them back to the pages
+     * and forget the thread
+     */
+    private void releaseDeadThreadCaches() {
+        for (Map.Entry<Long, ChunkCache> entry : threadCaches.entrySet()) {
+            ChunkCache cache = entry.getValue();
+            if (!cache.getOwner().isAlive()) {
+                if (cache.getCachedBytes() > 0) {
+                    synchronized (cache) {
+                        cache.releaseAll(this);
+                    }
+                }
+                threadCaches.remove(entry.getKey(), cache);
+            }
+        }
+    }
+
     /**
      * return the total size of the buffer memory
      *
@@ -17,6 +17,7 @@ public class CacheStatic {
     private long accessTimes;
     private long putTimes;
     private long hitTimes;
+    private long evictionTimes;
     private long lastAccessTime;
     private long lastPutTime;
 
@@ -52,6 +53,14 @@ public class CacheStatic {
         this.hitTimes = hitTimes;
     }
 
+    public long getEvictionTimes() {
+        return evictionTimes;
+    }
+
+    public void setEvictionTimes(long evictionTimes) {
+        this.evictionTimes = evictionTimes;
+    }
+
     public long getLastAccessTime() {
         return lastAccessTime;
     }
@@ -108,6 +117,7 @@ public class CacheStatic {
         this.lastPutTime = 0;
         this.memorySize = 0;
         this.putTimes = 0;
+        this.evictionTimes = 0;
 
     }
 
@@ -115,7 +125,7 @@ public class CacheStatic {
     public String toString() {
         return "CacheStatic [memorySize=" + memorySize + ", itemSize=" +
                 itemSize + ", accessTimes=" + accessTimes + ", putTimes=" +
-                putTimes + ", hitTimes=" + hitTimes + ", lastAccesTime=" +
+                putTimes + ", hitTimes=" + hitTimes + ", evictionTimes=" + evictionTimes + ", lastAccesTime=" +
                 lastAccessTime + ", lastPutTime=" + lastPutTime + "]";
     }
 
@@ -0,0 +1,470 @@
+/*
+ * Copyright (C) 2016-2018 ActionTech.
+ * License: http://www.gnu.org/licenses/gpl.html GPL version 2 or higher.
+ */
+
+package com.actiontech.dble.cache.impl;
+
+import com.actiontech.dble.cache.CachePool;
+import com.actiontech.dble.cache.CacheStatic;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * TinyLfuCachePool
+ * <p>
+ * in process cache with the W-TinyLFU policy: new entries stay in a small LRU window (1% of
+ * the max size), the main space is a segmented LRU (probation and protected, 80% of it is
+ * protected). An entry leaving the window is only admitted when the FrequencySketch says it
+ * is used more often than the victim of the probation segment, so a scan of one-off keys
+ * can't flush the hot ones.
+ * </p>
+ * <p>
+ * get is a ConcurrentHashMap lookup, the access is recorded into a lossy striped buffer
+ * and replayed to the policy under the eviction lock by whoever gets it first. putIfAbsent
+ * and clearCache take the lock. The size is counted in entries, or in the estimated bytes
+ * of the keys and values if weighByBytes. Entries idle for expireSeconds are expired.
+ * </p>
+ */
+public class TinyLfuCachePool implements CachePool {
+    private static final Logger LOGGER = LoggerFactory.getLogger(TinyLfuCachePool.class);
+    private static final int NEW = -1;
+    private static final int WINDOW = 0;
+    private static final int PROBATION = 1;
+    private static final int PROTECTED = 2;
+    private static final int DEAD = 3;
+
+    private static final int READ_BUFFER_SIZE = 32;
+    private static final int READ_BUFFER_MASK = READ_BUFFER_SIZE - 1;
+    /* try to drain the read buffer after every 16 reads recorded into it */
+    private static final int DRAIN_MASK = 15;
+    /* the access time of an entry is refreshed at most once per second */
+    private static final long TOUCH_INTERVAL = 1000L;
+    private static final int ENTRY_OVERHEAD = 64;
+
+    private final String name;
+    private final long maxSize;
+    private final boolean weighByBytes;
+    private final long expireMillis;
+    private final ConcurrentHashMap<Object, Node> data;
+    private final ReadBuffer[] readBuffers;
+    private final int readBufferMask;
+
+    private final ReentrantLock evictionLock = new ReentrantLock();
+    /* guarded by evictionLock */
+    private final FrequencySketch sketch;
+    private final AccessOrderDeque window = new AccessOrderDeque();
+    private final AccessOrderDeque probation = new AccessOrderDeque();
+    private final AccessOrderDeque protectedDeque = new AccessOrderDeque();
+    private final long windowMax;
+    private final long protectedMax;
+    private long windowWeight;
+    private long protectedWeight;
+    private long totalWeight;
+
+    private final AtomicLong putTimes = new AtomicLong(0);
+    private final AtomicLong evictionTimes = new AtomicLong(0);
+    private volatile long memorySize;
+    private volatile long lastPutTime;
+
+    public TinyLfuCachePool(String name, long maxSize, int expireSeconds, boolean weighByBytes) {
+        this.name = name;
+        this.maxSize = Math.max(maxSize, 1);
+        this.weighByBytes = weighByBytes;
+        this.expireMillis = expireSeconds > 0 ? expireSeconds * 1000L : -1;
+        long estimatedEntries = weighByBytes ? this.maxSize / (ENTRY_OVERHEAD * 2) : this.maxSize;
+        this.data = new ConcurrentHashMap<>((int) Math.min(estimatedEntries, 1 << 16));
+        this.sketch = new FrequencySketch(estimatedEntries);
+        this.windowMax = Math.max(1, this.maxSize / 100);
+        this.protectedMax = (this.maxSize - windowMax) * 4 / 5;
+        int stripes = Integer.highestOneBit(Math.min(Runtime.getRuntime().availableProcessors(), 16) * 2 - 1);
+        this.readBuffers = new ReadBuffer[stripes];
+        for (int i = 0; i < stripes; i++) {
+            readBuffers[i] = new ReadBuffer();
+        }
+        this.readBufferMask = stripes - 1;
+    }
+
+    @Override
+    public void putIfAbsent(Object key, Object value) {
+        if (value == null) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        int bytes = ENTRY_OVERHEAD + estimateSize(key) + estimateSize(value);
+        Node node = new Node(key, value, weighByBytes ? bytes : 1, bytes, now);
+        Node prior = data.putIfAbsent(key, node);
+        if (prior != null) {
+            if (!prior.isExpired(now, expireMillis) || !data.replace(key, prior, node)) {
+                return;
+            }
+        }
+        putTimes.incrementAndGet();
+        lastPutTime = now;
+        if (LOGGER.isDebugEnabled()) {
+            LOGGER.debug(name + " add cache ,key:" + key + " value:" + value);
+        }
+        evictionLock.lock();
+        try {
+            drainReadBuffers();
+            if (prior != null) {
+                onRemove(prior);
+            }
+            onAdd(node);
+        } finally {
+            evictionLock.unlock();
+        }
+    }
+
+    @Override
+    public Object get(Object key) {
+        ReadBuffer readBuffer = readBuffers[(int) Thread.currentThread().getId() & readBufferMask];
+        Node node = data.get(key);
+        long now = System.currentTimeMillis();
+        if (node == null || node.isExpired(now, expireMillis)) {
+            readBuffer.missTimes.incrementAndGet();
+            readBuffer.lastAccessTime = now;
+            if (node != null && data.remove(key, node)) {
+                evictionLock.lock();
+                try {
+                    onRemove(node);
+                } finally {
+                    evictionLock.unlock();
+                }
+            }
+            return null;
+        }
+        if (now - node.accessTime >= TOUCH_INTERVAL) {
+            node.accessTime = now;
+        }
+        readBuffer.hitTimes.incrementAndGet();
+        readBuffer.lastAccessTime = now;
+        long writeCount = readBuffer.writeCounter.getAndIncrement();
+        readBuffer.buffer.lazySet((int) writeCount & READ_BUFFER_MASK, node);
+        if ((writeCount & DRAIN_MASK) == DRAIN_MASK && evictionLock.tryLock()) {
+            try {
+                drainReadBuffers();
+            } finally {
+                evictionLock.unlock();
+            }
+        }
+        return node.value;
+    }
+
+    @Override
+    public void clearCache() {
+        LOGGER.info("clear cache " + name);
+        evictionLock.lock();
+        try {
+            for (Node node : data.values()) {
+                node.queue = DEAD;
+            }
+            data.clear();
+            window.clear();
+            probation.clear();
+            protectedDeque.clear();
+            windowWeight = 0;
+            protectedWeight = 0;
+            totalWeight = 0;
+            memorySize = 0;
+            sketch.clear();
+            for (ReadBuffer readBuffer : readBuffers) {
+                readBuffer.clear();
+            }
+            putTimes.set(0);
+            evictionTimes.set(0);
+            lastPutTime = 0;
+        } finally {
+            evictionLock.unlock();
+        }
+    }
+
+    @Override
+    public CacheStatic getCacheStatic() {
+        CacheStatic cacheStatic = new CacheStatic();
+        cacheStatic.setMaxSize(maxSize);
+        cacheStatic.setItemSize(data.size());
+        cacheStatic.setMemorySize(memorySize);
+        long hitTimes = 0;
+        long accessTimes = 0;
+        long lastAccessTime = 0;
+        for (ReadBuffer readBuffer : readBuffers) {
+            long hit = readBuffer.hitTimes.get();
+            hitTimes += hit;
+            accessTimes += hit + readBuffer.missTimes.get();
+            lastAccessTime = Math.max(lastAccessTime, readBuffer.lastAccessTime);
+        }
+        cacheStatic.setHitTimes(hitTimes);
+        cacheStatic.setAccessTimes(accessTimes);
+        cacheStatic.setLastAccessTime(lastAccessTime);
+        cacheStatic.setPutTimes(putTimes.get());
+        cacheStatic.setLastPutTime(lastPutTime);
+        cacheStatic.setEvictionTimes(evictionTimes.get());
+        return cacheStatic;
+    }
+
+    @Override
+    public long getMaxSize() {
+        return maxSize;
+    }
+
+    /**
+     * guarded by evictionLock
+     */
+    private void drainReadBuffers() {
+        for (ReadBuffer readBuffer : readBuffers) {
+            long writeCount = readBuffer.writeCounter.get();
+            long start = Math.max(readBuffer.readCounter, writeCount - READ_BUFFER_SIZE);
+            for (long i = start; i < writeCount; i++) {
+                Node node = readBuffer.buffer.getAndSet((int) i & READ_BUFFER_MASK, null);
+                if (node != null) {
+                    onAccess(node);
+                }
+            }
+            readBuffer.readCounter = writeCount;
+        }
+    }
+
+    /**
+     * guarded by evictionLock
+     */
+    private void onAccess(Node node) {
+        sketch.increment(node.key);
+        switch (node.queue) {
+            case WINDOW:
+                window.moveToBack(node);
+                break;
+            case PROBATION:
+                probation.remove(node);
+                node.queue = PROTECTED;
+                protectedDeque.addLast(node);
+                protectedWeight += node.weight;
+                demoteProtected();
+                break;
+            case PROTECTED:
+                protectedDeque.moveToBack(node);
+                break;
+            default:
+                // not added yet or removed
+                break;
+        }
+    }
+
+    /**
+     * guarded by evictionLock
+     */
+    private void onAdd(Node node) {
+        if (node.queue != NEW) {
+            return;
+        }
+        sketch.increment(node.key);
+        node.queue = WINDOW;
+        window.addLast(node);
+        windowWeight += node.weight;
+        totalWeight += node.weight;
+        memorySize = memorySize + node.bytes;
+        evict();
+    }
+
+    /**
+     * the node is removed from data already, guarded by evictionLock
+     */
+    private void onRemove(Node node) {
+        switch (node.queue) {
+            case WINDOW:
+                window.remove(node);
+                windowWeight -= node.weight;
+                break;
+            case PROBATION:
+                probation.remove(node);
+                break;
+            case PROTECTED:
+                protectedDeque.remove(node);
+                protectedWeight -= node.weight;
+                break;
+            default:
+                // not added yet, onAdd will skip it
+                node.queue = DEAD;
+                return;
+        }
+        node.queue = DEAD;
+        totalWeight -= node.weight;
+        memorySize = memorySize - node.bytes;
+    }
+
+    private void demoteProtected() {
+        while (protectedWeight > protectedMax) {
+            Node demoted = protectedDeque.pollFirst();
+            if (demoted == null) {
+                break;
+            }
+            protectedWeight -= demoted.weight;
+            demoted.queue = PROBATION;
+            probation.addLast(demoted);
+        }
+    }
+
+    /**
+     * guarded by evictionLock
+     */
+    private void evict() {
+        // the entries leaving the window become the candidates at the tail of probation
+        while (windowWeight > windowMax) {
+            Node candidate = window.pollFirst();
+            if (candidate == null) {
+                break;
+            }
+            windowWeight -= candidate.weight;
+            candidate.queue = PROBATION;
+            probation.addLast(candidate);
+        }
+        while (totalWeight > maxSize) {
+            Node victim = probation.peekFirst();
+            Node candidate = probation.peekLast();
+            if (victim == null) {
+                victim = protectedDeque.peekFirst() != null ? protectedDeque.peekFirst() : window.peekFirst();
+                if (victim == null) {
+                    break;
+                }
+                evictNode(victim);
+            } else if (victim == candidate || sketch.frequency(candidate.key) > sketch.frequency(victim.key)) {
+                evictNode(victim);
+            } else {
+                evictNode(candidate);
+            }
+        }
+    }
+
+    private void evictNode(Node node) {
+        if (data.remove(node.key, node) && LOGGER.isDebugEnabled()) {
+            LOGGER.debug(name + " evict cache ,key:" + node.key);
+        }
+        onRemove(node);
+        evictionTimes.incrementAndGet();
+    }
+
+    /**
+     * rough heap size in bytes
+     */
+    static int estimateSize(Object o) {
+        if (o instanceof String) {
+            return 40 + 2 * ((String) o).length();
+        } else if (o instanceof byte[]) {
+            return 16 + ((byte[]) o).length;
+        } else if (o instanceof Number || o instanceof Boolean) {
+            return 16;
+        }
+        return 128;
+    }
+
+    private static final class Node {
+        private final Object key;
+        private final Object value;
+        private final int weight;
+        private final int bytes;
+        private volatile long accessTime;
+        /* guarded by evictionLock */
+        private int queue = NEW;
+        private Node prev;
+        private Node next;
+
+        Node(Object key, Object value, int weight, int bytes, long accessTime) {
+            this.key = key;
+            this.value = value;
+            this.weight = weight;
+            this.bytes = bytes;
+            this.accessTime = accessTime;
+        }
+
+        boolean isExpired(long now, long expireMillis) {
+            return expireMillis > 0 && now - accessTime > expireMillis;
+        }
+    }
+
+    private static final class ReadBuffer {
+        private final AtomicReferenceArray<Node> buffer = new AtomicReferenceArray<>(READ_BUFFER_SIZE);
+        private final AtomicLong writeCounter = new AtomicLong(0);
+        /* guarded by evictionLock */
+        private long readCounter = 0;
+        private final AtomicLong hitTimes = new AtomicLong(0);
+        private final AtomicLong missTimes = new AtomicLong(0);
+        private volatile long lastAccessTime;
+
+        void clear() {
+            for (int i = 0; i < READ_BUFFER_SIZE; i++) {
+                buffer.set(i, null);
+            }
+            readCounter = writeCounter.get();
+            hitTimes.set(0);
+            missTimes.set(0);
+            lastAccessTime = 0;
+        }
+    }
+
+    /**
+     * intrusive doubly linked list from the least recently used to the most, guarded by evictionLock
+     */
+    private static final class AccessOrderDeque {
+        private Node first;
+        private Node last;
+
+        Node peekFirst() {
+            return first;
+        }
+
+        Node peekLast() {
+            return last;
+        }
+
+        void addLast(Node node) {
+            node.prev = last;
+            node.next = null;
+            if (last == null) {
+                first = node;
+            } else {
+                last.next = node;
+            }
+            last = node;
+        }
+
+        Node pollFirst() {
+            Node node = first;
+            if (node != null) {
+                remove(node);
+            }
+            return node;
+        }
+
+        void remove(Node node) {
+            if (node.prev == null) {
+                first = node.next;
+            } else {
+                node.prev.next = node.next;
+            }
+            if (node.next == null) {
+                last = node.prev;
+            } else {
+                node.next.prev = node.prev;
+            }
+            node.prev = null;
+            node.next = null;
+        }
+
+        void moveToBack(Node node) {
+            if (node != last) {
+                remove(node);
+                addLast(node);
+            }
+        }
+
+        void clear() {
+            first = null;
+            last = null;
+        }
+    }
+}
@@ -0,0 +1,26 @@
+/*
+ * Copyright (C) 2016-2018 ActionTech.
+ * License: http://www.gnu.org/licenses/gpl.html GPL version 2 or higher.
+ */
+
+package com.actiontech.dble.cache.impl;
+
+import com.actiontech.dble.cache.CachePool;
+import com.actiontech.dble.cache.CachePoolFactory;
+
+/**
+ * factory of TinyLfuCachePool, the cacheSize is the max count of entries, or the max bytes
+ * if weighByBytes
+ */
+public class TinyLfuCachePoolFactory extends CachePoolFactory {
+    private final boolean weighByBytes;
+
+    public TinyLfuCachePoolFactory(boolean weighByBytes) {
+        this.weighByBytes = weighByBytes;
+    }
+
+    @Override
+    public CachePool createCachePool(String poolName, int cacheSize, int expiredSeconds) {
+        return new TinyLfuCachePool(poolName, cacheSize, expiredSeconds, weighByBytes);
+    }
+}
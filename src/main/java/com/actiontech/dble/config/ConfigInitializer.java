@@ -303,6 +303,7 @@ public class ConfigInitializer {
         PhysicalDatasource[] dataSources = new PhysicalDatasource[nodes.length];
         for (int i = 0; i < nodes.length; i++) {
             nodes[i].setIdleTimeout(system.getIdleTimeout());
+            nodes[i].setSharedPool(system.getUseSharedBackendPool() == 1);
             MySQLDataSource ds = new MySQLDataSource(nodes[i], conf, isRead);
             dataSources[i] = ds;
         }
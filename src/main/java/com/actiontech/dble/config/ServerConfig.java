@@ -263,13 +263,14 @@ public class ServerConfig {
                 this.dataHostWithoutWR = newDataHostWithoutWR;
                 DbleServer.getInstance().reloadSystemVariables(newSystemVariables);
                 DbleServer.getInstance().getCacheService().reloadCache(newSystemVariables.isLowerCaseTableNames());
-                DbleServer.getInstance().getRouterService().loadTableId2DataNodeCache(DbleServer.getInstance().getCacheService());
+                DbleServer.getInstance().getRouterService().loadCachePools(DbleServer.getInstance().getCacheService());
             }
             this.users = newUsers;
             this.schemas = newSchemas;
             this.firewall = newFirewall;
             this.erRelations = newErRelations;
             DbleServer.getInstance().getCacheService().clearCache();
+            DbleServer.getInstance().getRouterService().clearRouteShapeCache();
             if (!newDataHostWithoutWR) {
                 DbleServer.getInstance().setMetaChanging(true);
             }
@@ -17,6 +17,7 @@ public class DBHostConfig {
     private int maxCon;
     private int minCon;
     private int weight;
+    private boolean sharedPool = false;
 
     public DBHostConfig(String hostName, String ip, int port, String url,
                         String user, String password) {
@@ -85,6 +86,14 @@ public class DBHostConfig {
         this.weight = weight;
     }
 
+    public boolean isSharedPool() {
+        return sharedPool;
+    }
+
+    public void setSharedPool(boolean sharedPool) {
+        this.sharedPool = sharedPool;
+    }
+
     @Override
     public String toString() {
         return "DBHostConfig [hostName=" + hostName + ", url=" + url + "]";
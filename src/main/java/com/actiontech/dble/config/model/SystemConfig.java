@@ -55,9 +55,17 @@ public final class SystemConfig {
     private static final int DEFAULT_ORDER_BY_QUEUE_SIZE = 1024;
     private static final int DEFAULT_JOIN_QUEUE_SIZE = 1024;
     private static final int DEFAULT_NEST_LOOP_ROWS_SIZE = 2000;
+    private static final int DEFAULT_HASH_JOIN_ROWS_SIZE = 10000;
+    private static final int DEFAULT_TOP_N_ROWS_SIZE = 10000;
+    private static final int DEFAULT_ROW_BATCH_SIZE = 64;
+    private static final int DEFAULT_LOAD_DATA_STREAM_SIZE = 64;
+    private static final int DEFAULT_SOCKET_WRITE_BATCH_SIZE = 64;
+    private static final int DEFAULT_SOCKET_WRITE_BATCH_BYTES = 1024 * 1024;
+    private static final int DEFAULT_SEQUENCE_MAX_SEGMENT_SIZE = 100000;
     private static final int DEFAULT_NEST_LOOP_CONN_SIZE = 4;
     private static final int DEFAULT_MAPPED_FILE_SIZE = 1024 * 1024 * 64;
     private static final boolean DEFAULT_USE_JOIN_STRATEGY = false;
+    private static final boolean DEFAULT_PREFER_HASH_JOIN = false;
 
     private int frontSocketSoRcvbuf = 1024 * 1024;
     private int frontSocketSoSndbuf = 4 * 1024 * 1024;
@@ -112,6 +120,8 @@ public final class SystemConfig {
 
     private int checkTableConsistency = 0;
     private long checkTableConsistencyPeriod = CHECK_TABLE_CONSISTENCY_PERIOD;
+    private int useMetaSnapshot = 0;
+    private String metaSnapshotFile;
     private int useGlobleTableCheck = 1;
     private long glableTableCheckPeriod;
 
@@ -133,6 +143,11 @@ public final class SystemConfig {
     private int joinMemSize = 4;
     private int nestLoopRowsSize;
     private int nestLoopConnSize;
+    private int hashJoinRowsSize;
+    private boolean preferHashJoin;
+    private int topNRowsSize;
+    private int rowBatchSize;
+    private int loadDataStreamSize;
     private int mappedFileSize;
     private boolean useZKSwitch = DEFAULT_USE_ZK_SWITCH;
 
@@ -143,6 +158,12 @@ public final class SystemConfig {
     private int costSamplePercent = 1;
     private int useThreadUsageStat = 0;
     private int usePerformanceMode = 0;
+    private int useXAOnePhaseCommit = 0;
+    private int useSharedBackendPool = 0;
+    private int socketWriteBatchSize = DEFAULT_SOCKET_WRITE_BATCH_SIZE;
+    private int socketWriteBatchBytes = DEFAULT_SOCKET_WRITE_BATCH_BYTES;
+    private int sequencePrefetchPercent = 0;
+    private int sequenceMaxSegmentSize = DEFAULT_SEQUENCE_MAX_SEGMENT_SIZE;
 
     public SystemConfig() {
         this.serverPort = DEFAULT_PORT;
@@ -174,6 +195,7 @@ public final class SystemConfig {
         this.xaRecoveryLogBaseName = "tmlog";
         this.viewPersistenceConfBaseDir = SystemConfig.getHomePath() + "/viewConf/";
         this.viewPersistenceConfBaseName = "viewJson";
+        this.metaSnapshotFile = SystemConfig.getHomePath() + "/metaConf/metaSnapshot";
         this.transactionLogBaseDir = SystemConfig.getHomePath() + File.separatorChar + DEFAULT_TRANSACTION_BASE_DIR;
         this.transactionLogBaseName = DEFAULT_TRANSACTION_BASE_NAME;
         this.transactionRatateSize = DEFAULT_TRANSACTION_ROTATE_SIZE;
@@ -182,6 +204,11 @@ public final class SystemConfig {
         this.joinQueueSize = DEFAULT_JOIN_QUEUE_SIZE;
         this.nestLoopRowsSize = DEFAULT_NEST_LOOP_ROWS_SIZE;
         this.nestLoopConnSize = DEFAULT_NEST_LOOP_CONN_SIZE;
+        this.hashJoinRowsSize = DEFAULT_HASH_JOIN_ROWS_SIZE;
+        this.preferHashJoin = DEFAULT_PREFER_HASH_JOIN;
+        this.topNRowsSize = DEFAULT_TOP_N_ROWS_SIZE;
+        this.rowBatchSize = DEFAULT_ROW_BATCH_SIZE;
+        this.loadDataStreamSize = DEFAULT_LOAD_DATA_STREAM_SIZE;
         this.mappedFileSize = DEFAULT_MAPPED_FILE_SIZE;
         this.useJoinStrategy = DEFAULT_USE_JOIN_STRATEGY;
     }
@@ -699,6 +726,24 @@ public final class SystemConfig {
         this.checkTableConsistencyPeriod = checkTableConsistencyPeriod;
     }
 
+    public int getUseMetaSnapshot() {
+        return useMetaSnapshot;
+    }
+
+    @SuppressWarnings("unused")
+    public void setUseMetaSnapshot(int useMetaSnapshot) {
+        this.useMetaSnapshot = useMetaSnapshot;
+    }
+
+    public String getMetaSnapshotFile() {
+        return metaSnapshotFile;
+    }
+
+    @SuppressWarnings("unused")
+    public void setMetaSnapshotFile(String metaSnapshotFile) {
+        this.metaSnapshotFile = metaSnapshotFile;
+    }
+
     public int getNestLoopRowsSize() {
         return nestLoopRowsSize;
     }
@@ -708,6 +753,51 @@ public final class SystemConfig {
         this.nestLoopRowsSize = nestLoopRowsSize;
     }
 
+    public int getHashJoinRowsSize() {
+        return hashJoinRowsSize;
+    }
+
+    @SuppressWarnings("unused")
+    public void setHashJoinRowsSize(int hashJoinRowsSize) {
+        this.hashJoinRowsSize = hashJoinRowsSize;
+    }
+
+    public boolean isPreferHashJoin() {
+        return preferHashJoin;
+    }
+
+    @SuppressWarnings("unused")
+    public void setPreferHashJoin(boolean preferHashJoin) {
+        this.preferHashJoin = preferHashJoin;
+    }
+
+    public int getTopNRowsSize() {
+        return topNRowsSize;
+    }
+
+    @SuppressWarnings("unused")
+    public void setTopNRowsSize(int topNRowsSize) {
+        this.topNRowsSize = topNRowsSize;
+    }
+
+    public int getRowBatchSize() {
+        return rowBatchSize;
+    }
+
+    @SuppressWarnings("unused")
+    public void setRowBatchSize(int rowBatchSize) {
+        this.rowBatchSize = rowBatchSize;
+    }
+
+    public int getLoadDataStreamSize() {
+        return loadDataStreamSize;
+    }
+
+    @SuppressWarnings("unused")
+    public void setLoadDataStreamSize(int loadDataStreamSize) {
+        this.loadDataStreamSize = loadDataStreamSize;
+    }
+
     public int getJoinQueueSize() {
         return joinQueueSize;
     }
@@ -843,6 +933,60 @@ public final class SystemConfig {
         this.usePerformanceMode = usePerformanceMode;
     }
 
+    public int getUseXAOnePhaseCommit() {
+        return useXAOnePhaseCommit;
+    }
+
+    @SuppressWarnings("unused")
+    public void setUseXAOnePhaseCommit(int useXAOnePhaseCommit) {
+        this.useXAOnePhaseCommit = useXAOnePhaseCommit;
+    }
+
+    public int getUseSharedBackendPool() {
+        return useSharedBackendPool;
+    }
+
+    @SuppressWarnings("unused")
+    public void setUseSharedBackendPool(int useSharedBackendPool) {
+        this.useSharedBackendPool = useSharedBackendPool;
+    }
+
+    public int getSocketWriteBatchSize() {
+        return socketWriteBatchSize;
+    }
+
+    @SuppressWarnings("unused")
+    public void setSocketWriteBatchSize(int socketWriteBatchSize) {
+        this.socketWriteBatchSize = socketWriteBatchSize;
+    }
+
+    public int getSocketWriteBatchBytes() {
+        return socketWriteBatchBytes;
+    }
+
+    @SuppressWarnings("unused")
+    public void setSocketWriteBatchBytes(int socketWriteBatchBytes) {
+        this.socketWriteBatchBytes = socketWriteBatchBytes;
+    }
+
+    public int getSequencePrefetchPercent() {
+        return sequencePrefetchPercent;
+    }
+
+    @SuppressWarnings("unused")
+    public void setSequencePrefetchPercent(int sequencePrefetchPercent) {
+        this.sequencePrefetchPercent = sequencePrefetchPercent;
+    }
+
+    public int getSequenceMaxSegmentSize() {
+        return sequenceMaxSegmentSize;
+    }
+
+    @SuppressWarnings("unused")
+    public void setSequenceMaxSegmentSize(int sequenceMaxSegmentSize) {
+        this.sequenceMaxSegmentSize = sequenceMaxSegmentSize;
+    }
+
     @Override
     public String toString() {
         return "SystemConfig [" +
@@ -893,6 +1037,19 @@ public final class SystemConfig {
                 ", costSamplePercent=" + costSamplePercent +
                 ", useThreadUsageStat=" + useThreadUsageStat +
                 ", usePerformanceMode=" + usePerformanceMode +
+                ", useXAOnePhaseCommit=" + useXAOnePhaseCommit +
+                ", useSharedBackendPool=" + useSharedBackendPool +
+                ", socketWriteBatchSize=" + socketWriteBatchSize +
+                ", socketWriteBatchBytes=" + socketWriteBatchBytes +
+                ", sequencePrefetchPercent=" + sequencePrefetchPercent +
+                ", sequenceMaxSegmentSize=" + sequenceMaxSegmentSize +
+                ", hashJoinRowsSize=" + hashJoinRowsSize +
+                ", preferHashJoin=" + preferHashJoin +
+                ", topNRowsSize=" + topNRowsSize +
+                ", rowBatchSize=" + rowBatchSize +
+                ", loadDataStreamSize=" + loadDataStreamSize +
+                ", useMetaSnapshot=" + useMetaSnapshot +
+                ", metaSnapshotFile=" + metaSnapshotFile +
                 "]";
     }
 }
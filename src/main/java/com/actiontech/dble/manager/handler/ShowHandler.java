@@ -175,6 +175,12 @@ public final class ShowHandler {
             case ManagerParseShow.THREAD_USED:
                 ShowThreadUsed.execute(c);
                 break;
+            case ManagerParseShow.SEQUENCE:
+                ShowSequence.execute(c);
+                break;
+            case ManagerParseShow.XA_COMMIT:
+                ShowXACommit.execute(c);
+                break;
             case ManagerParseShow.TABLE_ALGORITHM: {
                 String tableInfo = stmt.substring(rs >>> 8).trim();
                 ShowTableAlgorithm.execute(c, tableInfo);
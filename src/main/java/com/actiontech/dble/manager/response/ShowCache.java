@@ -17,6 +17,7 @@ import com.actiontech.dble.net.mysql.EOFPacket;
 import com.actiontech.dble.net.mysql.FieldPacket;
 import com.actiontech.dble.net.mysql.ResultSetHeaderPacket;
 import com.actiontech.dble.net.mysql.RowDataPacket;
+import com.actiontech.dble.route.RouteService;
 import com.actiontech.dble.util.FormatUtil;
 import com.actiontech.dble.util.LongUtil;
 import com.actiontech.dble.util.StringUtil;
@@ -28,7 +29,7 @@ public final class ShowCache {
     private ShowCache() {
     }
 
-    private static final int FIELD_COUNT = 8;
+    private static final int FIELD_COUNT = 11;
     private static final ResultSetHeaderPacket HEADER = PacketUtil.getHeader(FIELD_COUNT);
     private static final FieldPacket[] FIELDS = new FieldPacket[FIELD_COUNT];
     private static final EOFPacket EOF = new EOFPacket();
@@ -54,6 +55,12 @@ public final class ShowCache {
         FIELDS[i++].setPacketId(++packetId);
         FIELDS[i] = PacketUtil.getField("LAST_PUT", Fields.FIELD_TYPE_LONG);
         FIELDS[i++].setPacketId(++packetId);
+        FIELDS[i] = PacketUtil.getField("HIT_PERCENT", Fields.FIELD_TYPE_TINY);
+        FIELDS[i++].setPacketId(++packetId);
+        FIELDS[i] = PacketUtil.getField("EVICTION", Fields.FIELD_TYPE_LONG);
+        FIELDS[i++].setPacketId(++packetId);
+        FIELDS[i] = PacketUtil.getField("MEMORY", Fields.FIELD_TYPE_LONG);
+        FIELDS[i++].setPacketId(++packetId);
         EOF.setPacketId(++packetId);
     }
 
@@ -92,6 +99,13 @@ public final class ShowCache {
                 }
             }
         }
+        // the statements routed by the plans of SQLRouteShapeCache without parsing
+        RouteService routeService = DbleServer.getInstance().getRouterService();
+        if (routeService.isRouteShapeCacheEnabled()) {
+            RowDataPacket row = getRow("SQLRouteShapeCache.PLAN", routeService.getRoutePlanStatic(), c.getCharset().getResults());
+            row.setPacketId(++packetId);
+            buffer = row.write(buffer, c, true);
+        }
 
         // write last eof
         EOFPacket lastEof = new EOFPacket();
@@ -114,6 +128,10 @@ public final class ShowCache {
         row.add(LongUtil.toBytes(cacheStatic.getPutTimes()));
         row.add(StringUtil.encode(FormatUtil.formatDate(cacheStatic.getLastAccessTime()), charset));
         row.add(StringUtil.encode(FormatUtil.formatDate(cacheStatic.getLastPutTime()), charset));
+        long accessTimes = cacheStatic.getAccessTimes();
+        row.add(LongUtil.toBytes(accessTimes == 0 ? 0 : cacheStatic.getHitTimes() * 100 / accessTimes));
+        row.add(LongUtil.toBytes(cacheStatic.getEvictionTimes()));
+        row.add(LongUtil.toBytes(cacheStatic.getMemorySize()));
         return row;
     }
 
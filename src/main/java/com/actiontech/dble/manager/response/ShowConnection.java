@@ -33,7 +33,7 @@ public final class ShowConnection {
     private ShowConnection() {
     }
 
-    private static final int FIELD_COUNT = 19;
+    private static final int FIELD_COUNT = 20;
     private static final ResultSetHeaderPacket HEADER = PacketUtil.getHeader(FIELD_COUNT);
     private static final FieldPacket[] FIELDS = new FieldPacket[FIELD_COUNT];
     private static final EOFPacket EOF = new EOFPacket();
@@ -99,6 +99,9 @@ public final class ShowConnection {
         FIELDS[i++].setPacketId(++packetId);
 
         FIELDS[i] = PacketUtil.getField("USER_VARIABLES", Fields.FIELD_TYPE_VAR_STRING);
+        FIELDS[i++].setPacketId(++packetId);
+
+        FIELDS[i] = PacketUtil.getField("BUFFERS_PER_WRITE", Fields.FIELD_TYPE_VAR_STRING);
         FIELDS[i].setPacketId(++packetId);
 
         EOF.setPacketId(++packetId);
@@ -170,6 +173,7 @@ public final class ShowConnection {
         row.add(autocommit.getBytes());
         row.add(StringUtil.encode(c.getStringOfSysVariables(), charset));
         row.add(StringUtil.encode(c.getStringOfUsrVariables(), charset));
+        row.add(StringUtil.encode(String.valueOf(Math.round(c.getBuffersPerWrite() * 100) / 100.0), charset));
         return row;
     }
 
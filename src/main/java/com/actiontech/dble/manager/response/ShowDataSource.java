@@ -34,7 +34,7 @@ public final class ShowDataSource {
     private ShowDataSource() {
     }
 
-    private static final int FIELD_COUNT = 10;
+    private static final int FIELD_COUNT = 14;
     private static final ResultSetHeaderPacket HEADER = PacketUtil.getHeader(FIELD_COUNT);
     private static final FieldPacket[] FIELDS = new FieldPacket[FIELD_COUNT];
     private static final EOFPacket EOF = new EOFPacket();
@@ -74,6 +74,18 @@ public final class ShowDataSource {
         FIELDS[i] = PacketUtil.getField("WRITE_LOAD", Fields.FIELD_TYPE_LONG);
         FIELDS[i++].setPacketId(++packetId);
 
+        FIELDS[i] = PacketUtil.getField("IN_FLIGHT", Fields.FIELD_TYPE_LONG);
+        FIELDS[i++].setPacketId(++packetId);
+
+        FIELDS[i] = PacketUtil.getField("RESPONSE_TIME(us)", Fields.FIELD_TYPE_LONGLONG);
+        FIELDS[i++].setPacketId(++packetId);
+
+        FIELDS[i] = PacketUtil.getField("BALANCE_SCORE", Fields.FIELD_TYPE_LONGLONG);
+        FIELDS[i++].setPacketId(++packetId);
+
+        FIELDS[i] = PacketUtil.getField("SCHEMA_SWITCH", Fields.FIELD_TYPE_LONGLONG);
+        FIELDS[i++].setPacketId(++packetId);
+
         EOF.setPacketId(++packetId);
     }
 
@@ -147,6 +159,10 @@ public final class ShowDataSource {
         row.add(LongUtil.toBytes(ds.getExecuteCount()));
         row.add(LongUtil.toBytes(ds.getReadCount()));
         row.add(LongUtil.toBytes(ds.getWriteCount()));
+        row.add(IntegerUtil.toBytes(ds.getLoadRecorder().getInFlight()));
+        row.add(LongUtil.toBytes(ds.getLoadRecorder().getResponseTime()));
+        row.add(LongUtil.toBytes(ds.getBalanceScore()));
+        row.add(LongUtil.toBytes(ds.getSchemaSwitchCount()));
         return row;
     }
 
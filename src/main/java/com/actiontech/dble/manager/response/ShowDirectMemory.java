@@ -119,6 +119,20 @@ public final class ShowDirectMemory {
             buffer = row.write(buffer, c, true);
         }
 
+        ConcurrentMap<Long, Long> networkBufferCache = DbleServer.getInstance().
+                getBufferPool().getNetDirectMemoryCached();
+
+        for (Map.Entry<Long, Long> entry : networkBufferCache.entrySet()) {
+            RowDataPacket row = new RowDataPacket(DETAIL_FIELD_COUNT);
+            row.add(StringUtil.encode(String.valueOf(entry.getKey()), c.getCharset().getResults()));
+            /* DIRECT_MEMORY recycled to the cache of the thread, still taken from Buffer Pool */
+            row.add(StringUtil.encode("NetWorkBufferCache", c.getCharset().getResults()));
+            row.add(StringUtil.encode(JavaUtils.bytesToString2(entry.getValue()), c.getCharset().getResults()));
+
+            row.setPacketId(++packetId);
+            buffer = row.write(buffer, c, true);
+        }
+
         // write last eof
         EOFPacket lastEof = new EOFPacket();
         lastEof.setPacketId(++packetId);
@@ -156,6 +170,9 @@ public final class ShowDirectMemory {
         for (Map.Entry<Long, Long> entry : networkBufferPool.entrySet()) {
             usedForNetwork += entry.getValue();
         }
+        for (Long cached : DbleServer.getInstance().getBufferPool().getNetDirectMemoryCached().values()) {
+            usedForNetwork += cached;
+        }
         row.add(StringUtil.encode(JavaUtils.bytesToString2(usedForNetwork), c.getCharset().getResults()));
         row.add(StringUtil.encode(JavaUtils.bytesToString2(totalAvailable - usedForNetwork), c.getCharset().getResults()));
 
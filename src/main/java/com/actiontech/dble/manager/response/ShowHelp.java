@@ -163,6 +163,8 @@ public final class ShowHelp {
         HELPS.put("online", "Change Server status to ON");
 
         HELPS.put("show @@thread_used", "Report all bussiness&reactor thread usage");
+        HELPS.put("show @@sequence", "Report the segment and fetch statistics of MySQL sequences");
+        HELPS.put("show @@xa.commit", "Report the count and latency of one phase and two phase XA commits");
 
         //file
         HELPS.put("file @@list", "List all the file in conf directory");
@@ -110,6 +110,8 @@ public final class ShowSysParam {
         paramValues.add(sysConfig.getShowBinlogStatusTimeout() + "ms");
         paramValues.add(sysConfig.getCheckTableConsistency() + "");
         paramValues.add(sysConfig.getCheckTableConsistencyPeriod() + "ms");
+        paramValues.add(sysConfig.getUseMetaSnapshot() + "");
+        paramValues.add(sysConfig.getMetaSnapshotFile());
         paramValues.add(sysConfig.getUseGlobleTableCheck() + "");
         paramValues.add(sysConfig.getGlableTableCheckPeriod() + "ms");
         paramValues.add(sysConfig.getDataNodeIdleCheckPeriod() + "ms");
@@ -125,6 +127,11 @@ public final class ShowSysParam {
         paramValues.add(sysConfig.isUseJoinStrategy() + "");
         paramValues.add(sysConfig.getNestLoopConnSize() + "");
         paramValues.add(sysConfig.getNestLoopRowsSize() + "");
+        paramValues.add(sysConfig.getHashJoinRowsSize() + "");
+        paramValues.add(sysConfig.isPreferHashJoin() + "");
+        paramValues.add(sysConfig.getTopNRowsSize() + "");
+        paramValues.add(sysConfig.getRowBatchSize() + "");
+        paramValues.add(sysConfig.getLoadDataStreamSize() + "");
         paramValues.add(sysConfig.getViewPersistenceConfBaseDir());
         paramValues.add(sysConfig.getViewPersistenceConfBaseName());
         paramValues.add(sysConfig.getComplexExecutor() + "");
@@ -136,6 +143,12 @@ public final class ShowSysParam {
         paramValues.add(sysConfig.getCostSamplePercent() + "");
         paramValues.add(sysConfig.getUseThreadUsageStat() + "");
         paramValues.add(sysConfig.getUsePerformanceMode() + "");
+        paramValues.add(sysConfig.getUseXAOnePhaseCommit() + "");
+        paramValues.add(sysConfig.getUseSharedBackendPool() + "");
+        paramValues.add(sysConfig.getSocketWriteBatchSize() + "");
+        paramValues.add(sysConfig.getSocketWriteBatchBytes() + "B");
+        paramValues.add(sysConfig.getSequencePrefetchPercent() + "%");
+        paramValues.add(sysConfig.getSequenceMaxSegmentSize() + "");
 
 
         for (int i = 0; i < PARAM_NAMES.length; i++) {
@@ -196,6 +209,8 @@ public final class ShowSysParam {
             "showBinlogStatusTimeout",
             "checkTableConsistency",
             "checkTableConsistencyPeriod",
+            "useMetaSnapshot",
+            "metaSnapshotFile",
             "useGlobleTableCheck",
             "glableTableCheckPeriod",
             "dataNodeIdleCheckPeriod",
@@ -211,6 +226,11 @@ public final class ShowSysParam {
             "useJoinStrategy",
             "nestLoopConnSize",
             "nestLoopRowsSize",
+            "hashJoinRowsSize",
+            "preferHashJoin",
+            "topNRowsSize",
+            "rowBatchSize",
+            "loadDataStreamSize",
             "viewPersistenceConfBaseDir",
             "viewPersistenceConfBaseName",
             "complexExecutor",
@@ -222,6 +242,12 @@ public final class ShowSysParam {
             "costSamplePercent",
             "useThreadUsageStat",
             "usePerformanceMode",
+            "useXAOnePhaseCommit",
+            "useSharedBackendPool",
+            "socketWriteBatchSize",
+            "socketWriteBatchBytes",
+            "sequencePrefetchPercent",
+            "sequenceMaxSegmentSize",
     };
 
     private static final String[] PARAM_DESCRIPTION = {
@@ -264,6 +290,8 @@ public final class ShowSysParam {
             "The time out from show @@binlog.status.The default value is 60000ms",
             "Whether the consistency tableStructure check is enabled.The default value is 0",
             "The period of consistency tableStructure check .The default value is 30*60*1000",
+            "Whether the table metadata is loaded from the snapshot file and checked in background at startup.The default value is 0",
+            "The snapshot file of the table metadata.The default value is ./metaConf/metaSnapshot",
             "Whether globleTable check is enable.The default value is 1",
             "Globle table check period.The default value is 24 * 60 * 60 * 1000",
             "The idle connection check period.The default value is 5 * 60 * 1000ms",
@@ -279,6 +307,11 @@ public final class ShowSysParam {
             "Whether nest loop function is enabled.The default value is false",
             "The nest loop temporary tables block number.The default value is 4",
             "The nest loop temporary tables rows for every block.The default value is 2000",
+            "The max estimated rows of a join side to be the build side of hash join.The default value is 10000",
+            "Whether hash join is chosen over nest loop when both can be used.The default value is false",
+            "The max offset + limit of the order by which only keeps the top rows in memory instead of sorting all.The default value is 10000",
+            "The max rows passed between the handlers of a complex query at a time, 1 passes the rows one by one.The default value is 64",
+            "The max packets of a streaming load data kept for each data node, 0 disables streaming.The default value is 64",
             "The directory of the view record file,The default value is ./viewConf",
             "The name of the view record file.The default value is viewJson",
             "The executor for complex query.The default value is min(8,processorExecutor)",
@@ -290,6 +323,12 @@ public final class ShowSysParam {
             "The percentage of cost sample.The default value is 1",
             "Whether the thread usage statistics function is enabled.The default value is 0",
             "Whether use the performance mode is enabled.The default value is 0",
+            "Whether the XA transaction of one data node is committed by 'XA COMMIT ... ONE PHASE' without the xa log.The default value is 0",
+            "Whether the idle backend connections of a data source are shared by all its databases instead of kept by database.The default value is 0",
+            "The max count of buffers written by one gathering socket write.The default value is 64",
+            "The max bytes written by one gathering socket write.The default value is 1048576B",
+            "The percentage of the MySQL sequence segment consumed before the next segment is fetched in background, 0 means fetch when used up.The default value is 0",
+            "The max segment size the MySQL sequence grows to when prefetch is enabled.The default value is 100000",
     };
 
     private static final String[] ISOLATION_LEVELS = {"", "READ_UNCOMMITTED", "READ_COMMITTED", "REPEATABLE_READ", "SERIALIZABLE"};
@@ -0,0 +1,82 @@
+/*
+ * Copyright (C) 2016-2018 ActionTech.
+ * License: http://www.gnu.org/licenses/gpl.html GPL version 2 or higher.
+ */
+
+package com.actiontech.dble.manager.response;
+
+import com.actiontech.dble.backend.mysql.PacketUtil;
+import com.actiontech.dble.config.Fields;
+import com.actiontech.dble.manager.ManagerConnection;
+import com.actiontech.dble.net.mysql.EOFPacket;
+import com.actiontech.dble.net.mysql.FieldPacket;
+import com.actiontech.dble.net.mysql.ResultSetHeaderPacket;
+import com.actiontech.dble.net.mysql.RowDataPacket;
+import com.actiontech.dble.statistic.XACommitStat;
+import com.actiontech.dble.util.LongUtil;
+import com.actiontech.dble.util.StringUtil;
+
+import java.nio.ByteBuffer;
+
+/**
+ * show @@xa.commit, the count and latency of the one phase and the two phase XA commits
+ */
+public final class ShowXACommit {
+    private ShowXACommit() {
+    }
+
+    private static final int FIELD_COUNT = 4;
+    private static final ResultSetHeaderPacket HEADER = PacketUtil.getHeader(FIELD_COUNT);
+    private static final FieldPacket[] FIELDS = new FieldPacket[FIELD_COUNT];
+    private static final EOFPacket EOF = new EOFPacket();
+
+    static {
+        int i = 0;
+        byte packetId = 0;
+        HEADER.setPacketId(++packetId);
+
+        FIELDS[i] = PacketUtil.getField("TYPE", Fields.FIELD_TYPE_VAR_STRING);
+        FIELDS[i++].setPacketId(++packetId);
+        FIELDS[i] = PacketUtil.getField("COUNT", Fields.FIELD_TYPE_LONGLONG);
+        FIELDS[i++].setPacketId(++packetId);
+        FIELDS[i] = PacketUtil.getField("AVG_TIME(us)", Fields.FIELD_TYPE_LONGLONG);
+        FIELDS[i++].setPacketId(++packetId);
+        FIELDS[i] = PacketUtil.getField("MAX_TIME(us)", Fields.FIELD_TYPE_LONGLONG);
+        FIELDS[i].setPacketId(++packetId);
+        EOF.setPacketId(++packetId);
+    }
+
+    public static void execute(ManagerConnection c) {
+        ByteBuffer buffer = c.allocate();
+
+        buffer = HEADER.write(buffer, c, true);
+
+        for (FieldPacket field : FIELDS) {
+            buffer = field.write(buffer, c, true);
+        }
+
+        buffer = EOF.write(buffer, c, true);
+
+        byte packetId = EOF.getPacketId();
+        RowDataPacket row = getRow("ONE_PHASE", XACommitStat.ONE_PHASE, c.getCharset().getResults());
+        row.setPacketId(++packetId);
+        buffer = row.write(buffer, c, true);
+        row = getRow("TWO_PHASE", XACommitStat.TWO_PHASE, c.getCharset().getResults());
+        row.setPacketId(++packetId);
+        buffer = row.write(buffer, c, true);
+
+        EOFPacket lastEof = new EOFPacket();
+        lastEof.setPacketId(++packetId);
+        buffer = lastEof.write(buffer, c, true);
+        c.write(buffer);
+    }
+
+    private static RowDataPacket getRow(String type, XACommitStat stat, String charset) {
+        RowDataPacket row = new RowDataPacket(FIELD_COUNT);
+        row.add(StringUtil.encode(type, charset));
+        row.add(LongUtil.toBytes(stat.getCount()));
+        row.add(LongUtil.toBytes(stat.getAvgTime()));
+        row.add(LongUtil.toBytes(stat.getMaxTime()));
+        return row;
+    }
+}
@@ -0,0 +1,150 @@
+/*
+ * Copyright (C) 2016-2018 ActionTech.
+ * License: http://www.gnu.org/licenses/gpl.html GPL version 2 or higher.
+ */
+
+package com.actiontech.dble.meta;
+
+import com.actiontech.dble.meta.protocol.StructureMeta;
+
+import java.io.*;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedInputStream;
+import java.util.zip.CheckedOutputStream;
+
+/**
+ * MetaSnapshot
+ * <p>
+ * the table metas of all the schemas saved to a local file, with the checksum of every table when its meta was
+ * read from the backends. The checksum is made of the information_schema.TABLES of every data node of the table,
+ * so the tables whose checksum is not changed need not be read again.
+ * </p>
+ * file: FORMAT_VERSION, schema count, {schema, table count, {checksum, meta length, meta}}, crc32
+ */
+public final class MetaSnapshot {
+    private static final int FORMAT_VERSION = 1;
+
+    /* schema,table,snapshot of table */
+    private final Map<String, Map<String, TableSnapshot>> schemas = new HashMap<>();
+
+    public void addTable(String schema, String checksum, StructureMeta.TableMeta tableMeta) {
+        Map<String, TableSnapshot> tables = schemas.get(schema);
+        if (tables == null) {
+            tables = new HashMap<>();
+            schemas.put(schema, tables);
+        }
+        tables.put(tableMeta.getTableName(), new TableSnapshot(checksum, tableMeta));
+    }
+
+    public Map<String, TableSnapshot> getTables(String schema) {
+        Map<String, TableSnapshot> tables = schemas.get(schema);
+        if (tables == null) {
+            return new HashMap<>();
+        }
+        return tables;
+    }
+
+    public int getTableCount() {
+        int count = 0;
+        for (Map<String, TableSnapshot> tables : schemas.values()) {
+            count += tables.size();
+        }
+        return count;
+    }
+
+    /**
+     * write to a temp file and rename it, so a crash while saving does not break the old snapshot
+     */
+    public void save(String fileName) throws IOException {
+        File file = new File(fileName);
+        File dir = file.getAbsoluteFile().getParentFile();
+        if (!dir.exists() && !dir.mkdirs()) {
+            throw new IOException("can't create the directory " + dir);
+        }
+        File tmpFile = new File(fileName + ".tmp");
+        CRC32 crc = new CRC32();
+        try (FileOutputStream fileOut = new FileOutputStream(tmpFile);
+             DataOutputStream out = new DataOutputStream(new CheckedOutputStream(new BufferedOutputStream(fileOut), crc))) {
+            out.writeInt(FORMAT_VERSION);
+            out.writeInt(schemas.size());
+            for (Map.Entry<String, Map<String, TableSnapshot>> schema : schemas.entrySet()) {
+                out.writeUTF(schema.getKey());
+                out.writeInt(schema.getValue().size());
+                for (TableSnapshot table : schema.getValue().values()) {
+                    out.writeUTF(table.getChecksum() == null ? "" : table.getChecksum());
+                    byte[] meta = table.getTableMeta().toByteArray();
+                    out.writeInt(meta.length);
+                    out.write(meta);
+                }
+            }
+            out.flush();
+            // the crc is not a part of itself
+            new DataOutputStream(fileOut).writeLong(crc.getValue());
+            fileOut.getFD().sync();
+        }
+        if (file.exists() && !file.delete()) {
+            throw new IOException("can't delete the old snapshot " + file);
+        }
+        if (!tmpFile.renameTo(file)) {
+            throw new IOException("can't rename " + tmpFile + " to " + file);
+        }
+    }
+
+    /**
+     * @return null if the file does not exist
+     * @throws IOException the file is broken or made by another version
+     */
+    public static MetaSnapshot load(String fileName) throws IOException {
+        File file = new File(fileName);
+        if (!file.exists()) {
+            return null;
+        }
+        MetaSnapshot snapshot = new MetaSnapshot();
+        CRC32 crc = new CRC32();
+        try (DataInputStream in = new DataInputStream(new CheckedInputStream(new BufferedInputStream(new FileInputStream(file)), crc))) {
+            int formatVersion = in.readInt();
+            if (formatVersion != FORMAT_VERSION) {
+                throw new IOException("the format version of the snapshot is " + formatVersion + ", expected " + FORMAT_VERSION);
+            }
+            int schemaCount = in.readInt();
+            for (int i = 0; i < schemaCount; i++) {
+                String schema = in.readUTF();
+                int tableCount = in.readInt();
+                for (int j = 0; j < tableCount; j++) {
+                    String checksum = in.readUTF();
+                    byte[] meta = new byte[in.readInt()];
+                    in.readFully(meta);
+                    snapshot.addTable(schema, checksum.isEmpty() ? null : checksum, StructureMeta.TableMeta.parseFrom(meta));
+                }
+            }
+            long expected = crc.getValue();
+            if (in.readLong() != expected) {
+                throw new IOException("the crc of the snapshot is not correct");
+            }
+        }
+        return snapshot;
+    }
+
+    public static final class TableSnapshot {
+        private final String checksum;
+        private final StructureMeta.TableMeta tableMeta;
+
+        TableSnapshot(String checksum, StructureMeta.TableMeta tableMeta) {
+            this.checksum = checksum;
+            this.tableMeta = tableMeta;
+        }
+
+        /**
+         * null if the table could not be checked when saving, such a table is always read again
+         */
+        public String getChecksum() {
+            return checksum;
+        }
+
+        public StructureMeta.TableMeta getTableMeta() {
+            return tableMeta;
+        }
+    }
+}
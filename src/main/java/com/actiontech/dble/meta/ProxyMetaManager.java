@@ -27,6 +27,7 @@ import com.actiontech.dble.meta.protocol.StructureMeta;
 import com.actiontech.dble.meta.table.*;
 import com.actiontech.dble.meta.table.MetaHelper.IndexType;
 import com.actiontech.dble.plan.node.QueryNode;
+import com.actiontech.dble.route.RouteService;
 import com.actiontech.dble.server.util.SchemaUtil;
 import com.actiontech.dble.server.util.SchemaUtil.SchemaInfo;
 import com.actiontech.dble.util.KVPathUtil;
@@ -49,10 +50,12 @@ import org.apache.curator.utils.ZKPaths;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.IOException;
 import java.nio.charset.StandardCharsets;
 import java.sql.SQLException;
 import java.util.*;
 import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.locks.Condition;
 import java.util.concurrent.locks.LockSupport;
@@ -60,20 +63,30 @@ import java.util.concurrent.locks.ReentrantLock;
 
 public class ProxyMetaManager {
     protected static final Logger LOGGER = LoggerFactory.getLogger(ProxyMetaManager.class);
+    private static final Object SNAPSHOT_LOCK = new Object();
+    private static final long SNAPSHOT_SAVE_DELAY = 1000L;
     /* catalog,table,tablemeta */
     private final Map<String, SchemaMeta> catalogs;
-    private final Set<String> lockTables;
+    /* schema.table under DDL, the latch is released when the DDL ends */
+    private final ConcurrentMap<String, CountDownLatch> lockTables;
     private ReentrantLock metaLock = new ReentrantLock();
     private Condition condRelease = metaLock.newCondition();
     private ScheduledExecutorService scheduler;
     private ScheduledFuture<?> checkTaskHandler;
     private AtomicInteger metaCount = new AtomicInteger(0);
     private Repository repository = null;
-    private AtomicInteger version = new AtomicInteger(0);
+    private volatile boolean useSnapshot = false;
+    private volatile boolean terminated = false;
+    private ScheduledExecutorService snapshotExecutor;
+    /* dataNode,table,checksum when the snapshot is checked, null before that */
+    private volatile Map<String, Map<String, String>> snapshotChecksums;
+    /* schema.table changed by DDL after the checksums are read */
+    private final Set<String> snapshotChangedTables = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+    private final AtomicBoolean snapshotSaving = new AtomicBoolean(false);
 
     public ProxyMetaManager() {
         this.catalogs = new ConcurrentHashMap<>();
-        this.lockTables = new HashSet<>();
+        this.lockTables = new ConcurrentHashMap<>();
     }
 
     private String genLockKey(String schema, String tbName) {
@@ -92,12 +105,11 @@ public class ProxyMetaManager {
         metaLock.lock();
         try {
             metaCount.incrementAndGet();
-            version.incrementAndGet();
             String lockKey = genLockKey(schema, tbName);
-            while (lockTables.contains(lockKey)) {
+            while (lockTables.containsKey(lockKey)) {
                 condRelease.await();
             }
-            lockTables.add(lockKey);
+            lockTables.put(lockKey, new CountDownLatch(1));
         } finally {
             metaLock.unlock();
         }
@@ -106,12 +118,17 @@ public class ProxyMetaManager {
     public void removeMetaLock(String schema, String tbName) {
         metaLock.lock();
         try {
-            lockTables.remove(genLockKey(schema, tbName));
+            CountDownLatch ddlLatch = lockTables.remove(genLockKey(schema, tbName));
             metaCount.decrementAndGet();
             condRelease.signalAll();
+            if (ddlLatch != null) {
+                ddlLatch.countDown();
+            }
         } finally {
             metaLock.unlock();
         }
+        // the plans made while the meta was being updated may refer to the old table
+        clearRouteShapeCache();
     }
 
     public Map<String, SchemaMeta> getCatalogs() {
@@ -146,14 +163,34 @@ public class ProxyMetaManager {
         SchemaMeta schemaMeta = catalogs.get(schema);
         if (schemaMeta != null) {
             schemaMeta.addTableMeta(tbName, tm);
+            markSnapshotChanged(schema, tbName);
+        }
+    }
+
+    /**
+     * for the tables read again when checking the snapshot, the meta changed by DDL since the version is kept
+     */
+    public void addTableIfNotChanged(String schema, StructureMeta.TableMeta tm, long tmVersion) {
+        SchemaMeta schemaMeta = catalogs.get(schema);
+        if (schemaMeta != null) {
+            schemaMeta.addTableMetaIfOlder(tm.getTableName(), tm, tmVersion);
+        }
+    }
+
+    public void dropTableIfNotChanged(String schema, String tbName, long tmVersion) {
+        SchemaMeta schemaMeta = catalogs.get(schema);
+        if (schemaMeta != null) {
+            schemaMeta.dropTableIfOlder(tbName, tmVersion);
         }
     }
 
 
     private void dropTable(String schema, String tbName) {
         SchemaMeta schemaMeta = catalogs.get(schema);
-        if (schemaMeta != null)
+        if (schemaMeta != null) {
             schemaMeta.dropTable(tbName);
+            markSnapshotChanged(schema, tbName);
+        }
     }
 
     /**
@@ -180,57 +217,39 @@ public class ProxyMetaManager {
         }
     }
 
+    /**
+     * the metas are immutable and read without lock, only the readers of a table under DDL wait for the DDL
+     */
     public StructureMeta.TableMeta getSyncTableMeta(String schema, String tbName) {
-        while (true) {
-            int oldVersion = version.get();
-            if (metaCount.get() == 0) {
-                StructureMeta.TableMeta meta = getTableMeta(schema, tbName);
-                if (version.get() == oldVersion) {
-                    return meta;
-                }
-            } else {
-                metaLock.lock();
-                try {
-                    if (lockTables.contains(genLockKey(schema, tbName))) {
-                        LOGGER.info("schema:" + schema + ", table:" + tbName + " is doing ddl,Waiting for table metadata lock");
-                        condRelease.await();
-                    } else {
-                        return getTableMeta(schema, tbName);
-                    }
-                } catch (InterruptedException e) {
-                    return null;
-                } finally {
-                    metaLock.unlock();
-                }
-            }
+        if (!waitDDL(schema, tbName, "table")) {
+            return null;
         }
+        return getTableMeta(schema, tbName);
     }
 
 
     public QueryNode getSyncView(String schema, String vName) {
-        while (true) {
-            int oldVersion = version.get();
-            if (metaCount.get() == 0) {
-                QueryNode viewNode = catalogs.get(schema).getView(vName);
-                if (version.get() == oldVersion) {
-                    return viewNode;
-                }
-            } else {
-                metaLock.lock();
-                try {
-                    if (lockTables.contains(genLockKey(schema, vName))) {
-                        LOGGER.info("schema:" + schema + ", view:" + vName + " is doing ddl,Waiting for table metadata lock");
-                        condRelease.await();
-                    } else {
-                        return catalogs.get(schema).getView(vName);
-                    }
-                } catch (InterruptedException e) {
-                    return null;
-                } finally {
-                    metaLock.unlock();
-                }
+        if (!waitDDL(schema, vName, "view")) {
+            return null;
+        }
+        return catalogs.get(schema).getView(vName);
+    }
+
+    /**
+     * @return false if interrupted
+     */
+    private boolean waitDDL(String schema, String name, String type) {
+        String lockKey = genLockKey(schema, name);
+        CountDownLatch ddlLatch;
+        while ((ddlLatch = lockTables.get(lockKey)) != null) {
+            LOGGER.info("schema:" + schema + ", " + type + ":" + name + " is doing ddl,Waiting for table metadata lock");
+            try {
+                ddlLatch.await();
+            } catch (InterruptedException e) {
+                return false;
             }
         }
+        return true;
     }
 
     private StructureMeta.TableMeta getTableMeta(String schema, String tbName) {
@@ -259,6 +278,7 @@ public class ProxyMetaManager {
     }
 
     public void updateOnetableWithBackData(ServerConfig config, String schema, String tableName) {
+        clearRouteShapeCache();
         Set<String> selfNode = getSelfNodes(config);
         List<String> dataNodes;
         if (config.getSchemas().get(schema).getTables().get(tableName) == null) {
@@ -277,7 +297,7 @@ public class ProxyMetaManager {
         } else if (DbleServer.getInstance().isUseUcore()) {
             metaUcoreinit(config);
         } else {
-            initMeta(config);
+            initMeta(config, true);
         }
     }
 
@@ -289,7 +309,7 @@ public class ProxyMetaManager {
                 getValue(ClusterParamCfg.CLUSTER_CFG_MYID)),
                 UcoreConfig.getInstance().getValue(ClusterParamCfg.CLUSTER_CFG_MYID));
         onlineLock.acquire();
-        initMeta(config);
+        initMeta(config, true);
     }
 
 
@@ -324,7 +344,7 @@ public class ProxyMetaManager {
             times++;
         }
 
-        initMeta(config);
+        initMeta(config, true);
         // online
         ZKUtils.createTempNode(KVPathUtil.getOnlinePath(), ZkConfig.getInstance().getValue(ClusterParamCfg.CLUSTER_CFG_MYID));
         //add watcher
@@ -381,9 +401,20 @@ public class ProxyMetaManager {
 
 
     public void initMeta(ServerConfig config) {
+        initMeta(config, false);
+    }
+
+    /**
+     * @param checkInBackground the tables loaded from the snapshot are checked after return, or before return
+     */
+    private void initMeta(ServerConfig config, boolean checkInBackground) {
         Set<String> selfNode = getSelfNodes(config);
-        SchemaMetaHandler handler = new SchemaMetaHandler(this, config, selfNode);
-        handler.execute();
+        if (config.getSystem().getUseMetaSnapshot() == 1) {
+            initMetaWithSnapshot(config, selfNode, checkInBackground);
+        } else {
+            SchemaMetaHandler handler = new SchemaMetaHandler(this, config, selfNode);
+            handler.execute();
+        }
         if (DbleServer.getInstance().isUseZK()) {
             loadViewFromKV();
         } else if (DbleServer.getInstance().isUseUcore()) {
@@ -403,6 +434,217 @@ public class ProxyMetaManager {
             checkTaskHandler.cancel(false);
             scheduler.shutdown();
         }
+        synchronized (SNAPSHOT_LOCK) {
+            terminated = true;
+        }
+        if (snapshotExecutor != null) {
+            snapshotExecutor.shutdownNow();
+        }
+    }
+
+    /**
+     * load the tables from the snapshot and check them with the checksums of the data nodes, only the changed
+     * tables are read again. Without the snapshot all the tables are read and the snapshot is saved.
+     */
+    private void initMetaWithSnapshot(final ServerConfig config, final Set<String> selfNode, boolean checkInBackground) {
+        snapshotExecutor = Executors.newSingleThreadScheduledExecutor(new ThreadFactoryBuilder().setNameFormat("MetaSnapshot-%d").setDaemon(true).build());
+        final String file = config.getSystem().getMetaSnapshotFile();
+        long start = System.currentTimeMillis();
+        MetaSnapshot snapshot = null;
+        try {
+            snapshot = MetaSnapshot.load(file);
+        } catch (Exception e) {
+            LOGGER.warn("load the meta snapshot " + file + " failed, all the tables will be read from the backends", e);
+        }
+        if (snapshot == null) {
+            Map<String, Map<String, String>> checksums = new TableChecksumHandler(getAllDataNodes(config), selfNode).execute();
+            long checksumEnd = System.currentTimeMillis();
+            SchemaMetaHandler handler = new SchemaMetaHandler(this, config, selfNode);
+            handler.execute();
+            long loadEnd = System.currentTimeMillis();
+            useSnapshot = true;
+            snapshotChecksums = checksums;
+            saveSnapshot(config);
+            LOGGER.info("init meta without snapshot: read checksums of " + checksums.size() + " data nodes in " + (checksumEnd - start) +
+                    " ms, read all tables in " + (loadEnd - checksumEnd) + " ms, saved snapshot in " + (System.currentTimeMillis() - loadEnd) + " ms");
+            return;
+        }
+
+        int tableCount = 0;
+        for (SchemaConfig schemaConfig : config.getSchemas().values()) {
+            createDatabase(schemaConfig.getName());
+            for (MetaSnapshot.TableSnapshot table : snapshot.getTables(schemaConfig.getName()).values()) {
+                String tbName = table.getTableMeta().getTableName();
+                if (schemaConfig.getTables().containsKey(tbName) || schemaConfig.getDataNode() != null) {
+                    catalogs.get(schemaConfig.getName()).addTableMeta(tbName, table.getTableMeta());
+                    tableCount++;
+                }
+            }
+        }
+        useSnapshot = true;
+        LOGGER.info("init meta from snapshot: loaded " + tableCount + " tables in " + (System.currentTimeMillis() - start) + " ms");
+
+        final MetaSnapshot loaded = snapshot;
+        if (checkInBackground) {
+            snapshotExecutor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    checkSnapshot(config, selfNode, loaded);
+                }
+            });
+        } else {
+            checkSnapshot(config, selfNode, loaded);
+        }
+    }
+
+    private void checkSnapshot(ServerConfig config, Set<String> selfNode, MetaSnapshot snapshot) {
+        long start = System.currentTimeMillis();
+        Map<String, Map<String, String>> checksums = new TableChecksumHandler(getAllDataNodes(config), selfNode).execute();
+        long checksumEnd = System.currentTimeMillis();
+
+        /* schema,table,dataNodes */
+        Map<String, Map<String, List<String>>> changedTables = new HashMap<>();
+        int changedCount = 0;
+        for (SchemaConfig schemaConfig : config.getSchemas().values()) {
+            String schema = schemaConfig.getName();
+            Map<String, MetaSnapshot.TableSnapshot> snapshotTables = snapshot.getTables(schema);
+            Map<String, List<String>> changed = new HashMap<>();
+            for (TableConfig table : schemaConfig.getTables().values()) {
+                if (isSnapshotChanged(checksums, snapshotTables.get(table.getName()), table.getName(), table.getDataNodes())) {
+                    changed.put(table.getName(), table.getDataNodes());
+                }
+            }
+            if (schemaConfig.getDataNode() != null) {
+                List<String> dataNodes = Collections.singletonList(schemaConfig.getDataNode());
+                Map<String, String> nodeTables = checksums.get(schemaConfig.getDataNode());
+                if (nodeTables == null) {
+                    // can't list the tables, read again the ones in the snapshot
+                    for (String tbName : snapshotTables.keySet()) {
+                        if (!schemaConfig.getTables().containsKey(tbName)) {
+                            changed.put(tbName, dataNodes);
+                        }
+                    }
+                } else {
+                    for (String tbName : nodeTables.keySet()) {
+                        if (!schemaConfig.getTables().containsKey(tbName) &&
+                                isSnapshotChanged(checksums, snapshotTables.get(tbName), tbName, dataNodes)) {
+                            changed.put(tbName, dataNodes);
+                        }
+                    }
+                    for (String tbName : snapshotTables.keySet()) {
+                        if (!schemaConfig.getTables().containsKey(tbName) && !nodeTables.containsKey(tbName)) {
+                            dropTableIfNotChanged(schema, tbName, start);
+                        }
+                    }
+                }
+            }
+            changedTables.put(schema, changed);
+            changedCount += changed.size();
+        }
+
+        CountDownLatch latch = new CountDownLatch(changedCount);
+        for (Map.Entry<String, Map<String, List<String>>> schema : changedTables.entrySet()) {
+            for (Map.Entry<String, List<String>> table : schema.getValue().entrySet()) {
+                new TableMetaReloadHandler(this, schema.getKey(), table.getKey(), table.getValue(), selfNode, latch).execute();
+            }
+        }
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            LOGGER.info("check the meta snapshot is interrupted");
+            return;
+        }
+        long reloadEnd = System.currentTimeMillis();
+        snapshotChecksums = checksums;
+        saveSnapshot(config);
+        LOGGER.info("checked the meta snapshot: read checksums of " + checksums.size() + " data nodes in " + (checksumEnd - start) +
+                " ms, read " + changedCount + " changed tables in " + (reloadEnd - checksumEnd) + " ms, saved snapshot in " +
+                (System.currentTimeMillis() - reloadEnd) + " ms");
+    }
+
+    private boolean isSnapshotChanged(Map<String, Map<String, String>> checksums, MetaSnapshot.TableSnapshot table,
+                                      String tbName, List<String> dataNodes) {
+        if (table == null || table.getChecksum() == null) {
+            return true;
+        }
+        return !table.getChecksum().equals(TableChecksumHandler.getChecksum(checksums, tbName, dataNodes));
+    }
+
+    private Set<String> getAllDataNodes(ServerConfig config) {
+        Set<String> dataNodes = new HashSet<>();
+        for (SchemaConfig schemaConfig : config.getSchemas().values()) {
+            if (schemaConfig.getDataNode() != null) {
+                dataNodes.add(schemaConfig.getDataNode());
+            }
+            for (TableConfig table : schemaConfig.getTables().values()) {
+                dataNodes.addAll(table.getDataNodes());
+            }
+        }
+        return dataNodes;
+    }
+
+    /**
+     * the tables changed by DDL are saved without checksum, they are read again at next startup
+     */
+    private void markSnapshotChanged(String schema, String tbName) {
+        if (!useSnapshot) {
+            return;
+        }
+        snapshotChangedTables.add(genLockKey(schema, tbName));
+        if (snapshotChecksums != null && snapshotSaving.compareAndSet(false, true)) {
+            final ServerConfig config = DbleServer.getInstance().getConfig();
+            try {
+                snapshotExecutor.schedule(new Runnable() {
+                    @Override
+                    public void run() {
+                        snapshotSaving.set(false);
+                        saveSnapshot(config);
+                    }
+                }, SNAPSHOT_SAVE_DELAY, TimeUnit.MILLISECONDS);
+            } catch (RejectedExecutionException e) {
+                // terminated
+                snapshotSaving.set(false);
+            }
+        }
+    }
+
+    private void saveSnapshot(ServerConfig config) {
+        Map<String, Map<String, String>> checksums = snapshotChecksums;
+        MetaSnapshot snapshot = new MetaSnapshot();
+        for (SchemaConfig schemaConfig : config.getSchemas().values()) {
+            SchemaMeta schemaMeta = catalogs.get(schemaConfig.getName());
+            if (schemaMeta == null) {
+                continue;
+            }
+            for (StructureMeta.TableMeta tm : schemaMeta.getTableMetas().values()) {
+                String tbName = tm.getTableName();
+                TableConfig table = schemaConfig.getTables().get(tbName);
+                List<String> dataNodes;
+                if (table != null) {
+                    dataNodes = table.getDataNodes();
+                } else if (schemaConfig.getDataNode() != null) {
+                    dataNodes = Collections.singletonList(schemaConfig.getDataNode());
+                } else {
+                    continue;
+                }
+                String checksum = null;
+                if (!snapshotChangedTables.contains(genLockKey(schemaConfig.getName(), tbName))) {
+                    checksum = TableChecksumHandler.getChecksum(checksums, tbName, dataNodes);
+                }
+                snapshot.addTable(schemaConfig.getName(), checksum, tm);
+            }
+        }
+        String file = config.getSystem().getMetaSnapshotFile();
+        synchronized (SNAPSHOT_LOCK) {
+            if (terminated) {
+                return;
+            }
+            try {
+                snapshot.save(file);
+            } catch (IOException e) {
+                LOGGER.warn(AlarmCode.CORE_FILE_WRITE_WARN + "save the meta snapshot " + file + " failed", e);
+            }
+        }
     }
     //Check the Consistency of table Structure
 
@@ -431,6 +673,7 @@ public class ProxyMetaManager {
     }
 
     public void updateMetaData(String schema, String sql, boolean isSuccess, boolean needNotifyOther) {
+        clearRouteShapeCache();
         SQLStatementParser parser = new MySqlStatementParser(sql);
         SQLStatement statement = parser.parseStatement();
         if (statement instanceof MySqlCreateTableStatement) {
@@ -450,6 +693,16 @@ public class ProxyMetaManager {
         }
     }
 
+    /**
+     * the route plans of the sql shapes may refer to the old table
+     */
+    private void clearRouteShapeCache() {
+        RouteService routeService = DbleServer.getInstance().getRouterService();
+        if (routeService != null) {
+            routeService.clearRouteShapeCache();
+        }
+    }
+
     public void notifyClusterDDL(String schema, String table, String sql, DDLInfo.DDLStatus ddlStatus) throws Exception {
         if (DbleServer.getInstance().isUseZK()) {
             CuratorFramework zkConn = ZKUtils.getConnection();
@@ -40,6 +40,32 @@ public class SchemaMeta {
         return this.tableMetas.remove(tbName);
     }
 
+    /**
+     * put the meta unless the table has been changed since the version
+     */
+    public boolean addTableMetaIfOlder(String tbName, StructureMeta.TableMeta tblMeta, long version) {
+        while (true) {
+            StructureMeta.TableMeta old = this.tableMetas.get(tbName);
+            if (old == null) {
+                if (this.tableMetas.putIfAbsent(tbName, tblMeta) == null) {
+                    return true;
+                }
+            } else if (old.getVersion() >= version) {
+                return false;
+            } else if (this.tableMetas.replace(tbName, old, tblMeta)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * drop the meta unless the table has been changed since the version
+     */
+    public boolean dropTableIfOlder(String tbName, long version) {
+        StructureMeta.TableMeta old = this.tableMetas.get(tbName);
+        return old != null && old.getVersion() < version && this.tableMetas.remove(tbName, old);
+    }
+
     public StructureMeta.TableMeta getTableMeta(String tbName) {
         return this.tableMetas.get(tbName);
     }
@@ -62,6 +62,10 @@ public abstract class AbstractTableMetaHandler {
         }
     }
 
+    protected String getTableName() {
+        return tableName;
+    }
+
     protected abstract void countdown();
 
     protected abstract void handlerTable(StructureMeta.TableMeta tableMeta);
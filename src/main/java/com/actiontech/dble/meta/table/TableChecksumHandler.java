@@ -0,0 +1,151 @@
+/*
+ * Copyright (C) 2016-2018 ActionTech.
+ * License: http://www.gnu.org/licenses/gpl.html GPL version 2 or higher.
+ */
+
+package com.actiontech.dble.meta.table;
+
+import com.actiontech.dble.DbleServer;
+import com.actiontech.dble.backend.datasource.PhysicalDBNode;
+import com.actiontech.dble.sqlengine.MultiRowSQLQueryResultHandler;
+import com.actiontech.dble.sqlengine.SQLJob;
+import com.actiontech.dble.sqlengine.SQLQueryResult;
+import com.actiontech.dble.sqlengine.SQLQueryResultListener;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+
+/**
+ * read the checksums of all the tables of the data nodes at the same time, one query for a data node.
+ * The checksum of a table in a data node is made of its create time, engine, collation and create options,
+ * they are changed by every DDL which rebuilds the table, and of the digests of its columns and indexes,
+ * which are changed by the in-place and instant DDL too. The digest of a row is its CRC32, summed up
+ * so that group_concat_max_len doesn't matter.
+ */
+public class TableChecksumHandler {
+    private static final Logger LOGGER = LoggerFactory.getLogger(TableChecksumHandler.class);
+    private static final String[] CHECKSUM_COLS = new String[]{
+            "TABLE_NAME",
+            "CREATE_TIME",
+            "ENGINE",
+            "TABLE_COLLATION",
+            "CREATE_OPTIONS",
+            "TABLE_COMMENT",
+            "COLUMNS_DIGEST",
+            "INDEXES_DIGEST"};
+    private static final String SQL_TABLES = "SELECT t.TABLE_NAME AS TABLE_NAME, t.CREATE_TIME AS CREATE_TIME, t.ENGINE AS ENGINE, " +
+            "t.TABLE_COLLATION AS TABLE_COLLATION, t.CREATE_OPTIONS AS CREATE_OPTIONS, t.TABLE_COMMENT AS TABLE_COMMENT, " +
+            "c.COLUMNS_DIGEST AS COLUMNS_DIGEST, s.INDEXES_DIGEST AS INDEXES_DIGEST FROM information_schema.TABLES t";
+    private static final String SQL_COLUMNS = "SELECT TABLE_NAME, CONCAT(COUNT(*), '-', SUM(CRC32(CONCAT_WS(',', " +
+            "ORDINAL_POSITION, COLUMN_NAME, COLUMN_TYPE, IS_NULLABLE, IFNULL(COLUMN_DEFAULT, 'NULL'), EXTRA, " +
+            "IFNULL(COLLATION_NAME, 'NULL'), COLUMN_COMMENT)))) AS COLUMNS_DIGEST FROM information_schema.COLUMNS";
+    private static final String SQL_INDEXES = "SELECT TABLE_NAME, CONCAT(COUNT(*), '-', SUM(CRC32(CONCAT_WS(',', " +
+            "INDEX_NAME, NON_UNIQUE, SEQ_IN_INDEX, COLUMN_NAME, IFNULL(SUB_PART, 'NULL'), INDEX_TYPE, INDEX_COMMENT)))) " +
+            "AS INDEXES_DIGEST FROM information_schema.STATISTICS";
+
+    private final Collection<String> dataNodes;
+    private final Set<String> selfNode;
+    /* dataNode,table,checksum */
+    private final Map<String, Map<String, String>> checksums = new ConcurrentHashMap<>();
+
+    public TableChecksumHandler(Collection<String> dataNodes, Set<String> selfNode) {
+        this.dataNodes = dataNodes;
+        this.selfNode = selfNode;
+    }
+
+    /**
+     * @return the checksums of the tables of each data node, the data nodes which failed are not in it
+     */
+    public Map<String, Map<String, String>> execute() {
+        CountDownLatch latch = new CountDownLatch(dataNodes.size());
+        for (String dataNode : dataNodes) {
+            PhysicalDBNode dn = DbleServer.getInstance().getConfig().getDataNodes().get(dataNode);
+            if (dn == null || (selfNode != null && selfNode.contains(dataNode))) {
+                latch.countDown();
+                continue;
+            }
+            MultiRowSQLQueryResultHandler resultHandler = new MultiRowSQLQueryResultHandler(CHECKSUM_COLS, new TableChecksumListener(dataNode, latch));
+            SQLJob sqlJob = new SQLJob(getChecksumSql(dn.getDatabase()), dn.getDatabase(), resultHandler, dn.getDbPool().getSource());
+            sqlJob.run();
+        }
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            LOGGER.info("TableChecksumHandler execute " + e);
+        }
+        return checksums;
+    }
+
+    static String getChecksumSql(String database) {
+        String schemaCondition = " WHERE TABLE_SCHEMA = '" + database + "'";
+        return SQL_TABLES +
+                " LEFT JOIN (" + SQL_COLUMNS + schemaCondition + " GROUP BY TABLE_NAME) c ON c.TABLE_NAME = t.TABLE_NAME" +
+                " LEFT JOIN (" + SQL_INDEXES + schemaCondition + " GROUP BY TABLE_NAME) s ON s.TABLE_NAME = t.TABLE_NAME" +
+                " WHERE t.TABLE_SCHEMA = '" + database + "'";
+    }
+
+    /**
+     * @return null if the table can't be checked in one of its data nodes, a missing table is checked as null
+     */
+    public static String getChecksum(Map<String, Map<String, String>> checksums, String table, List<String> dataNodes) {
+        StringBuilder sb = new StringBuilder();
+        for (String dataNode : dataNodes) {
+            Map<String, String> tables = checksums.get(dataNode);
+            if (tables == null) {
+                return null;
+            }
+            if (tables.containsKey(table) && tables.get(table) == null) {
+                return null;
+            }
+            sb.append(dataNode).append('=').append(tables.get(table)).append(';');
+        }
+        return sb.toString();
+    }
+
+    private class TableChecksumListener implements SQLQueryResultListener<SQLQueryResult<List<Map<String, String>>>> {
+        private final String dataNode;
+        private final CountDownLatch latch;
+
+        TableChecksumListener(String dataNode, CountDownLatch latch) {
+            this.dataNode = dataNode;
+            this.latch = latch;
+        }
+
+        @Override
+        public void onResult(SQLQueryResult<List<Map<String, String>>> result) {
+            try {
+                if (!result.isSuccess()) {
+                    LOGGER.info("Can't get the table checksums from DataNode:" + dataNode + ", its tables will be read again");
+                    return;
+                }
+                boolean lowerCase = DbleServer.getInstance().getSystemVariables().isLowerCaseTableNames();
+                Map<String, String> tables = new HashMap<>();
+                for (Map<String, String> row : result.getResult()) {
+                    String table = row.get(CHECKSUM_COLS[0]);
+                    if (lowerCase) {
+                        table = table.toLowerCase();
+                    }
+                    if (row.get(CHECKSUM_COLS[6]) == null) {
+                        // the columns can't be digested, the table is always read again
+                        tables.put(table, null);
+                        continue;
+                    }
+                    StringBuilder checksum = new StringBuilder();
+                    for (int i = 1; i < CHECKSUM_COLS.length; i++) {
+                        if (i > 1) {
+                            checksum.append(',');
+                        }
+                        checksum.append(row.get(CHECKSUM_COLS[i]));
+                    }
+                    tables.put(table, checksum.toString());
+                }
+                checksums.put(dataNode, tables);
+            } finally {
+                latch.countDown();
+            }
+        }
+    }
+}
@@ -0,0 +1,46 @@
+/*
+ * Copyright (C) 2016-2018 ActionTech.
+ * License: http://www.gnu.org/licenses/gpl.html GPL version 2 or higher.
+ */
+
+package com.actiontech.dble.meta.table;
+
+import com.actiontech.dble.meta.ProxyMetaManager;
+import com.actiontech.dble.meta.protocol.StructureMeta;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+
+/**
+ * read again the meta of a table loaded from the snapshot, the meta changed by a DDL after the reading started is kept
+ */
+public class TableMetaReloadHandler extends AbstractTableMetaHandler {
+    private final ProxyMetaManager tmManager;
+    private final CountDownLatch latch;
+    private final long startTime;
+    private volatile boolean loaded = false;
+
+    public TableMetaReloadHandler(ProxyMetaManager tmManager, String schema, String tableName, List<String> dataNodes,
+                                  Set<String> selfNode, CountDownLatch latch) {
+        super(schema, tableName, dataNodes, selfNode);
+        this.tmManager = tmManager;
+        this.latch = latch;
+        this.startTime = System.currentTimeMillis();
+    }
+
+    @Override
+    protected void countdown() {
+        if (!loaded) {
+            // the table does not exist now
+            tmManager.dropTableIfNotChanged(schema, getTableName(), startTime);
+        }
+        latch.countDown();
+    }
+
+    @Override
+    protected void handlerTable(StructureMeta.TableMeta tableMeta) {
+        loaded = true;
+        tmManager.addTableIfNotChanged(schema, tableMeta, startTime);
+    }
+}
@@ -56,6 +56,8 @@ public abstract class AbstractConnection implements NIOConnection {
     protected long lastWriteTime;
     protected long netInBytes;
     protected long netOutBytes;
+    protected long writeCount;
+    protected long writeBufferCount;
 
     protected volatile boolean isSupportCompress = false;
     protected final ConcurrentLinkedQueue<byte[]> decompressUnfinishedDataQueue = new ConcurrentLinkedQueue<>();
@@ -214,6 +216,19 @@ public abstract class AbstractConnection implements NIOConnection {
         return netOutBytes;
     }
 
+    void addWriteBatch(int bufferCount) {
+        writeCount++;
+        writeBufferCount += bufferCount;
+    }
+
+    /**
+     * the average count of buffers written by one socket write call
+     */
+    public double getBuffersPerWrite() {
+        long count = writeCount;
+        return count == 0 ? 0 : (double) writeBufferCount / count;
+    }
+
     public NIOProcessor getProcessor() {
         return processor;
     }
@@ -262,6 +277,21 @@ public abstract class AbstractConnection implements NIOConnection {
         this.socketWR.doNextWriteCheck();
     }
 
+    /**
+     * pause reading from the socket, the packets already read are still handled
+     */
+    public void disableRead() {
+        this.socketWR.disableRead();
+    }
+
+    public void enableRead() {
+        this.socketWR.enableRead();
+    }
+
+    public boolean isReadPaused() {
+        return this.socketWR.isReadPaused();
+    }
+
     public void onReadData(int got) throws IOException {
         if (isClosed.get()) {
             return;
@@ -294,9 +324,11 @@ public abstract class AbstractConnection implements NIOConnection {
             if (position >= offset + length && readBuffer != null) {
                 // handle this package
                 readBuffer.position(offset);
-                byte[] data = new byte[length];
-                readBuffer.get(data, 0, length);
-                handle(data);
+                if (!handleInPlace(offset, length)) {
+                    byte[] data = new byte[length];
+                    readBuffer.get(data, 0, length);
+                    handle(data);
+                }
                 // maybe handle stmt_close
                 if (isClosed()) {
                     return;
@@ -326,6 +358,14 @@ public abstract class AbstractConnection implements NIOConnection {
         }
     }
 
+    /**
+     * let the handler take the packet from the read buffer, compressed packets are always copied
+     */
+    private boolean handleInPlace(int offset, int length) {
+        return !isSupportCompress() && handler instanceof NIOBufferHandler &&
+                ((NIOBufferHandler) handler).handle(readBuffer, offset, length);
+    }
+
     private void readReachEnd() {
         // if cur buffer is temper none direct byte buffer and not
         // received large message in recent 30 seconds
@@ -450,6 +490,34 @@ public abstract class AbstractConnection implements NIOConnection {
         return buffer;
     }
 
+    /**
+     * copy length bytes of src from offset, the full buffers are written out as writeToBuffer(byte[], ByteBuffer),
+     * the position and limit of src are kept
+     */
+    public ByteBuffer writeToBuffer(ByteBuffer src, int offset, int length, ByteBuffer buffer) {
+        final int srcPosition = src.position();
+        final int srcLimit = src.limit();
+        final int end = offset + length;
+        int start = offset;
+        try {
+            while (start < end) {
+                int size = Math.min(buffer.remaining(), end - start);
+                src.limit(start + size);
+                src.position(start);
+                buffer.put(src);
+                start += size;
+                if (start < end) {
+                    write(buffer);
+                    buffer = allocate();
+                }
+            }
+        } finally {
+            src.limit(srcLimit);
+            src.position(srcPosition);
+        }
+        return buffer;
+    }
+
     @Override
     public void close(String reason) {
         if (!isClosed.get()) {
@@ -500,6 +568,7 @@ public abstract class AbstractConnection implements NIOConnection {
             recycle(writeBuffer);
             this.writeBuffer = null;
         }
+        socketWR.cleanup();
 
         if (!decompressUnfinishedDataQueue.isEmpty()) {
             decompressUnfinishedDataQueue.clear();
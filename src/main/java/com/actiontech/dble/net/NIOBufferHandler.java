@@ -0,0 +1,23 @@
+/*
+ * Copyright (C) 2016-2018 ActionTech.
+ * License: http://www.gnu.org/licenses/gpl.html GPL version 2 or higher.
+ */
+
+package com.actiontech.dble.net;
+
+import java.nio.ByteBuffer;
+
+/**
+ * a NIOHandler that can take a packet right in the read buffer of the connection,
+ * without copying it to a byte[]
+ */
+public interface NIOBufferHandler extends NIOHandler {
+
+    /**
+     * the packet is only valid during the call, the position and limit of the buffer must be kept
+     *
+     * @return false if the packet is not handled, it is then copied and passed to handle(byte[])
+     */
+    boolean handle(ByteBuffer buffer, int offset, int length);
+
+}
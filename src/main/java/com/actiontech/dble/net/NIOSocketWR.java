@@ -5,6 +5,8 @@
 
 package com.actiontech.dble.net;
 
+import com.actiontech.dble.DbleServer;
+import com.actiontech.dble.config.model.SystemConfig;
 import com.actiontech.dble.util.TimeUtil;
 
 import java.io.IOException;
@@ -17,15 +19,37 @@ import java.util.concurrent.atomic.AtomicBoolean;
 public class NIOSocketWR extends SocketWR {
     private SelectionKey processKey;
     private static final int OP_NOT_WRITE = ~SelectionKey.OP_WRITE;
+    private static final int OP_NOT_READ = ~SelectionKey.OP_READ;
     private final AbstractConnection con;
     private final SocketChannel channel;
+    /**
+     * held by the thread writing the socket, the batch is only touched by its holder
+     */
     private final AtomicBoolean writing = new AtomicBoolean(false);
+    /**
+     * set by cleanup, the holder of writing recycles the batch on release and never releases it again
+     */
+    private volatile boolean cleanupRequested = false;
+    /**
+     * buffers taken from the writeQueue and flipped, [batchStart, batchEnd) are not written yet
+     */
+    private ByteBuffer[] batch;
+    private int batchStart = 0;
+    private int batchEnd = 0;
+    private long maxBatchBytes;
+    private volatile boolean readPaused = false;
 
     public NIOSocketWR(AbstractConnection con) {
         this.con = con;
         this.channel = (SocketChannel) con.channel;
     }
 
+    NIOSocketWR(AbstractConnection con, int batchSize, long batchBytes) {
+        this(con);
+        this.batch = new ByteBuffer[Math.max(1, batchSize)];
+        this.maxBatchBytes = batchBytes;
+    }
+
     public void register(Selector selector) throws IOException {
         try {
             processKey = channel.register(selector, SelectionKey.OP_READ, con);
@@ -43,8 +67,12 @@ public class NIOSocketWR extends SocketWR {
         }
 
         try {
-            boolean noMoreData = write0();
-            writing.set(false);
+            boolean noMoreData;
+            try {
+                noMoreData = write0();
+            } finally {
+                releaseWriting();
+            }
             if (noMoreData && con.writeQueue.isEmpty()) {
                 if ((processKey.isValid() && (processKey.interestOps() & SelectionKey.OP_WRITE) != 0)) {
                     disableWrite();
@@ -66,64 +94,121 @@ public class NIOSocketWR extends SocketWR {
 
     }
 
+    /**
+     * write the pending buffers and the queued ones, gathering up to socketWriteBatchSize buffers
+     * and socketWriteBatchBytes bytes in one write call
+     */
     private boolean write0() throws IOException {
-
-        int written = 0;
-        ByteBuffer buffer = con.writeBuffer;
-        if (buffer != null) {
-            while (buffer.hasRemaining()) {
-                written = channel.write(buffer);
-                if (written > 0) {
-                    con.netOutBytes += written;
-                    con.processor.addNetOutBytes(written);
-                    con.lastWriteTime = TimeUtil.currentTimeMillis();
-                } else {
-                    break;
+        if (batch == null) {
+            SystemConfig system = DbleServer.getInstance().getConfig().getSystem();
+            batch = new ByteBuffer[Math.max(1, system.getSocketWriteBatchSize())];
+            maxBatchBytes = system.getSocketWriteBatchBytes();
+        }
+        for (; ; ) {
+            long batchBytes = compactBatch();
+            ByteBuffer buffer;
+            while (batchEnd < batch.length && batchBytes < maxBatchBytes && (buffer = con.writeQueue.peek()) != null) {
+                if (buffer.limit() == 0) {
+                    if (batchEnd > 0) {
+                        // write the data before quit first
+                        break;
+                    }
+                    con.writeQueue.poll();
+                    con.recycle(buffer);
+                    con.close("quit send");
+                    return true;
                 }
+                con.writeQueue.poll();
+                buffer.flip();
+                batch[batchEnd++] = buffer;
+                batchBytes += buffer.remaining();
             }
-
-            if (buffer.hasRemaining()) {
-                return false;
-            } else {
-                con.writeBuffer = null;
-                con.recycle(buffer);
-            }
-        }
-        while ((buffer = con.writeQueue.poll()) != null) {
-            if (buffer.limit() == 0) {
-                con.recycle(buffer);
-                con.close("quit send");
+            if (batchEnd == 0) {
                 return true;
             }
 
-            buffer.flip();
+            long written;
             try {
-                while (buffer.hasRemaining()) {
-                    written = channel.write(buffer);
-                    if (written > 0) {
-                        con.lastWriteTime = TimeUtil.currentTimeMillis();
-                        con.netOutBytes += written;
-                        con.processor.addNetOutBytes(written);
-                        con.lastWriteTime = TimeUtil.currentTimeMillis();
-                    } else {
-                        break;
-                    }
-                }
+                written = channel.write(batch, batchStart, batchEnd - batchStart);
             } catch (IOException e) {
-                con.recycle(buffer);
+                recyclePending();
                 throw e;
             }
-            if (buffer.hasRemaining()) {
-                con.writeBuffer = buffer;
+            if (written > 0) {
+                con.netOutBytes += written;
+                con.processor.addNetOutBytes(written);
+                con.lastWriteTime = TimeUtil.currentTimeMillis();
+                con.addWriteBatch(batchEnd - batchStart);
+            }
+            while (batchStart < batchEnd && !batch[batchStart].hasRemaining()) {
+                con.recycle(batch[batchStart]);
+                batch[batchStart++] = null;
+            }
+            if (batchStart < batchEnd && written <= 0) {
+                // the socket buffer is full, wait for OP_WRITE
                 return false;
-            } else {
-                con.recycle(buffer);
             }
         }
-        return true;
     }
 
-    private void disableWrite() {
+    /**
+     * move the buffers not written yet to the head of the batch
+     *
+     * @return the bytes of them
+     */
+    private long compactBatch() {
+        long bytes = 0;
+        int pending = batchEnd - batchStart;
+        if (batchStart > 0) {
+            System.arraycopy(batch, batchStart, batch, 0, pending);
+            for (int i = pending; i < batchEnd; i++) {
+                batch[i] = null;
+            }
+        }
+        batchStart = 0;
+        batchEnd = pending;
+        for (int i = 0; i < pending; i++) {
+            bytes += batch[i].remaining();
+        }
+        return bytes;
+    }
+
+    private void recyclePending() {
+        if (batch == null) {
+            return;
+        }
+        for (int i = batchStart; i < batchEnd; i++) {
+            con.recycle(batch[i]);
+            batch[i] = null;
+        }
+        batchStart = 0;
+        batchEnd = 0;
+    }
+
+    /**
+     * release writing, unless a cleanup came during the write: then the pending buffers are recycled
+     * here and writing is kept, so the batch is recycled once and never written again
+     */
+    private void releaseWriting() {
+        writing.set(false);
+        if (cleanupRequested && writing.compareAndSet(false, true)) {
+            recyclePending();
+        }
+    }
+
+    /**
+     * may be called by a thread closing the connection while another one is writing, in which case
+     * the writer recycles the batch when it releases writing
+     */
+    @Override
+    public void cleanup() {
+        cleanupRequested = true;
+        if (writing.compareAndSet(false, true)) {
+            recyclePending();
+        }
+    }
+
+    private synchronized void disableWrite() {
         try {
             SelectionKey key = this.processKey;
             key.interestOps(key.interestOps() & OP_NOT_WRITE);
@@ -135,19 +220,65 @@ public class NIOSocketWR extends SocketWR {
 
     private void enableWrite(boolean wakeup) {
         boolean needWakeup = false;
+        synchronized (this) {
+            try {
+                SelectionKey key = this.processKey;
+                key.interestOps(key.interestOps() | SelectionKey.OP_WRITE);
+                needWakeup = true;
+            } catch (Exception e) {
+                AbstractConnection.LOGGER.info("can't enable write " + e);
+
+            }
+        }
+        if (needWakeup && wakeup) {
+            processKey.selector().wakeup();
+        }
+    }
+
+    /**
+     * the interest ops are changed by the reactor, the writers and the read flow control,
+     * so every read-modify-write of them holds the lock of this
+     */
+    @Override
+    public synchronized void disableRead() {
+        if (readPaused) {
+            return;
+        }
         try {
             SelectionKey key = this.processKey;
-            key.interestOps(key.interestOps() | SelectionKey.OP_WRITE);
-            needWakeup = true;
+            key.interestOps(key.interestOps() & OP_NOT_READ);
+            readPaused = true;
         } catch (Exception e) {
-            AbstractConnection.LOGGER.info("can't enable write " + e);
+            AbstractConnection.LOGGER.info("can't disable read " + e + " con " + con);
+        }
+    }
 
+    @Override
+    public void enableRead() {
+        boolean needWakeup = false;
+        synchronized (this) {
+            if (!readPaused) {
+                return;
+            }
+            readPaused = false;
+            try {
+                SelectionKey key = this.processKey;
+                key.interestOps(key.interestOps() | SelectionKey.OP_READ);
+                needWakeup = true;
+            } catch (Exception e) {
+                AbstractConnection.LOGGER.info("can't enable read " + e + " con " + con);
+            }
         }
-        if (needWakeup && wakeup) {
+        if (needWakeup) {
             processKey.selector().wakeup();
         }
     }
 
+    @Override
+    public boolean isReadPaused() {
+        return readPaused;
+    }
+
     private void clearSelectionKey() {
         try {
             SelectionKey key = this.processKey;
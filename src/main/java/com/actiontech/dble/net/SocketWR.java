@@ -12,4 +12,23 @@ public abstract class SocketWR {
     public abstract void asyncRead() throws IOException;
 
     public abstract void doNextWriteCheck();
+
+    /**
+     * recycle the buffers kept by the writer
+     */
+    public void cleanup() {
+    }
+
+    /**
+     * stop reading from the socket until enableRead, for flow control
+     */
+    public void disableRead() {
+    }
+
+    public void enableRead() {
+    }
+
+    public boolean isReadPaused() {
+        return false;
+    }
 }
@@ -46,6 +46,7 @@ public class RowDataPacket extends MySQLPacket {
     private int fieldCount;
     public final List<byte[]> fieldValues;
     private Map<RowDataComparator, List<byte[]>> cmpValues;
+    private Map<RowDataComparator, byte[]> sortKeys;
 
     public RowDataPacket(int fieldCount) {
         this.fieldCount = fieldCount;
@@ -152,6 +153,16 @@ public class RowDataPacket extends MySQLPacket {
         this.cmpValues.put(comparator, cmpValue);
     }
 
+    public byte[] getSortKey(RowDataComparator comparator) {
+        return sortKeys == null ? null : sortKeys.get(comparator);
+    }
+
+    public void cacheSortKey(RowDataComparator comparator, byte[] sortKey) {
+        if (sortKeys == null)
+            sortKeys = new HashMap<>(1);
+        this.sortKeys.put(comparator, sortKey);
+    }
+
     public int getFieldCount() {
         return fieldCount;
     }
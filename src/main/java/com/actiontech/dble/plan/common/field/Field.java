@@ -184,6 +184,16 @@ public abstract class Field {
 
     public abstract int compare(byte[] v1, byte[] v2);
 
+    /**
+     * writes the sort key of the not null value v, the keys compare as unsigned bytes in the same
+     * order as {@link #compare(byte[], byte[])}
+     *
+     * @return false if the type or the value has no sort key, compare(v1, v2) must be used then
+     */
+    public boolean makeSortKey(byte[] v, SortKeyBuilder key) {
+        return false;
+    }
+
     public boolean getDate(MySQLTime ltime, long fuzzydate) {
         String res = valStr();
         return res == null || MyTime.strToDatetimeWithWarn(res, ltime, fuzzydate);
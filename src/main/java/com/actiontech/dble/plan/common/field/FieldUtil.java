@@ -7,6 +7,7 @@ package com.actiontech.dble.plan.common.field;
 
 import com.actiontech.dble.plan.common.item.FieldTypes;
 
+import java.math.BigDecimal;
 import java.util.List;
 
 public class FieldUtil {
@@ -68,6 +69,51 @@ public class FieldUtil {
         }
     }
 
+    /**
+     * the sort key of the int b in the order of compareIntUsingStringBytes: the sign, the length
+     * and the digits, inverted for the negative ones
+     */
+    public static boolean makeIntSortKeyUsingStringBytes(byte[] b, SortKeyBuilder key) {
+        if (b.length == 0)
+            return false;
+        boolean negative = b[0] == '-';
+        int start = negative ? 1 : 0;
+        for (int i = start; i < b.length; i++) {
+            if (b[i] < 0)
+                return false;
+        }
+        key.writeByte(negative ? 0 : 1);
+        int pos = key.length();
+        key.writeInt(b.length - start);
+        key.writeBytes(b, start, b.length - start);
+        if (negative)
+            key.invert(pos);
+        return true;
+    }
+
+    /**
+     * the sort key of a decimal in numeric order: the sign, the exponent of the first digit and the
+     * digits without the trailing zeros ended by a 0, inverted for the negative ones
+     */
+    public static void makeDecimalSortKey(BigDecimal dec, SortKeyBuilder key) {
+        int sign = dec.signum();
+        if (sign == 0) {
+            key.writeByte(1);
+            return;
+        }
+        BigDecimal stripped = dec.stripTrailingZeros();
+        String digits = stripped.unscaledValue().abs().toString();
+        key.writeByte(sign < 0 ? 0 : 2);
+        int pos = key.length();
+        key.writeInt((digits.length() - stripped.scale()) ^ Integer.MIN_VALUE);
+        for (int i = 0; i < digits.length(); i++) {
+            key.writeByte(digits.charAt(i));
+        }
+        key.writeByte(0);
+        if (sign < 0)
+            key.invert(pos);
+    }
+
     public int getEnumPackLength(int elements) {
         return elements < 256 ? 1 : 2;
     }
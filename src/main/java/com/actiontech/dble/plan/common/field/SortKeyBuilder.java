@@ -0,0 +1,97 @@
+/*
+ * Copyright (C) 2016-2018 ActionTech.
+ * License: http://www.gnu.org/licenses/gpl.html GPL version 2 or higher.
+ */
+
+package com.actiontech.dble.plan.common.field;
+
+import java.util.Arrays;
+
+/**
+ * builds the normalized sort key of a row, the keys of two rows compare with a plain unsigned byte
+ * comparison, see {@link #compare(byte[], byte[])}, in the same order as the Field.compare of their
+ * columns. Every column is written by {@link Field#makeSortKey(byte[], SortKeyBuilder)} and must be
+ * prefix free, so that the end of a column is always found before the next column is compared.
+ */
+public final class SortKeyBuilder {
+    private static final int DEFAULT_CAPACITY = 64;
+
+    private byte[] buf;
+    private int count;
+
+    public SortKeyBuilder() {
+        this.buf = new byte[DEFAULT_CAPACITY];
+    }
+
+    public void reset() {
+        count = 0;
+    }
+
+    public int length() {
+        return count;
+    }
+
+    public byte[] toByteArray() {
+        return Arrays.copyOf(buf, count);
+    }
+
+    public void writeByte(int b) {
+        ensureCapacity(count + 1);
+        buf[count++] = (byte) b;
+    }
+
+    public void writeChar(int c) {
+        ensureCapacity(count + 2);
+        buf[count++] = (byte) (c >>> 8);
+        buf[count++] = (byte) c;
+    }
+
+    public void writeInt(int v) {
+        ensureCapacity(count + 4);
+        buf[count++] = (byte) (v >>> 24);
+        buf[count++] = (byte) (v >>> 16);
+        buf[count++] = (byte) (v >>> 8);
+        buf[count++] = (byte) v;
+    }
+
+    public void writeLong(long v) {
+        writeInt((int) (v >>> 32));
+        writeInt((int) v);
+    }
+
+    public void writeBytes(byte[] b, int off, int len) {
+        ensureCapacity(count + len);
+        System.arraycopy(b, off, buf, count, len);
+        count += len;
+    }
+
+    /**
+     * inverts the bytes written since start, the column written there is sorted descending
+     */
+    public void invert(int start) {
+        for (int i = start; i < count; i++) {
+            buf[i] = (byte) ~buf[i];
+        }
+    }
+
+    private void ensureCapacity(int minCapacity) {
+        if (minCapacity > buf.length) {
+            buf = Arrays.copyOf(buf, Math.max(buf.length << 1, minCapacity));
+        }
+    }
+
+    /**
+     * unsigned lexicographical comparison of two sort keys
+     */
+    public static int compare(byte[] k1, byte[] k2) {
+        int len = Math.min(k1.length, k2.length);
+        for (int i = 0; i < len; i++) {
+            int b1 = k1[i] & 0xff;
+            int b2 = k2[i] & 0xff;
+            if (b1 != b2) {
+                return b1 < b2 ? -1 : 1;
+            }
+        }
+        return k1.length - k2.length;
+    }
+}
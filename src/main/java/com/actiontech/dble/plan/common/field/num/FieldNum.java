@@ -8,6 +8,7 @@ package com.actiontech.dble.plan.common.field.num;
 import com.actiontech.dble.plan.common.MySQLcom;
 import com.actiontech.dble.plan.common.field.Field;
 import com.actiontech.dble.plan.common.field.FieldUtil;
+import com.actiontech.dble.plan.common.field.SortKeyBuilder;
 import com.actiontech.dble.plan.common.item.Item;
 import com.actiontech.dble.plan.common.time.MySQLTime;
 import com.actiontech.dble.plan.common.time.MyTime;
@@ -135,4 +136,9 @@ public abstract class FieldNum extends Field {
             return FieldUtil.compareIntUsingStringBytes(v1, v2);
     }
 
+    @Override
+    public boolean makeSortKey(byte[] v, SortKeyBuilder key) {
+        return FieldUtil.makeIntSortKeyUsingStringBytes(v, key);
+    }
+
 }
@@ -7,6 +7,8 @@ package com.actiontech.dble.plan.common.field.num;
 
 import com.actiontech.dble.plan.common.MySQLcom;
 import com.actiontech.dble.plan.common.field.Field;
+import com.actiontech.dble.plan.common.field.FieldUtil;
+import com.actiontech.dble.plan.common.field.SortKeyBuilder;
 import com.actiontech.dble.plan.common.time.MySQLTime;
 import com.actiontech.dble.plan.common.time.MyTime;
 
@@ -115,4 +117,15 @@ public abstract class FieldReal extends FieldNum {
                 return -1;
             }
     }
+
+    @Override
+    public boolean makeSortKey(byte[] v, SortKeyBuilder key) {
+        try {
+            BigDecimal dec = new BigDecimal(MySQLcom.getFullString(javaCharsetName, v));
+            FieldUtil.makeDecimalSortKey(dec, key);
+            return true;
+        } catch (Exception e) {
+            return false;
+        }
+    }
 }
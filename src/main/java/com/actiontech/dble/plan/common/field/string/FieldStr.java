@@ -7,6 +7,7 @@ package com.actiontech.dble.plan.common.field.string;
 
 import com.actiontech.dble.plan.common.MySQLcom;
 import com.actiontech.dble.plan.common.field.Field;
+import com.actiontech.dble.plan.common.field.SortKeyBuilder;
 import com.actiontech.dble.plan.common.item.Item.ItemResult;
 
 import java.io.UnsupportedEncodingException;
@@ -121,4 +122,27 @@ public abstract class FieldStr extends Field {
         }
     }
 
+    /**
+     * the upper case chars of the value, the char 0 is escaped to 0x000001 and the value ends with
+     * 0x000000, which is less than any other char
+     */
+    @Override
+    public boolean makeSortKey(byte[] v, SortKeyBuilder key) {
+        String sval;
+        try {
+            sval = MySQLcom.getFullString(javaCharsetName, v).toUpperCase();
+        } catch (UnsupportedEncodingException e) {
+            return false;
+        }
+        for (int i = 0; i < sval.length(); i++) {
+            char c = sval.charAt(i);
+            key.writeChar(c);
+            if (c == 0)
+                key.writeByte(1);
+        }
+        key.writeChar(0);
+        key.writeByte(0);
+        return true;
+    }
+
 }
@@ -6,6 +6,7 @@
 package com.actiontech.dble.plan.common.field.temporal;
 
 import com.actiontech.dble.plan.common.MySQLcom;
+import com.actiontech.dble.plan.common.field.SortKeyBuilder;
 import com.actiontech.dble.plan.common.time.MySQLTime;
 import com.actiontech.dble.plan.common.time.MyTime;
 
@@ -62,4 +63,16 @@ public abstract class FieldTemporaWithDate extends FieldTemporal {
                 return -1;
             }
     }
+
+    @Override
+    public boolean makeSortKey(byte[] v, SortKeyBuilder key) {
+        try {
+            MySQLTime ltime1 = new MySQLTime();
+            MyTime.strToDatetimeWithWarn(MySQLcom.getFullString(javaCharsetName, v), ltime1, MyTime.TIME_FUZZY_DATE);
+            key.writeLong(MyTime.timeToLonglongDatetimePacked(ltime1) ^ Long.MIN_VALUE);
+            return true;
+        } catch (Exception e) {
+            return false;
+        }
+    }
 }
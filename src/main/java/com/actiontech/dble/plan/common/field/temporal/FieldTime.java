@@ -7,6 +7,7 @@ package com.actiontech.dble.plan.common.field.temporal;
 
 import com.actiontech.dble.plan.common.MySQLcom;
 import com.actiontech.dble.plan.common.field.Field;
+import com.actiontech.dble.plan.common.field.SortKeyBuilder;
 import com.actiontech.dble.plan.common.item.FieldTypes;
 import com.actiontech.dble.plan.common.time.MySQLTime;
 import com.actiontech.dble.plan.common.time.MyTime;
@@ -60,6 +61,10 @@ public class FieldTime extends FieldTemporal {
     public int compare(byte[] v1, byte[] v2) {
         if (v1 == null && v2 == null)
             return 0;
+        else if (v1 == null)
+            return -1;
+        else if (v2 == null)
+            return 1;
         try {
             String sval1 = MySQLcom.getFullString(javaCharsetName, v1);
             String sval2 = MySQLcom.getFullString(javaCharsetName, v2);
@@ -74,4 +79,16 @@ public class FieldTime extends FieldTemporal {
         }
     }
 
+    @Override
+    public boolean makeSortKey(byte[] v, SortKeyBuilder key) {
+        try {
+            MySQLTime ltime1 = new MySQLTime();
+            MyTime.strToTimeWithWarn(MySQLcom.getFullString(javaCharsetName, v), ltime1);
+            key.writeLong(MyTime.timeToLonglongDatetimePacked(ltime1) ^ Long.MIN_VALUE);
+            return true;
+        } catch (Exception e) {
+            return false;
+        }
+    }
+
 }
@@ -23,6 +23,10 @@ public abstract class ItemCond extends ItemBoolFunc {
         list.addAll(args);
     }
 
+    public List<Item> getCondList() {
+        return list;
+    }
+
     public void add(Item item) {
         list.add(item);
     }
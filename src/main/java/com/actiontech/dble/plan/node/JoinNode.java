@@ -29,7 +29,7 @@ public class JoinNode extends PlanNode {
 
 
     public enum Strategy {
-        SORTMERGE, NESTLOOP
+        SORTMERGE, NESTLOOP, HASH
     }
 
     private boolean isNotIn = false;
@@ -73,6 +73,10 @@ public class JoinNode extends PlanNode {
     private List<ERTable> erKeys = new ArrayList<>();
 
     private Strategy strategy = Strategy.SORTMERGE;
+    // the query asks for hash join by hint
+    private boolean hashJoinHint = false;
+    // the build side of hash join
+    private boolean isHashBuildLeft = false;
 
     public JoinNode() {
         this.leftOuter = false;
@@ -402,6 +406,7 @@ public class JoinNode extends PlanNode {
         newJoinNode.leftOuter = this.leftOuter;
         newJoinNode.rightOuter = this.rightOuter;
         newJoinNode.isNotIn = this.isNotIn;
+        newJoinNode.hashJoinHint = this.hashJoinHint;
         newJoinNode.otherJoinOnFilter = this.otherJoinOnFilter == null ? null : this.otherJoinOnFilter.cloneItem();
         return newJoinNode;
     }
@@ -463,6 +468,22 @@ public class JoinNode extends PlanNode {
         this.strategy = strategy;
     }
 
+    public boolean isHashJoinHint() {
+        return hashJoinHint;
+    }
+
+    public void setHashJoinHint(boolean hashJoinHint) {
+        this.hashJoinHint = hashJoinHint;
+    }
+
+    public boolean isHashBuildLeft() {
+        return isHashBuildLeft;
+    }
+
+    public void setHashBuildLeft(boolean hashBuildLeft) {
+        this.isHashBuildLeft = hashBuildLeft;
+    }
+
     public Item getOtherJoinOnFilter() {
         return otherJoinOnFilter;
     }
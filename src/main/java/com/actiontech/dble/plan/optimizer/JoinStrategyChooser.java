@@ -8,6 +8,9 @@ package com.actiontech.dble.plan.optimizer;
 import com.actiontech.dble.plan.common.item.Item;
 import com.actiontech.dble.plan.node.JoinNode;
 import com.actiontech.dble.plan.node.JoinNode.Strategy;
+import com.actiontech.dble.plan.node.PlanNode;
+import com.actiontech.dble.plan.node.PlanNode.PlanNodeType;
+import com.actiontech.dble.plan.node.QueryNode;
 import com.actiontech.dble.plan.node.TableNode;
 
 import java.util.ArrayList;
@@ -27,53 +30,86 @@ public class JoinStrategyChooser {
      * false:join can't use the nest loop optimization,try to optimizer join's child
      */
     public boolean tryNestLoop() {
-        if (jn.isNotIn()) {
+        if (jn.getStrategy() == Strategy.HASH || !canNestLoop()) {
             return false;
         }
-        if (jn.getJoinFilter().isEmpty())
+        handleNestLoopStrategy(isSmallTable((TableNode) jn.getLeftNode()));
+        return true;
+    }
+
+    /**
+     * a join of two tables can use nest loop if only one of them has where filter, and it must be the
+     * left one of left join
+     */
+    private boolean canNestLoop() {
+        if (jn.isNotIn() || jn.getJoinFilter().isEmpty()) {
+            return false;
+        }
+        if (jn.getLeftNode().type() != PlanNodeType.TABLE || jn.getRightNode().type() != PlanNodeType.TABLE) {
             return false;
+        }
+        boolean isLeftSmall = isSmallTable((TableNode) jn.getLeftNode());
+        boolean isRightSmall = isSmallTable((TableNode) jn.getRightNode());
         if (jn.isInnerJoin()) {
-            return tryInnerJoinNestLoop();
+            return isLeftSmall != isRightSmall;
         } else if (jn.getLeftOuter()) {
-            return tryLeftJoinNestLoop();
+            return isLeftSmall && !isRightSmall;
         } else {
             return false;
         }
     }
 
     /**
-     * @param jn
-     * @return
+     * tryHashJoin, there is no statistics of the tables, the rows of a side is estimated by its limit
+     * or by an aggregate without group by
+     *
+     * @param useEstimate    false:only the hint can choose hash join
+     * @param maxBuildRows   the max estimated rows of the build side
+     * @param preferHashJoin false:the join which can use nest loop is left to nest loop unless hinted
+     * @return boolean true:join uses hash join, the small side is the build side
      */
-    private boolean tryInnerJoinNestLoop() {
-        TableNode tnLeft = (TableNode) jn.getLeftNode();
-        TableNode tnRight = (TableNode) jn.getRightNode();
-        boolean isLeftSmall = isSmallTable(tnLeft);
-        boolean isRightSmall = isSmallTable(tnRight);
-        if (isLeftSmall && isRightSmall)
+    public boolean tryHashJoin(boolean useEstimate, long maxBuildRows, boolean preferHashJoin) {
+        if (jn.isNotIn() || jn.getJoinFilter().isEmpty()) {
             return false;
-        else if (!isLeftSmall && !isRightSmall)
+        }
+        if (!jn.isInnerJoin() && !jn.isLeftOuterJoin()) {
             return false;
-        else {
-            handleNestLoopStrategy(isLeftSmall);
-            return true;
         }
+        boolean isLeftSmall = isSmallResult(jn.getLeftNode(), maxBuildRows);
+        boolean isRightSmall = isSmallResult(jn.getRightNode(), maxBuildRows);
+        if (!jn.isHashJoinHint()) {
+            // the left rows of left join must be probed to keep the unmatched ones
+            if (!useEstimate || !(isRightSmall || (isLeftSmall && jn.isInnerJoin()))) {
+                return false;
+            }
+            if (!preferHashJoin && canNestLoop()) {
+                return false;
+            }
+        }
+        jn.setStrategy(Strategy.HASH);
+        jn.setHashBuildLeft(jn.isInnerJoin() && isLeftSmall && !isRightSmall);
+        return true;
+    }
+
+    private boolean isSmallResult(PlanNode node, long maxRows) {
+        long rows = estimateRows(node);
+        return rows >= 0 && rows <= maxRows;
     }
 
     /**
-     * @param jn
-     * @return
+     * @return the max rows of the node, -1 if unknown
      */
-    private boolean tryLeftJoinNestLoop() {
-        TableNode tnLeft = (TableNode) jn.getLeftNode();
-        TableNode tnRight = (TableNode) jn.getRightNode();
-        // left join and only left node has where filter
-        if (isSmallTable(tnLeft) && !isSmallTable(tnRight)) {
-            handleNestLoopStrategy(true);
-            return true;
-        } else {
-            return false;
+    private long estimateRows(PlanNode node) {
+        long rows = -1;
+        if (node.getGroupBys().isEmpty() && !node.getSumFuncs().isEmpty()) {
+            rows = 1;
+        } else if (node.type() == PlanNodeType.QUERY) {
+            rows = estimateRows(((QueryNode) node).getChild());
+        }
+        if (node.getLimitTo() >= 0 && (rows < 0 || node.getLimitTo() < rows)) {
+            rows = node.getLimitTo();
         }
+        return rows;
     }
 
     private void handleNestLoopStrategy(boolean isLeftSmall) {
@@ -14,6 +14,21 @@ public final class JoinStrategyProcessor {
     private JoinStrategyProcessor() {
     }
 
+    /**
+     * choose hash join before the join on orders are pushed down, hash join does not need them
+     */
+    public static PlanNode chooseHashJoin(PlanNode qtn, boolean useEstimate, long maxBuildRows, boolean preferHashJoin) {
+        if (PlanUtil.isGlobalOrER(qtn))
+            return qtn;
+        if (qtn.type() == PlanNode.PlanNodeType.JOIN) {
+            JoinStrategyChooser chooser = new JoinStrategyChooser((JoinNode) qtn);
+            chooser.tryHashJoin(useEstimate, maxBuildRows, preferHashJoin);
+        }
+        for (PlanNode child : qtn.getChildren())
+            chooseHashJoin(child, useEstimate, maxBuildRows, preferHashJoin);
+        return qtn;
+    }
+
     public static PlanNode optimize(PlanNode qtn) {
         if (PlanUtil.isGlobalOrER(qtn))
             return qtn;
@@ -7,6 +7,7 @@ package com.actiontech.dble.plan.optimizer;
 
 import com.actiontech.dble.DbleServer;
 import com.actiontech.dble.config.model.SchemaConfig;
+import com.actiontech.dble.config.model.SystemConfig;
 import com.actiontech.dble.plan.node.PlanNode;
 import com.actiontech.dble.plan.common.exception.MySQLOutPutException;
 import com.actiontech.dble.plan.common.item.subquery.ItemSubQuery;
@@ -50,13 +51,17 @@ public final class MyOptimizer {
                 //  push down filter
                 node = FilterPusher.optimize(node);
 
+                SystemConfig system = DbleServer.getInstance().getConfig().getSystem();
+                boolean useJoinStrategy = system.isUseJoinStrategy();
+                node = JoinStrategyProcessor.chooseHashJoin(node, useJoinStrategy, system.getHashJoinRowsSize(),
+                        system.isPreferHashJoin());
+
                 node = OrderByPusher.optimize(node);
 
                 node = LimitPusher.optimize(node);
 
                 node = SelectedProcessor.optimize(node);
 
-                boolean useJoinStrategy = DbleServer.getInstance().getConfig().getSystem().isUseJoinStrategy();
                 if (useJoinStrategy) {
                     node = JoinStrategyProcessor.optimize(node);
                 }
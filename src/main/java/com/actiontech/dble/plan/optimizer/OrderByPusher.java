@@ -57,6 +57,15 @@ public final class OrderByPusher {
             return qtn;
         } else if (qtn.type() == PlanNodeType.JOIN) {
             JoinNode join = (JoinNode) qtn;
+            if (join.getStrategy() == JoinNode.Strategy.HASH) {
+                // hash join matches the join columns by hash, its children need not be ordered
+                getJoinColumnOrders(join.getJoinFilter(), join.getLeftJoinOnOrders(),
+                        join.getRightJoinOnOrders(), new ArrayList<Order>());
+                for (PlanNode child : qtn.getChildren()) {
+                    pushOrderBy(child);
+                }
+                return qtn;
+            }
 
             // sort merge join's order by, need to push down to left/right node
             List<Order> implicitOrders = getOrderBysGroupFirst(join);
@@ -104,6 +104,8 @@ public class MySQLPlanNodeVisitor {
             visit(from);
             if (this.tableNode instanceof NoNameNode) {
                 this.tableNode.setSql(SQLUtils.toMySqlString(sqlSelectQuery));
+            } else if (this.tableNode instanceof JoinNode && isHashJoinHint(sqlSelectQuery.getHints())) {
+                setHashJoinHint((JoinNode) this.tableNode);
             }
         } else {
             this.tableNode = new NoNameNode(currentDb, SQLUtils.toMySqlString(sqlSelectQuery));
@@ -434,6 +436,32 @@ public class MySQLPlanNodeVisitor {
         tableNode.setLimitTo(to);
     }
 
+    /**
+     * the optimizer hint HASH_JOIN in the comment after select like mysql 8.0,
+     * all the joins of the query block use hash join, the table names of the hint are ignored
+     */
+    private boolean isHashJoinHint(List<SQLCommentHint> hints) {
+        if (hints == null) {
+            return false;
+        }
+        for (SQLCommentHint hint : hints) {
+            String text = hint.getText().trim();
+            if (text.startsWith("+") && text.substring(1).trim().toUpperCase().startsWith("HASH_JOIN")) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void setHashJoinHint(JoinNode joinNode) {
+        joinNode.setHashJoinHint(true);
+        for (PlanNode child : joinNode.getChildren()) {
+            if (child instanceof JoinNode) {
+                setHashJoinHint((JoinNode) child);
+            }
+        }
+    }
+
     private void addJoinOnColumns(Item ifilter, JoinNode joinNode) {
         if (ifilter instanceof ItemFuncEqual) {
             ItemFuncEqual filter = (ItemFuncEqual) ifilter;
@@ -5,8 +5,10 @@
 */
 package com.actiontech.dble.route;
 
+import com.actiontech.dble.backend.mysql.PreparedStatement;
 import com.actiontech.dble.cache.CachePool;
 import com.actiontech.dble.cache.CacheService;
+import com.actiontech.dble.cache.CacheStatic;
 import com.actiontech.dble.cache.LayerCachePool;
 import com.actiontech.dble.config.Versions;
 import com.actiontech.dble.config.model.SchemaConfig;
@@ -14,6 +16,7 @@ import com.actiontech.dble.route.factory.RouteStrategyFactory;
 import com.actiontech.dble.route.handler.HintHandler;
 import com.actiontech.dble.route.handler.HintHandlerFactory;
 import com.actiontech.dble.route.handler.HintSQLHandler;
+import com.actiontech.dble.route.parser.util.SqlShape;
 import com.actiontech.dble.server.ServerConnection;
 import com.actiontech.dble.server.parser.ServerParse;
 import org.slf4j.Logger;
@@ -23,22 +26,90 @@ import java.sql.SQLException;
 import java.sql.SQLSyntaxErrorException;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
 
 public class RouteService {
     private static final Logger LOGGER = LoggerFactory.getLogger(RouteService.class);
     private static final String HINT_TYPE = "_serverHintType";
-    private final CachePool sqlRouteCache;
+    private volatile CachePool sqlRouteCache;
+    // sql shape -> RouteShapePlan
+    private volatile CachePool sqlRouteShapeCache;
     private LayerCachePool tableId2DataNodeCache;
+    private final AtomicLong routePlanHit = new AtomicLong(0);
+    private final AtomicLong routePlanMiss = new AtomicLong(0);
+    private final AtomicLong routePlanPut = new AtomicLong(0);
+    private volatile long lastRoutePlanHit = 0;
+    private volatile long lastRoutePlanPut = 0;
+    // the plans of the prepared statements made before the last change are not used any more
+    private final AtomicLong routePlanVersion = new AtomicLong(0);
 
     public RouteService(CacheService cacheService) {
+        loadCachePools(cacheService);
+    }
+
+    /**
+     * the pools are created again by CacheService.reloadCache
+     */
+    public void loadCachePools(CacheService cacheService) {
         sqlRouteCache = cacheService.getCachePool("SQLRouteCache");
+        sqlRouteShapeCache = cacheService.getCachePool("SQLRouteShapeCache");
         loadTableId2DataNodeCache(cacheService);
+        routePlanVersion.incrementAndGet();
+        resetRoutePlanStatic();
     }
 
     public void loadTableId2DataNodeCache(CacheService cacheService) {
         tableId2DataNodeCache = (LayerCachePool) cacheService.getCachePool("TableID2DataNodeCache");
     }
 
+    /**
+     * the plans depend on the table configs and the table structures, called after reload and ddl
+     */
+    public void clearRouteShapeCache() {
+        CachePool shapeCache = sqlRouteShapeCache;
+        if (shapeCache != null) {
+            shapeCache.clearCache();
+        }
+        routePlanVersion.incrementAndGet();
+        resetRoutePlanStatic();
+    }
+
+    /**
+     * hit means the statement is routed by a plan without parsing, miss means it is parsed,
+     * including the statements whose shape is not cacheable
+     */
+    public CacheStatic getRoutePlanStatic() {
+        CacheStatic cacheStatic = new CacheStatic();
+        CachePool shapeCache = sqlRouteShapeCache;
+        if (shapeCache != null) {
+            cacheStatic.setMaxSize(shapeCache.getMaxSize());
+            cacheStatic.setItemSize(shapeCache.getCacheStatic().getItemSize());
+        }
+        long hit = routePlanHit.get();
+        cacheStatic.setHitTimes(hit);
+        cacheStatic.setAccessTimes(hit + routePlanMiss.get());
+        cacheStatic.setPutTimes(routePlanPut.get());
+        cacheStatic.setLastAccessTime(lastRoutePlanHit);
+        cacheStatic.setLastPutTime(lastRoutePlanPut);
+        return cacheStatic;
+    }
+
+    long getRoutePlanVersion() {
+        return routePlanVersion.get();
+    }
+
+    public boolean isRouteShapeCacheEnabled() {
+        return sqlRouteShapeCache != null;
+    }
+
+    private void resetRoutePlanStatic() {
+        routePlanHit.set(0);
+        routePlanMiss.set(0);
+        routePlanPut.set(0);
+        lastRoutePlanHit = 0;
+        lastRoutePlanPut = 0;
+    }
+
     public LayerCachePool getTableId2DataNodeCache() {
         return tableId2DataNodeCache;
     }
@@ -48,13 +119,14 @@ public class RouteService {
             throws SQLException {
         RouteResultset rrs;
         String cacheKey = null;
+        CachePool routeCache = sqlRouteCache;
 
         /*
          *  SELECT  SQL,  not cached in debug mode
          */
-        if (sqlType == ServerParse.SELECT && !LOGGER.isDebugEnabled() && sqlRouteCache != null) {
+        if (sqlType == ServerParse.SELECT && !LOGGER.isDebugEnabled() && routeCache != null) {
             cacheKey = (schema == null ? "NULL" : schema.getName()) + "_" + sc.getUser() + "_" + stmt;
-            rrs = (RouteResultset) sqlRouteCache.get(cacheKey);
+            rrs = (RouteResultset) routeCache.get(cacheKey);
             if (rrs != null) {
                 return rrs;
             }
@@ -108,11 +180,91 @@ public class RouteService {
             }
         } else {
             stmt = stmt.trim();
-            rrs = RouteStrategyFactory.getRouteStrategy().route(schema, sqlType, stmt, sc, tableId2DataNodeCache);
+            rrs = routeWithShapeCache(schema, sqlType, stmt, sc);
+        }
+
+        if (rrs != null && sqlType == ServerParse.SELECT && rrs.isCacheAble() && !LOGGER.isDebugEnabled() && routeCache != null) {
+            routeCache.putIfAbsent(cacheKey, rrs);
+        }
+        return rrs;
+    }
+
+    /**
+     * routes an execution of a server side prepared statement the normal way, and makes the plan of
+     * the statement if it has none, see routeByPreparedPlan
+     */
+    public RouteResultset routePrepared(SchemaConfig schema, int sqlType, String stmt, ServerConnection sc,
+                                        PreparedStatement pStmt, String[] parameters) throws SQLException {
+        long version = routePlanVersion.get();
+        RouteResultset rrs = route(schema, sqlType, stmt, sc);
+        if (schema == null || sqlRouteShapeCache == null || !RouteShapePlan.isShapeCacheable(sqlType) ||
+                (pStmt.getRoutePlan() != null && pStmt.getRoutePlanVersion() == version)) {
+            return rrs;
+        }
+        RouteShapePlan plan = RouteShapePlan.NOT_CACHEABLE;
+        if (isHintSql(pStmt.getStatement()) == -1) {
+            plan = RouteShapePlan.analyzePrepared(schema, pStmt.getStatement(), pStmt.getParametersNumber(),
+                    parameters, stmt.trim(), rrs);
+        }
+        pStmt.setRoutePlan(plan, sqlType, schema.getName(), version);
+        if (plan.isCacheable()) {
+            routePlanPut.incrementAndGet();
+            lastRoutePlanPut = System.currentTimeMillis();
+        }
+        return rrs;
+    }
+
+    /**
+     * routes an execution of a server side prepared statement by the plan made by its first execution,
+     * the data node is calculated from the bound value of the sharding column without parsing stmt
+     *
+     * @return null if the statement has no usable plan, it must be executed the normal way
+     */
+    public RouteResultset routeByPreparedPlan(String schema, String stmt, PreparedStatement pStmt, String[] parameters) {
+        RouteShapePlan plan = pStmt.getRoutePlan();
+        if (plan == null || !plan.isCacheable() || pStmt.getRoutePlanVersion() != routePlanVersion.get() ||
+                !pStmt.getRouteSchema().equals(schema)) {
+            return null;
+        }
+        RouteResultset rrs = plan.route(stmt, pStmt.getSqlType(), parameters[plan.getLiteralIndex()]);
+        if (rrs != null) {
+            routePlanHit.incrementAndGet();
+            lastRoutePlanHit = System.currentTimeMillis();
         }
+        return rrs;
+    }
 
-        if (rrs != null && sqlType == ServerParse.SELECT && rrs.isCacheAble() && !LOGGER.isDebugEnabled() && sqlRouteCache != null) {
-            sqlRouteCache.putIfAbsent(cacheKey, rrs);
+    /**
+     * the statements only differ in literals share one RouteShapePlan, which re-calculates the
+     * data node from the sharding column value instead of parsing the statement again
+     */
+    private RouteResultset routeWithShapeCache(SchemaConfig schema, int sqlType, String stmt, ServerConnection sc)
+            throws SQLException {
+        CachePool shapeCache = sqlRouteShapeCache;
+        if (shapeCache == null || schema == null || !RouteShapePlan.isShapeCacheable(sqlType)) {
+            return RouteStrategyFactory.getRouteStrategy().route(schema, sqlType, stmt, sc, tableId2DataNodeCache);
+        }
+        SqlShape shape = SqlShape.parse(stmt);
+        String shapeKey = schema.getName() + "_" + sc.getUser() + "_" + sqlType + "_" + shape.getShape();
+        RouteShapePlan plan = (RouteShapePlan) shapeCache.get(shapeKey);
+        if (plan != null && plan.isCacheable()) {
+            RouteResultset rrs = plan.route(stmt, sqlType, shape);
+            if (rrs != null) {
+                routePlanHit.incrementAndGet();
+                lastRoutePlanHit = System.currentTimeMillis();
+                sc.getSession2().endParse();
+                return rrs;
+            }
+        }
+        routePlanMiss.incrementAndGet();
+        RouteResultset rrs = RouteStrategyFactory.getRouteStrategy().route(schema, sqlType, stmt, sc, tableId2DataNodeCache);
+        if (plan == null) {
+            RouteShapePlan newPlan = RouteShapePlan.analyze(schema, stmt, shape, rrs);
+            shapeCache.putIfAbsent(shapeKey, newPlan);
+            if (newPlan.isCacheable()) {
+                routePlanPut.incrementAndGet();
+                lastRoutePlanPut = System.currentTimeMillis();
+            }
         }
         return rrs;
     }
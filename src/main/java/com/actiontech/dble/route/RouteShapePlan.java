@@ -0,0 +1,455 @@
+/*
+ * Copyright (C) 2016-2018 ActionTech.
+ * License: http://www.gnu.org/licenses/gpl.html GPL version 2 or higher.
+ */
+
+package com.actiontech.dble.route;
+
+import com.actiontech.dble.DbleServer;
+import com.actiontech.dble.config.model.SchemaConfig;
+import com.actiontech.dble.config.model.TableConfig;
+import com.actiontech.dble.route.parser.util.SqlShape;
+import com.actiontech.dble.route.util.RouterUtil;
+import com.actiontech.dble.server.parser.ServerParse;
+import com.actiontech.dble.util.StringUtil;
+import com.alibaba.druid.sql.ast.SQLExpr;
+import com.alibaba.druid.sql.ast.SQLStatement;
+import com.alibaba.druid.sql.ast.expr.*;
+import com.alibaba.druid.sql.ast.statement.SQLExprTableSource;
+import com.alibaba.druid.sql.ast.statement.SQLSelectQuery;
+import com.alibaba.druid.sql.ast.statement.SQLSelectStatement;
+import com.alibaba.druid.sql.ast.statement.SQLTableSource;
+import com.alibaba.druid.sql.dialect.mysql.ast.statement.MySqlDeleteStatement;
+import com.alibaba.druid.sql.dialect.mysql.ast.statement.MySqlInsertStatement;
+import com.alibaba.druid.sql.dialect.mysql.ast.statement.MySqlSelectQueryBlock;
+import com.alibaba.druid.sql.dialect.mysql.ast.statement.MySqlUpdateStatement;
+import com.alibaba.druid.sql.dialect.mysql.parser.MySqlStatementParser;
+import com.alibaba.druid.sql.dialect.mysql.visitor.MySqlASTVisitorAdapter;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * RouteShapePlan
+ * <p>
+ * the route of a sql shape (see SqlShape) which always goes to the single data node chosen by
+ * the sharding column of one table, compared with a literal. A statement of the same shape is
+ * routed by calculating the partition of its literal at the same position, without parsing it.
+ * The plan of a server side prepared statement uses the bound value of the parameter instead.
+ * Shapes which can't be routed this way are remembered as NOT_CACHEABLE.
+ * </p>
+ */
+public final class RouteShapePlan {
+    public static final RouteShapePlan NOT_CACHEABLE = new RouteShapePlan(null, -1);
+
+    private final TableConfig tc;
+    private final int literalIndex;
+    /* copied from the RouteResultset of the first statement */
+    private String schema;
+    private String table;
+    private String tableAlias;
+    private String primaryKey;
+    private boolean cacheAble;
+    private Boolean canRunInReadDB;
+    private Boolean runOnSlave;
+
+    private RouteShapePlan(TableConfig tc, int literalIndex) {
+        this.tc = tc;
+        this.literalIndex = literalIndex;
+    }
+
+    public boolean isCacheable() {
+        return tc != null;
+    }
+
+    public static boolean isShapeCacheable(int sqlType) {
+        return sqlType == ServerParse.SELECT || sqlType == ServerParse.INSERT ||
+                sqlType == ServerParse.UPDATE || sqlType == ServerParse.DELETE;
+    }
+
+    /**
+     * the index of the sharding literal in the shape, or of the sharding parameter of a prepared statement
+     */
+    public int getLiteralIndex() {
+        return literalIndex;
+    }
+
+    /**
+     * @return null if the data node can't be calculated, the caller should route it the normal way
+     */
+    public RouteResultset route(String stmt, int sqlType, SqlShape shape) {
+        if (tc == null || literalIndex >= shape.getLiteralCount()) {
+            return null;
+        }
+        return route(stmt, sqlType, shape.getValue(literalIndex));
+    }
+
+    /**
+     * @param shardingValue the value of the sharding column, as the text of its literal
+     * @return null if the data node can't be calculated, the caller should route it the normal way
+     */
+    public RouteResultset route(String stmt, int sqlType, String shardingValue) {
+        if (tc == null || shardingValue == null) {
+            return null;
+        }
+        String dataNode = calculate(tc, shardingValue);
+        if (dataNode == null) {
+            return null;
+        }
+        RouteResultset rrs = new RouteResultset(stmt, sqlType);
+        rrs.setSchema(schema);
+        rrs.setTable(table);
+        rrs.setTableAlias(tableAlias);
+        if (primaryKey != null) {
+            rrs.setPrimaryKey(primaryKey);
+        }
+        rrs.setCacheAble(cacheAble);
+        rrs.setCanRunInReadDB(canRunInReadDB);
+        rrs.setRunOnSlave(runOnSlave);
+        return RouterUtil.routeToSingleNode(rrs, dataNode);
+    }
+
+    /**
+     * analyze the statement which has just been routed to rrs the normal way
+     */
+    public static RouteShapePlan analyze(SchemaConfig schema, String stmt, SqlShape shape, RouteResultset rrs) {
+        if (!isSingleNodeRoute(stmt, rrs)) {
+            return NOT_CACHEABLE;
+        }
+        SQLStatement statement;
+        try {
+            statement = new MySqlStatementParser(stmt).parseStatement();
+        } catch (Exception e) {
+            return NOT_CACHEABLE;
+        }
+        ShardingLiteral literal = findShardingLiteral(schema, statement);
+        if (literal == null || literal.value == null) {
+            return NOT_CACHEABLE;
+        }
+        int literalIndex = -1;
+        for (int i = 0; i < shape.getLiteralCount(); i++) {
+            if (shape.isStringLiteral(i) == literal.isString && literal.value.equals(shape.getValue(i))) {
+                if (literalIndex >= 0) {
+                    // the same value appears twice, can't tell which one is the sharding one
+                    return NOT_CACHEABLE;
+                }
+                literalIndex = i;
+            }
+        }
+        if (literalIndex < 0 || !rrs.getNodes()[0].getName().equals(calculate(literal.tc, literal.value))) {
+            return NOT_CACHEABLE;
+        }
+        return newPlan(literal.tc, literalIndex, rrs);
+    }
+
+    /**
+     * analyze the statement of a server side prepared statement, whose execution stmt with the
+     * parameters has just been routed to rrs the normal way. The parameter compared with the sharding
+     * column is found in the prepared sql, the plan routes the later executions by its bound value.
+     *
+     * @param parameters the values of the execution as the text of their literals, null if unknown
+     */
+    public static RouteShapePlan analyzePrepared(SchemaConfig schema, String preparedSql, int parameterCount,
+                                                 String[] parameters, String stmt, RouteResultset rrs) {
+        if (!isSingleNodeRoute(stmt, rrs)) {
+            return NOT_CACHEABLE;
+        }
+        SQLStatement statement;
+        try {
+            statement = new MySqlStatementParser(preparedSql).parseStatement();
+        } catch (Exception e) {
+            return NOT_CACHEABLE;
+        }
+        ParameterCountVisitor visitor = new ParameterCountVisitor();
+        statement.accept(visitor);
+        // a ? in a literal or a comment is counted as a parameter too
+        if (visitor.count != parameterCount) {
+            return NOT_CACHEABLE;
+        }
+        ShardingLiteral literal = findShardingLiteral(schema, statement);
+        if (literal == null || literal.parameterIndex < 0 || literal.parameterIndex >= parameters.length) {
+            return NOT_CACHEABLE;
+        }
+        String value = parameters[literal.parameterIndex];
+        if (value == null || !rrs.getNodes()[0].getName().equals(calculate(literal.tc, value))) {
+            return NOT_CACHEABLE;
+        }
+        return newPlan(literal.tc, literal.parameterIndex, rrs);
+    }
+
+    private static RouteShapePlan newPlan(TableConfig tc, int literalIndex, RouteResultset rrs) {
+        RouteShapePlan plan = new RouteShapePlan(tc, literalIndex);
+        plan.schema = rrs.getSchema();
+        plan.table = rrs.getTable();
+        plan.tableAlias = rrs.getTableAlias();
+        plan.primaryKey = rrs.getPrimaryKey();
+        plan.cacheAble = rrs.isCacheAble();
+        plan.canRunInReadDB = rrs.getCanRunInReadDB();
+        plan.runOnSlave = rrs.getRunOnSlave();
+        return plan;
+    }
+
+    private static boolean isSingleNodeRoute(String stmt, RouteResultset rrs) {
+        return rrs != null && rrs.getNodes() != null && rrs.getNodes().length == 1 && !rrs.isGlobalTable() &&
+                !rrs.isLoadData() && !rrs.isCallStatement() && !rrs.isNeedOptimizer() && !rrs.isFinishedExecute() &&
+                stmt.equals(rrs.getStatement()) && stmt.equals(rrs.getNodes()[0].getStatement());
+    }
+
+    private static String calculate(TableConfig tc, String value) {
+        Integer nodeIndex;
+        try {
+            nodeIndex = tc.getRule().getRuleAlgorithm().calculate(value);
+        } catch (RuntimeException e) {
+            return null;
+        }
+        if (nodeIndex == null || nodeIndex < 0 || nodeIndex >= tc.getDataNodes().size()) {
+            return null;
+        }
+        return tc.getDataNodes().get(nodeIndex);
+    }
+
+    private static ShardingLiteral findShardingLiteral(SchemaConfig schema, SQLStatement statement) {
+        if (statement instanceof MySqlInsertStatement) {
+            MySqlInsertStatement insert = (MySqlInsertStatement) statement;
+            TableConfig tc = getShardingTable(schema, insert.getTableSource());
+            if (tc == null || tc.isAutoIncrement() || insert.getQuery() != null || insert.getValuesList().size() != 1) {
+                return null;
+            }
+            return findInsertLiteral(tc, insert.getColumns(), insert.getValuesList().get(0).getValues());
+        }
+        SQLTableSource tableSource;
+        SQLExpr where;
+        if (statement instanceof SQLSelectStatement) {
+            SQLSelectQuery query = ((SQLSelectStatement) statement).getSelect().getQuery();
+            if (!(query instanceof MySqlSelectQueryBlock)) {
+                return null;
+            }
+            MySqlSelectQueryBlock block = (MySqlSelectQueryBlock) query;
+            // for update/lock in share mode depends on the autocommit of the session
+            if (block.isForUpdate() || block.isLockInShareMode()) {
+                return null;
+            }
+            tableSource = block.getFrom();
+            where = block.getWhere();
+        } else if (statement instanceof MySqlUpdateStatement) {
+            tableSource = ((MySqlUpdateStatement) statement).getTableSource();
+            where = ((MySqlUpdateStatement) statement).getWhere();
+        } else if (statement instanceof MySqlDeleteStatement) {
+            MySqlDeleteStatement delete = (MySqlDeleteStatement) statement;
+            if (delete.getFrom() != null || delete.getUsing() != null) {
+                return null;
+            }
+            tableSource = delete.getTableSource();
+            where = delete.getWhere();
+        } else {
+            return null;
+        }
+        if (!(tableSource instanceof SQLExprTableSource) || where == null) {
+            return null;
+        }
+        TableConfig tc = getShardingTable(schema, (SQLExprTableSource) tableSource);
+        if (tc == null) {
+            return null;
+        }
+        return findWhereLiteral(tc, where);
+    }
+
+    /**
+     * the table must be a sharding table without parent, written without schema
+     */
+    private static TableConfig getShardingTable(SchemaConfig schema, SQLExprTableSource tableSource) {
+        if (!(tableSource.getExpr() instanceof SQLIdentifierExpr)) {
+            return null;
+        }
+        String table = StringUtil.removeBackQuote(((SQLIdentifierExpr) tableSource.getExpr()).getName());
+        if (DbleServer.getInstance().getSystemVariables().isLowerCaseTableNames()) {
+            table = table.toLowerCase();
+        }
+        TableConfig tc = schema.getTables().get(table);
+        if (tc == null || tc.isGlobalTable() || tc.getParentTC() != null || tc.getRule() == null) {
+            return null;
+        }
+        return tc;
+    }
+
+    private static ShardingLiteral findInsertLiteral(TableConfig tc, List<SQLExpr> columns, List<SQLExpr> values) {
+        if (columns.isEmpty() || columns.size() != values.size()) {
+            return null;
+        }
+        ShardingLiteral literal = null;
+        for (int i = 0; i < columns.size(); i++) {
+            if (isShardingColumn(tc, columns.get(i))) {
+                if (literal != null) {
+                    return null;
+                }
+                literal = toLiteral(tc, values.get(i));
+                if (literal == null) {
+                    return null;
+                }
+            }
+        }
+        return literal;
+    }
+
+    /**
+     * the sharding column must appear only once in where, in the condition `column = literal` which
+     * is ANDed with the others, and there must be no sub query
+     */
+    private static ShardingLiteral findWhereLiteral(TableConfig tc, SQLExpr where) {
+        ColumnCountVisitor visitor = new ColumnCountVisitor(tc);
+        where.accept(visitor);
+        if (visitor.hasSubQuery || visitor.count != 1) {
+            return null;
+        }
+        List<SQLExpr> conditions = new ArrayList<>();
+        splitAnd(where, conditions);
+        for (SQLExpr condition : conditions) {
+            if (!(condition instanceof SQLBinaryOpExpr)) {
+                continue;
+            }
+            SQLBinaryOpExpr binaryOpExpr = (SQLBinaryOpExpr) condition;
+            if (binaryOpExpr.getOperator() != SQLBinaryOperator.Equality) {
+                continue;
+            }
+            if (isShardingColumn(tc, binaryOpExpr.getLeft())) {
+                return toLiteral(tc, binaryOpExpr.getRight());
+            } else if (isShardingColumn(tc, binaryOpExpr.getRight())) {
+                return toLiteral(tc, binaryOpExpr.getLeft());
+            }
+        }
+        return null;
+    }
+
+    private static void splitAnd(SQLExpr expr, List<SQLExpr> conditions) {
+        if (expr instanceof SQLBinaryOpExpr && ((SQLBinaryOpExpr) expr).getOperator() == SQLBinaryOperator.BooleanAnd) {
+            splitAnd(((SQLBinaryOpExpr) expr).getLeft(), conditions);
+            splitAnd(((SQLBinaryOpExpr) expr).getRight(), conditions);
+        } else {
+            conditions.add(expr);
+        }
+    }
+
+    private static boolean isShardingColumn(TableConfig tc, SQLExpr expr) {
+        String name;
+        if (expr instanceof SQLIdentifierExpr) {
+            name = ((SQLIdentifierExpr) expr).getName();
+        } else if (expr instanceof SQLPropertyExpr) {
+            name = ((SQLPropertyExpr) expr).getName();
+        } else {
+            return false;
+        }
+        return StringUtil.removeBackQuote(name).equalsIgnoreCase(tc.getPartitionColumn());
+    }
+
+    private static ShardingLiteral toLiteral(TableConfig tc, SQLExpr expr) {
+        if (expr instanceof SQLIntegerExpr) {
+            return new ShardingLiteral(tc, ((SQLIntegerExpr) expr).getNumber().toString(), false);
+        } else if (expr instanceof SQLNumberExpr) {
+            return new ShardingLiteral(tc, ((SQLNumberExpr) expr).getNumber().toString(), false);
+        } else if (expr instanceof SQLCharExpr) {
+            return new ShardingLiteral(tc, ((SQLCharExpr) expr).getText(), true);
+        } else if (isParameter(expr)) {
+            return new ShardingLiteral(tc, ((SQLVariantRefExpr) expr).getIndex());
+        }
+        return null;
+    }
+
+    private static boolean isParameter(SQLExpr expr) {
+        return expr instanceof SQLVariantRefExpr && "?".equals(((SQLVariantRefExpr) expr).getName());
+    }
+
+    private static final class ShardingLiteral {
+        private final TableConfig tc;
+        private final String value;
+        private final boolean isString;
+        private final int parameterIndex;
+
+        ShardingLiteral(TableConfig tc, String value, boolean isString) {
+            this.tc = tc;
+            this.value = value;
+            this.isString = isString;
+            this.parameterIndex = -1;
+        }
+
+        ShardingLiteral(TableConfig tc, int parameterIndex) {
+            this.tc = tc;
+            this.value = null;
+            this.isString = false;
+            this.parameterIndex = parameterIndex;
+        }
+    }
+
+    private static final class ParameterCountVisitor extends MySqlASTVisitorAdapter {
+        private int count = 0;
+
+        @Override
+        public boolean visit(SQLVariantRefExpr x) {
+            if (isParameter(x)) {
+                count++;
+            }
+            return true;
+        }
+    }
+
+    private static final class ColumnCountVisitor extends MySqlASTVisitorAdapter {
+        private final TableConfig tc;
+        private int count = 0;
+        private boolean hasSubQuery = false;
+
+        ColumnCountVisitor(TableConfig tc) {
+            this.tc = tc;
+        }
+
+        @Override
+        public boolean visit(SQLIdentifierExpr x) {
+            if (isShardingColumn(tc, x)) {
+                count++;
+            }
+            return true;
+        }
+
+        @Override
+        public boolean visit(SQLPropertyExpr x) {
+            if (isShardingColumn(tc, x)) {
+                count++;
+            }
+            return true;
+        }
+
+        @Override
+        public boolean visit(SQLQueryExpr x) {
+            hasSubQuery = true;
+            return false;
+        }
+
+        @Override
+        public boolean visit(SQLInSubQueryExpr x) {
+            hasSubQuery = true;
+            return false;
+        }
+
+        @Override
+        public boolean visit(SQLExistsExpr x) {
+            hasSubQuery = true;
+            return false;
+        }
+
+        @Override
+        public boolean visit(SQLAllExpr x) {
+            hasSubQuery = true;
+            return false;
+        }
+
+        @Override
+        public boolean visit(SQLAnyExpr x) {
+            hasSubQuery = true;
+            return false;
+        }
+
+        @Override
+        public boolean visit(SQLSomeExpr x) {
+            hasSubQuery = true;
+            return false;
+        }
+    }
+}
@@ -9,6 +9,7 @@ import com.actiontech.dble.config.model.TableConfig;
 import com.actiontech.dble.config.model.rule.RuleAlgorithm;
 
 import java.io.Serializable;
+import java.nio.charset.StandardCharsets;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -45,6 +46,33 @@ public abstract class AbstractPartitionAlgorithm implements RuleAlgorithm, Seria
     public void init() {
     }
 
+    /**
+     * calculate with a number, the functions which work on numbers override it to skip the parsing
+     */
+    public Integer calculate(long columnValue) {
+        return calculate(String.valueOf(columnValue));
+    }
+
+    /**
+     * calculate with the bytes of the value, such as a value in a packet
+     */
+    public Integer calculate(byte[] columnValue, int offset, int length) {
+        return calculate(new String(columnValue, offset, length, StandardCharsets.UTF_8));
+    }
+
+    /**
+     * calculate the values of a multi-rows insert or an in-list at a time
+     *
+     * @return the index of node of every value, null if no node matches the value
+     */
+    public Integer[] calculateBatch(String[] columnValues) {
+        Integer[] nodeIndexes = new Integer[columnValues.length];
+        for (int i = 0; i < columnValues.length; i++) {
+            nodeIndexes[i] = calculate(columnValues[i]);
+        }
+        return nodeIndexes;
+    }
+
     /**
      * return the index of node
      * retrun an empty array means router to all node
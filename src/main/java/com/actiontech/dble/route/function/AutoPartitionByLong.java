@@ -25,6 +25,9 @@ public class AutoPartitionByLong extends AbstractPartitionAlgorithm implements R
     private static final Logger LOGGER = LoggerFactory.getLogger(AutoPartitionByLong.class);
     private String mapFile;
     private LongRange[] longRanges;
+    /* longRanges sorted by start for binary search, or longRanges itself if some ranges overlap */
+    private LongRange[] searchRanges;
+    private boolean rangesSorted;
     private int defaultNode = -1;
     private int hashCode = 1;
 
@@ -42,22 +45,25 @@ public class AutoPartitionByLong extends AbstractPartitionAlgorithm implements R
     public Integer calculate(String columnValue) {
         //columnValue = NumberParseUtil.eliminateQuote(columnValue);
         try {
-            long value = Long.parseLong(columnValue);
-            for (LongRange longRang : this.longRanges) {
-                if (value <= longRang.getValueEnd() && value >= longRang.getValueStart()) {
-                    return longRang.getNodeIndex();
-                }
-            }
-            // use default node for other value
-            if (defaultNode >= 0) {
-                return defaultNode;
-            }
-            return null;
+            return calculate(Long.parseLong(columnValue));
         } catch (NumberFormatException e) {
             throw new IllegalArgumentException("columnValue:" + columnValue + " Please eliminate any quote and non number within it.", e);
         }
     }
 
+    @Override
+    public Integer calculate(long columnValue) {
+        LongRange longRange = LongRange.find(searchRanges, rangesSorted, columnValue);
+        if (longRange != null) {
+            return longRange.getNodeIndex();
+        }
+        // use default node for other value
+        if (defaultNode >= 0) {
+            return defaultNode;
+        }
+        return null;
+    }
+
     /**
      * @param columnValue
      * @return
@@ -65,18 +71,10 @@ public class AutoPartitionByLong extends AbstractPartitionAlgorithm implements R
     public boolean isUseDefaultNode(String columnValue) {
         try {
             long value = Long.parseLong(columnValue);
-            for (LongRange longRang : this.longRanges) {
-                if (value <= longRang.getValueEnd() && value >= longRang.getValueStart()) {
-                    return false;
-                }
-            }
-            if (defaultNode >= 0) {
-                return true;
-            }
+            return LongRange.find(searchRanges, rangesSorted, value) == null && defaultNode >= 0;
         } catch (NumberFormatException e) {
             throw new IllegalArgumentException("columnValue:" + columnValue + " Please eliminate any quote and non number within it.", e);
         }
-        return false;
     }
 
 
@@ -155,6 +153,12 @@ public class AutoPartitionByLong extends AbstractPartitionAlgorithm implements R
                 sb.append("\"");
             }
             longRanges = longRangeList.toArray(new LongRange[longRangeList.size()]);
+            searchRanges = LongRange.sortIfDisjoint(longRanges);
+            rangesSorted = searchRanges != null;
+            if (!rangesSorted) {
+                LOGGER.info("the ranges in " + mapFile + " overlap, the first matched one in the file is used");
+                searchRanges = longRanges;
+            }
             sb.append("}");
             propertiesMap.put("mapFile", sb.toString());
         } catch (Exception e) {
@@ -6,6 +6,8 @@
 package com.actiontech.dble.route.function;
 
 import java.io.Serializable;
+import java.util.Arrays;
+import java.util.Comparator;
 
 public class LongRange implements Serializable {
     private final int nodeIndex;
@@ -37,6 +39,56 @@ public class LongRange implements Serializable {
     public long getValueEnd() {
         return valueEnd;
     }
+
+    /**
+     * sort the ranges by start for binary search
+     *
+     * @return null if some ranges overlap, the first one in the config file must be used for such a value
+     */
+    public static LongRange[] sortIfDisjoint(LongRange[] ranges) {
+        LongRange[] sorted = Arrays.copyOf(ranges, ranges.length);
+        Arrays.sort(sorted, new Comparator<LongRange>() {
+            @Override
+            public int compare(LongRange o1, LongRange o2) {
+                return Long.compare(o1.valueStart, o2.valueStart);
+            }
+        });
+        for (int i = 1; i < sorted.length; i++) {
+            if (sorted[i].valueStart <= sorted[i - 1].valueEnd) {
+                return null;
+            }
+        }
+        return sorted;
+    }
+
+    /**
+     * @param ranges sorted by {@link #sortIfDisjoint}, or in the config order if they overlap
+     * @return null if no range contains the value
+     */
+    public static LongRange find(LongRange[] ranges, boolean sorted, long value) {
+        if (!sorted) {
+            for (LongRange range : ranges) {
+                if (value <= range.valueEnd && value >= range.valueStart) {
+                    return range;
+                }
+            }
+            return null;
+        }
+        int low = 0;
+        int high = ranges.length - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            LongRange range = ranges[mid];
+            if (value < range.valueStart) {
+                high = mid - 1;
+            } else if (value > range.valueEnd) {
+                low = mid + 1;
+            } else {
+                return range;
+            }
+        }
+        return null;
+    }
     @Override
     public boolean equals(Object o) {
         if (this == o) {
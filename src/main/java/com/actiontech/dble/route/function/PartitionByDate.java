@@ -35,6 +35,8 @@ public class PartitionByDate extends AbstractPartitionAlgorithm implements RuleA
     private int nCount;
     private int defaultNode = -1;
     private transient ThreadLocal<SimpleDateFormat> formatter;
+    /* the format keeps the day, a parsed time plus some days is a parsed time too */
+    private transient boolean dayFormat;
     private static final long ONE_DAY = 86400000;
     private int hashCode = -1;
 
@@ -49,6 +51,7 @@ public class PartitionByDate extends AbstractPartitionAlgorithm implements RuleA
                 endDate = new SimpleDateFormat(dateFormat).parse(sEndDate).getTime();
                 nCount = (int) ((endDate - beginDate) / partitionTime) + 1;
             }
+            dayFormat = hasDayField(dateFormat);
             formatter = new ThreadLocal<SimpleDateFormat>() {
                 @Override
                 protected SimpleDateFormat initialValue() {
@@ -62,25 +65,53 @@ public class PartitionByDate extends AbstractPartitionAlgorithm implements RuleA
         initHashCode();
     }
 
+    private static boolean hasDayField(String pattern) {
+        boolean quoted = false;
+        for (char c : pattern.toCharArray()) {
+            if (c == '\'') {
+                quoted = !quoted;
+            } else if (!quoted && "dDEuF".indexOf(c) >= 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
     @Override
     public Integer calculate(String columnValue) {
-        try {
-            long targetTime = formatter.get().parse(columnValue).getTime();
-            if (targetTime < beginDate) {
-                return (defaultNode >= 0) ? defaultNode : null;
-            }
-            int targetPartition = (int) ((targetTime - beginDate) / partitionTime);
+        return calculate(formatter.get(), columnValue);
+    }
 
-            if (targetTime > endDate && nCount != 0) {
-                targetPartition = targetPartition % nCount;
-            }
-            return targetPartition;
+    @Override
+    public Integer[] calculateBatch(String[] columnValues) {
+        SimpleDateFormat format = formatter.get();
+        Integer[] nodeIndexes = new Integer[columnValues.length];
+        for (int i = 0; i < columnValues.length; i++) {
+            nodeIndexes[i] = calculate(format, columnValues[i]);
+        }
+        return nodeIndexes;
+    }
 
+    private Integer calculate(SimpleDateFormat format, String columnValue) {
+        try {
+            return calculateByTime(format.parse(columnValue).getTime());
         } catch (ParseException e) {
             throw new IllegalArgumentException("columnValue:" + columnValue + " Please check if the format satisfied.", e);
         }
     }
 
+    private Integer calculateByTime(long targetTime) {
+        if (targetTime < beginDate) {
+            return (defaultNode >= 0) ? defaultNode : null;
+        }
+        int targetPartition = (int) ((targetTime - beginDate) / partitionTime);
+
+        if (targetTime > endDate && nCount != 0) {
+            targetPartition = targetPartition % nCount;
+        }
+        return targetPartition;
+    }
+
     @Override
     public Integer[] calculateRange(String beginValue, String endValue) {
         SimpleDateFormat format = new SimpleDateFormat(this.dateFormat);
@@ -88,21 +119,22 @@ public class PartitionByDate extends AbstractPartitionAlgorithm implements RuleA
             Date begin = format.parse(beginValue);
             Date end = format.parse(endValue);
             Calendar cal = Calendar.getInstance();
-            List<Integer> list = new ArrayList<>();
-            while (begin.getTime() <= end.getTime()) {
-                Integer nodeValue = this.calculate(format.format(begin));
-                if (Collections.frequency(list, nodeValue) < 1) list.add(nodeValue);
+            Set<Integer> nodes = new LinkedHashSet<>();
+            int partitions = 0;
+            // stop when all the partitions are found
+            while (begin.getTime() <= end.getTime() && (nCount == 0 || partitions < nCount)) {
+                // a format with the day parses to the day itself, a coarser one like yyyy-MM truncates it
+                long time = dayFormat ? begin.getTime() : format.parse(format.format(begin)).getTime();
+                Integer nodeValue = calculateByTime(time);
+                if (nodes.add(nodeValue) && nodeValue != null && nodeValue < nCount && nodeValue >= 0) {
+                    partitions++;
+                }
                 cal.setTime(begin);
                 cal.add(Calendar.DATE, 1);
                 begin = cal.getTime();
             }
 
-            Integer[] nodeArray = new Integer[list.size()];
-            for (int i = 0; i < list.size(); i++) {
-                nodeArray[i] = list.get(i);
-            }
-
-            return nodeArray;
+            return nodes.toArray(new Integer[nodes.size()]);
         } catch (ParseException e) {
             LOGGER.info("error", e);
             return new Integer[0];
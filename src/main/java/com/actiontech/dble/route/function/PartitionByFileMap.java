@@ -81,6 +81,18 @@ public class PartitionByFileMap extends AbstractPartitionAlgorithm implements Ru
         }
     }
 
+    @Override
+    public Integer calculate(long columnValue) {
+        if (type != 0) {
+            return calculate(String.valueOf(columnValue));
+        }
+        if (columnValue > Integer.MAX_VALUE || columnValue < Integer.MIN_VALUE) {
+            throw new IllegalArgumentException("columnValue:" + columnValue + " Please check if the format satisfied.");
+        }
+        Integer pid = app2Partition.get((int) columnValue);
+        return pid != null ? pid : app2Partition.get(DEFAULT_NODE);
+    }
+
     @Override
     public Integer[] calculateRange(String beginValue, String endValue) {
         //all node
@@ -41,7 +41,8 @@ public final class PartitionByLong extends AbstractPartitionAlgorithm implements
         initHashCode();
     }
 
-    private Integer calculate(long key) {
+    @Override
+    public Integer calculate(long key) {
         return partitionUtil.partition(key);
     }
 
@@ -28,6 +28,7 @@ public class PartitionByPattern extends AbstractPartitionAlgorithm implements Ru
     private int patternValue = PARTITION_LENGTH; // mod value
     private String mapFile;
     private LongRange[] longRanges;
+    private boolean rangesDisjoint;
     private Integer[] allNode;
     private int defaultNode = -1; // default node for unexpected value
     private static final Pattern PATTERN = Pattern.compile("[0-9]*");
@@ -54,12 +55,8 @@ public class PartitionByPattern extends AbstractPartitionAlgorithm implements Ru
     }
 
     private Integer findNode(long hash) {
-        for (LongRange longRang : this.longRanges) {
-            if (hash <= longRang.getValueEnd() && hash >= longRang.getValueStart()) {
-                return longRang.getNodeIndex();
-            }
-        }
-        return null;
+        LongRange longRange = LongRange.find(this.longRanges, rangesDisjoint, hash);
+        return longRange == null ? null : longRange.getNodeIndex();
     }
 
     @Override
@@ -68,8 +65,16 @@ public class PartitionByPattern extends AbstractPartitionAlgorithm implements Ru
             return defaultNode < 0 ? null : defaultNode;
         }
 
-        long value = Long.parseLong(columnValue);
-        long hash = value % patternValue;
+        return calculate(Long.parseLong(columnValue));
+    }
+
+    @Override
+    public Integer calculate(long columnValue) {
+        if (columnValue < 0) {
+            // not numeric for the string value
+            return defaultNode < 0 ? null : defaultNode;
+        }
+        long hash = columnValue % patternValue;
         return findNode(hash);
     }
 
@@ -216,6 +221,8 @@ public class PartitionByPattern extends AbstractPartitionAlgorithm implements Ru
 
             allNode = ids.toArray(new Integer[ids.size()]);
             longRanges = longRangeList.toArray(new LongRange[longRangeList.size()]);
+            // the ranges are sorted by start already, the first matched one is used if they overlap
+            rangesDisjoint = LongRange.sortIfDisjoint(longRanges) != null;
             sb.append("}");
             propertiesMap.put("mapFile", sb.toString());
         } catch (Exception e) {
@@ -67,6 +67,8 @@ public final class ManagerParseShow {
     public static final int COST_TIME = 51;
     public static final int THREAD_USED = 52;
     public static final int TABLE_ALGORITHM = 53;
+    public static final int SEQUENCE = 54;
+    public static final int XA_COMMIT = 55;
 
     public static final Pattern PATTERN_FOR_TABLE_INFO = Pattern.compile("^(\\s*schema\\s*=\\s*)([a-zA-Z_0-9]+)" +
             "(\\s+and\\s+table\\s*=\\s*)([a-zA-Z_0-9]+)\\s*$", Pattern.CASE_INSENSITIVE);
@@ -127,6 +129,9 @@ public final class ManagerParseShow {
                 case 'W':
                 case 'w':
                     return show2WCheck(stmt, offset);
+                case 'X':
+                case 'x':
+                    return show2XaCommitCheck(stmt, offset);
                 default:
                     return OTHER;
             }
@@ -1064,7 +1069,11 @@ public final class ManagerParseShow {
 
     // SHOW @@SERVER
     // SHOW @@SESSION
+    // SHOW @@SEQUENCE
     private static int show2SeCheck(String stmt, int offset) {
+        if (stmt.length() > offset + 1 && (stmt.charAt(offset + 1) == 'Q' || stmt.charAt(offset + 1) == 'q')) {
+            return show2SequenceCheck(stmt, offset);
+        }
         if (stmt.length() > offset + "SSION".length()) {
             char c1 = stmt.charAt(++offset);
             char c2 = stmt.charAt(++offset);
@@ -1095,6 +1104,49 @@ public final class ManagerParseShow {
         return OTHER;
     }
 
+    // SHOW @@SEQUENCE
+    private static int show2SequenceCheck(String stmt, int offset) {
+        if (stmt.length() > offset + "QUENCE".length()) {
+            char c1 = stmt.charAt(++offset);
+            char c2 = stmt.charAt(++offset);
+            char c3 = stmt.charAt(++offset);
+            char c4 = stmt.charAt(++offset);
+            char c5 = stmt.charAt(++offset);
+            char c6 = stmt.charAt(++offset);
+            if ((c1 == 'Q' || c1 == 'q') && (c2 == 'U' || c2 == 'u') && (c3 == 'E' || c3 == 'e') &&
+                    (c4 == 'N' || c4 == 'n') && (c5 == 'C' || c5 == 'c') && (c6 == 'E' || c6 == 'e')) {
+                if (ParseUtil.isErrorTail(++offset, stmt)) {
+                    return OTHER;
+                }
+                return SEQUENCE;
+            }
+        }
+        return OTHER;
+    }
+
+    // SHOW @@XA.COMMIT
+    private static int show2XaCommitCheck(String stmt, int offset) {
+        if (stmt.length() > offset + "A.COMMIT".length()) {
+            char c1 = stmt.charAt(++offset);
+            char c2 = stmt.charAt(++offset);
+            char c3 = stmt.charAt(++offset);
+            char c4 = stmt.charAt(++offset);
+            char c5 = stmt.charAt(++offset);
+            char c6 = stmt.charAt(++offset);
+            char c7 = stmt.charAt(++offset);
+            char c8 = stmt.charAt(++offset);
+            if ((c1 == 'A' || c1 == 'a') && c2 == '.' && (c3 == 'C' || c3 == 'c') && (c4 == 'O' || c4 == 'o') &&
+                    (c5 == 'M' || c5 == 'm') && (c6 == 'M' || c6 == 'm') && (c7 == 'I' || c7 == 'i') &&
+                    (c8 == 'T' || c8 == 't')) {
+                if (ParseUtil.isErrorTail(++offset, stmt)) {
+                    return OTHER;
+                }
+                return XA_COMMIT;
+            }
+        }
+        return OTHER;
+    }
+
     // SHOW @@THREADPOOL
     private static int show2ThCheck(String stmt, int offset) {
         if (stmt.length() > offset + "READ ".length()) {
@@ -253,18 +253,24 @@ public class DruidInsertParser extends DruidInsertReplaceParser {
         Map<Integer, List<ValuesClause>> nodeValuesMap = new HashMap<>();
         TableConfig tableConfig = schema.getTables().get(tableName);
         AbstractPartitionAlgorithm algorithm = tableConfig.getRule().getRuleAlgorithm();
-        for (ValuesClause valueClause : valueClauseList) {
+        String[] shardingValues = new String[valueClauseList.size()];
+        for (int i = 0; i < valueClauseList.size(); i++) {
+            ValuesClause valueClause = valueClauseList.get(i);
             if (valueClause.getValues().size() != columnNum) {
                 String msg = "bad insert sql columnSize != valueSize:" + columnNum + " != " + valueClause.getValues().size() + "values:" + valueClause;
                 LOGGER.info(msg);
                 throw new SQLNonTransientException(msg);
             }
             SQLExpr expr = valueClause.getValues().get(shardingColIndex);
-            String shardingValue = shardingValueToSting(expr);
-            Integer nodeIndex = algorithm.calculate(shardingValue);
+            shardingValues[i] = shardingValueToSting(expr);
+        }
+        Integer[] nodeIndexes = algorithm.calculateBatch(shardingValues);
+        for (int i = 0; i < valueClauseList.size(); i++) {
+            ValuesClause valueClause = valueClauseList.get(i);
+            Integer nodeIndex = nodeIndexes[i];
             // null means can't find any valid index
             if (nodeIndex == null) {
-                String msg = "can't find any valid datanode :" + tableName + " -> " + partitionColumn + " -> " + shardingValue;
+                String msg = "can't find any valid datanode :" + tableName + " -> " + partitionColumn + " -> " + shardingValues[i];
                 LOGGER.info(msg);
                 throw new SQLNonTransientException(msg);
             }
@@ -374,18 +380,7 @@ public class DruidInsertParser extends DruidInsertReplaceParser {
 
         sb.append(" values");
         String tableKey = StringUtil.getFullName(schemaInfo.getSchema(), schemaInfo.getTable());
-        List<ValuesClause> vcl = insert.getValuesList();
-        if (vcl != null && vcl.size() > 1) { // batch insert
-            for (int j = 0; j < vcl.size(); j++) {
-                if (j != vcl.size() - 1)
-                    appendValues(tableKey, vcl.get(j).getValues(), sb, autoIncrement, idxGlobal, colSize).append(",");
-                else
-                    appendValues(tableKey, vcl.get(j).getValues(), sb, autoIncrement, idxGlobal, colSize);
-            }
-        } else {
-            List<SQLExpr> values = insert.getValues().getValues();
-            appendValues(tableKey, values, sb, autoIncrement, idxGlobal, colSize);
-        }
+        appendValuesList(tableKey, insert, sb, autoIncrement, idxGlobal, colSize);
 
         List<SQLExpr> dku = insert.getDuplicateKeyUpdate();
         if (dku != null && dku.size() > 0) {
@@ -453,7 +448,30 @@ public class DruidInsertParser extends DruidInsertReplaceParser {
         sb.append(")");
     }
 
-    private static StringBuilder appendValues(String tableKey, List<SQLExpr> values, StringBuilder sb, int autoIncrement, int idxGlobal,
+    private static void appendValuesList(String tableKey, MySqlInsertStatement insert, StringBuilder sb, int autoIncrement,
+                                         int idxGlobal, int colSize) throws SQLNonTransientException {
+        List<ValuesClause> vcl = insert.getValuesList();
+        boolean isBatch = vcl != null && vcl.size() > 1;
+        long[] ids = null;
+        if (autoIncrement >= 0) {
+            // one request to the sequence for all the rows
+            ids = DbleServer.getInstance().getSequenceHandler().nextIds(tableKey, isBatch ? vcl.size() : 1);
+        }
+        if (isBatch) { // batch insert
+            for (int j = 0; j < vcl.size(); j++) {
+                long id = ids == null ? -1 : ids[j];
+                if (j != vcl.size() - 1)
+                    appendValues(id, vcl.get(j).getValues(), sb, autoIncrement, idxGlobal, colSize).append(",");
+                else
+                    appendValues(id, vcl.get(j).getValues(), sb, autoIncrement, idxGlobal, colSize);
+            }
+        } else {
+            List<SQLExpr> values = insert.getValues().getValues();
+            appendValues(ids == null ? -1 : ids[0], values, sb, autoIncrement, idxGlobal, colSize);
+        }
+    }
+
+    private static StringBuilder appendValues(long id, List<SQLExpr> values, StringBuilder sb, int autoIncrement, int idxGlobal,
                                               int colSize) throws SQLNonTransientException {
 
         int size = values.size();
@@ -472,7 +490,6 @@ public class DruidInsertParser extends DruidInsertReplaceParser {
             if (i == idxGlobal) {
                 sb.append(String.valueOf(new Date().getTime()));
             } else if (i == autoIncrement) {
-                long id = DbleServer.getInstance().getSequenceHandler().nextId(tableKey);
                 sb.append(id);
             } else {
                 String value = SQLUtils.toMySqlString(values.get(iValue++));
@@ -21,6 +21,7 @@ import com.actiontech.dble.route.RouteResultset;
 import com.actiontech.dble.route.RouteResultsetNode;
 import com.actiontech.dble.route.parser.druid.RouteCalculateUnit;
 import com.actiontech.dble.route.parser.druid.ServerSchemaStatVisitor;
+import com.actiontech.dble.route.util.InListRewriter;
 import com.actiontech.dble.route.util.RouterUtil;
 import com.actiontech.dble.server.ServerConnection;
 import com.actiontech.dble.server.handler.MysqlInformationSchemaHandler;
@@ -515,6 +516,7 @@ public class DruidSelectParser extends DefaultDruidParser {
                     rrs.changeNodeSqlAfterAddLimit(rrs.getStatement(), rrs.getLimitStart(), rrs.getLimitSize());
                 }
             }
+            tryShrinkInList(schema, rrs, selectStmt);
             rrs.setCacheAble(isNeedCache(schema));
         }
 
@@ -557,6 +559,32 @@ public class DruidSelectParser extends DefaultDruidParser {
         rrs.setFinishedRoute(true);
     }
 
+    /**
+     * every data node gets only the values of the partition column's IN-lists which are calculated to it
+     */
+    private void tryShrinkInList(SchemaConfig schema, RouteResultset rrs, SQLSelectStatement selectStmt) {
+        RouteResultsetNode[] nodes = rrs.getNodes();
+        if (nodes == null || nodes.length < 2 || ctx.getTables().size() != 1) {
+            return;
+        }
+        TableConfig tc = schema.getTables().get(ctx.getTables().get(0));
+        if (tc == null || tc.isGlobalTable() || tc.getPartitionColumn() == null || tc.getRule() == null) {
+            return;
+        }
+        List<String> targetNodes = new ArrayList<>(nodes.length);
+        for (RouteResultsetNode node : nodes) {
+            targetNodes.add(node.getName());
+        }
+        Map<String, String> nodeSqls = InListRewriter.rewrite(selectStmt, tc.getPartitionColumn(),
+                tc.getRule().getRuleAlgorithm(), tc.getDataNodes(), targetNodes);
+        for (RouteResultsetNode node : nodes) {
+            String sql = nodeSqls.get(node.getName());
+            if (sql != null) {
+                node.setStatement(RouterUtil.removeSchema(sql, schema.getName()));
+            }
+        }
+    }
+
     /**
      * getAllConditions
      */
@@ -0,0 +1,179 @@
+/*
+ * Copyright (C) 2016-2018 ActionTech.
+ * License: http://www.gnu.org/licenses/gpl.html GPL version 2 or higher.
+ */
+
+package com.actiontech.dble.route.parser.util;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * SqlShape
+ * <p>
+ * the sql with its plain numeric and quoted string literals replaced by placeholders,
+ * numbers become ? and strings become '?' ("?" for double quoted ones), so the statements
+ * which only differ in their literals have the same shape. The replaced literals are kept
+ * in order. Comments, identifiers and the literals which need unescaping are left as they are.
+ * </p>
+ */
+public final class SqlShape {
+    private final String shape;
+    private final List<String> literals;
+    private final List<Boolean> stringLiterals;
+
+    private SqlShape(String shape, List<String> literals, List<Boolean> stringLiterals) {
+        this.shape = shape;
+        this.literals = literals;
+        this.stringLiterals = stringLiterals;
+    }
+
+    public String getShape() {
+        return shape;
+    }
+
+    public int getLiteralCount() {
+        return literals.size();
+    }
+
+    public String getLiteral(int index) {
+        return literals.get(index);
+    }
+
+    /**
+     * the value of the literal as the parser gives it, the number 007 is 7 and 007.50 is 7.50
+     */
+    public String getValue(int index) {
+        String literal = literals.get(index);
+        if (stringLiterals.get(index)) {
+            return literal;
+        }
+        return literal.indexOf('.') >= 0 ? new BigDecimal(literal).toString() : new BigInteger(literal).toString();
+    }
+
+    public boolean isStringLiteral(int index) {
+        return stringLiterals.get(index);
+    }
+
+    public static SqlShape parse(String sql) {
+        StringBuilder sb = new StringBuilder(sql.length());
+        List<String> literals = new ArrayList<>();
+        List<Boolean> stringLiterals = new ArrayList<>();
+        int len = sql.length();
+        int i = 0;
+        while (i < len) {
+            char c = sql.charAt(i);
+            int end;
+            if (c == '\'' || c == '"') {
+                end = skipQuoted(sql, i, c);
+                if (end < 0) {
+                    // unclosed, leave the rest for the parser to complain about
+                    sb.append(sql, i, len);
+                    break;
+                }
+                String text = sql.substring(i + 1, end - 1);
+                if (text.indexOf('\\') >= 0 || text.indexOf(c) >= 0) {
+                    sb.append(sql, i, end);
+                } else {
+                    sb.append(c).append('?').append(c);
+                    literals.add(text);
+                    stringLiterals.add(Boolean.TRUE);
+                }
+            } else if (c == '`') {
+                end = skipQuoted(sql, i, c);
+                if (end < 0) {
+                    sb.append(sql, i, len);
+                    break;
+                }
+                sb.append(sql, i, end);
+            } else if (c == '/' && i + 1 < len && sql.charAt(i + 1) == '*') {
+                int close = sql.indexOf("*/", i + 2);
+                end = close < 0 ? len : close + 2;
+                sb.append(sql, i, end);
+            } else if (c == '#' || (c == '-' && i + 2 < len && sql.charAt(i + 1) == '-' && ParseUtil.isSpace(sql.charAt(i + 2)))) {
+                int close = sql.indexOf('\n', i);
+                end = close < 0 ? len : close + 1;
+                sb.append(sql, i, end);
+            } else if (isIdentifierPart(c)) {
+                end = skipWord(sql, i);
+                if (Character.isDigit(c) && isNumber(sql, i, end)) {
+                    sb.append('?');
+                    literals.add(sql.substring(i, end));
+                    stringLiterals.add(Boolean.FALSE);
+                } else {
+                    sb.append(sql, i, end);
+                }
+            } else {
+                sb.append(c);
+                end = i + 1;
+            }
+            i = end;
+        }
+        return new SqlShape(sb.toString(), literals, stringLiterals);
+    }
+
+    /**
+     * @return the offset after the closing quote, or -1 if it is not closed
+     */
+    private static int skipQuoted(String sql, int start, char quote) {
+        int len = sql.length();
+        for (int i = start + 1; i < len; i++) {
+            char c = sql.charAt(i);
+            if (c == '\\' && quote != '`') {
+                i++;
+            } else if (c == quote) {
+                if (i + 1 < len && sql.charAt(i + 1) == quote) {
+                    i++;
+                } else {
+                    return i + 1;
+                }
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * a word is an identifier, a keyword or a number, a decimal point inside a number belongs to it
+     */
+    private static int skipWord(String sql, int start) {
+        int len = sql.length();
+        int i = start + 1;
+        while (i < len) {
+            char c = sql.charAt(i);
+            if (isIdentifierPart(c)) {
+                i++;
+            } else if (c == '.' && Character.isDigit(sql.charAt(start)) && i + 1 < len && Character.isDigit(sql.charAt(i + 1))) {
+                i++;
+            } else {
+                break;
+            }
+        }
+        return i;
+    }
+
+    /**
+     * only plain decimal numbers, 0x1f, 1e5 and the identifiers starting with digits are kept
+     */
+    private static boolean isNumber(String sql, int start, int end) {
+        boolean dot = false;
+        for (int i = start; i < end; i++) {
+            char c = sql.charAt(i);
+            if (c == '.') {
+                if (dot) {
+                    return false;
+                }
+                dot = true;
+            } else if (!Character.isDigit(c)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean isIdentifierPart(char c) {
+        return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9') ||
+                c == '_' || c == '$' || c == '@' || c > 0x7f;
+    }
+}
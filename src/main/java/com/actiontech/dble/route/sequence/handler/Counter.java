@@ -15,17 +15,49 @@ public class Counter {
     AtomicLong curVal = new AtomicLong(0);
     //max seg value of this time,if the curVal equals this value than need to find a new segment
     long maxSegValue;
+    final long start;
+    //the value which starts the fetch of the next segment, -1 if no prefetch
+    long prefetchValue = -1;
 
     public Counter(long start, long maxSegValue) {
         LOGGER.info("new counter " + start + "  " + maxSegValue);
         this.maxSegValue = maxSegValue;
+        this.start = start;
         curVal = new AtomicLong(start);
     }
 
+    /**
+     * @return the count of values the counter hands out, which are start + 1 to maxSegValue - 1
+     */
+    public long getSegmentSize() {
+        return maxSegValue - start - 1;
+    }
+
+    public long getCurrent() {
+        return Math.min(curVal.get(), maxSegValue - 1);
+    }
+
     public long getNext() {
         long value = curVal.incrementAndGet();
 
         return maxSegValue > value ? value : -1;
     }
 
+    /**
+     * @return the first of count values, -1 if the segment has not so many values left, which are
+     * not consumed then
+     */
+    public long getNext(int count) {
+        while (true) {
+            long current = curVal.get();
+            long last = current + count;
+            if (last >= maxSegValue) {
+                return -1;
+            }
+            if (curVal.compareAndSet(current, last)) {
+                return current + 1;
+            }
+        }
+    }
+
 }
@@ -25,9 +25,11 @@ import java.io.Closeable;
 import java.io.IOException;
 import java.util.List;
 import java.util.Properties;
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * Deprecated:
@@ -69,10 +71,9 @@ public class DistributedSequenceHandler extends LeaderSelectorListenerAdapter im
     private volatile long instanceId;
     private long clusterId;
 
-    private ThreadLocal<Long> threadInc = new ThreadLocal<>();
-    private ThreadLocal<Long> threadLastTime = new ThreadLocal<>();
-    private ThreadLocal<Long> threadID = new ThreadLocal<>();
-    private long nextID = 0L;
+    // per thread {threadId, increment, last time}
+    private final ThreadLocal<long[]> threadState = new ThreadLocal<>();
+    private final AtomicLong nextID = new AtomicLong(0L);
     private static final String PATH = KVPathUtil.getSequencesPath();
     private static final String INSTANCE_PATH = KVPathUtil.getSequencesInstancePath();
 
@@ -80,6 +81,7 @@ public class DistributedSequenceHandler extends LeaderSelectorListenerAdapter im
     private volatile boolean isLeader = false;
     private volatile String slavePath;
     private volatile boolean ready = false;
+    private final CountDownLatch readyLatch = new CountDownLatch(1);
 
     private CuratorFramework client;
 
@@ -107,7 +109,7 @@ public class DistributedSequenceHandler extends LeaderSelectorListenerAdapter im
             initializeZK(ZkConfig.getInstance().getZkURL());
         } else {
             this.instanceId = Long.parseLong(props.getProperty("INSTANCEID"));
-            this.ready = true;
+            setReady();
         }
         this.clusterId = Long.parseLong(props.getProperty("CLUSTERID"));
         long maxclusterId = 1L << clusterIdBits;
@@ -156,7 +158,7 @@ public class DistributedSequenceHandler extends LeaderSelectorListenerAdapter im
                             Thread.currentThread().yield();
                         }
                         instanceId = Long.parseLong(new String(client.getData().forPath(slavePath)));
-                        ready = true;
+                        setReady();
                     }
                 } catch (Exception e) {
                     LOGGER.info("Caught exception while handling zk!", e);
@@ -167,51 +169,75 @@ public class DistributedSequenceHandler extends LeaderSelectorListenerAdapter im
         timerExecutor.scheduleAtFixedRate(runnable, 1L, selfCheckPeriod, TimeUnit.SECONDS);
     }
 
+    private void setReady() {
+        ready = true;
+        readyLatch.countDown();
+    }
+
     @Override
     public long nextId(String prefixName) {
-        // System.out.println(instanceId);
+        waitReady();
+        return nextThreadId(getThreadState());
+    }
+
+    @Override
+    public long[] nextIds(String prefixName, int count) {
+        waitReady();
+        long[] state = getThreadState();
+        long[] ids = new long[count];
+        for (int i = 0; i < count; i++) {
+            ids[i] = nextThreadId(state);
+        }
+        return ids;
+    }
+
+    private void waitReady() {
+        boolean interrupted = false;
         while (!ready) {
             try {
-                Thread.sleep(50);
+                readyLatch.await();
             } catch (InterruptedException e) {
                 LOGGER.info("Unexpected thread interruption!");
-                Thread.currentThread().interrupt();
+                interrupted = true;
             }
         }
-        long time = System.currentTimeMillis();
-        if (threadLastTime.get() == null) {
-            threadLastTime.set(time);
+        if (interrupted) {
+            Thread.currentThread().interrupt();
         }
-        if (threadInc.get() == null) {
-            threadInc.set(0L);
-        }
-        if (threadID.get() == null) {
-            threadID.set(getNextThreadID());
+    }
+
+    private long[] getThreadState() {
+        long[] state = threadState.get();
+        if (state == null) {
+            state = new long[]{nextID.getAndIncrement(), 0L, System.currentTimeMillis()};
+            threadState.set(state);
         }
-        long a = threadInc.get();
+        return state;
+    }
+
+    /**
+     * the ids of one thread need no lock, the thread id keeps them unique
+     */
+    private long nextThreadId(long[] state) {
+        long time = System.currentTimeMillis();
+        long a = state[1];
         long maxIncrement = 1L << incrementBits;
         if ((a + 1L) >= maxIncrement) {
-            if (threadLastTime.get() == time) {
+            if (state[2] == time) {
                 time = blockUntilNextMillis(time);
             }
-            threadInc.set(0L);
+            state[1] = 0L;
         } else {
-            threadInc.set(a + 1L);
+            state[1] = a + 1L;
         }
-        threadLastTime.set(time);
+        state[2] = time;
         long maxThreadId = 1L << threadIdBits;
         long threadIdShift = instanceIdShift + instanceIdBits;
         long timestampMask = (1L << timestampBits) - 1L;
-        return (((threadID.get() % maxThreadId) << threadIdShift)) | (instanceId << instanceIdShift) |
+        return (((state[0] % maxThreadId) << threadIdShift)) | (instanceId << instanceIdShift) |
                 (clusterId << clusterIdShift) | (a << incrementShift) | (time & timestampMask);
     }
 
-    private synchronized Long getNextThreadID() {
-        long i = nextID;
-        nextID++;
-        return i;
-    }
-
     private long blockUntilNextMillis(long time) {
         while (true) {
             if (System.currentTimeMillis() != time) {
@@ -234,7 +260,7 @@ public class DistributedSequenceHandler extends LeaderSelectorListenerAdapter im
     public void takeLeadership(final CuratorFramework curatorFramework) {
         this.isLeader = true;
         this.instanceId = 1;
-        this.ready = true;
+        setReady();
         this.mark = new int[(int) maxInstanceId];
         List<String> children = null;
         try {
@@ -34,12 +34,12 @@ public class FetchMySQLSequenceHandler implements ResponseHandler {
         try {
             if (LOGGER.isDebugEnabled()) {
                 LOGGER.debug("execute in data node " + seqVal.dataNode +
-                        " for fetch sequence sql " + seqVal.sql);
+                        " for fetch sequence sql " + seqVal.fetchSql);
             }
             // change Select mode to Update mode. Make sure the query send to the write host
             mysqlDN.getConnection(mysqlDN.getDatabase(), true, true,
                     new RouteResultsetNode(seqVal.dataNode, ServerParse.UPDATE,
-                            seqVal.sql), this, seqVal);
+                            seqVal.fetchSql), this, seqVal);
         } catch (Exception e) {
             LOGGER.info("get connection err " + e);
         }
@@ -55,7 +55,7 @@ public class FetchMySQLSequenceHandler implements ResponseHandler {
         conn.setResponseHandler(this);
         ((MySQLConnection) conn).setComplexQuery(true);
         try {
-            conn.query(((SequenceVal) conn.getAttachment()).sql);
+            conn.query(((SequenceVal) conn.getAttachment()).fetchSql);
         } catch (Exception e) {
             executeException(conn, e);
         }
@@ -102,7 +102,7 @@ public class FetchMySQLSequenceHandler implements ResponseHandler {
         if (IncrSequenceMySQLHandler.ERR_SEQ_RESULT.equals(columnVal)) {
             seqVal.dbretVal = IncrSequenceMySQLHandler.ERR_SEQ_RESULT;
             LOGGER.warn(AlarmCode.CORE_SEQUENCE_WARN + " sequnce sql returned err value ,sequence:" +
-                    seqVal.seqName + " " + columnVal + " sql:" + seqVal.sql);
+                    seqVal.seqName + " " + columnVal + " sql:" + seqVal.fetchSql);
         } else {
             seqVal.dbretVal = columnVal;
         }
@@ -52,4 +52,13 @@ public abstract class IncrSequenceHandler implements SequenceHandler {
         return nextId;
 
     }
+
+    @Override
+    public synchronized long[] nextIds(String prefixName, int count) {
+        long[] ids = new long[count];
+        for (int i = 0; i < count; i++) {
+            ids[i] = nextId(prefixName);
+        }
+        return ids;
+    }
 }
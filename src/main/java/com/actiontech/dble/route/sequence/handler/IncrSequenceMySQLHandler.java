@@ -5,11 +5,15 @@
 
 package com.actiontech.dble.route.sequence.handler;
 
+import com.actiontech.dble.DbleServer;
+import com.actiontech.dble.config.model.SystemConfig;
 import com.actiontech.dble.config.util.ConfigException;
+import com.actiontech.dble.log.alarm.AlarmCode;
 import com.actiontech.dble.route.util.PropertiesUtil;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.Collection;
 import java.util.Iterator;
 import java.util.Map;
 import java.util.Set;
@@ -44,6 +48,10 @@ public class IncrSequenceMySQLHandler implements SequenceHandler {
         return dataNodes;
     }
 
+    public Collection<SequenceVal> getSequenceVals() {
+        return seqValueMap.values();
+    }
+
     private void removeDesertedSequenceVals(Properties props) {
         Iterator<Map.Entry<String, SequenceVal>> i = seqValueMap.entrySet().iterator();
         while (i.hasNext()) {
@@ -78,26 +86,64 @@ public class IncrSequenceMySQLHandler implements SequenceHandler {
             throw new ConfigException("can't find definition for sequence :" + seqName);
         }
         if (!seqVal.isSuccessFetched()) {
-            return getSeqValueFromDB(seqVal);
+            return getSeqValueFromDB(seqVal, null);
         } else {
             return getNextValidSeqVal(seqVal);
         }
 
     }
 
-    private Long getNextValidSeqVal(SequenceVal seqVal) throws SQLNonTransientException {
-        Long nexVal = seqVal.counter.getNext();
-        if (nexVal != -1) {
-            return nexVal;
-        } else {
-            return getSeqValueFromDB(seqVal);
+    @Override
+    public long[] nextIds(String seqName, int count) throws SQLNonTransientException {
+        SequenceVal seqVal = seqValueMap.get(seqName);
+        if (seqVal == null) {
+            throw new ConfigException("can't find definition for sequence :" + seqName);
+        }
+        long[] ids = new long[count];
+        int got = 0;
+        if (seqVal.isSuccessFetched()) {
+            // take the whole batch from the current segment if it is big enough
+            Counter counter = seqVal.counter;
+            long first = counter.getNext(count);
+            if (first != -1) {
+                for (; got < count; got++) {
+                    ids[got] = first + got;
+                }
+                if (counter.prefetchValue >= first && counter.prefetchValue < first + count) {
+                    prefetch(seqVal);
+                }
+            }
         }
+        for (; got < count; got++) {
+            ids[got] = nextId(seqName);
+        }
+        return ids;
     }
 
-    private long getSeqValueFromDB(SequenceVal seqVal) throws SQLNonTransientException {
+    private long getNextValidSeqVal(SequenceVal seqVal) throws SQLNonTransientException {
+        while (true) {
+            Counter counter = seqVal.counter;
+            long nexVal = counter.getNext();
+            if (nexVal != -1) {
+                if (nexVal == counter.prefetchValue) {
+                    prefetch(seqVal);
+                }
+                return nexVal;
+            }
+            if (!seqVal.switchToPrefetched(counter)) {
+                return getSeqValueFromDB(seqVal, counter);
+            }
+        }
+    }
+
+    /**
+     * @param used the counter which is used up, null if no segment is fetched yet
+     */
+    private long getSeqValueFromDB(SequenceVal seqVal, Counter used) throws SQLNonTransientException {
+        seqVal.recordStall();
         if (seqVal.fetching.compareAndSet(false, true)) {
             //if get the lock ,connect to mysql and get next
-            return this.execSeqFetcher(seqVal);
+            return this.execSeqFetcher(seqVal, used);
         } else {
             //other who does get the lock just wait for awhile
             return this.waitForResult(seqVal);
@@ -108,27 +154,16 @@ public class IncrSequenceMySQLHandler implements SequenceHandler {
      * get the next segment & get the value[0]
      *
      * @param seqVal
+     * @param used
      * @return
      * @throws SQLNonTransientException
      */
-    private long execSeqFetcher(SequenceVal seqVal) throws SQLNonTransientException {
+    private long execSeqFetcher(SequenceVal seqVal, Counter used) throws SQLNonTransientException {
         try {
-            seqVal.dbretVal = null;
-            seqVal.dbfinished = false;
-            mysqlSeqFetcher.execute(seqVal);
-            Long[] values = seqVal.waitFinish();
-
-            //check if the result is right
-            if (values == null) {
-                throw new RuntimeException("can't fetch sequence in db,sequence :" + seqVal.seqName + " detail:" +
-                        mysqlSeqFetcher.getLastError(seqVal.seqName));
-            } else if (values[0] == 0) {
-                String msg = "sequence," + seqVal.seqName + "has not been set, please check configure in dble_sequence";
-                LOGGER.info(msg);
-                throw new SQLNonTransientException(msg);
-            } else {
+            if (!seqVal.switchToPrefetched(used)) {
+                Long[] values = fetchSegment(seqVal);
                 //if the result is OK just return the first value
-                seqVal.setNewCounter(values[0], values[1]);
+                seqVal.setNewCounter(values[0], values[1], getPrefetchPercent());
                 return values[0];
             }
         } catch (Exception e) {
@@ -136,6 +171,69 @@ public class IncrSequenceMySQLHandler implements SequenceHandler {
         } finally {
             seqVal.signalAll();
         }
+        // a new segment came before the lock was got
+        return getNextValidSeqVal(seqVal);
+    }
+
+    /**
+     * fetch the next segment in the background, the counter switches to it when used up
+     */
+    private void prefetch(final SequenceVal seqVal) {
+        if (!seqVal.fetching.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            DbleServer.getInstance().getComplexQueryExecutor().execute(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        Long[] values = fetchSegment(seqVal);
+                        seqVal.setPrefetched(values[0], values[1], getPrefetchPercent());
+                    } catch (Exception e) {
+                        LOGGER.warn(AlarmCode.CORE_SEQUENCE_WARN + " prefetch sequence " + seqVal.seqName + " failed " + e);
+                    } finally {
+                        seqVal.signalAll();
+                    }
+                }
+            });
+        } catch (Exception e) {
+            seqVal.signalAll();
+            LOGGER.warn(AlarmCode.CORE_SEQUENCE_WARN + " prefetch sequence " + seqVal.seqName + " failed " + e);
+        }
+    }
+
+    /**
+     * fetch a segment from db, called by the holder of seqVal.fetching only
+     *
+     * @return the first value and the end of the segment
+     */
+    private Long[] fetchSegment(SequenceVal seqVal) throws SQLNonTransientException {
+        SystemConfig system = DbleServer.getInstance().getConfig().getSystem();
+        if (system.getSequencePrefetchPercent() > 0 && seqVal.isSuccessFetched()) {
+            seqVal.adjustSegmentSize(system.getSequenceMaxSegmentSize());
+        }
+        seqVal.dbretVal = null;
+        seqVal.dbfinished = false;
+        seqVal.fetchSql = seqVal.nextFetchSql();
+        long start = System.currentTimeMillis();
+        mysqlSeqFetcher.execute(seqVal);
+        Long[] values = seqVal.waitFinish();
+        seqVal.recordFetch(System.currentTimeMillis() - start);
+
+        //check if the result is right
+        if (values == null) {
+            throw new RuntimeException("can't fetch sequence in db,sequence :" + seqVal.seqName + " detail:" +
+                    mysqlSeqFetcher.getLastError(seqVal.seqName));
+        } else if (values[0] == 0) {
+            String msg = "sequence," + seqVal.seqName + "has not been set, please check configure in dble_sequence";
+            LOGGER.info(msg);
+            throw new SQLNonTransientException(msg);
+        }
+        return values;
+    }
+
+    private int getPrefetchPercent() {
+        return DbleServer.getInstance().getConfig().getSystem().getSequencePrefetchPercent();
     }
 
     /**
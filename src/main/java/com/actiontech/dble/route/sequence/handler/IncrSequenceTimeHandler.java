@@ -10,6 +10,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.Properties;
+import java.util.concurrent.atomic.AtomicLong;
 
 public final class IncrSequenceTimeHandler implements SequenceHandler {
     protected static final Logger LOGGER = LoggerFactory.getLogger(IncrSequenceTimeHandler.class);
@@ -37,12 +38,20 @@ public final class IncrSequenceTimeHandler implements SequenceHandler {
         return workey.nextId();
     }
 
+    @Override
+    public long[] nextIds(String prefixName, int count) {
+        return workey.nextIds(count);
+    }
+
 
     /**
      * @author sw
      * <p>
      * Now:
      * 64 bit ID 30 (millisecond high 30 )+5(DATA_CENTER_ID)+5(WORKER_ID)+12(autoincrement)+12 (millisecond low 12)
+     * <p>
+     * the last millisecond and autoincrement are packed in one long and updated by CAS,
+     * a batch takes all its autoincrement values of a millisecond by one CAS
      */
     static class IdWorker {
         private static final long TWEPOCH = 1288834974657L;
@@ -67,9 +76,9 @@ public final class IncrSequenceTimeHandler implements SequenceHandler {
 
         private static final long SEQUENCE_MASK = ~(-1L << SEQUENCE_BITS);
 
-        private static long lastTimestamp = -1L;
+        // (last timestamp << SEQUENCE_BITS) | last autoincrement, shared by the workers created by reload
+        private static final AtomicLong LAST_STATE = new AtomicLong(-1L);
 
-        private long sequence = 0L;
         private final long workerId;
         private final long datacenterId;
 
@@ -84,29 +93,63 @@ public final class IncrSequenceTimeHandler implements SequenceHandler {
             this.datacenterId = datacenterId;
         }
 
-        public synchronized long nextId() {
-            long timestamp = timeGen();
-            if (timestamp < lastTimestamp) {
-                try {
-                    throw new Exception("Clock moved backwards.  Refusing to generate id for " +
-                            (lastTimestamp - timestamp) + " milliseconds");
-                } catch (Exception e) {
-                    LOGGER.info("error", e);
+        public long nextId() {
+            long state = reserve(1);
+            return makeId(state >>> SEQUENCE_BITS, state & SEQUENCE_MASK);
+        }
+
+        public long[] nextIds(int count) {
+            long[] ids = new long[count];
+            int got = 0;
+            while (got < count) {
+                long state = reserve(count - got);
+                long timestamp = state >>> SEQUENCE_BITS;
+                long first = state & SEQUENCE_MASK;
+                long end = first + reservedCount(first, count - got);
+                for (long seq = first; seq < end; seq++) {
+                    ids[got++] = makeId(timestamp, seq);
                 }
             }
+            return ids;
+        }
 
-            if (lastTimestamp == timestamp) {
-                // in this millisecond
-                sequence = (sequence + 1) & SEQUENCE_MASK;
-                if (sequence == 0) {
-                    // blocking util next millisecond
-                    timestamp = tilNextMillis(lastTimestamp);
+        /**
+         * take reservedCount(first, count) autoincrement values of one millisecond
+         *
+         * @return (timestamp << SEQUENCE_BITS) | the first autoincrement value
+         */
+        private long reserve(int count) {
+            while (true) {
+                long last = LAST_STATE.get();
+                long lastTimestamp = last >> SEQUENCE_BITS;
+                long timestamp = timeGen();
+                long first;
+                if (timestamp > lastTimestamp) {
+                    first = 0;
+                } else {
+                    if (timestamp < lastTimestamp) {
+                        LOGGER.info("Clock moved backwards, keep using the timestamp of " + (lastTimestamp - timestamp) + " milliseconds later");
+                    }
+                    first = (last & SEQUENCE_MASK) + 1;
+                    if (first > SEQUENCE_MASK) {
+                        // blocking util next millisecond
+                        tilNextMillis(lastTimestamp);
+                        continue;
+                    }
+                    timestamp = lastTimestamp;
+                }
+                long next = (timestamp << SEQUENCE_BITS) | (first + reservedCount(first, count) - 1);
+                if (LAST_STATE.compareAndSet(last, next)) {
+                    return (timestamp << SEQUENCE_BITS) | first;
                 }
-            } else {
-                sequence = 0;
             }
-            lastTimestamp = timestamp;
+        }
+
+        private static long reservedCount(long first, int count) {
+            return Math.min(count, SEQUENCE_MASK - first + 1);
+        }
 
+        private long makeId(long timestamp, long sequence) {
             //42 bit timestamp, right shift 12 bit ,get high 30 bit,than left shift 34 bit
             return (((timestamp - TWEPOCH) >> TIMESTAMP_LOW_BITS) << TIMESTAMP_HIGH_SHIFT) |
                     (datacenterId << DATACENTER_ID_SHIFT) |
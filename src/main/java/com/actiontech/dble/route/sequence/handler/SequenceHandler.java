@@ -16,4 +16,12 @@ public interface SequenceHandler {
 
     long nextId(String prefixName) throws SQLNonTransientException;
 
+    /**
+     * the ids for a multi-row insert, taken with as few contended operations as the handler allows
+     *
+     * @param count the number of ids, at least 1
+     * @return count unique ids
+     */
+    long[] nextIds(String prefixName, int count) throws SQLNonTransientException;
+
 }
@@ -6,6 +6,7 @@
 package com.actiontech.dble.route.sequence.handler;
 
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.locks.Condition;
 import java.util.concurrent.locks.ReentrantLock;
 
@@ -13,13 +14,18 @@ import java.util.concurrent.locks.ReentrantLock;
  * Created by huqing.yan on 2017/7/3.
  */
 public class SequenceVal {
+    //the time a segment should last when the segment size is adjusted for prefetch
+    private static final long SEGMENT_PERIOD_MILLIS = 10000;
 
-
-    Counter counter = null;
+    volatile Counter counter = null;
+    //the segment fetched in background before counter runs out, guarded by this
+    private Counter prefetched = null;
     //exec fetch sql result
     volatile String dbretVal = null;
     //exec fetch sql flag
     volatile boolean dbfinished;
+    //the sql of the running fetch
+    volatile String fetchSql;
     //exec get next segment lock
     AtomicBoolean fetching = new AtomicBoolean(false);
 
@@ -32,18 +38,148 @@ public class SequenceVal {
     private ReentrantLock executeLock = new ReentrantLock();
     private Condition condRelease = executeLock.newCondition();
 
+    //the increment in dble_sequence, the smallest segment size
+    private volatile long baseSegmentSize = 0;
+    //the count for dble_seq_nextvals, 0 means fetch the increment by dble_seq_nextval
+    private volatile long segmentSize = 0;
+    private volatile long segmentStartTime;
+    //statistics
+    private final AtomicLong fetchCount = new AtomicLong(0);
+    private final AtomicLong fetchTimeTotal = new AtomicLong(0);
+    private final AtomicLong stallCount = new AtomicLong(0);
+    private volatile long lastFetchTime = 0;
+
     public SequenceVal(String seqName, String dataNode) {
         this.seqName = seqName;
         this.dataNode = dataNode;
         sql = "SELECT dble_seq_nextval('" + seqName + "')";
+        fetchSql = sql;
     }
 
 
-    public void setNewCounter(long start, long end) {
-        counter = new Counter(start, end);
+    /**
+     * @param start           the value returned by the fetcher, counter starts after it
+     * @param prefetchPercent the percentage of the segment used when the next segment is prefetched, 0 for no prefetch
+     */
+    public void setNewCounter(long start, long end, int prefetchPercent) {
+        counter = newCounter(start, end, prefetchPercent);
+        segmentStartTime = System.currentTimeMillis();
         successFetched = true;
     }
 
+    /**
+     * keep the next segment, counter switches to it when used up
+     */
+    public synchronized void setPrefetched(long start, long end, int prefetchPercent) {
+        // the counter returns the values after its start
+        prefetched = newCounter(start - 1, end, prefetchPercent);
+    }
+
+    /**
+     * @param used the counter which is used up
+     * @return false if there is no prefetched segment, the caller must fetch it
+     */
+    public synchronized boolean switchToPrefetched(Counter used) {
+        if (counter != used) {
+            // switched by others
+            return true;
+        }
+        if (prefetched == null) {
+            return false;
+        }
+        counter = prefetched;
+        prefetched = null;
+        segmentStartTime = System.currentTimeMillis();
+        return true;
+    }
+
+    public synchronized boolean hasPrefetched() {
+        return prefetched != null;
+    }
+
+    private Counter newCounter(long start, long end, int prefetchPercent) {
+        Counter newCounter = new Counter(start, end);
+        long size = end - start;
+        if (baseSegmentSize == 0) {
+            baseSegmentSize = size;
+        }
+        if (prefetchPercent > 0 && prefetchPercent < 100) {
+            newCounter.prefetchValue = Math.min(end - 1, start + Math.max(1, size * prefetchPercent / 100));
+        }
+        return newCounter;
+    }
+
+    /**
+     * size the next segment to last about SEGMENT_PERIOD_MILLIS at the rate the current one is used,
+     * changing at most by half or double each time
+     */
+    public void adjustSegmentSize(int maxSegmentSize) {
+        Counter current = counter;
+        if (current == null) {
+            return;
+        }
+        long size = current.getSegmentSize();
+        long consumed = Math.max(1, Math.min(size, current.curVal.get() - current.start));
+        long elapsed = Math.max(1, System.currentTimeMillis() - segmentStartTime);
+        long wanted = consumed * SEGMENT_PERIOD_MILLIS / elapsed;
+        wanted = Math.max(size / 2, Math.min(size * 2, wanted));
+        wanted = Math.min(wanted, Math.max(maxSegmentSize, baseSegmentSize));
+        segmentSize = Math.max(wanted, baseSegmentSize);
+    }
+
+    public String nextFetchSql() {
+        long size = segmentSize;
+        if (size > 0) {
+            return "SELECT dble_seq_nextvals('" + seqName + "', " + size + ")";
+        }
+        return sql;
+    }
+
+    public void recordFetch(long millis) {
+        fetchCount.incrementAndGet();
+        fetchTimeTotal.addAndGet(millis);
+        lastFetchTime = millis;
+    }
+
+    public void recordStall() {
+        stallCount.incrementAndGet();
+    }
+
+    public String getSeqName() {
+        return seqName;
+    }
+
+    public String getDataNode() {
+        return dataNode;
+    }
+
+    public long getCurrentValue() {
+        Counter current = counter;
+        return current == null ? 0 : current.getCurrent();
+    }
+
+    public long getCurrentSegmentSize() {
+        Counter current = counter;
+        return current == null ? 0 : current.getSegmentSize();
+    }
+
+    public long getFetchCount() {
+        return fetchCount.get();
+    }
+
+    public long getAvgFetchTime() {
+        long count = fetchCount.get();
+        return count == 0 ? 0 : fetchTimeTotal.get() / count;
+    }
+
+    public long getLastFetchTime() {
+        return lastFetchTime;
+    }
+
+    public long getStallCount() {
+        return stallCount.get();
+    }
+
     public Long[] waitFinish() {
         long start = System.currentTimeMillis();
         long end = start + 10 * 1000;
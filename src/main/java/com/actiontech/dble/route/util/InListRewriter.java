@@ -0,0 +1,167 @@
+/*
+ * Copyright (C) 2016-2018 ActionTech.
+ * License: http://www.gnu.org/licenses/gpl.html GPL version 2 or higher.
+ */
+
+package com.actiontech.dble.route.util;
+
+import com.actiontech.dble.route.function.AbstractPartitionAlgorithm;
+import com.actiontech.dble.util.StringUtil;
+import com.alibaba.druid.sql.ast.SQLExpr;
+import com.alibaba.druid.sql.ast.expr.*;
+import com.alibaba.druid.sql.ast.statement.SQLSelectQuery;
+import com.alibaba.druid.sql.ast.statement.SQLSelectStatement;
+import com.alibaba.druid.sql.dialect.mysql.ast.statement.MySqlSelectQueryBlock;
+
+import java.util.*;
+
+/**
+ * shrink the IN-lists of the partition column for every data node of a select on one sharding table.
+ * <p>
+ * A row in a data node always has a partition value which is calculated to this data node, so in this data node
+ * "col IN (values)" is the same as "col IN (the values calculated to this data node)", wherever it is in the where.
+ * An IN-list with anything but literals is kept as it is, and so is an IN-list which has no value for a data node.
+ * </p>
+ */
+public final class InListRewriter {
+    private InListRewriter() {
+    }
+
+    /**
+     * @param targetNodes the data nodes the select is routed to
+     * @return the statement of every target data node whose IN-lists are shrunk, empty if nothing can be shrunk.
+     * The statement is restored after the rewriting.
+     */
+    public static Map<String, String> rewrite(SQLSelectStatement stmt, String partitionColumn, AbstractPartitionAlgorithm algorithm,
+                                              List<String> dataNodes, Collection<String> targetNodes) {
+        Map<String, String> nodeSqls = new HashMap<>();
+        SQLSelectQuery query = stmt.getSelect().getQuery();
+        if (!(query instanceof MySqlSelectQueryBlock) || targetNodes.size() < 2) {
+            return nodeSqls;
+        }
+        SQLExpr where = ((MySqlSelectQueryBlock) query).getWhere();
+        if (where == null) {
+            return nodeSqls;
+        }
+        List<SQLInListExpr> inLists = new ArrayList<>();
+        findInLists(where, partitionColumn, inLists);
+
+        List<SQLInListExpr> splitLists = new ArrayList<>(inLists.size());
+        List<Map<String, List<SQLExpr>>> splitValues = new ArrayList<>(inLists.size());
+        for (SQLInListExpr inList : inLists) {
+            Map<String, List<SQLExpr>> nodeValues = splitByNode(inList.getTargetList(), algorithm, dataNodes);
+            if (nodeValues != null && isShrunk(nodeValues, inList.getTargetList().size(), targetNodes)) {
+                splitLists.add(inList);
+                splitValues.add(nodeValues);
+            }
+        }
+        if (splitLists.isEmpty()) {
+            return nodeSqls;
+        }
+
+        List<List<SQLExpr>> origin = new ArrayList<>(splitLists.size());
+        for (SQLInListExpr inList : splitLists) {
+            origin.add(inList.getTargetList());
+        }
+        try {
+            for (String node : targetNodes) {
+                for (int i = 0; i < splitLists.size(); i++) {
+                    List<SQLExpr> values = splitValues.get(i).get(node);
+                    splitLists.get(i).setTargetList(values == null ? origin.get(i) : values);
+                }
+                nodeSqls.put(node, stmt.toString());
+            }
+        } finally {
+            for (int i = 0; i < splitLists.size(); i++) {
+                splitLists.get(i).setTargetList(origin.get(i));
+            }
+        }
+        return nodeSqls;
+    }
+
+    /**
+     * only the IN-lists reached by AND, OR, XOR and NOT are looked for
+     */
+    private static void findInLists(SQLExpr expr, String partitionColumn, List<SQLInListExpr> inLists) {
+        if (expr instanceof SQLInListExpr) {
+            SQLInListExpr inList = (SQLInListExpr) expr;
+            if (isColumn(inList.getExpr(), partitionColumn)) {
+                inLists.add(inList);
+            }
+        } else if (expr instanceof SQLBinaryOpExpr) {
+            SQLBinaryOpExpr binaryOpExpr = (SQLBinaryOpExpr) expr;
+            SQLBinaryOperator operator = binaryOpExpr.getOperator();
+            if (operator == SQLBinaryOperator.BooleanAnd || operator == SQLBinaryOperator.BooleanOr ||
+                    operator == SQLBinaryOperator.BooleanXor) {
+                findInLists(binaryOpExpr.getLeft(), partitionColumn, inLists);
+                findInLists(binaryOpExpr.getRight(), partitionColumn, inLists);
+            }
+        } else if (expr instanceof SQLNotExpr) {
+            findInLists(((SQLNotExpr) expr).getExpr(), partitionColumn, inLists);
+        }
+    }
+
+    private static boolean isColumn(SQLExpr expr, String column) {
+        String name;
+        if (expr instanceof SQLIdentifierExpr) {
+            name = ((SQLIdentifierExpr) expr).getName();
+        } else if (expr instanceof SQLPropertyExpr) {
+            name = ((SQLPropertyExpr) expr).getName();
+        } else {
+            return false;
+        }
+        return StringUtil.removeBackQuote(name).equalsIgnoreCase(column);
+    }
+
+    /**
+     * @return the values of every data node, null if a value is not a literal or can't be calculated
+     */
+    private static Map<String, List<SQLExpr>> splitByNode(List<SQLExpr> targetList, AbstractPartitionAlgorithm algorithm,
+                                                          List<String> dataNodes) {
+        String[] values = new String[targetList.size()];
+        for (int i = 0; i < values.length; i++) {
+            SQLExpr value = targetList.get(i);
+            if (value instanceof SQLIntegerExpr) {
+                values[i] = ((SQLIntegerExpr) value).getNumber().toString();
+            } else if (value instanceof SQLNumberExpr) {
+                values[i] = ((SQLNumberExpr) value).getNumber().toString();
+            } else if (value instanceof SQLCharExpr) {
+                values[i] = ((SQLCharExpr) value).getText();
+            } else {
+                return null;
+            }
+        }
+        Integer[] nodeIndexes;
+        try {
+            nodeIndexes = algorithm.calculateBatch(values);
+        } catch (RuntimeException e) {
+            // the value is not suitable for the function, let the data nodes judge
+            return null;
+        }
+        Map<String, List<SQLExpr>> nodeValues = new HashMap<>();
+        for (int i = 0; i < nodeIndexes.length; i++) {
+            Integer nodeIndex = nodeIndexes[i];
+            if (nodeIndex == null || nodeIndex < 0 || nodeIndex >= dataNodes.size()) {
+                return null;
+            }
+            String node = dataNodes.get(nodeIndex);
+            List<SQLExpr> exprs = nodeValues.get(node);
+            if (exprs == null) {
+                exprs = new ArrayList<>();
+                nodeValues.put(node, exprs);
+            }
+            exprs.add(targetList.get(i));
+        }
+        return nodeValues;
+    }
+
+    private static boolean isShrunk(Map<String, List<SQLExpr>> nodeValues, int size, Collection<String> targetNodes) {
+        for (String node : targetNodes) {
+            List<SQLExpr> values = nodeValues.get(node);
+            if (values != null && values.size() < size) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
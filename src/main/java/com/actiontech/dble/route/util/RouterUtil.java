@@ -379,9 +379,11 @@ public final class RouterUtil {
         String col = tc.getRule().getColumn();
         RuleConfig rule = tc.getRule();
         AbstractPartitionAlgorithm algorithm = rule.getRuleAlgorithm();
+        Integer[] nodeIndexes = calculateBatch(algorithm, colRoutePairSet);
+        int valueIndex = 0;
         for (ColumnRoutePair colPair : colRoutePairSet) {
             if (colPair.colValue != null) {
-                Integer nodeIndex = algorithm.calculate(colPair.colValue);
+                Integer nodeIndex = nodeIndexes[valueIndex++];
                 if (nodeIndex == null) {
                     throw new IllegalArgumentException("can't find datanode for sharding column:" + col + " val:" + colPair.colValue);
                 } else {
@@ -412,6 +414,26 @@ public final class RouterUtil {
         return routeNodeSet;
     }
 
+    /**
+     * calculate all the values of the pairs at a time, in the order of the pairs
+     */
+    private static Integer[] calculateBatch(AbstractPartitionAlgorithm algorithm, Set<ColumnRoutePair> colRoutePairSet) {
+        int size = 0;
+        for (ColumnRoutePair colPair : colRoutePairSet) {
+            if (colPair.colValue != null) {
+                size++;
+            }
+        }
+        String[] values = new String[size];
+        int i = 0;
+        for (ColumnRoutePair colPair : colRoutePairSet) {
+            if (colPair.colValue != null) {
+                values[i++] = colPair.colValue;
+            }
+        }
+        return algorithm.calculateBatch(values);
+    }
+
     /**
      * tryRouteFor multiTables
      */
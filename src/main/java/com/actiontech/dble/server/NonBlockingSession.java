@@ -8,6 +8,7 @@ package com.actiontech.dble.server;
 import com.actiontech.dble.DbleServer;
 import com.actiontech.dble.backend.BackendConnection;
 import com.actiontech.dble.backend.datasource.PhysicalDBNode;
+import com.actiontech.dble.backend.mysql.PreparedStatement;
 import com.actiontech.dble.backend.mysql.nio.MySQLConnection;
 import com.actiontech.dble.backend.mysql.nio.handler.*;
 import com.actiontech.dble.backend.mysql.nio.handler.builder.HandlerBuilder;
@@ -68,6 +69,9 @@ public class NonBlockingSession implements Session {
     private volatile String xaTxId;
     private volatile TxState xaState;
     private boolean prepared;
+    // the server side prepared statement being routed and the text of its parameters
+    private PreparedStatement preparedStatement;
+    private String[] preparedParameters;
     private volatile boolean needWaitFinished = false;
     // cancel status  0 - CANCEL_STATUS_INIT 1 - CANCEL_STATUS_COMMITTING  2 - CANCEL_STATUS_CANCELING
     private int cancelStatus = 0;
@@ -737,6 +741,19 @@ public class NonBlockingSession implements Session {
         this.prepared = prepared;
     }
 
+    public PreparedStatement getPreparedStatement() {
+        return preparedStatement;
+    }
+
+    public String[] getPreparedParameters() {
+        return preparedParameters;
+    }
+
+    public void setPreparedStatement(PreparedStatement pStmt, String[] parameters) {
+        this.preparedStatement = pStmt;
+        this.preparedParameters = parameters;
+    }
+
     public MySQLConnection freshConn(MySQLConnection errConn, ResponseHandler queryHandler) {
         for (final RouteResultsetNode node : this.getTargetKeys()) {
             final MySQLConnection mysqlCon = (MySQLConnection) this.getTarget(node);
@@ -6,6 +6,7 @@
 package com.actiontech.dble.server;
 
 import com.actiontech.dble.DbleServer;
+import com.actiontech.dble.backend.mysql.PreparedStatement;
 import com.actiontech.dble.backend.mysql.xa.TxState;
 import com.actiontech.dble.config.ErrorCode;
 import com.actiontech.dble.config.ServerConfig;
@@ -261,6 +262,33 @@ public class ServerConnection extends FrontendConnection {
 
     }
 
+    /**
+     * executes a server side prepared statement by the route plan made by its first execution, without
+     * parsing the sql
+     *
+     * @return false if the statement can't be routed by the plan, it must be executed as a query then
+     */
+    public boolean executePrepared(String sql, PreparedStatement pStmt, String[] parameters) {
+        if (this.isClosed() || txInterrupted || schema == null ||
+                (pStmt.getSqlType() != ServerParse.SELECT && isReadOnly())) {
+            return false;
+        }
+        String stmt = sql.endsWith(";") ? sql.substring(0, sql.length() - 1) : sql;
+        RouteResultset rrs = DbleServer.getInstance().getRouterService().routeByPreparedPlan(schema, stmt.trim(), pStmt, parameters);
+        if (rrs == null) {
+            return false;
+        }
+        this.setExecuteSql(stmt);
+        if (!privileges.checkFirewallSQLPolicy(user, stmt)) {
+            writeErrMessage(ErrorCode.ERR_WRONG_USED, "The statement is unsafe SQL, reject for user '" + user + "'");
+            return true;
+        }
+        session.endParse();
+        session.endRoute(rrs);
+        session.execute(rrs);
+        return true;
+    }
+
     public RouteResultset routeSQL(String sql, int type) {
         String db = this.schema;
         if (db == null) {
@@ -313,7 +341,13 @@ public class ServerConnection extends FrontendConnection {
     private void routeEndExecuteSQL(String sql, int type, SchemaConfig schema) {
         RouteResultset rrs;
         try {
-            rrs = DbleServer.getInstance().getRouterService().route(schema, type, sql, this);
+            PreparedStatement pStmt = session.getPreparedStatement();
+            if (pStmt != null) {
+                rrs = DbleServer.getInstance().getRouterService().routePrepared(schema, type, sql, this, pStmt,
+                        session.getPreparedParameters());
+            } else {
+                rrs = DbleServer.getInstance().getRouterService().route(schema, type, sql, this);
+            }
             if (rrs == null) {
                 return;
             }
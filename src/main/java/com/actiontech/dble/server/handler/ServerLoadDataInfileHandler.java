@@ -6,6 +6,7 @@
 package com.actiontech.dble.server.handler;
 
 import com.actiontech.dble.DbleServer;
+import com.actiontech.dble.backend.mysql.CharsetUtil;
 import com.actiontech.dble.cache.LayerCachePool;
 import com.actiontech.dble.config.ErrorCode;
 import com.actiontech.dble.config.model.SchemaConfig;
@@ -22,6 +23,7 @@ import com.actiontech.dble.route.util.RouterUtil;
 import com.actiontech.dble.server.ServerConnection;
 import com.actiontech.dble.server.parser.ServerParse;
 import com.actiontech.dble.sqlengine.mpp.LoadData;
+import com.actiontech.dble.sqlengine.mpp.LoadDataStream;
 import com.actiontech.dble.util.ObjectUtil;
 import com.actiontech.dble.util.StringUtil;
 import com.alibaba.druid.sql.ast.SQLExpr;
@@ -35,24 +37,37 @@ import com.google.common.collect.Lists;
 import com.google.common.io.Files;
 import com.univocity.parsers.csv.CsvParser;
 import com.univocity.parsers.csv.CsvParserSettings;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import java.io.*;
 import java.nio.ByteBuffer;
 import java.nio.charset.Charset;
 import java.sql.SQLException;
 import java.util.*;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
 /**
  * mysql client need add --local-infile=1
  * CHARACTER SET 'gbk' in load data sql  the charset need ', otherwise the druid will error
+ * <p>
+ * a local load data into a table which every row can be routed by itself is streamed: the rows are parsed
+ * while the client uploads the file and sent to the load data of every data node at once, see {@link StreamParser}.
+ * The others keep the whole file before routing it.
+ * </p>
  */
 public final class ServerLoadDataInfileHandler implements LoadDataInfileHandler {
+    private static final Logger LOGGER = LoggerFactory.getLogger(ServerLoadDataInfileHandler.class);
+    private static final byte[] END_OF_FILE = new byte[0];
+
     private ServerConnection serverConnection;
     private String sql;
     private String fileName;
-    private byte packID = 0;
+    private volatile byte packID = 0;
     private MySqlLoadDataInFileStatement statement;
 
     private Map<String, LoadData> routeResultMap = new HashMap<>();
@@ -70,6 +85,7 @@ public final class ServerLoadDataInfileHandler implements LoadDataInfileHandler
     private int partitionColumnIndex = -1;
     private LayerCachePool tableId2DataNodeCache;
     private boolean isStartLoadData = false;
+    private StreamParser streamParser;
 
     public int getPackID() {
         return packID;
@@ -175,6 +191,9 @@ public final class ServerLoadDataInfileHandler implements LoadDataInfileHandler
             filePacket.setFileName(fileName.getBytes());
             filePacket.setPacketId(1);
             filePacket.write(buffer, serverConnection, true);
+            if (canStream()) {
+                startStream();
+            }
         } else {
             if (!new File(fileName).exists()) {
                 serverConnection.writeErrMessage(ErrorCode.ER_FILE_NOT_FOUND, fileName + " is not found!");
@@ -203,7 +222,13 @@ public final class ServerLoadDataInfileHandler implements LoadDataInfileHandler
             ByteArrayInputStream inputStream = new ByteArrayInputStream(data, 0, data.length);
             packet.read(inputStream);
 
-            saveByteOrToFile(packet.getData(), false);
+            if (streamParser != null) {
+                if (packet.getData() != null) {
+                    streamParser.offer(packet.getData());
+                }
+            } else {
+                saveByteOrToFile(packet.getData(), false);
+            }
         } catch (IOException e) {
             throw new RuntimeException(e);
         }
@@ -303,7 +328,7 @@ public final class ServerLoadDataInfileHandler implements LoadDataInfileHandler
     }
 
 
-    private void parseOneLine(List<SQLExpr> columns, String table, String[] line, boolean toFile, String lineEnd) {
+    private RouteResultset routeLine(List<SQLExpr> columns, String table, String[] line) {
         if (loadData.getEnclose() != null && loadData.getEnclose().charAt(0) > 0x0020) {
             for (int i = 0; i < line.length; i++) {
                 line[i] = line[i].trim();
@@ -315,7 +340,11 @@ public final class ServerLoadDataInfileHandler implements LoadDataInfileHandler
             String insertSql = makeSimpleInsert(columns, line, table);
             rrs = serverConnection.routeSQL(insertSql, ServerParse.INSERT);
         }
+        return rrs;
+    }
 
+    private void parseOneLine(List<SQLExpr> columns, String table, String[] line, boolean toFile, String lineEnd) {
+        RouteResultset rrs = routeLine(columns, table, line);
         if (rrs == null || rrs.getNodes() == null || rrs.getNodes().length == 0) {
             //do nothing
         } else {
@@ -401,11 +430,7 @@ public final class ServerLoadDataInfileHandler implements LoadDataInfileHandler
 
 
     private RouteResultset buildResultSet(Map<String, LoadData> routeMap) {
-        statement.setLocal(true);
-        SQLLiteralExpr fn = new SQLCharExpr(fileName);    //druid will filter path, reset it now
-        statement.setFileName(fn);
-        //replace IGNORE X LINES in SQL to avoid  IGNORING X LINE in every node.
-        String srcStatement = this.ignoreLinesDelete(statement.toString());
+        String srcStatement = buildNodeStatement();
         RouteResultset rrs = new RouteResultset(srcStatement, ServerParse.LOAD_DATA_INFILE_SQL);
         rrs.setLoadData(true);
         rrs.setStatement(srcStatement);
@@ -414,18 +439,13 @@ public final class ServerLoadDataInfileHandler implements LoadDataInfileHandler
         RouteResultsetNode[] routeResultsetNodes = new RouteResultsetNode[size];
         int index = 0;
         for (Map.Entry<String, LoadData> entry : routeMap.entrySet()) {
-            RouteResultsetNode rrNode = new RouteResultsetNode(entry.getKey(), ServerParse.LOAD_DATA_INFILE_SQL, srcStatement);
-            rrNode.setStatement(srcStatement);
-            LoadData newLoadData = new LoadData();
-            ObjectUtil.copyProperties(loadData, newLoadData);
-            newLoadData.setLocal(true);
+            RouteResultsetNode rrNode = buildNode(entry.getKey(), srcStatement);
             LoadData loadData1 = entry.getValue();
             if (loadData1.getFileName() != null) {
-                newLoadData.setFileName(loadData1.getFileName());
+                rrNode.getLoadData().setFileName(loadData1.getFileName());
             } else {
-                newLoadData.setData(loadData1.getData());
+                rrNode.getLoadData().setData(loadData1.getData());
             }
-            rrNode.setLoadData(newLoadData);
 
             routeResultsetNodes[index] = rrNode;
             index++;
@@ -434,6 +454,87 @@ public final class ServerLoadDataInfileHandler implements LoadDataInfileHandler
         return rrs;
     }
 
+    private String buildNodeStatement() {
+        statement.setLocal(true);
+        SQLLiteralExpr fn = new SQLCharExpr(fileName);    //druid will filter path, reset it now
+        statement.setFileName(fn);
+        //replace IGNORE X LINES in SQL to avoid  IGNORING X LINE in every node.
+        return this.ignoreLinesDelete(statement.toString());
+    }
+
+    private RouteResultsetNode buildNode(String dataNode, String srcStatement) {
+        RouteResultsetNode rrNode = new RouteResultsetNode(dataNode, ServerParse.LOAD_DATA_INFILE_SQL, srcStatement);
+        rrNode.setStatement(srcStatement);
+        LoadData newLoadData = new LoadData();
+        ObjectUtil.copyProperties(loadData, newLoadData);
+        newLoadData.setLocal(true);
+        rrNode.setLoadData(newLoadData);
+        return rrNode;
+    }
+
+    /**
+     * every row can be routed by itself, so the rows can be sent before the whole file is uploaded
+     */
+    private boolean canStream() {
+        if (DbleServer.getInstance().getConfig().getSystem().getLoadDataStreamSize() <= 0) {
+            return false;
+        }
+        if (tableConfig == null) {
+            return schema.getDataNode() != null;
+        }
+        return tableConfig.isGlobalTable() || partitionColumnIndex >= 0;
+    }
+
+    /**
+     * start the load data of all the data nodes of the table, the rows are streamed to them while parsing
+     */
+    private void startStream() {
+        SystemConfig system = DbleServer.getInstance().getConfig().getSystem();
+        int packetSize = system.getBufferPoolChunkSize() - 5;
+        List<String> dataNodes = tableConfig == null ? Collections.singletonList(schema.getDataNode()) : tableConfig.getDataNodes();
+        String srcStatement = buildNodeStatement();
+        RouteResultset rrs = new RouteResultset(srcStatement, ServerParse.LOAD_DATA_INFILE_SQL);
+        rrs.setLoadData(true);
+        rrs.setStatement(srcStatement);
+        rrs.setFinishedRoute(true);
+        RouteResultsetNode[] nodes = new RouteResultsetNode[dataNodes.size()];
+        Map<String, LoadDataStream> streams = new LinkedHashMap<>(dataNodes.size());
+        for (int i = 0; i < nodes.length; i++) {
+            LoadDataStream stream = new LoadDataStream(dataNodes.get(i), packetSize, system.getLoadDataStreamSize(), serverConnection);
+            nodes[i] = buildNode(dataNodes.get(i), srcStatement);
+            nodes[i].getLoadData().setStream(stream);
+            streams.put(dataNodes.get(i), stream);
+        }
+        rrs.setNodes(nodes);
+
+        streamParser = new StreamParser(streams, (long) system.getLoadDataStreamSize() * system.getBufferPoolChunkSize());
+        DbleServer.getInstance().getComplexQueryExecutor().execute(streamParser);
+        serverConnection.getSession2().execute(rrs);
+    }
+
+    private void streamOneLine(List<SQLExpr> columns, String[] line, Map<String, LoadDataStream> streams, String javaCharset)
+            throws UnsupportedEncodingException {
+        if (tableConfig == null || tableConfig.isGlobalTable()) {
+            byte[] bytes = (joinField(line, loadData) + loadData.getLineTerminatedBy()).getBytes(javaCharset);
+            for (LoadDataStream stream : streams.values()) {
+                stream.write(bytes);
+            }
+            return;
+        }
+        RouteResultset rrs = routeLine(columns, tableName, line);
+        if (rrs == null || rrs.getNodes() == null || rrs.getNodes().length == 0) {
+            return;
+        }
+        byte[] bytes = (joinField(line, loadData) + loadData.getLineTerminatedBy()).getBytes(javaCharset);
+        for (RouteResultsetNode node : rrs.getNodes()) {
+            LoadDataStream stream = streams.get(node.getName());
+            if (stream == null) {
+                throw new IllegalStateException("the row is routed to data node " + node.getName() + " which is not a data node of the table " + tableName);
+            }
+            stream.write(bytes);
+        }
+    }
+
 
     private String makeSimpleInsert(List<SQLExpr> columns, String[] fields, String table) {
         StringBuilder sb = new StringBuilder();
@@ -527,6 +628,10 @@ public final class ServerLoadDataInfileHandler implements LoadDataInfileHandler
     public void end(byte packId) {
         isStartLoadData = false;
         this.packID = packId;
+        if (streamParser != null) {
+            streamParser.offer(END_OF_FILE);
+            return;
+        }
         //empty packet for end
         saveByteOrToFile(null, true);
 
@@ -538,34 +643,12 @@ public final class ServerLoadDataInfileHandler implements LoadDataInfileHandler
             String content = new String(tempByteBuffer.toByteArray(), Charset.forName(loadData.getCharset()));
 
             // List<String> lines = Splitter.on(loadData.getLineTerminatedBy()).omitEmptyStrings().splitToList(content);
-            CsvParserSettings settings = new CsvParserSettings();
-            settings.setMaxColumns(65535);
-            settings.setMaxCharsPerColumn(65535);
-            settings.getFormat().setLineSeparator(loadData.getLineTerminatedBy());
-            settings.getFormat().setDelimiter(loadData.getFieldTerminatedBy().charAt(0));
-            if (loadData.getEnclose() != null) {
-                settings.getFormat().setQuote(loadData.getEnclose().charAt(0));
-            }
-            if (loadData.getEscape() != null) {
-                settings.getFormat().setQuoteEscape(loadData.getEscape().charAt(0));
-            }
-            settings.getFormat().setNormalizedNewline(loadData.getLineTerminatedBy().charAt(0));
-            /*
-             *  fix bug #1074 : LOAD DATA local INFILE导入的所有Boolean类型全部变成了false
-             *  不可见字符将在CsvParser被当成whitespace过滤掉, 使用settings.trimValues(false)来避免被过滤掉
-             *  FIXME : 设置trimValues(false)之后, 会引起字段值前后的空白字符无法被过滤!
-             */
-            settings.trimValues(false);
-
-            CsvParser parser = new CsvParser(settings);
+            CsvParser parser = new CsvParser(localCsvSettings());
             try {
                 parser.beginParsing(new StringReader(content));
                 String[] row = null;
 
-                int ignoreNumber = 0;
-                if (statement.getIgnoreLinesNumber() != null && !"".equals(statement.getIgnoreLinesNumber().toString())) {
-                    ignoreNumber = Integer.parseInt(statement.getIgnoreLinesNumber().toString());
-                }
+                int ignoreNumber = getIgnoreNumber();
                 while ((row = parser.parseNext()) != null) {
                     if (ignoreNumber == 0) {
                         parseOneLine(columns, tableSimpleName, row, true, loadData.getLineTerminatedBy());
@@ -588,6 +671,35 @@ public final class ServerLoadDataInfileHandler implements LoadDataInfileHandler
     }
 
 
+    private CsvParserSettings localCsvSettings() {
+        CsvParserSettings settings = new CsvParserSettings();
+        settings.setMaxColumns(65535);
+        settings.setMaxCharsPerColumn(65535);
+        settings.getFormat().setLineSeparator(loadData.getLineTerminatedBy());
+        settings.getFormat().setDelimiter(loadData.getFieldTerminatedBy().charAt(0));
+        if (loadData.getEnclose() != null) {
+            settings.getFormat().setQuote(loadData.getEnclose().charAt(0));
+        }
+        if (loadData.getEscape() != null) {
+            settings.getFormat().setQuoteEscape(loadData.getEscape().charAt(0));
+        }
+        settings.getFormat().setNormalizedNewline(loadData.getLineTerminatedBy().charAt(0));
+        /*
+         *  fix bug #1074 : LOAD DATA local INFILE导入的所有Boolean类型全部变成了false
+         *  不可见字符将在CsvParser被当成whitespace过滤掉, 使用settings.trimValues(false)来避免被过滤掉
+         *  FIXME : 设置trimValues(false)之后, 会引起字段值前后的空白字符无法被过滤!
+         */
+        settings.trimValues(false);
+        return settings;
+    }
+
+    private int getIgnoreNumber() {
+        if (statement.getIgnoreLinesNumber() != null && !"".equals(statement.getIgnoreLinesNumber().toString())) {
+            return Integer.parseInt(statement.getIgnoreLinesNumber().toString());
+        }
+        return 0;
+    }
+
     private void parseFileByLine(String file, String encode, String split) {
         List<SQLExpr> columns = statement.getColumns();
 
@@ -685,6 +797,10 @@ public final class ServerLoadDataInfileHandler implements LoadDataInfileHandler
 
     public void clear() {
         isStartLoadData = false;
+        if (streamParser != null) {
+            streamParser.abort();
+            streamParser = null;
+        }
         tableId2DataNodeCache = null;
         schema = null;
         tableConfig = null;
@@ -763,4 +879,131 @@ public final class ServerLoadDataInfileHandler implements LoadDataInfileHandler
         fileDirToDel.delete();
     }
 
+    /**
+     * parses the rows of a streaming load data while the client uploads the file. The packets of the file are
+     * queued by the reactor and read here as an InputStream, the reading of the client is paused when too many
+     * bytes are queued.
+     */
+    private final class StreamParser extends InputStream implements Runnable {
+        private final Map<String, LoadDataStream> streams;
+        private final LinkedBlockingQueue<byte[]> queue = new LinkedBlockingQueue<>();
+        private final AtomicLong queuedBytes = new AtomicLong();
+        private final long highWatermark;
+        private final long lowWatermark;
+        private volatile boolean aborted = false;
+        private byte[] current = null;
+        private int position = 0;
+
+        private StreamParser(Map<String, LoadDataStream> streams, long highWatermark) {
+            this.streams = streams;
+            this.highWatermark = highWatermark;
+            this.lowWatermark = highWatermark / 2;
+        }
+
+        private void offer(byte[] data) {
+            if (aborted) {
+                return;
+            }
+            queue.offer(data);
+            if (queuedBytes.addAndGet(data.length) >= highWatermark && !serverConnection.isReadPaused()) {
+                serverConnection.disableRead();
+                // the parser may have drained the queue before it saw the pause
+                if (queuedBytes.get() <= lowWatermark) {
+                    serverConnection.enableRead();
+                }
+            }
+        }
+
+        private void abort() {
+            aborted = true;
+            for (LoadDataStream stream : streams.values()) {
+                stream.abort();
+            }
+        }
+
+        @Override
+        public void run() {
+            long start = System.nanoTime();
+            CsvParser parser = new CsvParser(localCsvSettings());
+            try {
+                List<SQLExpr> columns = statement.getColumns();
+                String javaCharset = CharsetUtil.getJavaCharset(loadData.getCharset());
+                parser.beginParsing(new InputStreamReader(this, javaCharset));
+                int ignoreNumber = getIgnoreNumber();
+                String[] row;
+                while ((row = parser.parseNext()) != null) {
+                    if (ignoreNumber == 0) {
+                        streamOneLine(columns, row, streams, javaCharset);
+                    } else {
+                        ignoreNumber--;
+                    }
+                }
+            } catch (Exception e) {
+                if (!aborted) {
+                    LOGGER.info("streaming load data failed", e);
+                }
+                abort();
+                return;
+            } finally {
+                parser.stopParsing();
+            }
+            long rows = 0;
+            long bytes = 0;
+            long waitNanos = 0;
+            for (LoadDataStream stream : streams.values()) {
+                rows += stream.getRows();
+                bytes += stream.getBytes();
+                waitNanos += stream.getWaitNanos();
+                stream.finish();
+            }
+            if (LOGGER.isInfoEnabled()) {
+                long costMillis = Math.max(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start), 1);
+                LOGGER.info("streaming load data parsed " + rows + " rows, " + bytes + " bytes to " + streams.size() +
+                        " data nodes in " + costMillis + " ms, " + (bytes * 1000 / 1024 / 1024 / costMillis) +
+                        " MB/s, waited " + TimeUnit.NANOSECONDS.toMillis(waitNanos) + " ms for the backends");
+            }
+        }
+
+        @Override
+        public int read() throws IOException {
+            byte[] one = new byte[1];
+            return read(one, 0, 1) == -1 ? -1 : one[0] & 0xff;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            while (current == null || position == current.length) {
+                if (current == END_OF_FILE) {
+                    return -1;
+                }
+                current = takePacket();
+                position = 0;
+            }
+            int n = Math.min(len, current.length - position);
+            System.arraycopy(current, position, b, off, n);
+            position += n;
+            return n;
+        }
+
+        private byte[] takePacket() throws IOException {
+            try {
+                byte[] data = queue.poll(100, TimeUnit.MILLISECONDS);
+                while (data == null) {
+                    if (aborted || serverConnection.isClosed()) {
+                        throw new IOException("load data is aborted");
+                    }
+                    if (serverConnection.isReadPaused()) {
+                        serverConnection.enableRead();
+                    }
+                    data = queue.poll(100, TimeUnit.MILLISECONDS);
+                }
+                if (queuedBytes.addAndGet(-data.length) <= lowWatermark && serverConnection.isReadPaused()) {
+                    serverConnection.enableRead();
+                }
+                return data;
+            } catch (InterruptedException e) {
+                throw new IOException(e);
+            }
+        }
+    }
 }
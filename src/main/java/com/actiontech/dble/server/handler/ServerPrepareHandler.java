@@ -16,6 +16,7 @@ import com.actiontech.dble.net.mysql.ExecutePacket;
 import com.actiontech.dble.net.mysql.LongDataPacket;
 import com.actiontech.dble.net.mysql.OkPacket;
 import com.actiontech.dble.net.mysql.ResetPacket;
+import com.actiontech.dble.server.NonBlockingSession;
 import com.actiontech.dble.server.ServerConnection;
 import com.actiontech.dble.server.response.PreparedStmtResponse;
 import com.actiontech.dble.util.HexFormatUtil;
@@ -110,6 +111,16 @@ public class ServerPrepareHandler implements FrontendPrepareHandler {
         }
     }
 
+    /**
+     * the execution is sent to the backends as a text query with the bound values, routed by the plan of
+     * the statement when it has one (see ServerConnection.executePrepared).
+     * <p>
+     * The statements are not prepared on the backends: the backend connections only send COM_QUERY and
+     * their response handlers only read text rows, which are converted to binary rows for the client. A
+     * backend statement would also be bound to the pooled connection, which is released to other sessions
+     * after the execution, so its id would have to be kept and closed per backend connection.
+     * </p>
+     */
     @Override
     public void execute(byte[] data) {
         long psId = ByteUtil.readUB4(data, 5);
@@ -125,13 +136,23 @@ public class ServerPrepareHandler implements FrontendPrepareHandler {
                 return;
             }
             BindValue[] bindValues = packet.getValues();
+            String[] parameters = getParameters(pStmt, bindValues);
             // reset the Parameter
             String sql = prepareStmtBindValue(pStmt, bindValues);
-            source.getSession2().setPrepared(true);
+            NonBlockingSession session = source.getSession2();
+            session.setPrepared(true);
             if (LOGGER.isDebugEnabled()) {
                 LOGGER.debug("execute prepare sql: " + sql);
             }
-            source.query(sql);
+            if (source.executePrepared(sql, pStmt, parameters)) {
+                return;
+            }
+            session.setPreparedStatement(pStmt, parameters);
+            try {
+                source.query(sql);
+            } finally {
+                session.setPreparedStatement(null, null);
+            }
         }
     }
 
@@ -171,6 +192,43 @@ public class ServerPrepareHandler implements FrontendPrepareHandler {
         return count;
     }
 
+    /**
+     * the text of the literals of the integer and string parameters as the parser reads them from the
+     * sql, null for the others
+     */
+    private String[] getParameters(PreparedStatement pStmt, BindValue[] bindValues) {
+        int[] paramTypes = pStmt.getParametersType();
+        String[] parameters = new String[bindValues.length];
+        for (int i = 0; i < bindValues.length; i++) {
+            BindValue bindValue = bindValues[i];
+            if (bindValue.isNull()) {
+                continue;
+            }
+            switch (paramTypes[i] & 0xff) {
+                case Fields.FIELD_TYPE_TINY:
+                    parameters[i] = String.valueOf(bindValue.getByteBinding());
+                    break;
+                case Fields.FIELD_TYPE_SHORT:
+                    parameters[i] = String.valueOf(bindValue.getShortBinding());
+                    break;
+                case Fields.FIELD_TYPE_LONG:
+                    parameters[i] = String.valueOf(bindValue.getIntBinding());
+                    break;
+                case Fields.FIELD_TYPE_LONGLONG:
+                    parameters[i] = String.valueOf(bindValue.getLongBinding());
+                    break;
+                case Fields.FIELD_TYPE_VAR_STRING:
+                case Fields.FIELD_TYPE_STRING:
+                case Fields.FIELD_TYPE_VARCHAR:
+                    parameters[i] = String.valueOf(bindValue.getValue());
+                    break;
+                default:
+                    break;
+            }
+        }
+        return parameters;
+    }
+
     /**
      * build sql
      *
@@ -21,6 +21,7 @@ public class LoadData implements Serializable {
     private String fieldTerminatedBy;
     private String enclose;
     private String escape;
+    private transient LoadDataStream stream;
 
     public String getEscape() {
         return escape;
@@ -85,4 +86,12 @@ public class LoadData implements Serializable {
     public void setEnclose(String enclose) {
         this.enclose = enclose;
     }
+
+    public LoadDataStream getStream() {
+        return stream;
+    }
+
+    public void setStream(LoadDataStream stream) {
+        this.stream = stream;
+    }
 }
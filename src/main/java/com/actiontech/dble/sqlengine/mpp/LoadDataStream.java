@@ -0,0 +1,236 @@
+/*
+ * Copyright (C) 2016-2018 ActionTech.
+ * License: http://www.gnu.org/licenses/gpl.html GPL version 2 or higher.
+ */
+
+package com.actiontech.dble.sqlengine.mpp;
+
+import com.actiontech.dble.net.AbstractConnection;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * LoadDataStream
+ * <p>
+ * the rows of a streaming load data for one data node. The parser writes the rows while the client is
+ * still uploading the file, they are cut into packets and sent to the backend connection once it requests
+ * the file. The packets made before the request are kept until then.
+ * </p>
+ * the writer waits when the backend connection has too many packets not written to the socket yet, or when
+ * too many packets are kept before the request, so the rows in memory are bounded. It gives up waiting once
+ * the front connection is closed.
+ */
+public class LoadDataStream {
+    private static final int PACKET_HEADER_SIZE = 4;
+    private static final long WAIT_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    private final String dataNode;
+    private final AbstractConnection frontConn;
+    private final int packetSize;
+    private final int maxPendingPackets;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final List<byte[]> unsent = new ArrayList<>();
+
+    private byte[] packet;
+    private int position = PACKET_HEADER_SIZE;
+    private volatile AbstractConnection conn;
+    private byte packetId;
+    private boolean finished = false;
+    private volatile boolean aborted = false;
+
+    private long rows = 0;
+    private long bytes = 0;
+    private long waitNanos = 0;
+
+    public LoadDataStream(String dataNode, int packetSize, int maxPendingPackets) {
+        this(dataNode, packetSize, maxPendingPackets, null);
+    }
+
+    public LoadDataStream(String dataNode, int packetSize, int maxPendingPackets, AbstractConnection frontConn) {
+        this.dataNode = dataNode;
+        this.frontConn = frontConn;
+        this.packetSize = packetSize;
+        this.maxPendingPackets = maxPendingPackets;
+        this.packet = new byte[PACKET_HEADER_SIZE + packetSize];
+    }
+
+    /**
+     * called when the backend requests the file, sends the packets kept until now
+     */
+    public void start(byte requestPacketId, AbstractConnection backendConn) {
+        lock.lock();
+        try {
+            this.packetId = requestPacketId;
+            if (aborted) {
+                backendConn.close("load data is aborted");
+                return;
+            }
+            for (byte[] kept : unsent) {
+                send(backendConn, kept);
+            }
+            unsent.clear();
+            if (finished) {
+                sendLast(backendConn);
+            }
+            this.conn = backendConn;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * write one row, the line terminator must be included
+     */
+    public void write(byte[] line) {
+        if (aborted) {
+            return;
+        }
+        waitWritable();
+        lock.lock();
+        try {
+            if (aborted || finished) {
+                return;
+            }
+            rows++;
+            bytes += line.length;
+            int offset = 0;
+            while (offset < line.length) {
+                int len = Math.min(line.length - offset, packet.length - position);
+                System.arraycopy(line, offset, packet, position, len);
+                position += len;
+                offset += len;
+                if (position == packet.length) {
+                    emit(packet);
+                    packet = new byte[PACKET_HEADER_SIZE + packetSize];
+                    position = PACKET_HEADER_SIZE;
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * no more rows, the last packet and the empty packet which ends the file are sent
+     */
+    public void finish() {
+        lock.lock();
+        try {
+            if (finished || aborted) {
+                return;
+            }
+            finished = true;
+            if (conn != null) {
+                sendLast(conn);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * the load failed, drop the rows. If the file has been requested but not ended, the backend connection
+     * is closed so that the rows sent are rolled back rather than committed as a part of the file.
+     */
+    public void abort() {
+        lock.lock();
+        try {
+            if (aborted) {
+                return;
+            }
+            aborted = true;
+            unsent.clear();
+            packet = null;
+            if (conn != null && !finished) {
+                conn.close("load data is aborted");
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void waitWritable() {
+        long begin = 0;
+        while (!aborted && isFull()) {
+            if (frontConn != null && frontConn.isClosed()) {
+                // nobody waits for the result any more
+                abort();
+                break;
+            }
+            if (begin == 0) {
+                begin = System.nanoTime();
+            }
+            LockSupport.parkNanos(WAIT_NANOS);
+        }
+        if (begin != 0) {
+            waitNanos += System.nanoTime() - begin;
+        }
+    }
+
+    private boolean isFull() {
+        AbstractConnection backendConn = conn;
+        if (backendConn == null) {
+            return unsent.size() >= maxPendingPackets;
+        }
+        if (backendConn.isClosed()) {
+            aborted = true;
+            return false;
+        }
+        return backendConn.getWriteQueue().size() >= maxPendingPackets;
+    }
+
+    private void emit(byte[] full) {
+        if (conn != null) {
+            send(conn, full);
+        } else {
+            unsent.add(full);
+        }
+    }
+
+    private void sendLast(AbstractConnection backendConn) {
+        if (position > PACKET_HEADER_SIZE) {
+            byte[] last = new byte[position];
+            System.arraycopy(packet, 0, last, 0, position);
+            send(backendConn, last);
+        }
+        packet = null;
+        sendEmpty(backendConn);
+    }
+
+    private void sendEmpty(AbstractConnection backendConn) {
+        send(backendConn, new byte[PACKET_HEADER_SIZE]);
+    }
+
+    private void send(AbstractConnection backendConn, byte[] data) {
+        int length = data.length - PACKET_HEADER_SIZE;
+        data[0] = (byte) (length & 0xff);
+        data[1] = (byte) (length >>> 8);
+        data[2] = (byte) (length >>> 16);
+        data[3] = ++packetId;
+        backendConn.write(data);
+    }
+
+    public String getDataNode() {
+        return dataNode;
+    }
+
+    public boolean isAborted() {
+        return aborted;
+    }
+
+    public long getRows() {
+        return rows;
+    }
+
+    public long getBytes() {
+        return bytes;
+    }
+
+    public long getWaitNanos() {
+        return waitNanos;
+    }
+}
@@ -0,0 +1,76 @@
+/*
+ * Copyright (C) 2016-2018 ActionTech.
+ * License: http://www.gnu.org/licenses/gpl.html GPL version 2 or higher.
+ */
+
+package com.actiontech.dble.statistic;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * the load of a data source used by the read balance: the requests in flight and the EWMA of the response time.
+ * <p>
+ * The weight of a response grows with the time since the last one, and the EWMA read decays the same way,
+ * so a data source not selected for a while is tried again.
+ * </p>
+ */
+public class DataSourceLoadRecorder {
+    private static final long DECAY_TIME = TimeUnit.SECONDS.toNanos(10);
+
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private double ewma = 0;
+    private long lastTime = 0;
+
+    public void start() {
+        inFlight.incrementAndGet();
+    }
+
+    /**
+     * @param costTime nanoseconds, negative if the request failed and no response time is recorded
+     */
+    public void end(long costTime) {
+        inFlight.decrementAndGet();
+        if (costTime < 0) {
+            return;
+        }
+        long now = System.nanoTime();
+        synchronized (this) {
+            if (lastTime == 0) {
+                ewma = costTime;
+            } else {
+                double w = Math.exp(-(double) Math.max(0, now - lastTime) / DECAY_TIME);
+                ewma = ewma * w + costTime * (1 - w);
+            }
+            lastTime = now;
+        }
+    }
+
+    public int getInFlight() {
+        return Math.max(0, inFlight.get());
+    }
+
+    /**
+     * @return microseconds
+     */
+    public long getResponseTime() {
+        long now = System.nanoTime();
+        double current;
+        synchronized (this) {
+            if (lastTime == 0) {
+                return 0;
+            }
+            current = ewma * Math.exp(-(double) Math.max(0, now - lastTime) / DECAY_TIME);
+        }
+        return (long) (current / 1000);
+    }
+
+    /**
+     * the cost to send one more request, the lower the better
+     *
+     * @param lagSeconds the seconds behind the master, it makes a lagging slave less likely to be selected
+     */
+    public long getScore(int lagSeconds) {
+        return (getResponseTime() + 1) * (getInFlight() + 1) * (Math.max(0, lagSeconds) + 1);
+    }
+}
@@ -0,0 +1,54 @@
+/*
+ * Copyright (C) 2016-2018 ActionTech.
+ * License: http://www.gnu.org/licenses/gpl.html GPL version 2 or higher.
+ */
+
+package com.actiontech.dble.statistic;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * the count and the latency of the XA commits, from the first 'XA END' to the last response of the data nodes
+ */
+public final class XACommitStat {
+    public static final XACommitStat ONE_PHASE = new XACommitStat();
+    public static final XACommitStat TWO_PHASE = new XACommitStat();
+
+    private final AtomicLong count = new AtomicLong();
+    private final AtomicLong totalTime = new AtomicLong();
+    private final AtomicLong maxTime = new AtomicLong();
+
+    XACommitStat() {
+    }
+
+    /**
+     * @param costTime nanoseconds
+     */
+    public void record(long costTime) {
+        count.incrementAndGet();
+        totalTime.addAndGet(costTime);
+        long max = maxTime.get();
+        while (costTime > max && !maxTime.compareAndSet(max, costTime)) {
+            max = maxTime.get();
+        }
+    }
+
+    public long getCount() {
+        return count.get();
+    }
+
+    /**
+     * @return microseconds
+     */
+    public long getAvgTime() {
+        long cnt = count.get();
+        return cnt == 0 ? 0 : totalTime.get() / cnt / 1000;
+    }
+
+    /**
+     * @return microseconds
+     */
+    public long getMaxTime() {
+        return maxTime.get() / 1000;
+    }
+}
@@ -0,0 +1,210 @@
+/*
+ * Copyright (C) 2016-2018 ActionTech.
+ * License: http://www.gnu.org/licenses/gpl.html GPL version 2 or higher.
+ */
+
+package com.actiontech.dble.util;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * SpscRingQueue
+ * <p>
+ * bounded lock free queue for exactly one producer thread and one consumer thread at a time.
+ * offer/poll never block; put/take park only when the ring is full/empty and are woken by
+ * the other side or by close(). offerOrOverflow never fails on a full ring, the item is kept
+ * in an unbounded overflow list which is polled after the ring, for the producers which must
+ * not wait and bound their items by other means.
+ * </p>
+ */
+public final class SpscRingQueue<E> {
+    private final Object[] items;
+    private final int mask;
+    /* next slot to poll, written by the consumer only */
+    private volatile long head = 0;
+    /* next slot to offer, written by the producer only */
+    private volatile long tail = 0;
+    /* the items which did not fit the ring, newer than all the items in the ring */
+    private final Queue<E> overflow = new ConcurrentLinkedQueue<>();
+    /* increased by the producer before adding, so it is never less than the overflow items */
+    private final AtomicInteger overflowCount = new AtomicInteger();
+    private volatile Thread waitingProducer;
+    private volatile Thread waitingConsumer;
+    private volatile boolean closed = false;
+
+    public SpscRingQueue(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("capacity must be positive: " + capacity);
+        }
+        int size = capacity == 1 ? 1 : Integer.highestOneBit(capacity - 1) << 1;
+        this.items = new Object[size];
+        this.mask = size - 1;
+    }
+
+    public int capacity() {
+        return items.length;
+    }
+
+    public int size() {
+        long currentHead = head;
+        return (int) (tail - currentHead) + overflowCount.get();
+    }
+
+    public boolean isEmpty() {
+        return tail == head && overflow.isEmpty();
+    }
+
+    public boolean isClosed() {
+        return closed;
+    }
+
+    /**
+     * producer side
+     *
+     * @return false if the ring is full or closed, the ring counts as full while the overflow list has items
+     */
+    public boolean offer(E e) {
+        if (e == null) {
+            throw new NullPointerException();
+        }
+        if (closed || overflowCount.get() > 0) {
+            return false;
+        }
+        long currentTail = tail;
+        if (currentTail - head == items.length) {
+            return false;
+        }
+        items[(int) currentTail & mask] = e;
+        tail = currentTail + 1;
+        Thread consumer = waitingConsumer;
+        if (consumer != null) {
+            LockSupport.unpark(consumer);
+        }
+        return true;
+    }
+
+    /**
+     * producer side, never blocks, e is kept in the overflow list if the ring is full
+     *
+     * @return false if the queue is closed and e is dropped
+     */
+    public boolean offerOrOverflow(E e) {
+        if (offer(e)) {
+            return true;
+        }
+        if (closed) {
+            return false;
+        }
+        overflowCount.incrementAndGet();
+        overflow.offer(e);
+        Thread consumer = waitingConsumer;
+        if (consumer != null) {
+            LockSupport.unpark(consumer);
+        }
+        return true;
+    }
+
+    /**
+     * producer side, park while the ring is full
+     *
+     * @return false if the queue is closed and e is dropped
+     */
+    public boolean put(E e) throws InterruptedException {
+        while (!offer(e)) {
+            if (closed) {
+                return false;
+            }
+            waitingProducer = Thread.currentThread();
+            if ((tail - head == items.length || overflowCount.get() > 0) && !closed) {
+                LockSupport.park(this);
+            }
+            waitingProducer = null;
+            if (Thread.interrupted()) {
+                throw new InterruptedException();
+            }
+        }
+        return true;
+    }
+
+    /**
+     * consumer side
+     *
+     * @return null if the queue is empty
+     */
+    @SuppressWarnings("unchecked")
+    public E poll() {
+        long currentHead = head;
+        if (currentHead == tail) {
+            E e = overflow.poll();
+            if (e != null) {
+                overflowCount.decrementAndGet();
+                Thread producer = waitingProducer;
+                if (producer != null) {
+                    LockSupport.unpark(producer);
+                }
+            }
+            return e;
+        }
+        int index = (int) currentHead & mask;
+        final E e = (E) items[index];
+        items[index] = null;
+        head = currentHead + 1;
+        Thread producer = waitingProducer;
+        if (producer != null) {
+            LockSupport.unpark(producer);
+        }
+        return e;
+    }
+
+    /**
+     * consumer side, park while the ring is empty
+     *
+     * @return null if the queue is closed and empty
+     */
+    public E take() throws InterruptedException {
+        while (true) {
+            E e = poll();
+            if (e != null) {
+                return e;
+            }
+            if (closed) {
+                return null;
+            }
+            waitingConsumer = Thread.currentThread();
+            if (isEmpty() && !closed) {
+                LockSupport.park(this);
+            }
+            waitingConsumer = null;
+            if (Thread.interrupted()) {
+                throw new InterruptedException();
+            }
+        }
+    }
+
+    /**
+     * consumer side, drop all the items
+     */
+    public void clear() {
+        while (poll() != null) {
+            // drop it
+        }
+    }
+
+    /**
+     * can be called by any thread, wake up the waiting producer and consumer
+     */
+    public void close() {
+        closed = true;
+        Thread producer = waitingProducer;
+        if (producer != null) {
+            LockSupport.unpark(producer);
+        }
+        Thread consumer = waitingConsumer;
+        if (consumer != null) {
+            LockSupport.unpark(consumer);
+        }
+    }
+}
@@ -0,0 +1,101 @@
+/*
+ * Copyright (C) 2016-2018 ActionTech.
+ * License: http://www.gnu.org/licenses/gpl.html GPL version 2 or higher.
+ */
+
+package com.actiontech.dble.backend;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * the active count of a data source asked once per borrow: scanning all the backend connections of the
+ * processors like before, or reading the counters of the ConMap.
+ * CONNECTIONS connections are spread over DATA_SOURCES data sources and SCHEMAS schemas, half of them borrowed.
+ */
+public class ConMapPerfMain {
+    private static final int CONNECTIONS = 50000;
+    private static final int DATA_SOURCES = 8;
+    private static final int SCHEMAS = 4;
+    private static final int TIMES = 2000;
+
+    /**
+     * the fields of a backend connection read by the scan
+     */
+    private static class Con {
+        private final Object pool;
+        private final String schema;
+        private final boolean borrowed;
+
+        Con(Object pool, String schema, boolean borrowed) {
+            this.pool = pool;
+            this.schema = schema;
+            this.borrowed = borrowed;
+        }
+    }
+
+    private final Object[] pools = new Object[DATA_SOURCES];
+    private final ConMap[] conMaps = new ConMap[DATA_SOURCES];
+    private final ConcurrentMap<Long, Con> backends = new ConcurrentHashMap<>();
+    private long scanned;
+
+    private ConMapPerfMain() {
+        for (int i = 0; i < DATA_SOURCES; i++) {
+            pools[i] = new Object();
+            conMaps[i] = new ConMap();
+        }
+        for (long id = 0; id < CONNECTIONS; id++) {
+            int ds = (int) (id % DATA_SOURCES);
+            String schema = "db" + (id / DATA_SOURCES % SCHEMAS);
+            boolean borrowed = id / DATA_SOURCES / SCHEMAS % 2 == 0;
+            backends.put(id, new Con(pools[ds], schema, borrowed));
+            if (borrowed) {
+                conMaps[ds].incActiveCount(schema);
+            }
+        }
+    }
+
+    private int scan(Object pool, String schema) {
+        int total = 0;
+        for (Con con : backends.values()) {
+            if (con.pool == pool && con.borrowed && (schema == null || schema.equals(con.schema))) {
+                total++;
+            }
+        }
+        return total;
+    }
+
+    private long scan() {
+        long start = System.nanoTime();
+        long total = 0;
+        for (int i = 0; i < TIMES; i++) {
+            total += scan(pools[i % DATA_SOURCES], null);
+            total += scan(pools[i % DATA_SOURCES], "db" + (i % SCHEMAS));
+        }
+        scanned = total;
+        return (System.nanoTime() - start) / TIMES;
+    }
+
+    private long count() {
+        long start = System.nanoTime();
+        long total = 0;
+        for (int i = 0; i < TIMES; i++) {
+            total += conMaps[i % DATA_SOURCES].getActiveCount();
+            total += conMaps[i % DATA_SOURCES].getActiveCountForSchema("db" + (i % SCHEMAS));
+        }
+        long cost = (System.nanoTime() - start) / TIMES;
+        if (total != scanned) {
+            throw new IllegalStateException("counted " + total + ", scanned " + scanned);
+        }
+        return cost;
+    }
+
+    public static void main(String[] args) {
+        ConMapPerfMain main = new ConMapPerfMain();
+        for (int round = 0; round < 5; round++) {
+            long scan = main.scan();
+            long count = main.count();
+            System.out.println("round " + round + ": scan " + scan + " ns, counter " + count + " ns per borrow");
+        }
+    }
+}
@@ -0,0 +1,196 @@
+/*
+ * Copyright (C) 2016-2018 ActionTech.
+ * License: http://www.gnu.org/licenses/gpl.html GPL version 2 or higher.
+ */
+
+package com.actiontech.dble.backend.datasource;
+
+import com.actiontech.dble.backend.BackendConnection;
+import com.actiontech.dble.backend.mysql.nio.MySQLDataSource;
+import com.actiontech.dble.config.model.DBHostConfig;
+import com.actiontech.dble.config.model.DataHostConfig;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.*;
+
+/**
+ * the active and idle counters of the data source are the same as counted by scanning all the connections,
+ * with the idle connections kept by schema or shared by all the schemas
+ */
+public class ConnectionCountTest {
+    private static final String[] SCHEMAS = {"db1", "db2", "db3"};
+
+    @Test
+    public void testCountsMatchScan() throws Exception {
+        checkCounts(false);
+    }
+
+    @Test
+    public void testSharedCountsMatchScan() throws Exception {
+        checkCounts(true);
+    }
+
+    private void checkCounts(boolean shared) throws Exception {
+        PhysicalDatasource ds = dataSource(shared);
+        Random random = new Random(1);
+        List<BackendConnection> cons = new ArrayList<>();
+        for (int i = 0; i < 10000; i++) {
+            switch (random.nextInt(4)) {
+                case 0: {
+                    // a new connection goes to the idle queue
+                    BackendConnection con = connection(SCHEMAS[random.nextInt(SCHEMAS.length)], random.nextBoolean());
+                    cons.add(con);
+                    ds.releaseChannel(con);
+                    break;
+                }
+                case 1:
+                    if (ds.getIdleCount() > 0) {
+                        ds.getConnection(SCHEMAS[random.nextInt(SCHEMAS.length)], random.nextBoolean());
+                    }
+                    break;
+                case 2: {
+                    BackendConnection con = randomOpen(cons, random, true);
+                    if (con != null) {
+                        ds.releaseChannel(con);
+                    }
+                    break;
+                }
+                default: {
+                    BackendConnection con = randomOpen(cons, random, random.nextBoolean());
+                    if (con != null) {
+                        state(con).closed = true;
+                        ds.connectionClosed(con);
+                    }
+                    break;
+                }
+            }
+            assertCounts(ds, cons, shared);
+        }
+    }
+
+    private static void assertCounts(PhysicalDatasource ds, List<BackendConnection> cons, boolean shared) {
+        Map<String, Integer> active = new HashMap<>();
+        Map<String, Integer> idle = new HashMap<>();
+        for (BackendConnection con : cons) {
+            if (con.isClosedOrQuit()) {
+                continue;
+            }
+            Map<String, Integer> counts = con.isBorrowed() ? active : idle;
+            Integer count = counts.get(con.getSchema());
+            counts.put(con.getSchema(), count == null ? 1 : count + 1);
+        }
+        int totalActive = 0;
+        int totalIdle = 0;
+        for (String schema : SCHEMAS) {
+            int schemaActive = active.containsKey(schema) ? active.get(schema) : 0;
+            int schemaIdle = idle.containsKey(schema) ? idle.get(schema) : 0;
+            Assert.assertEquals(schemaActive, ds.getActiveCountForSchema(schema));
+            if (!shared) {
+                Assert.assertEquals(schemaIdle, ds.getIdleCountForSchema(schema));
+            }
+            totalActive += schemaActive;
+            totalIdle += schemaIdle;
+        }
+        Assert.assertEquals(totalActive, ds.getActiveCount());
+        Assert.assertEquals(totalIdle, ds.getIdleCount());
+        if (shared) {
+            // every idle connection can be used by any schema
+            for (String schema : SCHEMAS) {
+                Assert.assertEquals(totalIdle, ds.getIdleCountForSchema(schema));
+            }
+        }
+    }
+
+    private static BackendConnection randomOpen(List<BackendConnection> cons, Random random, boolean borrowed) {
+        List<BackendConnection> candidates = new ArrayList<>();
+        for (BackendConnection con : cons) {
+            if (!con.isClosedOrQuit() && con.isBorrowed() == borrowed) {
+                candidates.add(con);
+            }
+        }
+        return candidates.isEmpty() ? null : candidates.get(random.nextInt(candidates.size()));
+    }
+
+    private static PhysicalDatasource dataSource(boolean shared) {
+        DBHostConfig config = new DBHostConfig("hostM1", "127.0.0.1", 3306, "127.0.0.1:3306", "root", "root");
+        config.setMaxCon(100000);
+        config.setSharedPool(shared);
+        DataHostConfig hostConfig = new DataHostConfig("localhost1", new DBHostConfig[]{config},
+                new HashMap<Integer, DBHostConfig[]>(), -1, -1, false);
+        return new MySQLDataSource(config, hostConfig, false);
+    }
+
+    private static FakeConnection state(BackendConnection con) {
+        return (FakeConnection) Proxy.getInvocationHandler(con);
+    }
+
+    private static BackendConnection connection(String schema, boolean autocommit) {
+        FakeConnection state = new FakeConnection();
+        state.schema = schema;
+        state.autocommit = autocommit;
+        return (BackendConnection) Proxy.newProxyInstance(ConnectionCountTest.class.getClassLoader(),
+                new Class<?>[]{BackendConnection.class}, state);
+    }
+
+    /**
+     * the state of a connection used by the pool
+     */
+    private static class FakeConnection implements InvocationHandler {
+        private String schema;
+        private boolean autocommit;
+        private boolean borrowed;
+        private boolean closed;
+        private long lastTime;
+        private long borrowTime;
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) {
+            switch (method.getName()) {
+                case "getSchema":
+                    return schema;
+                case "setSchema":
+                    schema = (String) args[0];
+                    return null;
+                case "isAutocommit":
+                    return autocommit;
+                case "isBorrowed":
+                    return borrowed;
+                case "setBorrowed":
+                    borrowed = (Boolean) args[0];
+                    return null;
+                case "isClosedOrQuit":
+                    return closed;
+                case "getLastTime":
+                    return lastTime;
+                case "setLastTime":
+                    lastTime = (Long) args[0];
+                    return null;
+                case "setBorrowTime":
+                    borrowTime = (Long) args[0];
+                    return null;
+                case "clearBorrowTime": {
+                    long old = borrowTime;
+                    borrowTime = 0;
+                    return old;
+                }
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "equals":
+                    return proxy == args[0];
+                default:
+                    if (method.getReturnType() == boolean.class) {
+                        return false;
+                    } else if (method.getReturnType() == long.class) {
+                        return 0L;
+                    } else if (method.getReturnType() == int.class) {
+                        return 0;
+                    }
+                    return null;
+            }
+        }
+    }
+}
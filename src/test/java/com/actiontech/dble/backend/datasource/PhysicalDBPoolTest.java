@@ -0,0 +1,159 @@
+/*
+ * Copyright (C) 2016-2018 ActionTech.
+ * License: http://www.gnu.org/licenses/gpl.html GPL version 2 or higher.
+ */
+
+package com.actiontech.dble.backend.datasource;
+
+import com.actiontech.dble.config.model.DBHostConfig;
+import com.actiontech.dble.config.model.DataHostConfig;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * the read balance by power of two choices
+ */
+public class PhysicalDBPoolTest {
+    private static final int BALANCE_ALL_READ = 3;
+    private static final int TIMES = 2000;
+
+    @Test
+    public void testZeroWeightSources() {
+        PhysicalDatasource zero1 = source("zero1", 0, 1);
+        PhysicalDatasource weighted = source("weighted", 2, 100);
+        PhysicalDatasource zero2 = source("zero2", 0, 1);
+        PhysicalDBPool pool = pool(source("write", 1, 0), Collections.<PhysicalDatasource>emptyList());
+        List<PhysicalDatasource> okSources = Arrays.asList(zero1, weighted, zero2);
+        // the sources of weight 0 are never drawn while another has weight, even with a better score
+        for (int i = 0; i < TIMES; i++) {
+            Assert.assertSame(weighted, pool.balanceSelect(okSources));
+        }
+
+        // all of weight 0 are drawn randomly, the better score of the two wins
+        PhysicalDatasource better = source("better", 0, 1);
+        PhysicalDatasource worse = source("worse", 0, 2);
+        PhysicalDatasource worst = source("worst", 0, 3);
+        Map<PhysicalDatasource, Integer> counts = count(pool, Arrays.asList(worst, better, worse));
+        Assert.assertNull(counts.get(worst));
+        Assert.assertTrue(counts.get(better) > counts.get(worse));
+        Assert.assertNotNull(counts.get(worse));
+    }
+
+    @Test
+    public void testExcludedIndexNotDrawnAgain() {
+        PhysicalDBPool pool = pool(source("write", 1, 0), Collections.<PhysicalDatasource>emptyList());
+        // the second draw excludes the first one, so both sources are compared every time
+        PhysicalDatasource better = source("better", 1, 1);
+        PhysicalDatasource worse = source("worse", 1000, 2);
+        for (int i = 0; i < TIMES; i++) {
+            Assert.assertSame(better, pool.balanceSelect(Arrays.asList(worse, better)));
+            Assert.assertSame(better, pool.balanceSelect(Arrays.asList(better, worse)));
+        }
+
+        // the weight of the excluded one is not drawn: a weighted and a zero weight source
+        PhysicalDatasource zero = source("zero", 0, 0);
+        for (int i = 0; i < TIMES; i++) {
+            Assert.assertSame(worse, pool.balanceSelect(Arrays.asList(zero, worse)));
+        }
+
+        // the worst of three is never selected, the others are chosen by the weights of the pairs
+        PhysicalDatasource best = source("best", 1, 1);
+        PhysicalDatasource middle = source("middle", 1, 2);
+        PhysicalDatasource worst = source("worst", 1, 3);
+        Map<PhysicalDatasource, Integer> counts = count(pool, Arrays.asList(worst, middle, best));
+        Assert.assertNull(counts.get(worst));
+        Assert.assertTrue(counts.get(best) > counts.get(middle));
+    }
+
+    @Test
+    public void testOneOrTwoSources() {
+        PhysicalDatasource write = source("write", 1, 0);
+        PhysicalDBPool pool = pool(write, Collections.<PhysicalDatasource>emptyList());
+        // no source, the write source is used
+        Assert.assertSame(write, pool.balanceSelect(new ArrayList<PhysicalDatasource>()));
+
+        // the only one is used whatever its weight and score
+        PhysicalDatasource only = source("only", 0, 100);
+        for (int i = 0; i < TIMES; i++) {
+            Assert.assertSame(only, pool.balanceSelect(Collections.singletonList(only)));
+        }
+
+        PhysicalDatasource read1 = source("read1", 1, 5);
+        PhysicalDatasource read2 = source("read2", 1, 3);
+        for (int i = 0; i < TIMES; i++) {
+            Assert.assertSame(read2, pool.balanceSelect(Arrays.asList(read1, read2)));
+        }
+        // the same score, both are selected
+        when(read1.getBalanceScore()).thenReturn(3L);
+        Map<PhysicalDatasource, Integer> counts = count(pool, Arrays.asList(read1, read2));
+        Assert.assertNotNull(counts.get(read1));
+        Assert.assertNotNull(counts.get(read2));
+    }
+
+    @Test
+    public void testBalanceSourcesRebuiltAfterReset() {
+        PhysicalDatasource write = source("write", 1, 0);
+        PhysicalDatasource read1 = source("read1", 1, 1);
+        PhysicalDatasource read2 = source("read2", 1, 2);
+        PhysicalDBPool pool = pool(write, Arrays.asList(read1, read2));
+        Assert.assertSame(read1, pool.getRWBalanceNode());
+
+        // the sources are cached until they are reset
+        when(read1.isAlive()).thenReturn(false);
+        Assert.assertSame(read1, pool.getRWBalanceNode());
+        pool.resetBalanceSources();
+        for (int i = 0; i < TIMES; i++) {
+            Assert.assertSame(read2, pool.getRWBalanceNode());
+        }
+
+        // no read source alive, the write source is used
+        when(read2.isAlive()).thenReturn(false);
+        pool.resetBalanceSources();
+        Assert.assertSame(write, pool.getRWBalanceNode());
+
+        when(read1.isAlive()).thenReturn(true);
+        when(read2.isAlive()).thenReturn(true);
+        Assert.assertSame(write, pool.getRWBalanceNode());
+        pool.resetBalanceSources();
+        Assert.assertSame(read1, pool.getRWBalanceNode());
+    }
+
+    private static Map<PhysicalDatasource, Integer> count(PhysicalDBPool pool, List<PhysicalDatasource> okSources) {
+        Map<PhysicalDatasource, Integer> counts = new HashMap<>();
+        for (int i = 0; i < TIMES; i++) {
+            PhysicalDatasource selected = pool.balanceSelect(okSources);
+            Integer count = counts.get(selected);
+            counts.put(selected, count == null ? 1 : count + 1);
+        }
+        return counts;
+    }
+
+    private static PhysicalDBPool pool(PhysicalDatasource write, List<PhysicalDatasource> reads) {
+        DataHostConfig conf = mock(DataHostConfig.class);
+        when(conf.getSlaveThreshold()).thenReturn(-1);
+        Map<Integer, PhysicalDatasource[]> readSources = new HashMap<>();
+        readSources.put(0, reads.toArray(new PhysicalDatasource[reads.size()]));
+        return new PhysicalDBPool("localhost1", conf, new PhysicalDatasource[]{write}, readSources, BALANCE_ALL_READ);
+    }
+
+    private static PhysicalDatasource source(String name, int weight, long score) {
+        DBHostConfig config = new DBHostConfig(name, "127.0.0.1", 3306, "127.0.0.1:3306", "root", "123456");
+        config.setWeight(weight);
+        PhysicalDatasource ds = mock(PhysicalDatasource.class);
+        when(ds.getName()).thenReturn(name);
+        when(ds.getConfig()).thenReturn(config);
+        when(ds.getBalanceScore()).thenReturn(score);
+        when(ds.isAlive()).thenReturn(true);
+        return ds;
+    }
+}
@@ -0,0 +1,216 @@
+/*
+ * Copyright (C) 2016-2018 ActionTech.
+ * License: http://www.gnu.org/licenses/gpl.html GPL version 2 or higher.
+ */
+
+package com.actiontech.dble.backend.mysql.nio;
+
+import com.actiontech.dble.backend.BackendConnection;
+import com.actiontech.dble.backend.mysql.nio.handler.ResponseHandler;
+import com.actiontech.dble.backend.mysql.nio.handler.RowBufferResponseHandler;
+import com.actiontech.dble.buffer.DirectByteBufferPool;
+import com.actiontech.dble.net.AbstractConnection;
+import com.actiontech.dble.net.NIOProcessor;
+import com.actiontech.dble.net.mysql.FieldPacket;
+import com.actiontech.dble.net.mysql.RowDataPacket;
+import junit.framework.Assert;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.mockito.Mockito.mock;
+
+/**
+ * the row packets read by a backend connection are passed to a RowBufferResponseHandler right from the
+ * read buffer, the other packets and the rows it declines are copied to byte[]
+ */
+public class RowPassThroughTest {
+
+    @Test
+    public void testRowSplitAcrossReads() throws IOException {
+        byte[] row1 = rowPacket(4, "first");
+        byte[] row2 = rowPacket(5, "a row which is long enough to be split at many places of its payload");
+        byte[] eof = eofPacket(6);
+        byte[] all = concat(row1, row2, eof);
+        // every split of the stream, the headers included
+        for (int split = 1; split < all.length; split++) {
+            RowHandler rowHandler = new RowHandler(false);
+            PacketConnection conn = startResult(rowHandler);
+            conn.read(Arrays.copyOfRange(all, 0, split));
+            conn.read(Arrays.copyOfRange(all, split, all.length));
+
+            String message = "split at " + split;
+            Assert.assertEquals(message, 2, rowHandler.bufferRows.size());
+            Assert.assertTrue(message, Arrays.equals(row1, rowHandler.bufferRows.get(0)));
+            Assert.assertTrue(message, Arrays.equals(row2, rowHandler.bufferRows.get(1)));
+            Assert.assertTrue(message, rowHandler.rows.isEmpty());
+            // the eof is never passed through
+            Assert.assertEquals(message, 1, conn.copied.size());
+            Assert.assertTrue(message, Arrays.equals(eof, conn.copied.get(0)));
+            Assert.assertTrue(message, rowHandler.eof);
+        }
+    }
+
+    @Test
+    public void testFallbackWhenConverted() throws IOException {
+        byte[] row1 = rowPacket(4, "first");
+        byte[] row2 = rowPacket(5, "second");
+        byte[] eof = eofPacket(6);
+        // the rows must be read to be converted, like the rows of a prepared statement
+        RowHandler rowHandler = new RowHandler(true);
+        PacketConnection conn = startResult(rowHandler);
+        conn.read(concat(row1, row2, eof));
+
+        Assert.assertTrue(rowHandler.bufferRows.isEmpty());
+        Assert.assertEquals(2, rowHandler.rows.size());
+        Assert.assertTrue(Arrays.equals(row1, rowHandler.rows.get(0)));
+        Assert.assertTrue(Arrays.equals(row2, rowHandler.rows.get(1)));
+        Assert.assertEquals(3, conn.copied.size());
+        Assert.assertTrue(rowHandler.eof);
+    }
+
+    /**
+     * a connection which has read the header, a field and the field eof of a result set
+     */
+    private static PacketConnection startResult(RowHandler rowHandler) throws IOException {
+        MySQLConnectionHandler connHandler = new MySQLConnectionHandler(mock(MySQLConnection.class));
+        connHandler.setResponseHandler(rowHandler);
+        PacketConnection conn = new PacketConnection(connHandler);
+        conn.setProcessor(new NIOProcessor("test", new DirectByteBufferPool(4096, (short) 256, (short) 2)));
+        conn.read(concat(packet(1, new byte[]{1}), packet(2, "def".getBytes()), eofPacket(3)));
+        Assert.assertTrue(rowHandler.fieldEof);
+        conn.copied.clear();
+        return conn;
+    }
+
+    private static byte[] rowPacket(int packetId, String value) {
+        byte[] bytes = value.getBytes();
+        byte[] payload = new byte[bytes.length + 1];
+        payload[0] = (byte) bytes.length;
+        System.arraycopy(bytes, 0, payload, 1, bytes.length);
+        return packet(packetId, payload);
+    }
+
+    private static byte[] eofPacket(int packetId) {
+        return packet(packetId, new byte[]{(byte) 0xfe, 0, 0, 2, 0});
+    }
+
+    private static byte[] packet(int packetId, byte[] payload) {
+        byte[] packet = new byte[payload.length + 4];
+        packet[0] = (byte) (payload.length & 0xff);
+        packet[1] = (byte) (payload.length >>> 8);
+        packet[2] = (byte) (payload.length >>> 16);
+        packet[3] = (byte) packetId;
+        System.arraycopy(payload, 0, packet, 4, payload.length);
+        return packet;
+    }
+
+    private static byte[] concat(byte[]... packets) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        for (byte[] packet : packets) {
+            out.write(packet, 0, packet.length);
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * handles the copied packets at once, as the executor of the backend would do
+     */
+    private static class PacketConnection extends AbstractConnection {
+        private final MySQLConnectionHandler connHandler;
+        private final List<byte[]> copied = new ArrayList<>();
+
+        PacketConnection(MySQLConnectionHandler connHandler) {
+            this.connHandler = connHandler;
+            setHandler(connHandler);
+        }
+
+        void read(byte[] data) throws IOException {
+            readBuffer.put(data);
+            onReadData(data.length);
+        }
+
+        @Override
+        public void register() {
+        }
+
+        @Override
+        public void handle(byte[] data) {
+            copied.add(data);
+            connHandler.handleData(data);
+        }
+    }
+
+    private static class RowHandler implements ResponseHandler, RowBufferResponseHandler {
+        private final boolean convert;
+        private final List<byte[]> bufferRows = new ArrayList<>();
+        private final List<byte[]> rows = new ArrayList<>();
+        private boolean fieldEof = false;
+        private boolean eof = false;
+
+        RowHandler(boolean convert) {
+            this.convert = convert;
+        }
+
+        @Override
+        public boolean rowBufferResponse(ByteBuffer buffer, int offset, int length, BackendConnection conn) {
+            if (convert) {
+                return false;
+            }
+            byte[] row = new byte[length];
+            for (int i = 0; i < length; i++) {
+                row[i] = buffer.get(offset + i);
+            }
+            bufferRows.add(row);
+            return true;
+        }
+
+        @Override
+        public boolean rowResponse(byte[] row, RowDataPacket rowPacket, boolean isLeft, BackendConnection conn) {
+            rows.add(row);
+            return false;
+        }
+
+        @Override
+        public void fieldEofResponse(byte[] header, List<byte[]> fields, List<FieldPacket> fieldPackets, byte[] eofData,
+                                     boolean isLeft, BackendConnection conn) {
+            fieldEof = true;
+        }
+
+        @Override
+        public void rowEofResponse(byte[] eofData, boolean isLeft, BackendConnection conn) {
+            eof = true;
+        }
+
+        @Override
+        public void connectionError(Throwable e, BackendConnection conn) {
+            throw new AssertionError(e);
+        }
+
+        @Override
+        public void connectionAcquired(BackendConnection conn) {
+        }
+
+        @Override
+        public void errorResponse(byte[] err, BackendConnection conn) {
+            throw new AssertionError("unexpected error packet");
+        }
+
+        @Override
+        public void okResponse(byte[] ok, BackendConnection conn) {
+        }
+
+        @Override
+        public void writeQueueAvailable() {
+        }
+
+        @Override
+        public void connectionClose(BackendConnection conn, String reason) {
+        }
+    }
+}
@@ -0,0 +1,109 @@
+/*
+ * Copyright (C) 2016-2018 ActionTech.
+ * License: http://www.gnu.org/licenses/gpl.html GPL version 2 or higher.
+ */
+
+package com.actiontech.dble.backend.mysql.nio.handler;
+
+import com.actiontech.dble.net.mysql.CharsetNames;
+import com.actiontech.dble.route.RouteResultset;
+import com.actiontech.dble.route.RouteResultsetNode;
+import com.actiontech.dble.server.NonBlockingSession;
+import com.actiontech.dble.server.ServerConnection;
+import com.actiontech.dble.server.parser.ServerParse;
+import com.actiontech.dble.sqlengine.mpp.LoadData;
+import com.actiontech.dble.sqlengine.mpp.LoadDataStream;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * the backend connection can't be acquired while the parser waits for a full stream,
+ * the error comes without a connection and must still end the wait
+ */
+public class LoadDataAbortTest {
+    private static final String SQL = "LOAD DATA LOCAL INFILE 'a.txt' INTO TABLE t";
+
+    @Test
+    public void testSingleNodeConnectionError() throws InterruptedException {
+        LoadDataStream stream = new LoadDataStream("dn1", 4, 1);
+        RouteResultset rrs = loadDataRoute(stream);
+        NonBlockingSession session = mockSession();
+        Thread writer = startWriter(stream);
+
+        SingleNodeHandler handler = new SingleNodeHandler(rrs, session);
+        handler.connectionError(new IOException("the max active Connections size can not be max than maxCon"), null);
+        writer.join(TimeUnit.SECONDS.toMillis(10));
+        Assert.assertFalse(writer.isAlive());
+        Assert.assertTrue(stream.isAborted());
+        verify(session.getSource()).close("the max active Connections size can not be max than maxCon");
+    }
+
+    @Test
+    public void testMultiNodeConnectionError() throws InterruptedException {
+        LoadDataStream stream1 = new LoadDataStream("dn1", 4, 1);
+        LoadDataStream stream2 = new LoadDataStream("dn2", 4, 1);
+        RouteResultset rrs = loadDataRoute(stream1, stream2);
+        NonBlockingSession session = mockSession();
+        Thread writer = startWriter(stream2);
+
+        MultiNodeQueryHandler handler = new MultiNodeQueryHandler(rrs, session);
+        handler.reset(2);
+        // the first node failed, the full stream belongs to the other one which is still waiting for its connection
+        handler.connectionError(new IOException("the max active Connections size can not be max than maxCon"), null);
+        writer.join(TimeUnit.SECONDS.toMillis(10));
+        Assert.assertFalse(writer.isAlive());
+        Assert.assertTrue(stream1.isAborted());
+        Assert.assertTrue(stream2.isAborted());
+    }
+
+    private static RouteResultset loadDataRoute(LoadDataStream... streams) {
+        RouteResultset rrs = new RouteResultset(SQL, ServerParse.LOAD_DATA_INFILE_SQL);
+        rrs.setLoadData(true);
+        RouteResultsetNode[] nodes = new RouteResultsetNode[streams.length];
+        for (int i = 0; i < streams.length; i++) {
+            nodes[i] = new RouteResultsetNode(streams[i].getDataNode(), ServerParse.LOAD_DATA_INFILE_SQL, SQL);
+            LoadData loadData = new LoadData();
+            loadData.setLocal(true);
+            loadData.setStream(streams[i]);
+            nodes[i].setLoadData(loadData);
+        }
+        rrs.setNodes(nodes);
+        return rrs;
+    }
+
+    private static NonBlockingSession mockSession() {
+        CharsetNames charset = mock(CharsetNames.class);
+        when(charset.getResults()).thenReturn("utf8");
+        ServerConnection source = mock(ServerConnection.class);
+        when(source.getCharset()).thenReturn(charset);
+        NonBlockingSession session = mock(NonBlockingSession.class);
+        when(session.getSource()).thenReturn(source);
+        return session;
+    }
+
+    /**
+     * the file is not requested yet, so the writer waits after the first packet
+     */
+    private static Thread startWriter(final LoadDataStream stream) throws InterruptedException {
+        Thread writer = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                for (int i = 0; i < 10; i++) {
+                    stream.write("abc\n".getBytes());
+                }
+                stream.finish();
+            }
+        });
+        writer.start();
+        writer.join(200);
+        Assert.assertTrue(writer.isAlive());
+        return writer;
+    }
+}
@@ -0,0 +1,80 @@
+/*
+ * Copyright (C) 2016-2018 ActionTech.
+ * License: http://www.gnu.org/licenses/gpl.html GPL version 2 or higher.
+ */
+
+package com.actiontech.dble.backend.mysql.nio.handler;
+
+import com.actiontech.dble.route.RouteResultset;
+import com.actiontech.dble.route.RouteResultsetNode;
+import com.actiontech.dble.server.NonBlockingSession;
+import com.actiontech.dble.server.ServerConnection;
+import com.actiontech.dble.server.parser.ServerParse;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyInt;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class RowBufferResponseTest {
+    private static final String SQL = "select id from t1";
+
+    @Test
+    public void testPassThrough() {
+        ServerConnection source = mock(ServerConnection.class);
+        ByteBuffer writeBuffer = ByteBuffer.allocate(64);
+        when(source.allocate()).thenReturn(writeBuffer);
+        when(source.writeToBuffer(any(ByteBuffer.class), anyInt(), anyInt(), any(ByteBuffer.class))).thenReturn(writeBuffer);
+        SingleNodeHandler handler = new SingleNodeHandler(route(), session(source));
+
+        ByteBuffer readBuffer = readBuffer();
+        Assert.assertTrue(handler.rowBufferResponse(readBuffer, 8, 9, null));
+        // the packet id is the one of the front connection
+        Assert.assertEquals(1, readBuffer.get(8 + 3));
+        verify(source).writeToBuffer(readBuffer, 8, 9, writeBuffer);
+        Assert.assertEquals(0, readBuffer.position());
+    }
+
+    @Test
+    public void testFallbackWhenPrepared() {
+        ServerConnection source = mock(ServerConnection.class);
+        SingleNodeHandler handler = new SingleNodeHandler(route(), session(source));
+        // the text rows are converted to binary rows, so they must be read
+        handler.setPrepared(true);
+
+        ByteBuffer readBuffer = readBuffer();
+        Assert.assertFalse(handler.rowBufferResponse(readBuffer, 8, 9, null));
+        // left as it is for the byte[] path
+        Assert.assertEquals(7, readBuffer.get(8 + 3));
+        verify(source, never()).writeToBuffer(any(ByteBuffer.class), anyInt(), anyInt(), any(ByteBuffer.class));
+    }
+
+    private static RouteResultset route() {
+        RouteResultset rrs = new RouteResultset(SQL, ServerParse.SELECT);
+        rrs.setNodes(new RouteResultsetNode[]{new RouteResultsetNode("dn1", ServerParse.SELECT, SQL)});
+        return rrs;
+    }
+
+    private static NonBlockingSession session(ServerConnection source) {
+        NonBlockingSession session = mock(NonBlockingSession.class);
+        when(session.getSource()).thenReturn(source);
+        return session;
+    }
+
+    /**
+     * a read buffer with a row packet of 5 bytes at offset 8, its packet id is 7
+     */
+    private static ByteBuffer readBuffer() {
+        ByteBuffer buffer = ByteBuffer.allocate(32);
+        buffer.position(8);
+        buffer.put(new byte[]{5, 0, 0, 7, 4, 't', 'e', 's', 't'});
+        buffer.position(0);
+        return buffer;
+    }
+}
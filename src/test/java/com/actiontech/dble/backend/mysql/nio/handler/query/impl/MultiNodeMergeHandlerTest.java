@@ -0,0 +1,137 @@
+/*
+ * Copyright (C) 2016-2018 ActionTech.
+ * License: http://www.gnu.org/licenses/gpl.html GPL version 2 or higher.
+ */
+
+package com.actiontech.dble.backend.mysql.nio.handler.query.impl;
+
+import com.actiontech.dble.DbleServer;
+import com.actiontech.dble.backend.BackendConnection;
+import com.actiontech.dble.backend.mysql.nio.MySQLConnection;
+import com.actiontech.dble.backend.mysql.nio.handler.query.BaseDMLHandler;
+import com.actiontech.dble.net.mysql.FieldPacket;
+import com.actiontech.dble.net.mysql.RowDataPacket;
+import com.actiontech.dble.plan.Order;
+import com.actiontech.dble.plan.common.item.FieldTypes;
+import com.actiontech.dble.plan.common.item.ItemField;
+import com.actiontech.dble.route.RouteResultsetNode;
+import com.actiontech.dble.server.NonBlockingSession;
+import com.actiontech.dble.server.parser.ServerParse;
+import com.alibaba.druid.sql.ast.SQLOrderingSpecification;
+import junit.framework.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.mockito.Mockito.atLeastOnce;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class MultiNodeMergeHandlerTest {
+
+    /**
+     * the merge thread is not taking rows, the rows in the read buffer still come after the pause and must
+     * not block the thread of the connection
+     */
+    @Test(timeout = 60000)
+    public void testFullQueue() throws Exception {
+        RouteResultsetNode[] route = new RouteResultsetNode[]{node("dn1"), node("dn2")};
+        MySQLConnection conn1 = mock(MySQLConnection.class);
+        MySQLConnection conn2 = mock(MySQLConnection.class);
+        NonBlockingSession session = mock(NonBlockingSession.class);
+        when(session.getTarget(route[0])).thenReturn(conn1);
+        when(session.getTarget(route[1])).thenReturn(conn2);
+        when(session.tryExistsCon(conn1, route[0])).thenReturn(true);
+        when(session.tryExistsCon(conn2, route[1])).thenReturn(true);
+
+        List<Order> orders = new ArrayList<>();
+        orders.add(new Order(new ItemField(null, "t1", "id"), SQLOrderingSpecification.ASC));
+        MultiNodeMergeHandler handler = new MultiNodeMergeHandler(1, route, true, session, orders);
+        CollectHandler collector = new CollectHandler();
+        handler.setNextHandler(collector);
+        handler.execute();
+        // one node only, so the merge thread is not started
+        handler.fieldEofResponse(null, null, fieldPackets(), null, false, conn1);
+
+        int queueSize = DbleServer.getInstance().getConfig().getSystem().getMergeQueueSize();
+        // more rows than the ring, which is twice the queue size
+        int count1 = queueSize * 3 + 10;
+        List<Long> expected = new ArrayList<>();
+        for (long i = 0; i < count1; i++) {
+            expected.add(i * 2);
+            Assert.assertFalse(handler.rowResponse(null, row(i * 2), false, conn1));
+        }
+        handler.rowEofResponse(null, false, conn1);
+        verify(conn1, atLeastOnce()).disableRead();
+        for (long i = 0; i < 5; i++) {
+            expected.add(i * 2 + 1);
+            handler.rowResponse(null, row(i * 2 + 1), false, conn2);
+        }
+        handler.rowEofResponse(null, false, conn2);
+
+        // every row is merged in order, the overflow ones included
+        handler.ownThreadJob();
+        Collections.sort(expected);
+        Assert.assertTrue(collector.eof);
+        Assert.assertEquals(expected, collector.rows);
+    }
+
+    private static RouteResultsetNode node(String dataNode) {
+        return new RouteResultsetNode(dataNode, ServerParse.SELECT, "select id from t1 order by id");
+    }
+
+    private static List<FieldPacket> fieldPackets() {
+        FieldPacket fp = new FieldPacket();
+        fp.setTable("t1".getBytes());
+        fp.setName("id".getBytes());
+        fp.setType(FieldTypes.MYSQL_TYPE_LONGLONG.numberValue());
+        fp.setCharsetIndex(33);
+        fp.setLength(20);
+        List<FieldPacket> fps = new ArrayList<>();
+        fps.add(fp);
+        return fps;
+    }
+
+    private static RowDataPacket row(long value) {
+        RowDataPacket row = new RowDataPacket(1);
+        row.add(String.valueOf(value).getBytes());
+        return row;
+    }
+
+    private static class CollectHandler extends BaseDMLHandler {
+        private List<Long> rows = new ArrayList<>();
+        private boolean eof = false;
+
+        CollectHandler() {
+            super(2, null);
+        }
+
+        @Override
+        public HandlerType type() {
+            return HandlerType.FINAL;
+        }
+
+        @Override
+        public void fieldEofResponse(byte[] header, List<byte[]> fields, List<FieldPacket> fieldPackets, byte[] eof,
+                                     boolean isLeft, BackendConnection conn) {
+        }
+
+        @Override
+        public boolean rowResponse(byte[] rowNull, RowDataPacket rowPacket, boolean isLeft, BackendConnection conn) {
+            rows.add(Long.parseLong(new String(rowPacket.getValue(0))));
+            return false;
+        }
+
+        @Override
+        public void rowEofResponse(byte[] eof, boolean isLeft, BackendConnection conn) {
+            this.eof = true;
+        }
+
+        @Override
+        protected void onTerminate() {
+        }
+    }
+}
@@ -0,0 +1,108 @@
+/*
+ * Copyright (C) 2016-2018 ActionTech.
+ * License: http://www.gnu.org/licenses/gpl.html GPL version 2 or higher.
+ */
+
+package com.actiontech.dble.backend.mysql.nio.handler.query.impl;
+
+import com.actiontech.dble.backend.BackendConnection;
+import com.actiontech.dble.backend.mysql.nio.handler.query.BaseDMLHandler;
+import com.actiontech.dble.net.mysql.FieldPacket;
+import com.actiontech.dble.net.mysql.RowDataPacket;
+import com.actiontech.dble.plan.Order;
+import com.actiontech.dble.plan.common.item.FieldTypes;
+import com.actiontech.dble.plan.common.item.ItemField;
+import com.alibaba.druid.sql.ast.SQLOrderingSpecification;
+import junit.framework.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+public class TopNHandlerTest {
+
+    @Test
+    public void testTopN() {
+        List<Long> sent = topN(SQLOrderingSpecification.DESC, 20, 1000);
+        Assert.assertEquals(20, sent.size());
+        for (int i = 0; i < 20; i++) {
+            Assert.assertEquals(999L - i, (long) sent.get(i));
+        }
+    }
+
+    @Test
+    public void testLessRows() {
+        List<Long> sent = topN(SQLOrderingSpecification.ASC, 20, 5);
+        Assert.assertEquals(5, sent.size());
+        for (int i = 0; i < 5; i++) {
+            Assert.assertEquals(i, (long) sent.get(i));
+        }
+    }
+
+    private List<Long> topN(SQLOrderingSpecification sortOrder, int topN, int rowCount) {
+        List<Order> orders = new ArrayList<>();
+        orders.add(new Order(new ItemField(null, "t1", "id"), sortOrder));
+        TopNHandler handler = new TopNHandler(1, null, orders, topN);
+        CollectHandler collector = new CollectHandler();
+        handler.setNextHandler(collector);
+
+        FieldPacket fp = new FieldPacket();
+        fp.setTable("t1".getBytes());
+        fp.setName("id".getBytes());
+        fp.setType(FieldTypes.MYSQL_TYPE_LONGLONG.numberValue());
+        fp.setCharsetIndex(33);
+        fp.setLength(20);
+        List<FieldPacket> fps = new ArrayList<>();
+        fps.add(fp);
+        handler.fieldEofResponse(null, null, fps, null, false, null);
+
+        List<Long> values = new ArrayList<>();
+        for (long i = 0; i < rowCount; i++) {
+            values.add(i);
+        }
+        Collections.shuffle(values);
+        for (Long value : values) {
+            RowDataPacket row = new RowDataPacket(1);
+            row.add(String.valueOf(value).getBytes());
+            handler.rowResponse(null, row, false, null);
+        }
+        handler.rowEofResponse(null, false, null);
+        Assert.assertTrue(collector.eof);
+        return collector.rows;
+    }
+
+    private static class CollectHandler extends BaseDMLHandler {
+        private List<Long> rows = new ArrayList<>();
+        private boolean eof = false;
+
+        CollectHandler() {
+            super(2, null);
+        }
+
+        @Override
+        public HandlerType type() {
+            return HandlerType.FINAL;
+        }
+
+        @Override
+        public void fieldEofResponse(byte[] header, List<byte[]> fields, List<FieldPacket> fieldPackets, byte[] eof,
+                                     boolean isLeft, BackendConnection conn) {
+        }
+
+        @Override
+        public boolean rowResponse(byte[] rowNull, RowDataPacket rowPacket, boolean isLeft, BackendConnection conn) {
+            rows.add(Long.parseLong(new String(rowPacket.getValue(0))));
+            return false;
+        }
+
+        @Override
+        public void rowEofResponse(byte[] eof, boolean isLeft, BackendConnection conn) {
+            this.eof = true;
+        }
+
+        @Override
+        protected void onTerminate() {
+        }
+    }
+}
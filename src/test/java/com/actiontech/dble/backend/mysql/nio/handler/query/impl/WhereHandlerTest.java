@@ -0,0 +1,147 @@
+/*
+ * Copyright (C) 2016-2018 ActionTech.
+ * License: http://www.gnu.org/licenses/gpl.html GPL version 2 or higher.
+ */
+
+package com.actiontech.dble.backend.mysql.nio.handler.query.impl;
+
+import com.actiontech.dble.backend.BackendConnection;
+import com.actiontech.dble.backend.mysql.nio.handler.query.BaseDMLHandler;
+import com.actiontech.dble.backend.mysql.nio.handler.query.RowBatch;
+import com.actiontech.dble.net.mysql.FieldPacket;
+import com.actiontech.dble.net.mysql.RowDataPacket;
+import com.actiontech.dble.plan.common.item.FieldTypes;
+import com.actiontech.dble.plan.common.item.Item;
+import com.actiontech.dble.plan.common.item.ItemField;
+import com.actiontech.dble.plan.common.item.ItemInt;
+import com.actiontech.dble.plan.common.item.function.operator.cmpfunc.ItemFuncGt;
+import com.actiontech.dble.plan.common.item.function.operator.cmpfunc.ItemFuncLt;
+import com.actiontech.dble.plan.common.item.function.operator.logic.ItemCondAnd;
+import junit.framework.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class WhereHandlerTest {
+
+    @Test
+    public void testBatchFilter() {
+        CollectHandler collector = new CollectHandler();
+        WhereHandler handler = whereHandler(collector);
+        RowBatch batch = new RowBatch(8);
+        for (long i = 0; i < 100; i++) {
+            if (batch.add(row(i))) {
+                handler.rowBatchResponse(batch, false, null);
+                batch.clear();
+            }
+        }
+        handler.rowBatchResponse(batch, false, null);
+        handler.rowEofResponse(null, false, null);
+
+        Assert.assertTrue(collector.eof);
+        Assert.assertEquals(89, collector.rows.size());
+        for (int i = 0; i < collector.rows.size(); i++) {
+            Assert.assertEquals(i + 10L, (long) collector.rows.get(i));
+        }
+        // the batches with no matched row are not passed on
+        Assert.assertEquals(12, collector.batches);
+    }
+
+    @Test
+    public void testBatchAsRows() {
+        CollectHandler collector = new CollectHandler();
+        WhereHandler handler = whereHandler(collector);
+        for (long i = 0; i < 100; i++) {
+            handler.rowResponse(null, row(i), false, null);
+        }
+        handler.rowEofResponse(null, false, null);
+        Assert.assertEquals(89, collector.rows.size());
+        Assert.assertEquals(0, collector.batches);
+    }
+
+    @Test
+    public void testBatchToRowHandler() {
+        // a handler without its own rowBatchResponse gets the rows one by one
+        CollectHandler collector = new CollectHandler();
+        LimitHandler limit = new LimitHandler(3, null, 0, 5);
+        limit.setNextHandler(collector);
+        limit.fieldEofResponse(null, null, fieldPackets(), null, false, null);
+        RowBatch batch = new RowBatch(10);
+        for (long i = 0; i < 10; i++) {
+            batch.add(row(i));
+        }
+        Assert.assertTrue(limit.rowBatchResponse(batch, false, null));
+        Assert.assertEquals(5, collector.rows.size());
+    }
+
+    private WhereHandler whereHandler(CollectHandler collector) {
+        Item id = new ItemField(null, "t1", "id");
+        List<Item> args = new ArrayList<>();
+        args.add(new ItemFuncGt(id, new ItemInt(9)));
+        args.add(new ItemFuncLt(id, new ItemInt(99)));
+        WhereHandler handler = new WhereHandler(1, null, new ItemCondAnd(args));
+        handler.setNextHandler(collector);
+        handler.fieldEofResponse(null, null, fieldPackets(), null, false, null);
+        return handler;
+    }
+
+    private static List<FieldPacket> fieldPackets() {
+        FieldPacket fp = new FieldPacket();
+        fp.setTable("t1".getBytes());
+        fp.setName("id".getBytes());
+        fp.setType(FieldTypes.MYSQL_TYPE_LONGLONG.numberValue());
+        fp.setCharsetIndex(33);
+        fp.setLength(20);
+        List<FieldPacket> fps = new ArrayList<>();
+        fps.add(fp);
+        return fps;
+    }
+
+    private static RowDataPacket row(long value) {
+        RowDataPacket row = new RowDataPacket(1);
+        row.add(String.valueOf(value).getBytes());
+        return row;
+    }
+
+    private static class CollectHandler extends BaseDMLHandler {
+        private List<Long> rows = new ArrayList<>();
+        private int batches = 0;
+        private boolean eof = false;
+
+        CollectHandler() {
+            super(2, null);
+        }
+
+        @Override
+        public HandlerType type() {
+            return HandlerType.FINAL;
+        }
+
+        @Override
+        public void fieldEofResponse(byte[] header, List<byte[]> fields, List<FieldPacket> fieldPackets, byte[] eof,
+                                     boolean isLeft, BackendConnection conn) {
+        }
+
+        @Override
+        public boolean rowResponse(byte[] rowNull, RowDataPacket rowPacket, boolean isLeft, BackendConnection conn) {
+            rows.add(Long.parseLong(new String(rowPacket.getValue(0))));
+            return false;
+        }
+
+        @Override
+        public boolean rowBatchResponse(RowBatch batch, boolean isLeft, BackendConnection conn) {
+            batches++;
+            return super.rowBatchResponse(batch, isLeft, conn);
+        }
+
+        @Override
+        public void rowEofResponse(byte[] eof, boolean isLeft, BackendConnection conn) {
+            this.eof = true;
+        }
+
+        @Override
+        protected void onTerminate() {
+        }
+    }
+}
@@ -0,0 +1,298 @@
+/*
+ * Copyright (C) 2016-2018 ActionTech.
+ * License: http://www.gnu.org/licenses/gpl.html GPL version 2 or higher.
+ */
+
+package com.actiontech.dble.backend.mysql.nio.handler.query.impl.join;
+
+import com.actiontech.dble.DbleServer;
+import com.actiontech.dble.backend.BackendConnection;
+import com.actiontech.dble.backend.mysql.nio.MySQLConnection;
+import com.actiontech.dble.backend.mysql.nio.handler.query.BaseDMLHandler;
+import com.actiontech.dble.backend.mysql.store.memalloc.MemSizeController;
+import com.actiontech.dble.buffer.DirectByteBufferPool;
+import com.actiontech.dble.net.mysql.CharsetNames;
+import com.actiontech.dble.net.mysql.FieldPacket;
+import com.actiontech.dble.net.mysql.RowDataPacket;
+import com.actiontech.dble.plan.Order;
+import com.actiontech.dble.plan.common.item.FieldTypes;
+import com.actiontech.dble.plan.common.item.ItemField;
+import com.actiontech.dble.server.NonBlockingSession;
+import junit.framework.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class HashJoinHandlerTest {
+    /* the join memory is large enough for every build side */
+    private static final long LARGE_MEMORY = 64L * 1024 * 1024;
+    /* the build side is spilled to partitions */
+    private static final long SMALL_MEMORY = 400;
+    /* a partition is loaded into the hash table a few rows at a time */
+    private static final long TINY_MEMORY = 64;
+
+    /**
+     * the handler runs its join in the complex query executor and stores rows by the buffer pool,
+     * which are created when the server starts
+     */
+    @BeforeClass
+    public static void initServer() throws Exception {
+        DbleServer server = DbleServer.getInstance();
+        if (server.getComplexQueryExecutor() == null) {
+            setField(server, "complexQueryExecutor", Executors.newCachedThreadPool());
+        }
+        if (server.getBufferPool() == null) {
+            setField(server, "bufferPool", new DirectByteBufferPool(1024 * 1024, (short) 4096, (short) 4));
+        }
+    }
+
+    @Test
+    public void testSpillToPartitions() throws Exception {
+        List<String[]> left = new ArrayList<>();
+        for (int i = 0; i < 300; i++) {
+            left.add(new String[]{String.valueOf(i % 100), "l" + i});
+        }
+        List<String[]> right = new ArrayList<>();
+        for (int i = 0; i < 150; i++) {
+            right.add(new String[]{String.valueOf(i), "r" + i});
+        }
+        List<String> expected = expectedJoin(left, right, false, false);
+        Assert.assertEquals(300, expected.size());
+        // build by the right side and by the left side
+        Assert.assertEquals(expected, join(left, right, FieldTypes.MYSQL_TYPE_LONGLONG, false, false, SMALL_MEMORY));
+        Assert.assertEquals(expected, join(left, right, FieldTypes.MYSQL_TYPE_LONGLONG, false, true, SMALL_MEMORY));
+        Assert.assertEquals(expected, join(left, right, FieldTypes.MYSQL_TYPE_LONGLONG, false, false, LARGE_MEMORY));
+    }
+
+    @Test
+    public void testChunkedPartitionJoin() throws Exception {
+        List<String[]> left = new ArrayList<>();
+        for (int i = 0; i < 80; i++) {
+            left.add(new String[]{String.valueOf(i), "l" + i});
+        }
+        // every key of the build side has 4 rows, which are loaded in different chunks
+        List<String[]> right = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            right.add(new String[]{String.valueOf(i % 50), "r" + i});
+        }
+        List<String> expected = expectedJoin(left, right, false, false);
+        Assert.assertEquals(200, expected.size());
+        Assert.assertEquals(expected, join(left, right, FieldTypes.MYSQL_TYPE_LONGLONG, false, false, TINY_MEMORY));
+        Assert.assertEquals(expected, join(left, right, FieldTypes.MYSQL_TYPE_LONGLONG, false, true, TINY_MEMORY));
+    }
+
+    @Test
+    public void testLeftJoinNullFill() throws Exception {
+        List<String[]> left = new ArrayList<>();
+        for (int i = 0; i < 80; i++) {
+            left.add(new String[]{String.valueOf(i), "l" + i});
+        }
+        left.add(new String[]{null, "lnull1"});
+        left.add(new String[]{null, "lnull2"});
+        List<String[]> right = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            right.add(new String[]{String.valueOf(i % 50), "r" + i});
+        }
+        right.add(new String[]{null, "rnull"});
+        List<String> expected = expectedJoin(left, right, true, false);
+        // 50 keys matched 4 times, 30 keys and 2 nulls not matched
+        Assert.assertEquals(232, expected.size());
+        Assert.assertEquals(expected, join(left, right, FieldTypes.MYSQL_TYPE_LONGLONG, true, false, LARGE_MEMORY));
+        Assert.assertEquals(expected, join(left, right, FieldTypes.MYSQL_TYPE_LONGLONG, true, false, SMALL_MEMORY));
+        // a left row matched by one chunk only is not filled with null by the others
+        Assert.assertEquals(expected, join(left, right, FieldTypes.MYSQL_TYPE_LONGLONG, true, false, TINY_MEMORY));
+        // the left side of left join is never the build side
+        Assert.assertEquals(expected, join(left, right, FieldTypes.MYSQL_TYPE_LONGLONG, true, true, TINY_MEMORY));
+    }
+
+    @Test
+    public void testInexactKeyRecheck() throws Exception {
+        List<String[]> left = new ArrayList<>();
+        for (int i = 1; i <= 5; i++) {
+            left.add(new String[]{String.valueOf(i), "l" + i});
+        }
+        // int compared with string is compared as real, the rows share one key and are compared again
+        List<String[]> right = new ArrayList<>();
+        right.add(new String[]{"1", "r1"});
+        right.add(new String[]{"2", "r2"});
+        right.add(new String[]{"2.0", "r2.0"});
+        right.add(new String[]{"3.5", "r3.5"});
+        right.add(new String[]{"05", "r05"});
+        right.add(new String[]{"7", "r7"});
+        List<String> expected = expectedJoin(left, right, false, true);
+        Assert.assertEquals(4, expected.size());
+        Assert.assertEquals(expected, join(left, right, FieldTypes.MYSQL_TYPE_VAR_STRING, false, false, LARGE_MEMORY));
+        Assert.assertEquals(expected, join(left, right, FieldTypes.MYSQL_TYPE_VAR_STRING, false, false, TINY_MEMORY));
+
+        expected = expectedJoin(left, right, true, true);
+        Assert.assertEquals(6, expected.size());
+        Assert.assertEquals(expected, join(left, right, FieldTypes.MYSQL_TYPE_VAR_STRING, true, false, LARGE_MEMORY));
+        Assert.assertEquals(expected, join(left, right, FieldTypes.MYSQL_TYPE_VAR_STRING, true, false, TINY_MEMORY));
+    }
+
+    /**
+     * join t1(id bigint, name) and t2(id, val) on t1.id = t2.id, half of the probe rows come before the
+     * build side ends
+     *
+     * @return the rows joined, sorted
+     */
+    private static List<String> join(List<String[]> left, List<String[]> right, FieldTypes rightIdType,
+                                     boolean isLeftJoin, boolean isBuildLeft, long joinMemory) throws Exception {
+        NonBlockingSession session = mock(NonBlockingSession.class);
+        when(session.getJoinBufferMC()).thenReturn(new MemSizeController(joinMemory));
+        MySQLConnection conn = mock(MySQLConnection.class);
+        CharsetNames charset = new CharsetNames();
+        charset.setNames("utf8", "utf8_general_ci");
+        when(conn.getCharset()).thenReturn(charset);
+
+        List<Order> leftOrders = new ArrayList<>();
+        leftOrders.add(new Order(new ItemField(null, "t1", "id")));
+        List<Order> rightOrders = new ArrayList<>();
+        rightOrders.add(new Order(new ItemField(null, "t2", "id")));
+        HashJoinHandler handler = new HashJoinHandler(1, session, isLeftJoin, isBuildLeft, leftOrders, rightOrders, null);
+        CollectHandler collector = new CollectHandler();
+        handler.setNextHandler(collector);
+
+        boolean isProbeLeft = isLeftJoin || !isBuildLeft;
+        List<String[]> probe = isProbeLeft ? left : right;
+        List<String[]> build = isProbeLeft ? right : left;
+        List<FieldPacket> leftFields = fieldPackets("t1", FieldTypes.MYSQL_TYPE_LONGLONG, "name");
+        List<FieldPacket> rightFields = fieldPackets("t2", rightIdType, "val");
+        handler.fieldEofResponse(null, null, isProbeLeft ? leftFields : rightFields, null, isProbeLeft, conn);
+        handler.fieldEofResponse(null, null, isProbeLeft ? rightFields : leftFields, null, !isProbeLeft, conn);
+
+        int half = probe.size() / 2;
+        for (int i = 0; i < half; i++) {
+            Assert.assertFalse(handler.rowResponse(null, row(probe.get(i)), isProbeLeft, conn));
+        }
+        for (String[] values : build) {
+            Assert.assertFalse(handler.rowResponse(null, row(values), !isProbeLeft, conn));
+        }
+        handler.rowEofResponse(null, !isProbeLeft, conn);
+        for (int i = half; i < probe.size(); i++) {
+            Assert.assertFalse(handler.rowResponse(null, row(probe.get(i)), isProbeLeft, conn));
+        }
+        handler.rowEofResponse(null, isProbeLeft, conn);
+
+        Assert.assertTrue(collector.eof.await(30, TimeUnit.SECONDS));
+        List<String> rows;
+        synchronized (collector.rows) {
+            rows = new ArrayList<>(collector.rows);
+        }
+        Collections.sort(rows);
+        return rows;
+    }
+
+    private static List<String> expectedJoin(List<String[]> left, List<String[]> right, boolean isLeftJoin,
+                                             boolean compareAsReal) {
+        List<String> rows = new ArrayList<>();
+        for (String[] leftRow : left) {
+            boolean matched = false;
+            for (String[] rightRow : right) {
+                if (leftRow[0] == null || rightRow[0] == null) {
+                    continue;
+                }
+                if (compareAsReal ? Double.parseDouble(leftRow[0]) == Double.parseDouble(rightRow[0]) :
+                        leftRow[0].equals(rightRow[0])) {
+                    matched = true;
+                    rows.add(toString(leftRow[0], leftRow[1], rightRow[0], rightRow[1]));
+                }
+            }
+            if (!matched && isLeftJoin) {
+                rows.add(toString(leftRow[0], leftRow[1], null, null));
+            }
+        }
+        Collections.sort(rows);
+        return rows;
+    }
+
+    private static String toString(String... values) {
+        StringBuilder sb = new StringBuilder();
+        for (String value : values) {
+            sb.append(value == null ? "NULL" : value).append('|');
+        }
+        return sb.toString();
+    }
+
+    private static List<FieldPacket> fieldPackets(String table, FieldTypes idType, String column) {
+        List<FieldPacket> fps = new ArrayList<>();
+        fps.add(fieldPacket(table, "id", idType));
+        fps.add(fieldPacket(table, column, FieldTypes.MYSQL_TYPE_VAR_STRING));
+        return fps;
+    }
+
+    private static FieldPacket fieldPacket(String table, String name, FieldTypes type) {
+        FieldPacket fp = new FieldPacket();
+        fp.setTable(table.getBytes());
+        fp.setName(name.getBytes());
+        fp.setType(type.numberValue());
+        fp.setCharsetIndex(33);
+        fp.setLength(20);
+        return fp;
+    }
+
+    private static RowDataPacket row(String[] values) {
+        RowDataPacket row = new RowDataPacket(values.length);
+        for (String value : values) {
+            row.add(value == null ? null : value.getBytes());
+        }
+        return row;
+    }
+
+    private static void setField(Object target, String name, Object value) throws Exception {
+        Field field = target.getClass().getDeclaredField(name);
+        field.setAccessible(true);
+        field.set(target, value);
+    }
+
+    private static class CollectHandler extends BaseDMLHandler {
+        private final List<String> rows = new ArrayList<>();
+        private final CountDownLatch eof = new CountDownLatch(1);
+
+        CollectHandler() {
+            super(2, null);
+        }
+
+        @Override
+        public HandlerType type() {
+            return HandlerType.FINAL;
+        }
+
+        @Override
+        public void fieldEofResponse(byte[] header, List<byte[]> fields, List<FieldPacket> fieldPackets, byte[] eofNull,
+                                     boolean isLeft, BackendConnection conn) {
+        }
+
+        @Override
+        public boolean rowResponse(byte[] rowNull, RowDataPacket rowPacket, boolean isLeft, BackendConnection conn) {
+            String[] values = new String[rowPacket.getFieldCount()];
+            for (int i = 0; i < values.length; i++) {
+                byte[] value = rowPacket.getValue(i);
+                values[i] = value == null ? null : new String(value);
+            }
+            synchronized (rows) {
+                rows.add(HashJoinHandlerTest.toString(values));
+            }
+            return false;
+        }
+
+        @Override
+        public void rowEofResponse(byte[] eofNull, boolean isLeft, BackendConnection conn) {
+            eof.countDown();
+        }
+
+        @Override
+        protected void onTerminate() {
+        }
+    }
+}
@@ -0,0 +1,85 @@
+/*
+ * Copyright (C) 2016-2018 ActionTech.
+ * License: http://www.gnu.org/licenses/gpl.html GPL version 2 or higher.
+ */
+
+package com.actiontech.dble.backend.mysql.nio.handler.query.impl.join;
+
+import com.actiontech.dble.backend.mysql.nio.handler.query.DMLResponseHandler;
+import com.actiontech.dble.net.mysql.FieldPacket;
+import com.actiontech.dble.net.mysql.RowDataPacket;
+import com.actiontech.dble.plan.Order;
+import com.actiontech.dble.plan.common.item.FieldTypes;
+import com.actiontech.dble.plan.common.item.ItemField;
+import junit.framework.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class HashJoinKeyTest {
+
+    @Test
+    public void testNumberKey() {
+        HashJoinKey[] keys = bind(FieldTypes.MYSQL_TYPE_LONG, FieldTypes.MYSQL_TYPE_NEWDECIMAL);
+        Assert.assertTrue(keys[0].isExact());
+        Assert.assertEquals(keys[0].keyOf(row("10")), keys[1].keyOf(row("10.00")));
+        Assert.assertEquals(keys[0].keyOf(row("0")), keys[1].keyOf(row("0.0")));
+        Assert.assertFalse(keys[0].keyOf(row("10")).equals(keys[1].keyOf(row("10.01"))));
+    }
+
+    @Test
+    public void testStringKey() {
+        HashJoinKey[] keys = bind(FieldTypes.MYSQL_TYPE_VAR_STRING, FieldTypes.MYSQL_TYPE_VAR_STRING);
+        Assert.assertTrue(keys[0].isExact());
+        Assert.assertEquals(keys[0].keyOf(row("abc")), keys[1].keyOf(row("abc")));
+        Assert.assertFalse(keys[0].keyOf(row("abc")).equals(keys[1].keyOf(row("ABC"))));
+    }
+
+    @Test
+    public void testNullKey() {
+        HashJoinKey[] keys = bind(FieldTypes.MYSQL_TYPE_LONG, FieldTypes.MYSQL_TYPE_LONG);
+        Assert.assertNull(keys[0].keyOf(row(null)));
+    }
+
+    @Test
+    public void testApproximateKey() {
+        // int compared with string is compared as real, the key only groups the rows
+        HashJoinKey[] keys = bind(FieldTypes.MYSQL_TYPE_LONG, FieldTypes.MYSQL_TYPE_VAR_STRING);
+        Assert.assertFalse(keys[0].isExact());
+        Assert.assertEquals(keys[0].keyOf(row("1")), keys[1].keyOf(row("2")));
+
+        keys = bind(FieldTypes.MYSQL_TYPE_DATETIME, FieldTypes.MYSQL_TYPE_DATE);
+        Assert.assertFalse(keys[0].isExact());
+    }
+
+    private static HashJoinKey[] bind(FieldTypes leftType, FieldTypes rightType) {
+        HashJoinKey left = key("t1", leftType);
+        HashJoinKey right = key("t2", rightType);
+        HashJoinKey.bind(left, right);
+        return new HashJoinKey[]{left, right};
+    }
+
+    private static HashJoinKey key(String table, FieldTypes type) {
+        FieldPacket fp = new FieldPacket();
+        fp.setTable(table.getBytes());
+        fp.setName("id".getBytes());
+        fp.setType(type.numberValue());
+        fp.setCharsetIndex(33);
+        fp.setLength(20);
+        if (type == FieldTypes.MYSQL_TYPE_NEWDECIMAL) {
+            fp.setDecimals((byte) 2);
+        }
+        List<FieldPacket> fps = new ArrayList<>();
+        fps.add(fp);
+        List<Order> orders = new ArrayList<>();
+        orders.add(new Order(new ItemField(null, table, "id")));
+        return new HashJoinKey(fps, orders, false, DMLResponseHandler.HandlerType.JOIN);
+    }
+
+    private static RowDataPacket row(String value) {
+        RowDataPacket row = new RowDataPacket(1);
+        row.add(value == null ? null : value.getBytes());
+        return row;
+    }
+}
@@ -0,0 +1,262 @@
+/*
+ * Copyright (C) 2016-2018 ActionTech.
+ * License: http://www.gnu.org/licenses/gpl.html GPL version 2 or higher.
+ */
+
+package com.actiontech.dble.backend.mysql.nio.handler.transaction.xa;
+
+import com.actiontech.dble.DbleServer;
+import com.actiontech.dble.backend.mysql.nio.MySQLConnection;
+import com.actiontech.dble.backend.mysql.xa.TxState;
+import com.actiontech.dble.buffer.DirectByteBufferPool;
+import com.actiontech.dble.config.ErrorCode;
+import com.actiontech.dble.config.model.SystemConfig;
+import com.actiontech.dble.net.mysql.CharsetNames;
+import com.actiontech.dble.net.mysql.ErrorPacket;
+import com.actiontech.dble.net.mysql.OkPacket;
+import com.actiontech.dble.route.RouteResultsetNode;
+import com.actiontech.dble.server.NonBlockingSession;
+import com.actiontech.dble.server.ServerConnection;
+import com.actiontech.dble.server.parser.ServerParse;
+import com.actiontech.dble.statistic.XACommitStat;
+import junit.framework.Assert;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyInt;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class XACommitNodesHandlerTest {
+    private static final String XA_ID = "'Dble_Server.1.1'";
+
+    private SystemConfig system;
+    private int oldOnePhase;
+    private int oldPerformanceMode;
+
+    private NonBlockingSession session;
+    private ServerConnection source;
+    private final TxState[] sessionState = new TxState[1];
+    private final Map<RouteResultsetNode, MySQLConnection> targets = new LinkedHashMap<>();
+    private final List<String> commands = new ArrayList<>();
+
+    /**
+     * the error packets are written by the buffer pool, which is created when the server starts
+     */
+    @BeforeClass
+    public static void initServer() throws Exception {
+        DbleServer server = DbleServer.getInstance();
+        if (server.getBufferPool() == null) {
+            Field field = DbleServer.class.getDeclaredField("bufferPool");
+            field.setAccessible(true);
+            field.set(server, new DirectByteBufferPool(1024 * 1024, (short) 4096, (short) 4));
+        }
+    }
+
+    @Before
+    public void setUp() {
+        system = DbleServer.getInstance().getConfig().getSystem();
+        oldOnePhase = system.getUseXAOnePhaseCommit();
+        oldPerformanceMode = system.getUsePerformanceMode();
+        // the xa log is kept in memory only
+        system.setUsePerformanceMode(1);
+
+        source = mock(ServerConnection.class);
+        CharsetNames charset = new CharsetNames();
+        charset.setNames("utf8", "utf8_general_ci");
+        when(source.getCharset()).thenReturn(charset);
+
+        session = mock(NonBlockingSession.class);
+        when(session.getSource()).thenReturn(source);
+        when(session.getSessionXaID()).thenReturn(XA_ID);
+        when(session.cancelableStatusSet(anyInt())).thenReturn(true);
+        when(session.getTargetKeys()).thenReturn(targets.keySet());
+        when(session.getTargetCount()).thenAnswer(new Answer<Integer>() {
+            @Override
+            public Integer answer(InvocationOnMock invocation) {
+                return targets.size();
+            }
+        });
+        when(session.getTarget(any(RouteResultsetNode.class))).thenAnswer(new Answer<MySQLConnection>() {
+            @Override
+            public MySQLConnection answer(InvocationOnMock invocation) {
+                return targets.get(invocation.getArguments()[0]);
+            }
+        });
+        when(session.getXaState()).thenAnswer(new Answer<TxState>() {
+            @Override
+            public TxState answer(InvocationOnMock invocation) {
+                return sessionState[0];
+            }
+        });
+        doAnswer(new Answer<Void>() {
+            @Override
+            public Void answer(InvocationOnMock invocation) {
+                sessionState[0] = (TxState) invocation.getArguments()[0];
+                return null;
+            }
+        }).when(session).setXaState(any(TxState.class));
+        sessionState[0] = TxState.TX_STARTED_STATE;
+    }
+
+    @After
+    public void tearDown() {
+        system.setUseXAOnePhaseCommit(oldOnePhase);
+        system.setUsePerformanceMode(oldPerformanceMode);
+    }
+
+    @Test
+    public void testOnePhaseCommit() {
+        system.setUseXAOnePhaseCommit(1);
+        MySQLConnection conn = addTarget("dn1");
+        long onePhaseCount = XACommitStat.ONE_PHASE.getCount();
+        long twoPhaseCount = XACommitStat.TWO_PHASE.getCount();
+
+        XACommitNodesHandler handler = new XACommitNodesHandler(session);
+        handler.commit();
+        Assert.assertEquals(Arrays.asList("XA END dn1"), commands);
+        handler.okResponse(OkPacket.OK, conn);
+        Assert.assertEquals(TxState.TX_ENDED_STATE, sessionState[0]);
+        Assert.assertEquals(Arrays.asList("XA END dn1", "XA COMMIT dn1 ONE PHASE"), commands);
+        handler.okResponse(OkPacket.OK, conn);
+
+        Assert.assertEquals(TxState.TX_INITIALIZE_STATE, sessionState[0]);
+        Assert.assertEquals(TxState.TX_INITIALIZE_STATE, conn.getXaStatus());
+        Assert.assertTrue(Arrays.equals(OkPacket.OK, written()));
+        verify(session).clearResources(false);
+        Assert.assertEquals(onePhaseCount + 1, XACommitStat.ONE_PHASE.getCount());
+        Assert.assertEquals(twoPhaseCount, XACommitStat.TWO_PHASE.getCount());
+    }
+
+    @Test
+    public void testTwoPhaseCommit() {
+        // one phase commit is off by default
+        Assert.assertEquals(0, new SystemConfig().getUseXAOnePhaseCommit());
+        system.setUseXAOnePhaseCommit(0);
+        MySQLConnection conn = addTarget("dn1");
+        long onePhaseCount = XACommitStat.ONE_PHASE.getCount();
+        long twoPhaseCount = XACommitStat.TWO_PHASE.getCount();
+
+        XACommitNodesHandler handler = new XACommitNodesHandler(session);
+        handler.commit();
+        handler.okResponse(OkPacket.OK, conn);
+        Assert.assertEquals(TxState.TX_ENDED_STATE, sessionState[0]);
+        handler.okResponse(OkPacket.OK, conn);
+        Assert.assertEquals(TxState.TX_PREPARED_STATE, sessionState[0]);
+        handler.okResponse(OkPacket.OK, conn);
+
+        Assert.assertEquals(Arrays.asList("XA END dn1", "XA PREPARE dn1", "XA COMMIT dn1"), commands);
+        Assert.assertEquals(TxState.TX_INITIALIZE_STATE, sessionState[0]);
+        Assert.assertTrue(Arrays.equals(OkPacket.OK, written()));
+        Assert.assertEquals(onePhaseCount, XACommitStat.ONE_PHASE.getCount());
+        Assert.assertEquals(twoPhaseCount + 1, XACommitStat.TWO_PHASE.getCount());
+    }
+
+    @Test
+    public void testTwoNodesNeverOnePhase() {
+        system.setUseXAOnePhaseCommit(1);
+        MySQLConnection conn1 = addTarget("dn1");
+        MySQLConnection conn2 = addTarget("dn2");
+        long onePhaseCount = XACommitStat.ONE_PHASE.getCount();
+        long twoPhaseCount = XACommitStat.TWO_PHASE.getCount();
+
+        XACommitNodesHandler handler = new XACommitNodesHandler(session);
+        handler.commit();
+        handler.okResponse(OkPacket.OK, conn1);
+        handler.okResponse(OkPacket.OK, conn2);
+        handler.okResponse(OkPacket.OK, conn1);
+        handler.okResponse(OkPacket.OK, conn2);
+        handler.okResponse(OkPacket.OK, conn1);
+        handler.okResponse(OkPacket.OK, conn2);
+
+        Assert.assertEquals(Arrays.asList("XA END dn1", "XA END dn2", "XA PREPARE dn1", "XA PREPARE dn2",
+                "XA COMMIT dn1", "XA COMMIT dn2"), commands);
+        Assert.assertEquals(TxState.TX_INITIALIZE_STATE, sessionState[0]);
+        Assert.assertEquals(onePhaseCount, XACommitStat.ONE_PHASE.getCount());
+        Assert.assertEquals(twoPhaseCount + 1, XACommitStat.TWO_PHASE.getCount());
+    }
+
+    @Test
+    public void testOnePhaseCommitError() {
+        system.setUseXAOnePhaseCommit(1);
+        MySQLConnection conn = addTarget("dn1");
+        long onePhaseCount = XACommitStat.ONE_PHASE.getCount();
+
+        XACommitNodesHandler handler = new XACommitNodesHandler(session);
+        handler.commit();
+        handler.okResponse(OkPacket.OK, conn);
+        Assert.assertEquals(Arrays.asList("XA END dn1", "XA COMMIT dn1 ONE PHASE"), commands);
+        ErrorPacket err = new ErrorPacket();
+        err.setErrNo(ErrorCode.ER_XA_RBROLLBACK);
+        err.setMessage("rolled back".getBytes());
+        handler.errorResponse(err.toBytes(), conn);
+
+        // the connection is dropped, which rolls back the only participant
+        verify(conn).quit();
+        Assert.assertEquals(TxState.TX_CONN_QUIT, conn.getXaStatus());
+        Assert.assertEquals(TxState.TX_PREPARED_STATE, sessionState[0]);
+        verify(source).setTxInterrupt("rolled back");
+        byte[] data = written();
+        Assert.assertEquals((byte) 0xff, data[4]);
+        verify(session, never()).clearResources(false);
+        Assert.assertEquals(onePhaseCount, XACommitStat.ONE_PHASE.getCount());
+        Assert.assertEquals(2, commands.size());
+    }
+
+    /**
+     * a connection whose xid is the name of its data node, it keeps its xa status and records its commands
+     */
+    private MySQLConnection addTarget(final String dataNode) {
+        final MySQLConnection conn = mock(MySQLConnection.class);
+        final TxState[] state = new TxState[]{TxState.TX_STARTED_STATE};
+        when(conn.getHost()).thenReturn("127.0.0.1");
+        when(conn.getPort()).thenReturn(3306);
+        when(conn.getSchema()).thenReturn(dataNode);
+        when(conn.getConnXID(session)).thenReturn(dataNode);
+        when(conn.getXaStatus()).thenAnswer(new Answer<TxState>() {
+            @Override
+            public TxState answer(InvocationOnMock invocation) {
+                return state[0];
+            }
+        });
+        doAnswer(new Answer<Void>() {
+            @Override
+            public Void answer(InvocationOnMock invocation) {
+                state[0] = (TxState) invocation.getArguments()[0];
+                return null;
+            }
+        }).when(conn).setXaStatus(any(TxState.class));
+        doAnswer(new Answer<Void>() {
+            @Override
+            public Void answer(InvocationOnMock invocation) {
+                commands.add((String) invocation.getArguments()[0]);
+                return null;
+            }
+        }).when(conn).execCmd(anyString());
+        targets.put(new RouteResultsetNode(dataNode, ServerParse.SELECT, "select 1"), conn);
+        return conn;
+    }
+
+    private byte[] written() {
+        ArgumentCaptor<byte[]> captor = ArgumentCaptor.forClass(byte[].class);
+        verify(source).write(captor.capture());
+        return captor.getValue();
+    }
+}
@@ -0,0 +1,198 @@
+/*
+ * Copyright (C) 2016-2018 ActionTech.
+ * License: http://www.gnu.org/licenses/gpl.html GPL version 2 or higher.
+ */
+
+package com.actiontech.dble.backend.mysql.nio.handler.util;
+
+import com.actiontech.dble.net.mysql.FieldPacket;
+import com.actiontech.dble.net.mysql.RowDataPacket;
+import com.actiontech.dble.plan.common.field.Field;
+import com.actiontech.dble.plan.common.item.FieldTypes;
+import com.actiontech.dble.plan.common.item.Item;
+import com.actiontech.dble.plan.common.item.ItemField;
+import com.actiontech.dble.plan.common.item.ItemFloat;
+import com.actiontech.dble.plan.common.item.ItemInt;
+import com.actiontech.dble.plan.common.item.ItemString;
+import com.actiontech.dble.plan.common.item.function.operator.cmpfunc.ItemFuncEqual;
+import com.actiontech.dble.plan.common.item.function.operator.cmpfunc.ItemFuncGe;
+import com.actiontech.dble.plan.common.item.function.operator.cmpfunc.ItemFuncGt;
+import com.actiontech.dble.plan.common.item.function.operator.cmpfunc.ItemFuncIn;
+import com.actiontech.dble.plan.common.item.function.operator.cmpfunc.ItemFuncIsnotnull;
+import com.actiontech.dble.plan.common.item.function.operator.cmpfunc.ItemFuncIsnull;
+import com.actiontech.dble.plan.common.item.function.operator.cmpfunc.ItemFuncLe;
+import com.actiontech.dble.plan.common.item.function.operator.cmpfunc.ItemFuncLt;
+import com.actiontech.dble.plan.common.item.function.operator.cmpfunc.ItemFuncNe;
+import com.actiontech.dble.plan.common.item.function.operator.logic.ItemCondAnd;
+import com.actiontech.dble.plan.common.item.function.operator.logic.ItemCondOr;
+import com.actiontech.dble.plan.common.item.function.operator.logic.ItemFuncNot;
+import junit.framework.Assert;
+import org.junit.Test;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * the compiled conditions must give the same result as the interpreted Item
+ */
+public class ItemCompilerTest {
+    private static final FieldTypes[] TYPES = {FieldTypes.MYSQL_TYPE_LONG, FieldTypes.MYSQL_TYPE_LONGLONG,
+            FieldTypes.MYSQL_TYPE_VAR_STRING, FieldTypes.MYSQL_TYPE_DOUBLE, FieldTypes.MYSQL_TYPE_LONG};
+    private static final String[] STRINGS = {"", "a", "A", "ab", "b", "é", "中文", "z "};
+    private static final String[] BIG_INTS = {"123456789012345678901", "-99999999999999999999", "+3", "007"};
+
+    private final Random random = new Random(20181018L);
+    private final List<Field> fields = HandlerTool.createFields(fieldPackets());
+
+    @Test
+    public void testRandomConditions() {
+        for (int i = 0; i < 500; i++) {
+            Item item = randomItem(3);
+            item.fixFields();
+            CompiledCondition condition = ItemCompiler.compile(item, fields);
+            for (int j = 0; j < 100; j++) {
+                RowDataPacket row = randomRow();
+                HandlerTool.initFields(fields, row.fieldValues);
+                boolean expect = item.valBool();
+                Assert.assertEquals(item.toString(), expect, condition.match(row));
+            }
+        }
+    }
+
+    @Test
+    public void testThreadSafe() {
+        Item item = and(new ItemFuncGt(column(0), new ItemInt(1)), new ItemFuncIsnull(column(2)),
+                new ItemFuncIn(items(column(4), new ItemInt(1), new ItemInt(2)), false));
+        item.fixFields();
+        Assert.assertTrue(ItemCompiler.compile(item, fields).isThreadSafe());
+
+        item = and(new ItemFuncGt(column(0), new ItemInt(1)), new ItemFuncGt(column(3), new ItemFloat(BigDecimal.ONE)));
+        item.fixFields();
+        Assert.assertFalse(ItemCompiler.compile(item, fields).isThreadSafe());
+    }
+
+    @Test
+    public void testInAfterNullRow() {
+        Item item = new ItemFuncIn(items(column(0), new ItemInt(1), new ItemInt(2)), false);
+        item.fixFields();
+        CompiledCondition condition = ItemCompiler.compile(item, fields);
+        Assert.assertFalse(condition.match(row(null, "1", "a", "1.0", "1")));
+        Assert.assertTrue(condition.match(row("2", "1", "a", "1.0", "1")));
+        Assert.assertFalse(condition.match(row("3", "1", "a", "1.0", "1")));
+    }
+
+    @Test
+    public void testParseLong() {
+        Assert.assertTrue(ItemCompiler.isFastLong("-123".getBytes()));
+        Assert.assertEquals(-123L, ItemCompiler.parseLong("-123".getBytes()));
+        Assert.assertEquals(7L, ItemCompiler.parseLong("007".getBytes()));
+        Assert.assertEquals(999999999999999999L, ItemCompiler.parseLong("999999999999999999".getBytes()));
+        Assert.assertFalse(ItemCompiler.isFastLong("9999999999999999999".getBytes()));
+        Assert.assertFalse(ItemCompiler.isFastLong("-".getBytes()));
+        Assert.assertFalse(ItemCompiler.isFastLong("1.5".getBytes()));
+        Assert.assertFalse(ItemCompiler.isFastLong(new byte[0]));
+    }
+
+    private Item randomItem(int depth) {
+        int kind = random.nextInt(depth > 0 ? 10 : 7);
+        switch (kind) {
+            case 0:
+                return compare(column(0), new ItemInt(random.nextInt(11) - 5));
+            case 1:
+                return compare(column(random.nextInt(2)), column(random.nextInt(2)));
+            case 2:
+                return compare(column(2), new ItemString(STRINGS[random.nextInt(STRINGS.length)]));
+            case 3:
+                Item col = column(random.nextInt(4));
+                return random.nextBoolean() ? new ItemFuncIsnull(col) : new ItemFuncIsnotnull(col);
+            case 4:
+                return compare(column(3), new ItemFloat(new BigDecimal(random.nextInt(11) - 5)));
+            case 5:
+                List<Item> args = new ArrayList<>();
+                args.add(column(4));
+                int size = 1 + random.nextInt(4);
+                for (int i = 0; i < size; i++) {
+                    args.add(new ItemInt(random.nextInt(11) - 5));
+                }
+                return new ItemFuncIn(args, random.nextBoolean());
+            case 6:
+                return compare(column(1), new ItemInt(random.nextInt(11) - 5));
+            case 7:
+                return and(randomItem(depth - 1), randomItem(depth - 1), randomItem(depth - 1));
+            case 8:
+                return new ItemCondOr(items(randomItem(depth - 1), randomItem(depth - 1)));
+            default:
+                return new ItemFuncNot(randomItem(depth - 1));
+        }
+    }
+
+    private Item compare(Item a, Item b) {
+        switch (random.nextInt(6)) {
+            case 0:
+                return new ItemFuncEqual(a, b);
+            case 1:
+                return new ItemFuncNe(a, b);
+            case 2:
+                return new ItemFuncLt(a, b);
+            case 3:
+                return new ItemFuncLe(a, b);
+            case 4:
+                return new ItemFuncGt(a, b);
+            default:
+                return new ItemFuncGe(a, b);
+        }
+    }
+
+    private RowDataPacket randomRow() {
+        String c1;
+        if (random.nextInt(5) == 0) {
+            c1 = BIG_INTS[random.nextInt(BIG_INTS.length)];
+        } else {
+            c1 = String.valueOf(random.nextInt(11) - 5);
+        }
+        return row(nullable(String.valueOf(random.nextInt(11) - 5)), nullable(c1),
+                nullable(STRINGS[random.nextInt(STRINGS.length)]),
+                nullable(String.valueOf((random.nextInt(110) - 55) / 10.0)), String.valueOf(random.nextInt(11) - 5));
+    }
+
+    private String nullable(String value) {
+        return random.nextInt(8) == 0 ? null : value;
+    }
+
+    private Item column(int index) {
+        return new ItemField(fields.get(index));
+    }
+
+    private static Item and(Item... args) {
+        return new ItemCondAnd(items(args));
+    }
+
+    private static List<Item> items(Item... args) {
+        return new ArrayList<>(Arrays.asList(args));
+    }
+
+    private static RowDataPacket row(String... values) {
+        RowDataPacket row = new RowDataPacket(values.length);
+        for (String value : values) {
+            row.add(value == null ? null : value.getBytes(java.nio.charset.StandardCharsets.UTF_8));
+        }
+        return row;
+    }
+
+    private static List<FieldPacket> fieldPackets() {
+        List<FieldPacket> fps = new ArrayList<>();
+        for (int i = 0; i < TYPES.length; i++) {
+            FieldPacket fp = new FieldPacket();
+            fp.setTable("t1".getBytes());
+            fp.setName(("c" + i).getBytes());
+            fp.setType(TYPES[i].numberValue());
+            fp.setCharsetIndex(33);
+            fp.setLength(64);
+            fps.add(fp);
+        }
+        return fps;
+    }
+}
@@ -0,0 +1,129 @@
+/*
+ * Copyright (C) 2016-2018 ActionTech.
+ * License: http://www.gnu.org/licenses/gpl.html GPL version 2 or higher.
+ */
+
+package com.actiontech.dble.backend.mysql.nio.handler.util;
+
+import com.actiontech.dble.backend.mysql.nio.handler.query.DMLResponseHandler;
+import com.actiontech.dble.net.mysql.FieldPacket;
+import com.actiontech.dble.net.mysql.RowDataPacket;
+import com.actiontech.dble.plan.Order;
+import com.actiontech.dble.plan.common.field.Field;
+import com.actiontech.dble.plan.common.item.FieldTypes;
+import com.actiontech.dble.plan.common.item.Item;
+import com.actiontech.dble.plan.common.item.ItemField;
+import com.alibaba.druid.sql.ast.SQLOrderingSpecification;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * sort time of order by (bigint desc, varchar, decimal) with the sort keys of RowDataComparator
+ * and with the Field.compare of every column
+ */
+public class RowDataComparatorPerfMain {
+    private static final int ROWS = 500000;
+    private static final FieldTypes[] TYPES = {FieldTypes.MYSQL_TYPE_LONGLONG, FieldTypes.MYSQL_TYPE_VAR_STRING,
+            FieldTypes.MYSQL_TYPE_NEWDECIMAL};
+    private static final boolean[] ASC = {false, true, true};
+
+    private final List<FieldPacket> fps = new ArrayList<>();
+    private final List<Order> orders = new ArrayList<>();
+    private final List<Field> fields = new ArrayList<>();
+
+    public RowDataComparatorPerfMain() {
+        for (int i = 0; i < TYPES.length; i++) {
+            FieldPacket fp = new FieldPacket();
+            fp.setTable("t1".getBytes());
+            fp.setName(("c" + i).getBytes());
+            fp.setType(TYPES[i].numberValue());
+            fp.setCharsetIndex(33);
+            fp.setLength(64);
+            fp.setDecimals((byte) 2);
+            fps.add(fp);
+            fields.add(HandlerTool.createField(fp));
+            orders.add(new Order(new ItemField(null, "t1", "c" + i),
+                    ASC[i] ? SQLOrderingSpecification.ASC : SQLOrderingSpecification.DESC));
+        }
+    }
+
+    private List<RowDataPacket> makeRows() {
+        Random random = new Random(1);
+        List<RowDataPacket> rows = new ArrayList<>(ROWS);
+        for (int i = 0; i < ROWS; i++) {
+            RowDataPacket row = new RowDataPacket(TYPES.length);
+            row.add(String.valueOf(random.nextInt(1000)).getBytes());
+            row.add(("name_" + random.nextInt(1000)).getBytes());
+            row.add((random.nextInt(100000) + "." + random.nextInt(100)).getBytes());
+            rows.add(row);
+        }
+        return rows;
+    }
+
+    public void run() {
+        List<RowDataPacket> rows = makeRows();
+        RowDataComparator cmp = new RowDataComparator(fps, orders, false, DMLResponseHandler.HandlerType.ORDERBY);
+        long t1 = System.nanoTime();
+        Collections.sort(rows, cmp);
+        long t2 = System.nanoTime();
+        System.out.println("sort key     : " + (t2 - t1) / 1000000 + " ms");
+
+        rows = makeRows();
+        t1 = System.nanoTime();
+        Collections.sort(rows, new FieldComparator());
+        t2 = System.nanoTime();
+        System.out.println("field compare: " + (t2 - t1) / 1000000 + " ms");
+    }
+
+    /**
+     * the comparison before the sort keys: the order values are cached in the row and every
+     * comparison decodes them again by Field.compare
+     */
+    private class FieldComparator implements Comparator<RowDataPacket> {
+        private final List<Field> sourceFields = HandlerTool.createFields(fps);
+        private final List<Item> cmpItems = new ArrayList<>();
+        private final RowDataComparator cacheKey = new RowDataComparator(fps, orders);
+
+        FieldComparator() {
+            for (Order order : orders) {
+                cmpItems.add(HandlerTool.createItem(order.getItem(), sourceFields, 0, false,
+                        DMLResponseHandler.HandlerType.ORDERBY));
+            }
+        }
+
+        private List<byte[]> getCmpBytes(RowDataPacket o) {
+            if (o.getCmpValue(cacheKey) == null) {
+                HandlerTool.initFields(sourceFields, o.fieldValues);
+                o.cacheCmpValue(cacheKey, HandlerTool.getItemListBytes(cmpItems));
+            }
+            return o.getCmpValue(cacheKey);
+        }
+
+        @Override
+        public int compare(RowDataPacket o1, RowDataPacket o2) {
+            List<byte[]> bo1 = getCmpBytes(o1);
+            List<byte[]> bo2 = getCmpBytes(o2);
+            for (int i = 0; i < TYPES.length; i++) {
+                int rs = ASC[i] ? fields.get(i).compare(bo1.get(i), bo2.get(i)) :
+                        fields.get(i).compare(bo2.get(i), bo1.get(i));
+                if (rs != 0)
+                    return rs;
+            }
+            return 0;
+        }
+    }
+
+    public static void main(String[] args) {
+        RowDataComparatorPerfMain perf = new RowDataComparatorPerfMain();
+        // warm up
+        perf.run();
+        for (int i = 0; i < 3; i++) {
+            perf.run();
+        }
+        System.exit(0);
+    }
+}
@@ -0,0 +1,176 @@
+/*
+ * Copyright (C) 2016-2018 ActionTech.
+ * License: http://www.gnu.org/licenses/gpl.html GPL version 2 or higher.
+ */
+
+package com.actiontech.dble.backend.mysql.nio.handler.util;
+
+import com.actiontech.dble.backend.mysql.nio.handler.query.DMLResponseHandler;
+import com.actiontech.dble.net.mysql.FieldPacket;
+import com.actiontech.dble.net.mysql.RowDataPacket;
+import com.actiontech.dble.plan.Order;
+import com.actiontech.dble.plan.common.field.Field;
+import com.actiontech.dble.plan.common.item.FieldTypes;
+import com.actiontech.dble.plan.common.item.ItemField;
+import com.alibaba.druid.sql.ast.SQLOrderingSpecification;
+import junit.framework.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+public class RowDataComparatorTest {
+    private static final String[] STRINGS = {"", "a", "A", "ab", "aB", "b", "a\u0000", "a\u0000b", "a\u0001", "é", "中", "z "};
+    private static final String[] TIMES = {"-838:59:59", "-01:00:00", "00:00:00", "00:00:00.5", "12:30:00", "838:59:59"};
+
+    private final Random random = new Random(20181018L);
+
+    @Test
+    public void testInt() {
+        checkOrder(FieldTypes.MYSQL_TYPE_LONGLONG, new ValueMaker() {
+            @Override
+            public String make() {
+                return String.valueOf(random.nextBoolean() ? random.nextInt(200) - 100 : random.nextLong());
+            }
+        });
+    }
+
+    @Test
+    public void testDecimal() {
+        checkOrder(FieldTypes.MYSQL_TYPE_NEWDECIMAL, new ValueMaker() {
+            @Override
+            public String make() {
+                return String.valueOf(random.nextInt(2000) - 1000) + "." + String.valueOf(random.nextInt(100));
+            }
+        });
+        checkOrder(FieldTypes.MYSQL_TYPE_DOUBLE, new ValueMaker() {
+            @Override
+            public String make() {
+                double d = random.nextGaussian() * Math.pow(10, random.nextInt(40) - 20);
+                return random.nextInt(10) == 0 ? "0" : String.valueOf(d);
+            }
+        });
+    }
+
+    @Test
+    public void testString() {
+        checkOrder(FieldTypes.MYSQL_TYPE_VAR_STRING, new ValueMaker() {
+            @Override
+            public String make() {
+                return STRINGS[random.nextInt(STRINGS.length)] + STRINGS[random.nextInt(STRINGS.length)];
+            }
+        });
+    }
+
+    @Test
+    public void testTemporal() {
+        checkOrder(FieldTypes.MYSQL_TYPE_DATETIME, new ValueMaker() {
+            @Override
+            public String make() {
+                return String.format("%04d-%02d-%02d %02d:%02d:%02d", 1990 + random.nextInt(40), 1 + random.nextInt(12),
+                        1 + random.nextInt(28), random.nextInt(24), random.nextInt(60), random.nextInt(60));
+            }
+        });
+        checkOrder(FieldTypes.MYSQL_TYPE_TIME, new ValueMaker() {
+            @Override
+            public String make() {
+                return TIMES[random.nextInt(TIMES.length)];
+            }
+        });
+    }
+
+    @Test
+    public void testMultiColumns() {
+        FieldTypes[] types = {FieldTypes.MYSQL_TYPE_LONG, FieldTypes.MYSQL_TYPE_VAR_STRING, FieldTypes.MYSQL_TYPE_DOUBLE};
+        List<FieldPacket> fps = fieldPackets(types);
+        List<Field> fields = new ArrayList<>();
+        for (FieldPacket fp : fps) {
+            fields.add(HandlerTool.createField(fp));
+        }
+        for (int k = 0; k < 8; k++) {
+            boolean[] asc = {(k & 1) == 0, (k & 2) == 0, (k & 4) == 0};
+            RowDataComparator cmp = new RowDataComparator(fps, orders(asc), false, DMLResponseHandler.HandlerType.ORDERBY);
+            List<RowDataPacket> rows = new ArrayList<>();
+            for (int i = 0; i < 200; i++) {
+                rows.add(row(nullable(String.valueOf(random.nextInt(3))), nullable(STRINGS[random.nextInt(4)]),
+                        nullable(String.valueOf(random.nextInt(3) / 2.0))));
+            }
+            for (RowDataPacket r1 : rows) {
+                for (RowDataPacket r2 : rows) {
+                    int expect = 0;
+                    for (int i = 0; i < types.length && expect == 0; i++) {
+                        byte[] b1 = r1.getValue(i);
+                        byte[] b2 = r2.getValue(i);
+                        expect = asc[i] ? fields.get(i).compare(b1, b2) : fields.get(i).compare(b2, b1);
+                    }
+                    Assert.assertEquals(Integer.signum(expect), Integer.signum(cmp.compare(r1, r2)));
+                }
+            }
+        }
+    }
+
+    private void checkOrder(FieldTypes type, ValueMaker maker) {
+        FieldTypes[] types = {type};
+        List<FieldPacket> fps = fieldPackets(types);
+        Field field = HandlerTool.createField(fps.get(0));
+        for (boolean asc : new boolean[]{true, false}) {
+            RowDataComparator cmp = new RowDataComparator(fps, orders(new boolean[]{asc}), false,
+                    DMLResponseHandler.HandlerType.ORDERBY);
+            List<RowDataPacket> rows = new ArrayList<>();
+            for (int i = 0; i < 200; i++) {
+                rows.add(row(nullable(maker.make())));
+            }
+            for (RowDataPacket r1 : rows) {
+                for (RowDataPacket r2 : rows) {
+                    byte[] b1 = r1.getValue(0);
+                    byte[] b2 = r2.getValue(0);
+                    int expect = asc ? field.compare(b1, b2) : field.compare(b2, b1);
+                    Assert.assertEquals(new String(b1 == null ? "null".getBytes() : b1) + " " +
+                                    new String(b2 == null ? "null".getBytes() : b2),
+                            Integer.signum(expect), Integer.signum(cmp.compare(r1, r2)));
+                }
+            }
+        }
+    }
+
+    private String nullable(String value) {
+        return random.nextInt(20) == 0 ? null : value;
+    }
+
+    private static List<FieldPacket> fieldPackets(FieldTypes[] types) {
+        List<FieldPacket> fps = new ArrayList<>();
+        for (int i = 0; i < types.length; i++) {
+            FieldPacket fp = new FieldPacket();
+            fp.setTable("t1".getBytes());
+            fp.setName(("c" + i).getBytes());
+            fp.setType(types[i].numberValue());
+            fp.setCharsetIndex(33);
+            fp.setLength(64);
+            fp.setDecimals((byte) 2);
+            fps.add(fp);
+        }
+        return fps;
+    }
+
+    private static List<Order> orders(boolean[] asc) {
+        List<Order> orders = new ArrayList<>();
+        for (int i = 0; i < asc.length; i++) {
+            orders.add(new Order(new ItemField(null, "t1", "c" + i),
+                    asc[i] ? SQLOrderingSpecification.ASC : SQLOrderingSpecification.DESC));
+        }
+        return orders;
+    }
+
+    private static RowDataPacket row(String... values) {
+        RowDataPacket row = new RowDataPacket(values.length);
+        for (String value : values) {
+            row.add(value == null ? null : value.getBytes(java.nio.charset.StandardCharsets.UTF_8));
+        }
+        return row;
+    }
+
+    private interface ValueMaker {
+        String make();
+    }
+}
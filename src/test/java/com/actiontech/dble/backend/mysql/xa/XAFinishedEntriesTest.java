@@ -0,0 +1,53 @@
+/*
+ * Copyright (C) 2016-2018 ActionTech.
+ * License: http://www.gnu.org/licenses/gpl.html GPL version 2 or higher.
+ */
+
+package com.actiontech.dble.backend.mysql.xa;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class XAFinishedEntriesTest {
+
+    @Test
+    public void testOnePhaseNotQueued() {
+        XAFinishedEntries finishedEntries = new XAFinishedEntries();
+        // one phase commits never write the log, and no forced write drains the queue
+        for (int i = 0; i < 100000; i++) {
+            CoordinatorLogEntry entry = entry(i, TxState.TX_COMMITTED_STATE);
+            finishedEntries.finished(entry.getId(), entry);
+        }
+        Assert.assertEquals(0, finishedEntries.size());
+    }
+
+    @Test
+    public void testTwoPhaseQueued() {
+        XAFinishedEntries finishedEntries = new XAFinishedEntries();
+        CoordinatorLogEntry twoPhase = entry(1, TxState.TX_COMMITTED_STATE);
+        CoordinatorLogEntry onePhase = entry(2, TxState.TX_COMMITTED_STATE);
+        finishedEntries.logged(twoPhase.getId());
+        finishedEntries.finished(twoPhase.getId(), twoPhase);
+        finishedEntries.finished(onePhase.getId(), onePhase);
+        // finished once only
+        finishedEntries.finished(twoPhase.getId(), twoPhase);
+        Assert.assertEquals(1, finishedEntries.size());
+
+        List<CoordinatorLogEntry> logs = new ArrayList<>();
+        finishedEntries.drainTo(logs);
+        Assert.assertEquals(1, logs.size());
+        Assert.assertEquals(twoPhase.getId(), logs.get(0).getId());
+        Assert.assertEquals(TxState.TX_COMMITTED_STATE, logs.get(0).getTxState());
+        Assert.assertEquals(0, finishedEntries.size());
+    }
+
+    private static CoordinatorLogEntry entry(int seq, TxState txState) {
+        String id = "'Dble_Server.1." + seq + "'";
+        ParticipantLogEntry[] participants = new ParticipantLogEntry[]{
+                new ParticipantLogEntry(id, "127.0.0.1", 3306, 0, "db1", TxState.TX_PREPARED_STATE)};
+        return new CoordinatorLogEntry(id, participants, txState);
+    }
+}
@@ -0,0 +1,119 @@
+/*
+ * Copyright (C) 2016-2018 ActionTech.
+ * License: http://www.gnu.org/licenses/gpl.html GPL version 2 or higher.
+ */
+
+package com.actiontech.dble.backend.mysql.xa;
+
+import com.actiontech.dble.backend.mysql.xa.recovery.Repository;
+import com.actiontech.dble.backend.mysql.xa.recovery.impl.FileSystemRepository;
+import com.actiontech.dble.backend.mysql.xa.recovery.impl.SegmentLogRepository;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * XA transactions committed per second by concurrency, every transaction forces the recovery log when preparing
+ * and when committing like XACommitNodesHandler. The append-only log writes the flushing transactions only,
+ * the full log writes all the transactions in memory at every flush.
+ */
+public class XALogPerfMain {
+    private static final int[] CONCURRENCY = new int[]{1, 2, 4, 8, 16, 32, 64, 128};
+    private static final long DURATION = TimeUnit.SECONDS.toMillis(3);
+    /* transactions which stay in memory, such as those waiting for recovery */
+    private static final int IDLE_TRANSACTIONS = 200;
+
+    public static void main(String[] args) throws Exception {
+        for (int concurrency : CONCURRENCY) {
+            long append = run(concurrency, true);
+            long full = run(concurrency, false);
+            System.out.println("concurrency " + concurrency + ": append-only " + append + " tx/s, full " + full + " tx/s");
+        }
+    }
+
+    private static long run(int concurrency, final boolean appendOnly) throws IOException, InterruptedException {
+        File dir = Files.createTempDirectory("xaLogPerf").toFile();
+        final Repository repository = appendOnly ?
+                new SegmentLogRepository(dir.getPath(), "tmlog", SegmentLogRepository.DEFAULT_SEGMENT_SIZE) :
+                new FileSystemRepository(dir.getPath(), "tmlog");
+        final ConcurrentMap<String, CoordinatorLogEntry> memory = new ConcurrentHashMap<>();
+        final AtomicLong seq = new AtomicLong();
+        for (int i = 0; i < IDLE_TRANSACTIONS; i++) {
+            CoordinatorLogEntry entry = entry(seq.incrementAndGet());
+            entry.setTxState(TxState.TX_COMMIT_FAILED_STATE);
+            memory.put(entry.getId(), entry);
+        }
+        final XAGroupCommitter committer = new XAGroupCommitter(new XAGroupCommitter.Flusher() {
+            @Override
+            public boolean flush(Set<String> xaTxIds) {
+                List<CoordinatorLogEntry> logs = new ArrayList<>();
+                if (appendOnly) {
+                    for (String xaTxId : xaTxIds) {
+                        logs.add(memory.get(xaTxId).getDeepCopy());
+                    }
+                } else {
+                    for (CoordinatorLogEntry entry : memory.values()) {
+                        logs.add(entry.getDeepCopy());
+                    }
+                }
+                return repository.writeCheckpoint(logs);
+            }
+        });
+
+        final AtomicBoolean stop = new AtomicBoolean(false);
+        final AtomicLong committed = new AtomicLong();
+        List<Thread> threads = new ArrayList<>();
+        for (int i = 0; i < concurrency; i++) {
+            threads.add(new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    while (!stop.get()) {
+                        CoordinatorLogEntry entry = entry(seq.incrementAndGet());
+                        memory.put(entry.getId(), entry);
+                        entry.setTxState(TxState.TX_PREPARING_STATE);
+                        committer.commit(entry.getId());
+                        entry.setTxState(TxState.TX_COMMITTING_STATE);
+                        committer.commit(entry.getId());
+                        entry.setTxState(TxState.TX_COMMITTED_STATE);
+                        memory.remove(entry.getId());
+                        committed.incrementAndGet();
+                    }
+                }
+            }));
+        }
+        long start = System.currentTimeMillis();
+        for (Thread thread : threads) {
+            thread.start();
+        }
+        Thread.sleep(DURATION);
+        stop.set(true);
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        long cost = System.currentTimeMillis() - start;
+        repository.close();
+        File[] files = dir.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+        dir.delete();
+        return committed.get() * 1000 / cost;
+    }
+
+    private static CoordinatorLogEntry entry(long seq) {
+        String id = "'Dble_Server.1." + seq + "'";
+        ParticipantLogEntry[] participants = new ParticipantLogEntry[]{
+                new ParticipantLogEntry(id, "127.0.0.1", 3306, 0, "db1", TxState.TX_PREPARED_STATE),
+                new ParticipantLogEntry(id, "127.0.0.1", 3307, 0, "db2", TxState.TX_PREPARED_STATE)};
+        return new CoordinatorLogEntry(id, participants, TxState.TX_STARTED_STATE);
+    }
+}
@@ -0,0 +1,159 @@
+/*
+ * Copyright (C) 2016-2018 ActionTech.
+ * License: http://www.gnu.org/licenses/gpl.html GPL version 2 or higher.
+ */
+
+package com.actiontech.dble.backend.mysql.xa.recovery.impl;
+
+import com.actiontech.dble.backend.mysql.xa.CoordinatorLogEntry;
+import com.actiontech.dble.backend.mysql.xa.ParticipantLogEntry;
+import com.actiontech.dble.backend.mysql.xa.Serializer;
+import com.actiontech.dble.backend.mysql.xa.TxState;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.*;
+
+public class SegmentLogRepositoryTest {
+    private static final String BASE_NAME = "tmlog";
+    private File dir;
+
+    @Before
+    public void setUp() throws IOException {
+        dir = Files.createTempDirectory("xaLog").toFile();
+    }
+
+    @After
+    public void tearDown() {
+        File[] files = dir.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+        dir.delete();
+    }
+
+    @Test
+    public void testReplay() {
+        SegmentLogRepository repository = new SegmentLogRepository(dir.getPath(), BASE_NAME, SegmentLogRepository.DEFAULT_SEGMENT_SIZE);
+        Assert.assertTrue(repository.writeCheckpoint(Collections.singletonList(entry(1, TxState.TX_PREPARING_STATE))));
+        Assert.assertTrue(repository.writeCheckpoint(Arrays.asList(entry(2, TxState.TX_PREPARING_STATE), entry(1, TxState.TX_COMMITTING_STATE))));
+        Assert.assertTrue(repository.writeCheckpoint(Collections.singletonList(entry(1, TxState.TX_COMMITTED_STATE))));
+        repository.close();
+
+        Map<String, TxState> states = read();
+        Assert.assertEquals(2, states.size());
+        Assert.assertEquals(TxState.TX_COMMITTED_STATE, states.get(id(1)));
+        Assert.assertEquals(TxState.TX_PREPARING_STATE, states.get(id(2)));
+    }
+
+    @Test
+    public void testCompaction() {
+        // every write fills a segment
+        SegmentLogRepository repository = new SegmentLogRepository(dir.getPath(), BASE_NAME, 1);
+        for (int i = 0; i < 100; i++) {
+            Assert.assertTrue(repository.writeCheckpoint(Collections.singletonList(entry(i, TxState.TX_COMMITTING_STATE))));
+            if (i % 2 == 0) {
+                Assert.assertTrue(repository.writeCheckpoint(Collections.singletonList(entry(i, TxState.TX_COMMITTED_STATE))));
+            }
+        }
+        repository.close();
+
+        Map<String, TxState> states = read();
+        for (int i = 0; i < 100; i++) {
+            if (i % 2 == 0) {
+                // the finished transactions are removed by the checkpoint
+                Assert.assertNull(states.get(id(i)));
+            } else {
+                Assert.assertEquals(TxState.TX_COMMITTING_STATE, states.get(id(i)));
+            }
+        }
+        // the old segments are removed
+        Assert.assertTrue(dir.listFiles().length < 10);
+    }
+
+    @Test
+    public void testBrokenTail() throws IOException {
+        SegmentLogRepository repository = new SegmentLogRepository(dir.getPath(), BASE_NAME, SegmentLogRepository.DEFAULT_SEGMENT_SIZE);
+        Assert.assertTrue(repository.writeCheckpoint(Collections.singletonList(entry(1, TxState.TX_PREPARING_STATE))));
+        Assert.assertTrue(repository.writeCheckpoint(Collections.singletonList(entry(1, TxState.TX_COMMITTING_STATE))));
+        repository.close();
+        // a record half written when crashed
+        try (FileOutputStream out = new FileOutputStream(new File(dir, BASE_NAME + ".1.seg"), true)) {
+            out.write(new byte[]{0, 0, 1, 0, 1, 2, 3, 4, '{'});
+        }
+        Map<String, TxState> states = read();
+        Assert.assertEquals(TxState.TX_COMMITTING_STATE, states.get(id(1)));
+
+        // the next writer goes on after the broken segment
+        repository = new SegmentLogRepository(dir.getPath(), BASE_NAME, SegmentLogRepository.DEFAULT_SEGMENT_SIZE);
+        Assert.assertTrue(repository.writeCheckpoint(Collections.singletonList(entry(2, TxState.TX_PREPARING_STATE))));
+        repository.close();
+        states = read();
+        Assert.assertEquals(TxState.TX_COMMITTING_STATE, states.get(id(1)));
+        Assert.assertEquals(TxState.TX_PREPARING_STATE, states.get(id(2)));
+    }
+
+    @Test
+    public void testLegacyLog() throws IOException {
+        try (FileOutputStream out = new FileOutputStream(new File(dir, BASE_NAME + "0.log"))) {
+            out.write(Serializer.toJson(entry(1, TxState.TX_COMMITTING_STATE)).getBytes(StandardCharsets.UTF_8));
+        }
+        Assert.assertEquals(TxState.TX_COMMITTING_STATE, read().get(id(1)));
+
+        SegmentLogRepository repository = new SegmentLogRepository(dir.getPath(), BASE_NAME, SegmentLogRepository.DEFAULT_SEGMENT_SIZE);
+        Assert.assertTrue(repository.writeCheckpoint(Collections.singletonList(entry(2, TxState.TX_PREPARING_STATE))));
+        repository.close();
+        Assert.assertFalse(new File(dir, BASE_NAME + "0.log").exists());
+        Map<String, TxState> states = read();
+        Assert.assertEquals(TxState.TX_COMMITTING_STATE, states.get(id(1)));
+        Assert.assertEquals(TxState.TX_PREPARING_STATE, states.get(id(2)));
+    }
+
+    @Test
+    public void testFinishedNotLogged() {
+        SegmentLogRepository repository = new SegmentLogRepository(dir.getPath(), BASE_NAME, SegmentLogRepository.DEFAULT_SEGMENT_SIZE);
+        Assert.assertTrue(repository.writeCheckpoint(Collections.singletonList(entry(1, TxState.TX_PREPARING_STATE))));
+        File segment = new File(dir, BASE_NAME + ".1.seg");
+        long length = segment.length();
+        // committed by one phase, nothing was logged for it
+        Assert.assertTrue(repository.writeCheckpoint(Collections.singletonList(entry(2, TxState.TX_COMMITTED_STATE))));
+        Assert.assertEquals(length, segment.length());
+        Assert.assertTrue(repository.writeCheckpoint(Collections.singletonList(entry(1, TxState.TX_COMMITTED_STATE))));
+        Assert.assertTrue(segment.length() > length);
+        repository.close();
+        Map<String, TxState> states = read();
+        Assert.assertEquals(1, states.size());
+        Assert.assertEquals(TxState.TX_COMMITTED_STATE, states.get(id(1)));
+    }
+
+    private Map<String, TxState> read() {
+        SegmentLogRepository repository = new SegmentLogRepository(dir.getPath(), BASE_NAME, SegmentLogRepository.DEFAULT_SEGMENT_SIZE);
+        Map<String, TxState> states = new HashMap<>();
+        for (CoordinatorLogEntry entry : repository.getAllCoordinatorLogEntries()) {
+            states.put(entry.getId(), entry.getTxState());
+        }
+        repository.close();
+        return states;
+    }
+
+    private static String id(int seq) {
+        return "'Dble_Server.1." + seq + "'";
+    }
+
+    static CoordinatorLogEntry entry(int seq, TxState txState) {
+        String id = id(seq);
+        ParticipantLogEntry[] participants = new ParticipantLogEntry[]{
+                new ParticipantLogEntry(id, "127.0.0.1", 3306, 0, "db1", TxState.TX_PREPARED_STATE),
+                new ParticipantLogEntry(id, "127.0.0.1", 3307, 0, "db2", TxState.TX_PREPARED_STATE)};
+        return new CoordinatorLogEntry(id, participants, txState);
+    }
+}
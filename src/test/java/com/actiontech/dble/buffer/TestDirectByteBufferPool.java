@@ -5,6 +5,7 @@
 
 package com.actiontech.dble.buffer;
 
+import com.actiontech.dble.DbleServer;
 import jdk.nashorn.internal.ir.annotations.Ignore;
 import junit.framework.Assert;
 import org.junit.Test;
@@ -179,5 +180,145 @@ public class TestDirectByteBufferPool {
         pool.recycle(byteBuffer);
     }
 
+    @Test
+    public void testBuddyMerge() {
+        int chunkSize = 256;
+        int pageSize = chunkSize * 8;
+        DirectByteBufferPool pool = new DirectByteBufferPool(pageSize, (short) chunkSize, (short) 1);
+        List<ByteBuffer> buffs = new ArrayList<ByteBuffer>();
+        for (int i = 0; i < 8; i++) {
+            buffs.add(pool.allocate(chunkSize));
+        }
+        Assert.assertEquals(0, pool.size());
+        for (ByteBuffer buff : buffs) {
+            pool.recycle(buff);
+        }
+        Assert.assertEquals(pageSize, pool.size());
+        // all the chunks are merged back, so the whole page can be allocated at once
+        ByteBuffer whole = pool.allocate(pageSize);
+        Assert.assertTrue(whole instanceof DirectBuffer);
+        Assert.assertEquals(pageSize, whole.capacity());
+        pool.recycle(whole);
+        Assert.assertEquals(0, pool.getHeapAllocateCount());
+    }
+
+    @Test
+    public void testAllocateRoundUp() {
+        int chunkSize = 256;
+        DirectByteBufferPool pool = new DirectByteBufferPool(chunkSize * 6, (short) chunkSize, (short) 1);
+        ByteBuffer three = pool.allocate(chunkSize * 3);
+        Assert.assertEquals(chunkSize * 4, three.capacity());
+        ByteBuffer two = pool.allocate(chunkSize * 2);
+        Assert.assertEquals(chunkSize * 2, two.capacity());
+        Assert.assertEquals(0, pool.size());
+        pool.recycle(three);
+        pool.recycle(two);
+        Assert.assertEquals(chunkSize * 6, pool.size());
+    }
+
+    @Test
+    public void testRecycleTwice() {
+        int chunkSize = 256;
+        int pageSize = chunkSize * 4;
+        DirectByteBufferPool pool = new DirectByteBufferPool(pageSize, (short) chunkSize, (short) 1);
+        ByteBuffer one = pool.allocate(chunkSize);
+        pool.recycle(one);
+        // the second recycle is rejected, the chunk is free only once
+        pool.recycle(one);
+        Assert.assertEquals(pageSize, pool.size());
+        ByteBuffer first = pool.allocate(chunkSize);
+        ByteBuffer second = pool.allocate(chunkSize);
+        Assert.assertTrue(((DirectBuffer) first).address() != ((DirectBuffer) second).address());
+        pool.recycle(first);
+        pool.recycle(second);
+        Assert.assertEquals(pageSize, pool.size());
+    }
+
+    @Test
+    public void testHeapAllocateCount() {
+        int chunkSize = 256;
+        DirectByteBufferPool pool = new DirectByteBufferPool(chunkSize * 4, (short) chunkSize, (short) 1);
+        ByteBuffer direct = pool.allocate(chunkSize * 4);
+        ByteBuffer heap = pool.allocate(chunkSize);
+        Assert.assertFalse(heap instanceof DirectBuffer);
+        Assert.assertEquals(1, pool.getHeapAllocateCount());
+        pool.recycle(heap);
+        pool.recycle(direct);
+    }
+
+    @Test
+    public void testReactorThreadCache() throws InterruptedException {
+        final int chunkSize = 256;
+        final DirectByteBufferPool pool = new DirectByteBufferPool(chunkSize * 4, (short) chunkSize, (short) 1);
+        final List<Long> addresses = new ArrayList<Long>();
+        Thread reactor = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                ByteBuffer first = pool.allocate(chunkSize);
+                addresses.add(((DirectBuffer) first).address());
+                pool.recycle(first);
+                ByteBuffer second = pool.allocate(chunkSize);
+                addresses.add(((DirectBuffer) second).address());
+                pool.recycle(second);
+            }
+        }, DirectByteBufferPool.LOCAL_BUF_THREAD_PREX + "TEST_REACTOR");
+        reactor.start();
+        reactor.join();
+        Assert.assertEquals(2, addresses.size());
+        Assert.assertEquals(addresses.get(0), addresses.get(1));
+        // the chunk stays in the reactor thread's cache
+        Assert.assertEquals(chunkSize * 3, pool.size());
+        Assert.assertEquals(Long.valueOf(0), pool.getNetDirectMemoryUsage().get(reactor.getId()));
+        // and goes back to the page once the dead thread is found
+        Assert.assertEquals(chunkSize * 4, pool.size());
+        Assert.assertTrue(pool.getNetDirectMemoryCached().isEmpty());
+    }
+
+    @Test
+    public void testThreadUsage() throws InterruptedException {
+        final int chunkSize = 256;
+        final DirectByteBufferPool pool = new DirectByteBufferPool(chunkSize * 4, (short) chunkSize, (short) 1);
+        final ByteBuffer[] holder = new ByteBuffer[2];
+        Thread business = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                holder[0] = pool.allocate(chunkSize);
+                holder[1] = pool.allocate(chunkSize * 2);
+                pool.recycle(holder[0]);
+            }
+        }, DbleServer.BUSINESS_EXECUTOR_NAME + "0");
+        business.start();
+        business.join();
+        Assert.assertEquals(Long.valueOf(chunkSize * 2), pool.getNetDirectMemoryUsage().get(business.getId()));
+        // recycled by another thread, the usage of that thread goes negative as before
+        pool.recycle(holder[1]);
+        Assert.assertEquals(Long.valueOf(-chunkSize * 2), pool.getNetDirectMemoryUsage().get(Thread.currentThread().getId()));
+        Assert.assertEquals(chunkSize * 4, pool.size());
+    }
+
+    @Test
+    public void testDeadThreadsForgotten() throws InterruptedException {
+        final int chunkSize = 256;
+        final DirectByteBufferPool pool = new DirectByteBufferPool(chunkSize * 4, (short) chunkSize, (short) 1);
+        List<Long> ids = new ArrayList<Long>();
+        for (int i = 0; i < 100; i++) {
+            Thread reactor = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    pool.recycle(pool.allocate(chunkSize));
+                }
+            }, DirectByteBufferPool.LOCAL_BUF_THREAD_PREX + "TEST_REACTOR" + i);
+            reactor.start();
+            reactor.join();
+            ids.add(reactor.getId());
+        }
+        // the last one is reported once more
+        Assert.assertEquals(Long.valueOf(0), pool.getNetDirectMemoryUsage().get(ids.get(ids.size() - 1)));
+        Map<Long, Long> usage = pool.getNetDirectMemoryUsage();
+        for (Long id : ids) {
+            Assert.assertFalse(usage.containsKey(id));
+        }
+        Assert.assertEquals(chunkSize * 4, pool.size());
+    }
 
 }
@@ -0,0 +1,128 @@
+/*
+ * Copyright (C) 2016-2018 ActionTech.
+ * License: http://www.gnu.org/licenses/gpl.html GPL version 2 or higher.
+ */
+
+package com.actiontech.dble.cache;
+
+import com.actiontech.dble.cache.impl.EnchachePool;
+import com.actiontech.dble.cache.impl.MapDBCachePooFactory;
+import com.actiontech.dble.cache.impl.TinyLfuCachePool;
+import net.sf.ehcache.Cache;
+import net.sf.ehcache.CacheManager;
+import net.sf.ehcache.config.CacheConfiguration;
+
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+
+/**
+ * get/putIfAbsent per second and hit ratio of EnchachePool, MapDBCachePool and TinyLfuCachePool
+ * with 1 to 64 threads, the keys follow a zipf like distribution over 10 times of the cache size.
+ * all of them hold at most CACHE_SIZE entries.
+ */
+public class CachePoolPerfMain {
+    private static final int CACHE_SIZE = 10000;
+    private static final int KEY_SPACE = CACHE_SIZE * 10;
+    private static final int TOTAL_OPS = 4000000;
+
+    private final String name;
+    private final CachePool pool;
+    private final int[] keys;
+
+    public CachePoolPerfMain(String name, CachePool pool, int[] keys) {
+        this.name = name;
+        this.pool = pool;
+        this.keys = keys;
+    }
+
+    private static CachePool createEnCachePool() {
+        CacheConfiguration cacheConf = new CacheConfiguration();
+        cacheConf.setName("perfcache");
+        cacheConf.maxEntriesLocalHeap(CACHE_SIZE).timeToIdleSeconds(3600);
+        Cache cache = new Cache(cacheConf);
+        CacheManager.create().addCache(cache);
+        return new EnchachePool(cacheConf.getName(), cache, CACHE_SIZE);
+    }
+
+    /**
+     * rank r is chosen with a probability of about 1/r
+     */
+    private static int[] zipfKeys(int count) {
+        Random random = new Random(1);
+        double max = Math.log(KEY_SPACE + 1);
+        int[] result = new int[count];
+        for (int i = 0; i < count; i++) {
+            result[i] = (int) Math.exp(random.nextDouble() * max) - 1;
+        }
+        return result;
+    }
+
+    public void run(int threadCount) throws InterruptedException {
+        pool.clearCache();
+        final CountDownLatch start = new CountDownLatch(1);
+        final CountDownLatch end = new CountDownLatch(threadCount);
+        final int opsPerThread = TOTAL_OPS / threadCount;
+        for (int i = 0; i < threadCount; i++) {
+            final int offset = i * 7919;
+            new Thread() {
+                @Override
+                public void run() {
+                    try {
+                        start.await();
+                        for (int j = 0; j < opsPerThread; j++) {
+                            String key = "key" + keys[(offset + j) % keys.length];
+                            if (pool.get(key) == null) {
+                                pool.putIfAbsent(key, "dn1");
+                            }
+                        }
+                    } catch (InterruptedException e) {
+                        e.printStackTrace();
+                    } finally {
+                        end.countDown();
+                    }
+                }
+            }.start();
+        }
+        long t1 = System.nanoTime();
+        start.countDown();
+        end.await();
+        long t2 = System.nanoTime();
+        long ops = (long) threadCount * opsPerThread;
+        CacheStatic statics = pool.getCacheStatic();
+        System.out.println(name + " threads:" + threadCount + " take time:" + (t2 - t1) / 1000000 +
+                " ms, ops/s:" + ops * 1000000000L / (t2 - t1) +
+                " hit:" + 100 * statics.getHitTimes() / Math.max(1, statics.getAccessTimes()) + "%" +
+                " size:" + statics.getItemSize());
+    }
+
+    private static CachePool createPool(String name) {
+        switch (name) {
+            case "encache":
+                return createEnCachePool();
+            case "mapdb":
+                return new MapDBCachePooFactory().createCachePool("perfcache", CACHE_SIZE, 3600);
+            case "tinylfu":
+                return new TinyLfuCachePool("perfcache", CACHE_SIZE, 3600, false);
+            default:
+                throw new IllegalArgumentException("unknown cache pool " + name);
+        }
+    }
+
+    /**
+     * args: the pools to test, encache mapdb tinylfu by default
+     */
+    public static void main(String[] args) throws InterruptedException {
+        String[] names = args.length > 0 ? args : new String[]{"encache", "mapdb", "tinylfu"};
+        int[] keys = zipfKeys(1 << 20);
+        for (String name : names) {
+            CachePoolPerfMain perf = new CachePoolPerfMain(name, createPool(name), keys);
+            // warm up
+            perf.run(4);
+            for (int threads = 1; threads <= 64; threads *= 2) {
+                perf.run(threads);
+            }
+        }
+        // the cache managers of encache and mapdb keep the jvm alive
+        System.exit(0);
+    }
+}
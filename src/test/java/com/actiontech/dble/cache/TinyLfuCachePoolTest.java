@@ -0,0 +1,92 @@
+/*
+ * Copyright (C) 2016-2018 ActionTech.
+ * License: http://www.gnu.org/licenses/gpl.html GPL version 2 or higher.
+ */
+
+package com.actiontech.dble.cache;
+
+import com.actiontech.dble.cache.impl.TinyLfuCachePool;
+import junit.framework.Assert;
+import org.junit.Test;
+
+public class TinyLfuCachePoolTest {
+
+    @Test
+    public void testBasic() throws InterruptedException {
+        TinyLfuCachePool pool = new TinyLfuCachePool("testcache", 100, 1, false);
+        pool.putIfAbsent("2", "dn2");
+        pool.putIfAbsent("1", "dn1");
+        pool.putIfAbsent("1", "dn3");
+
+        Assert.assertEquals("dn2", pool.get("2"));
+        Assert.assertEquals("dn1", pool.get("1"));
+        Assert.assertEquals(null, pool.get("3"));
+
+        CacheStatic statics = pool.getCacheStatic();
+        Assert.assertEquals(2, statics.getItemSize());
+        Assert.assertEquals(2, statics.getPutTimes());
+        Assert.assertEquals(3, statics.getAccessTimes());
+        Assert.assertEquals(2, statics.getHitTimes());
+        Assert.assertTrue(statics.getMemorySize() > 0);
+        Assert.assertTrue(statics.getLastAccessTime() > 0);
+        Assert.assertTrue(statics.getLastPutTime() > 0);
+
+        // wait expire
+        Thread.sleep(2100);
+        Assert.assertEquals(null, pool.get("2"));
+        Assert.assertEquals(null, pool.get("1"));
+        // the expired entries are removed when they are read
+        Assert.assertEquals(0, pool.getCacheStatic().getItemSize());
+
+        pool.putIfAbsent("1", "dn1");
+        pool.clearCache();
+        Assert.assertEquals(null, pool.get("1"));
+        Assert.assertEquals(0, pool.getCacheStatic().getPutTimes());
+    }
+
+    @Test
+    public void testBounded() {
+        TinyLfuCachePool pool = new TinyLfuCachePool("testcache", 1000, -1, false);
+        for (int i = 0; i < 10000; i++) {
+            pool.putIfAbsent(i, "dn" + i);
+        }
+        CacheStatic statics = pool.getCacheStatic();
+        Assert.assertEquals(1000, statics.getItemSize());
+        Assert.assertEquals(9000, statics.getEvictionTimes());
+    }
+
+    @Test
+    public void testWeighByBytes() {
+        TinyLfuCachePool pool = new TinyLfuCachePool("testcache", 100 * 1024, -1, true);
+        for (int i = 0; i < 10000; i++) {
+            pool.putIfAbsent("key" + i, "dn" + i);
+        }
+        CacheStatic statics = pool.getCacheStatic();
+        Assert.assertTrue(statics.getMemorySize() <= 100 * 1024);
+        Assert.assertTrue(statics.getItemSize() > 0 && statics.getItemSize() < 10000);
+    }
+
+    @Test
+    public void testScanResistant() {
+        TinyLfuCachePool pool = new TinyLfuCachePool("testcache", 1000, -1, false);
+        // the hot keys are read again and again
+        for (int round = 0; round < 20; round++) {
+            for (int i = 0; i < 500; i++) {
+                if (pool.get("hot" + i) == null) {
+                    pool.putIfAbsent("hot" + i, "dn1");
+                }
+            }
+        }
+        // a scan of one-off keys
+        for (int i = 0; i < 100000; i++) {
+            pool.putIfAbsent("scan" + i, "dn2");
+        }
+        int hit = 0;
+        for (int i = 0; i < 500; i++) {
+            if (pool.get("hot" + i) != null) {
+                hit++;
+            }
+        }
+        Assert.assertTrue("hot keys left: " + hit, hit > 450);
+    }
+}
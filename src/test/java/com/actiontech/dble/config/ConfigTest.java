@@ -19,7 +19,6 @@ import org.junit.Test;
 
 import java.lang.reflect.Constructor;
 import java.lang.reflect.Method;
-import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Set;
@@ -160,13 +159,15 @@ public class ConfigTest {
     @Test
     public void testReadHostWeight() throws Exception {
 
-        ArrayList<PhysicalDatasource> okSources = new ArrayList<PhysicalDatasource>();
+        Map<String, Integer> weights = new HashMap<String, Integer>();
 
         PhysicalDBPool pool = this.dataHosts.get("localhost2");
-        okSources.addAll(pool.getAllDataSources());
-        PhysicalDatasource source = pool.randomSelect(okSources);
+        for (PhysicalDatasource source : pool.getAllDataSources()) {
+            weights.put(source.getConfig().getHostName(), source.getConfig().getWeight());
+        }
 
-        Assert.assertTrue(source != null);
+        Assert.assertEquals(Integer.valueOf(1), weights.get("readS1"));
+        Assert.assertEquals(Integer.valueOf(2), weights.get("readS2"));
     }
 
     private Map<String, PhysicalDBPool> initDataHosts(SchemaLoader schemaLoader) {
@@ -0,0 +1,73 @@
+/*
+ * Copyright (C) 2016-2018 ActionTech.
+ * License: http://www.gnu.org/licenses/gpl.html GPL version 2 or higher.
+ */
+
+package com.actiontech.dble.meta;
+
+import com.actiontech.dble.meta.protocol.StructureMeta;
+import junit.framework.Assert;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+
+public class MetaSnapshotTest {
+
+    @Test
+    public void testSaveAndLoad() throws IOException {
+        File file = File.createTempFile("metaSnapshot", null);
+        try {
+            StructureMeta.TableMeta t1 = tableMeta("t1", 100L);
+            StructureMeta.TableMeta t2 = tableMeta("t2", 200L);
+            MetaSnapshot snapshot = new MetaSnapshot();
+            snapshot.addTable("db1", "dn1=2018-01-01 00:00:00,InnoDB,utf8_general_ci,;", t1);
+            snapshot.addTable("db1", null, t2);
+            snapshot.addTable("db2", "dn2=null;", t1);
+            snapshot.save(file.getPath());
+
+            MetaSnapshot loaded = MetaSnapshot.load(file.getPath());
+            Assert.assertEquals(3, loaded.getTableCount());
+            Assert.assertEquals(t1, loaded.getTables("db1").get("t1").getTableMeta());
+            Assert.assertEquals("dn1=2018-01-01 00:00:00,InnoDB,utf8_general_ci,;", loaded.getTables("db1").get("t1").getChecksum());
+            Assert.assertNull(loaded.getTables("db1").get("t2").getChecksum());
+            Assert.assertEquals(t2, loaded.getTables("db1").get("t2").getTableMeta());
+            Assert.assertEquals("dn2=null;", loaded.getTables("db2").get("t1").getChecksum());
+            Assert.assertTrue(loaded.getTables("db3").isEmpty());
+        } finally {
+            file.delete();
+        }
+    }
+
+    @Test
+    public void testNotExists() throws IOException {
+        Assert.assertNull(MetaSnapshot.load(new File(System.getProperty("java.io.tmpdir"), "metaSnapshotNotExists").getPath()));
+    }
+
+    @Test(expected = IOException.class)
+    public void testBroken() throws IOException {
+        File file = File.createTempFile("metaSnapshot", null);
+        try {
+            MetaSnapshot snapshot = new MetaSnapshot();
+            snapshot.addTable("db1", "dn1=null;", tableMeta("t1", 100L));
+            snapshot.save(file.getPath());
+            try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+                // change the last byte before the crc
+                raf.seek(raf.length() - 9);
+                int b = raf.read();
+                raf.seek(raf.length() - 9);
+                raf.write(b + 1);
+            }
+            MetaSnapshot.load(file.getPath());
+        } finally {
+            file.delete();
+        }
+    }
+
+    private static StructureMeta.TableMeta tableMeta(String name, long version) {
+        StructureMeta.ColumnMeta id = StructureMeta.ColumnMeta.newBuilder().setName("id").setDataType("int").build();
+        return StructureMeta.TableMeta.newBuilder().setTableName(name).setVersion(version).addColumns(id).
+                setCreateSql("create table " + name + " (id int)").build();
+    }
+}
@@ -0,0 +1,132 @@
+/*
+ * Copyright (C) 2016-2018 ActionTech.
+ * License: http://www.gnu.org/licenses/gpl.html GPL version 2 or higher.
+ */
+
+package com.actiontech.dble.meta;
+
+import com.actiontech.dble.meta.protocol.StructureMeta;
+import junit.framework.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+public class ProxyMetaManagerTest {
+    private static final String SCHEMA = "db1";
+
+    @Test
+    public void testReadOtherTableDuringDDL() throws Exception {
+        final ProxyMetaManager manager = newManager();
+        manager.addMetaLock(SCHEMA, "t_ddl");
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            // the table not under DDL is read at once
+            Future<StructureMeta.TableMeta> other = executor.submit(new Callable<StructureMeta.TableMeta>() {
+                @Override
+                public StructureMeta.TableMeta call() {
+                    return manager.getSyncTableMeta(SCHEMA, "t_other");
+                }
+            });
+            Assert.assertEquals(1L, other.get(5, TimeUnit.SECONDS).getVersion());
+
+            // the table under DDL waits for the DDL
+            Future<StructureMeta.TableMeta> ddl = executor.submit(new Callable<StructureMeta.TableMeta>() {
+                @Override
+                public StructureMeta.TableMeta call() {
+                    return manager.getSyncTableMeta(SCHEMA, "t_ddl");
+                }
+            });
+            try {
+                ddl.get(200, TimeUnit.MILLISECONDS);
+                Assert.fail("the table under DDL is read");
+            } catch (TimeoutException e) {
+                // expected
+            }
+            manager.addTable(SCHEMA, tableMeta("t_ddl", 2L));
+            manager.removeMetaLock(SCHEMA, "t_ddl");
+            Assert.assertEquals(2L, ddl.get(5, TimeUnit.SECONDS).getVersion());
+            Assert.assertEquals(0, manager.getMetaCount());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * readers of both tables run while one table is altered again and again: the readers of the other table never
+     * wait, and no reader sees an older version after a newer one
+     */
+    @Test
+    public void testDDLWithReads() throws Exception {
+        final ProxyMetaManager manager = newManager();
+        final int readers = 4;
+        final int ddlCount = 200;
+        final AtomicBoolean stop = new AtomicBoolean(false);
+        final AtomicReference<String> error = new AtomicReference<>();
+        final AtomicLong otherReads = new AtomicLong();
+        final AtomicLong maxOtherReadNanos = new AtomicLong();
+        List<Thread> threads = new ArrayList<>();
+        for (int i = 0; i < readers; i++) {
+            final String table = i % 2 == 0 ? "t_ddl" : "t_other";
+            threads.add(new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    long lastVersion = 0;
+                    while (!stop.get()) {
+                        long start = System.nanoTime();
+                        StructureMeta.TableMeta meta = manager.getSyncTableMeta(SCHEMA, table);
+                        long cost = System.nanoTime() - start;
+                        if (meta == null || meta.getVersion() < lastVersion) {
+                            error.compareAndSet(null, table + " read version " + (meta == null ? null : meta.getVersion()) + " after " + lastVersion);
+                            return;
+                        }
+                        lastVersion = meta.getVersion();
+                        if ("t_other".equals(table)) {
+                            otherReads.incrementAndGet();
+                            long max = maxOtherReadNanos.get();
+                            while (cost > max && !maxOtherReadNanos.compareAndSet(max, cost)) {
+                                max = maxOtherReadNanos.get();
+                            }
+                        }
+                    }
+                }
+            }));
+        }
+        for (Thread thread : threads) {
+            thread.start();
+        }
+        for (int i = 2; i < ddlCount + 2; i++) {
+            manager.addMetaLock(SCHEMA, "t_ddl");
+            // the DDL holds the table for a while
+            Thread.sleep(1);
+            manager.addTable(SCHEMA, tableMeta("t_ddl", i));
+            manager.removeMetaLock(SCHEMA, "t_ddl");
+        }
+        stop.set(true);
+        for (Thread thread : threads) {
+            thread.join(TimeUnit.SECONDS.toMillis(10));
+            Assert.assertFalse(thread.isAlive());
+        }
+        Assert.assertNull(error.get(), error.get());
+        Assert.assertTrue(otherReads.get() > 0);
+        // the reads of the other table never wait for a DDL which takes at least 1 ms
+        Assert.assertTrue(maxOtherReadNanos.get() < TimeUnit.MILLISECONDS.toNanos(ddlCount));
+        Assert.assertEquals(ddlCount + 1L, manager.getSyncTableMeta(SCHEMA, "t_ddl").getVersion());
+    }
+
+    private static ProxyMetaManager newManager() {
+        ProxyMetaManager manager = new ProxyMetaManager();
+        manager.createDatabase(SCHEMA);
+        manager.addTable(SCHEMA, tableMeta("t_ddl", 1L));
+        manager.addTable(SCHEMA, tableMeta("t_other", 1L));
+        return manager;
+    }
+
+    private static StructureMeta.TableMeta tableMeta(String name, long version) {
+        return StructureMeta.TableMeta.newBuilder().setTableName(name).setVersion(version).build();
+    }
+}
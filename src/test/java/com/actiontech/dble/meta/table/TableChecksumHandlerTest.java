@@ -0,0 +1,41 @@
+/*
+ * Copyright (C) 2016-2018 ActionTech.
+ * License: http://www.gnu.org/licenses/gpl.html GPL version 2 or higher.
+ */
+
+package com.actiontech.dble.meta.table;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+public class TableChecksumHandlerTest {
+
+    @Test
+    public void testChecksumSql() {
+        String sql = TableChecksumHandler.getChecksumSql("db1");
+        Assert.assertTrue(sql.contains("information_schema.COLUMNS WHERE TABLE_SCHEMA = 'db1'"));
+        Assert.assertTrue(sql.contains("information_schema.STATISTICS WHERE TABLE_SCHEMA = 'db1'"));
+        Assert.assertTrue(sql.endsWith("WHERE t.TABLE_SCHEMA = 'db1'"));
+    }
+
+    @Test
+    public void testChecksum() {
+        Map<String, Map<String, String>> checksums = new HashMap<>();
+        Map<String, String> dn1 = new HashMap<>();
+        dn1.put("t1", "2018-01-01 00:00:00,InnoDB,utf8_general_ci,,,3-123,1-456");
+        dn1.put("t2", null);
+        checksums.put("dn1", dn1);
+        checksums.put("dn2", new HashMap<String, String>());
+
+        Assert.assertEquals("dn1=2018-01-01 00:00:00,InnoDB,utf8_general_ci,,,3-123,1-456;dn2=null;",
+                TableChecksumHandler.getChecksum(checksums, "t1", Arrays.asList("dn1", "dn2")));
+        // the columns are not digested
+        Assert.assertNull(TableChecksumHandler.getChecksum(checksums, "t2", Arrays.asList("dn1", "dn2")));
+        // the data node is not checked
+        Assert.assertNull(TableChecksumHandler.getChecksum(checksums, "t1", Arrays.asList("dn1", "dn3")));
+    }
+}
@@ -0,0 +1,476 @@
+/*
+ * Copyright (C) 2016-2018 ActionTech.
+ * License: http://www.gnu.org/licenses/gpl.html GPL version 2 or higher.
+ */
+
+package com.actiontech.dble.net;
+
+import com.actiontech.dble.buffer.BufferPool;
+import junit.framework.Assert;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.net.Socket;
+import java.net.SocketAddress;
+import java.net.SocketOption;
+import java.nio.ByteBuffer;
+import java.nio.channels.AsynchronousCloseException;
+import java.nio.channels.SelectableChannel;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.nio.channels.spi.SelectorProvider;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+public class NIOSocketWRTest {
+
+    @Test
+    public void testPartialGatheringWrite() throws Exception {
+        TestChannel channel = new TestChannel(Integer.MAX_VALUE, 10);
+        TestConnection con = new TestConnection(channel, 8, 1024);
+        List<ByteBuffer> buffers = queue(con, "abcdefgh", "ijklmnop", "qrstuvwx");
+
+        con.wr.doNextWriteCheck();
+        // every write takes 10 bytes of the gathered buffers, a buffer is recycled once it is fully written
+        Assert.assertEquals("abcdefghijklmnopqrstuvwx", channel.written());
+        Assert.assertEquals(3, channel.calls.size());
+        Assert.assertEquals(3, (int) channel.calls.get(0));
+        Assert.assertEquals(2, (int) channel.calls.get(1));
+        Assert.assertEquals(1, (int) channel.calls.get(2));
+        con.pool.assertRecycledOnce(buffers);
+        Assert.assertTrue(con.writeQueue.isEmpty());
+        Assert.assertEquals(0, con.key.interestOps() & SelectionKey.OP_WRITE);
+        Assert.assertEquals(3, con.writeCount);
+        Assert.assertEquals(6, con.writeBufferCount);
+    }
+
+    @Test
+    public void testBatchLimits() throws Exception {
+        TestChannel channel = new TestChannel(Integer.MAX_VALUE, Integer.MAX_VALUE);
+        TestConnection con = new TestConnection(channel, 2, 1024);
+        List<ByteBuffer> buffers = queue(con, "abcdefgh", "ijklmnop", "qrstuvwx");
+
+        con.wr.doNextWriteCheck();
+        Assert.assertEquals("abcdefghijklmnopqrstuvwx", channel.written());
+        Assert.assertEquals(2, (int) channel.calls.get(0));
+        Assert.assertEquals(1, (int) channel.calls.get(1));
+        con.pool.assertRecycledOnce(buffers);
+    }
+
+    @Test
+    public void testSocketBufferFull() throws Exception {
+        TestChannel channel = new TestChannel(10, Integer.MAX_VALUE);
+        TestConnection con = new TestConnection(channel, 8, 1024);
+        List<ByteBuffer> buffers = queue(con, "abcdefgh", "ijklmnop", "qrstuvwx");
+
+        con.wr.doNextWriteCheck();
+        // the rest waits in the batch for OP_WRITE
+        Assert.assertEquals("abcdefghij", channel.written());
+        Assert.assertEquals(SelectionKey.OP_WRITE, con.key.interestOps() & SelectionKey.OP_WRITE);
+        con.pool.assertRecycledOnce(buffers.subList(0, 1));
+        con.pool.assertNotRecycled(buffers.subList(1, 3));
+
+        channel.addRoom(100);
+        buffers.addAll(queue(con, "yz"));
+        con.wr.doNextWriteCheck();
+        Assert.assertEquals("abcdefghijklmnopqrstuvwxyz", channel.written());
+        Assert.assertEquals(0, con.key.interestOps() & SelectionKey.OP_WRITE);
+        con.pool.assertRecycledOnce(buffers);
+    }
+
+    @Test
+    public void testIOExceptionMidBatch() throws Exception {
+        TestChannel channel = new TestChannel(Integer.MAX_VALUE, 10);
+        channel.failAtCall = 2;
+        TestConnection con = new TestConnection(channel, 8, 1024);
+        List<ByteBuffer> buffers = queue(con, "abcdefgh", "ijklmnop", "qrstuvwx");
+
+        con.wr.doNextWriteCheck();
+        Assert.assertTrue(con.isClosed());
+        Assert.assertEquals("abcdefghij", channel.written());
+        // the written buffer and the pending ones are recycled by the writer, the close doesn't recycle them again
+        con.pool.assertRecycledOnce(buffers);
+
+        con.close("again");
+        con.pool.assertRecycledOnce(buffers);
+    }
+
+    @Test
+    public void testCloseDuringWrite() throws Exception {
+        final TestChannel channel = new TestChannel(10, Integer.MAX_VALUE);
+        channel.blockAtCall = 1;
+        final TestConnection con = new TestConnection(channel, 8, 1024);
+        List<ByteBuffer> buffers = queue(con, "abcdefgh", "ijklmnop", "qrstuvwx");
+
+        Thread writer = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                con.wr.doNextWriteCheck();
+            }
+        });
+        writer.start();
+        Assert.assertTrue(channel.entered.await(10, TimeUnit.SECONDS));
+
+        // the batch belongs to the writer, the close leaves it alone
+        con.closeQuietly();
+        con.pool.assertNotRecycled(buffers);
+
+        channel.release.countDown();
+        writer.join(TimeUnit.SECONDS.toMillis(10));
+        Assert.assertFalse(writer.isAlive());
+        // the writer recycles what it kept when it ends the write
+        con.pool.assertRecycledOnce(buffers);
+
+        queue(con, "yz");
+        con.wr.doNextWriteCheck();
+        con.wr.cleanup();
+        Assert.assertEquals(2, channel.calls.size());
+        con.pool.assertRecycledOnce(buffers);
+    }
+
+    @Test
+    public void testCloseWhileBlockedWriteFails() throws Exception {
+        final TestChannel channel = new TestChannel(Integer.MAX_VALUE, 10);
+        channel.blockAtCall = 2;
+        final TestConnection con = new TestConnection(channel, 8, 1024);
+        List<ByteBuffer> buffers = queue(con, "abcdefgh", "ijklmnop", "qrstuvwx");
+
+        Thread writer = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                con.wr.doNextWriteCheck();
+            }
+        });
+        writer.start();
+        Assert.assertTrue(channel.entered.await(10, TimeUnit.SECONDS));
+
+        // the socket is closed under the writer, which fails with AsynchronousCloseException
+        con.close("kill");
+        con.pool.assertRecycledOnce(buffers.subList(0, 1));
+        con.pool.assertNotRecycled(buffers.subList(1, 3));
+
+        channel.release.countDown();
+        writer.join(TimeUnit.SECONDS.toMillis(10));
+        Assert.assertFalse(writer.isAlive());
+        con.pool.assertRecycledOnce(buffers);
+    }
+
+    private static List<ByteBuffer> queue(TestConnection con, String... contents) {
+        List<ByteBuffer> buffers = new ArrayList<>();
+        for (String content : contents) {
+            ByteBuffer buffer = ByteBuffer.allocate(16);
+            buffer.put(content.getBytes());
+            buffers.add(buffer);
+            con.writeQueue.offer(buffer);
+        }
+        return buffers;
+    }
+
+    private static class TestConnection extends AbstractConnection {
+        private final RecordBufferPool pool = new RecordBufferPool();
+        private final NIOSocketWR wr;
+        private final TestKey key = new TestKey();
+
+        TestConnection(TestChannel channel, int batchSize, long batchBytes) throws Exception {
+            super(channel);
+            this.processor = new NIOProcessor("test", pool);
+            this.wr = new NIOSocketWR(this, batchSize, batchBytes);
+            Field processKey = NIOSocketWR.class.getDeclaredField("processKey");
+            processKey.setAccessible(true);
+            processKey.set(wr, key);
+        }
+
+        /**
+         * close without closing the socket, as a close racing a writer which is still in write
+         */
+        void closeQuietly() {
+            isClosed.set(true);
+            cleanup();
+        }
+
+        @Override
+        protected void cleanup() {
+            super.cleanup();
+            wr.cleanup();
+        }
+
+        @Override
+        public void register() {
+        }
+
+        @Override
+        public void handle(byte[] data) {
+        }
+    }
+
+    /**
+     * accepts at most bytesPerCall bytes in a write and room bytes in all until addRoom
+     */
+    private static class TestChannel extends SocketChannel {
+        private final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        private final List<Integer> calls = new ArrayList<>();
+        private final int bytesPerCall;
+        private long room;
+        private int failAtCall = -1;
+        private int blockAtCall = -1;
+        private final CountDownLatch entered = new CountDownLatch(1);
+        private final CountDownLatch release = new CountDownLatch(1);
+
+        TestChannel(long room, int bytesPerCall) {
+            super(SelectorProvider.provider());
+            this.room = room;
+            this.bytesPerCall = bytesPerCall;
+        }
+
+        synchronized void addRoom(long bytes) {
+            room += bytes;
+        }
+
+        synchronized String written() {
+            return new String(out.toByteArray());
+        }
+
+        @Override
+        public long write(ByteBuffer[] srcs, int offset, int length) throws IOException {
+            int call;
+            synchronized (this) {
+                calls.add(length);
+                call = calls.size();
+            }
+            if (call == failAtCall) {
+                throw new IOException("Connection reset by peer");
+            }
+            if (call == blockAtCall) {
+                entered.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    throw new AsynchronousCloseException();
+                }
+                if (!isOpen()) {
+                    throw new AsynchronousCloseException();
+                }
+            }
+            synchronized (this) {
+                long canWrite = Math.min(room, bytesPerCall);
+                long written = 0;
+                for (int i = offset; i < offset + length && written < canWrite; i++) {
+                    ByteBuffer src = srcs[i];
+                    while (src.hasRemaining() && written < canWrite) {
+                        out.write(src.get());
+                        written++;
+                    }
+                }
+                room -= written;
+                return written;
+            }
+        }
+
+        @Override
+        public int write(ByteBuffer src) throws IOException {
+            return (int) write(new ByteBuffer[]{src}, 0, 1);
+        }
+
+        @Override
+        public int read(ByteBuffer dst) {
+            return 0;
+        }
+
+        @Override
+        public long read(ByteBuffer[] dsts, int offset, int length) {
+            return 0;
+        }
+
+        @Override
+        public SocketChannel bind(SocketAddress local) {
+            return this;
+        }
+
+        @Override
+        public <T> SocketChannel setOption(SocketOption<T> name, T value) {
+            return this;
+        }
+
+        @Override
+        public <T> T getOption(SocketOption<T> name) {
+            return null;
+        }
+
+        @Override
+        public Set<SocketOption<?>> supportedOptions() {
+            return Collections.emptySet();
+        }
+
+        @Override
+        public SocketChannel shutdownInput() {
+            return this;
+        }
+
+        @Override
+        public SocketChannel shutdownOutput() {
+            return this;
+        }
+
+        @Override
+        public Socket socket() {
+            return null;
+        }
+
+        @Override
+        public boolean isConnected() {
+            return true;
+        }
+
+        @Override
+        public boolean isConnectionPending() {
+            return false;
+        }
+
+        @Override
+        public boolean connect(SocketAddress remote) {
+            return true;
+        }
+
+        @Override
+        public boolean finishConnect() {
+            return true;
+        }
+
+        @Override
+        public SocketAddress getRemoteAddress() {
+            return null;
+        }
+
+        @Override
+        public SocketAddress getLocalAddress() {
+            return null;
+        }
+
+        @Override
+        protected void implCloseSelectableChannel() {
+        }
+
+        @Override
+        protected void implConfigureBlocking(boolean block) {
+        }
+    }
+
+    private static class TestKey extends SelectionKey {
+        private volatile int ops = SelectionKey.OP_READ;
+
+        @Override
+        public SelectableChannel channel() {
+            return null;
+        }
+
+        @Override
+        public Selector selector() {
+            return null;
+        }
+
+        @Override
+        public boolean isValid() {
+            return true;
+        }
+
+        @Override
+        public void cancel() {
+        }
+
+        @Override
+        public int interestOps() {
+            return ops;
+        }
+
+        @Override
+        public SelectionKey interestOps(int interestOps) {
+            ops = interestOps;
+            return this;
+        }
+
+        @Override
+        public int readyOps() {
+            return 0;
+        }
+    }
+
+    /**
+     * heap buffers, counting the recycles of every buffer
+     */
+    private static class RecordBufferPool implements BufferPool {
+        private final IdentityHashMap<ByteBuffer, Integer> recycled = new IdentityHashMap<>();
+
+        synchronized void assertRecycledOnce(List<ByteBuffer> buffers) {
+            for (ByteBuffer buffer : buffers) {
+                Assert.assertEquals(Integer.valueOf(1), recycled.get(buffer));
+            }
+        }
+
+        synchronized void assertNotRecycled(List<ByteBuffer> buffers) {
+            for (ByteBuffer buffer : buffers) {
+                Assert.assertNull(recycled.get(buffer));
+            }
+        }
+
+        @Override
+        public ByteBuffer allocate() {
+            return ByteBuffer.allocate(getChunkSize());
+        }
+
+        @Override
+        public ByteBuffer allocate(int size) {
+            return ByteBuffer.allocate(size);
+        }
+
+        @Override
+        public synchronized void recycle(ByteBuffer theBuf) {
+            Integer count = recycled.get(theBuf);
+            recycled.put(theBuf, count == null ? 1 : count + 1);
+        }
+
+        @Override
+        public long capacity() {
+            return 0;
+        }
+
+        @Override
+        public long size() {
+            return 0;
+        }
+
+        @Override
+        public int getSharedOptsCount() {
+            return 0;
+        }
+
+        @Override
+        public int getChunkSize() {
+            return 16;
+        }
+
+        @Override
+        public long getHeapAllocateCount() {
+            return 0;
+        }
+
+        @Override
+        public ConcurrentMap<Long, Long> getNetDirectMemoryUsage() {
+            return new ConcurrentHashMap<>();
+        }
+
+        @Override
+        public ConcurrentMap<Long, Long> getNetDirectMemoryCached() {
+            return new ConcurrentHashMap<>();
+        }
+    }
+}
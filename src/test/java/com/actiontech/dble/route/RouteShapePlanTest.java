@@ -0,0 +1,320 @@
+/*
+ * Copyright (C) 2016-2018 ActionTech.
+ * License: http://www.gnu.org/licenses/gpl.html GPL version 2 or higher.
+ */
+
+package com.actiontech.dble.route;
+
+import com.actiontech.dble.DbleServer;
+import com.actiontech.dble.backend.mysql.PreparedStatement;
+import com.actiontech.dble.cache.CachePool;
+import com.actiontech.dble.cache.CacheService;
+import com.actiontech.dble.cache.impl.TinyLfuCachePool;
+import com.actiontech.dble.config.loader.SchemaLoader;
+import com.actiontech.dble.config.loader.xml.XMLSchemaLoader;
+import com.actiontech.dble.config.model.SchemaConfig;
+import com.actiontech.dble.config.model.TableConfig;
+import com.actiontech.dble.meta.ProxyMetaManager;
+import com.actiontech.dble.route.parser.util.SqlShape;
+import com.actiontech.dble.route.util.RouterUtil;
+import com.actiontech.dble.server.parser.ServerParse;
+import junit.framework.Assert;
+import org.junit.Test;
+
+import java.lang.reflect.Field;
+import java.util.Map;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class RouteShapePlanTest {
+    private final SchemaConfig schema;
+
+    public RouteShapePlanTest() {
+        SchemaLoader schemaLoader = new XMLSchemaLoader("/route/schema.xml", "/route/rule.xml");
+        Map<String, SchemaConfig> schemaMap = schemaLoader.getSchemas();
+        schema = schemaMap.get("cndb");
+    }
+
+    @Test
+    public void testPreparedParameterCount() {
+        String preparedSql = "select * from offer_detail where offer_id = ? and gmt > ?";
+        String stmt = "select * from offer_detail where offer_id = 8 and gmt > 3";
+        RouteResultset rrs = route(stmt, ServerParse.SELECT, "offer_detail", "8");
+        RouteShapePlan plan = RouteShapePlan.analyzePrepared(schema, preparedSql, 2, new String[]{"8", "3"}, stmt, rrs);
+        Assert.assertTrue(plan.isCacheable());
+        Assert.assertEquals(0, plan.getLiteralIndex());
+
+        // the client counts the ? in the literal too, the parameters can't be matched with the prepared sql
+        preparedSql = "select * from offer_detail where name = 'a?' and offer_id = ?";
+        stmt = "select * from offer_detail where name = 'a?' and offer_id = 8";
+        rrs = route(stmt, ServerParse.SELECT, "offer_detail", "8");
+        plan = RouteShapePlan.analyzePrepared(schema, preparedSql, 2, new String[]{"x", "8"}, stmt, rrs);
+        Assert.assertFalse(plan.isCacheable());
+        plan = RouteShapePlan.analyzePrepared(schema, preparedSql, 1, new String[]{"8"}, stmt, rrs);
+        Assert.assertTrue(plan.isCacheable());
+        Assert.assertEquals(0, plan.getLiteralIndex());
+    }
+
+    @Test
+    public void testPreparedRoute() {
+        String preparedSql = "update offer_detail set gmt = ? where offer_id = ?";
+        String stmt = "update offer_detail set gmt = 'x' where offer_id = 8";
+        RouteResultset rrs = route(stmt, ServerParse.UPDATE, "offer_detail", "8");
+        RouteShapePlan plan = RouteShapePlan.analyzePrepared(schema, preparedSql, 2, new String[]{"x", "8"}, stmt, rrs);
+        Assert.assertTrue(plan.isCacheable());
+        Assert.assertEquals(1, plan.getLiteralIndex());
+
+        // the later executions are routed by the bound value of the sharding column only
+        for (String value : new String[]{"0", "8", "800", "1023", "123456"}) {
+            String next = "update offer_detail set gmt = 'y' where offer_id = " + value;
+            assertSameRoute(route(next, ServerParse.UPDATE, "offer_detail", value),
+                    plan.route(next, ServerParse.UPDATE, value));
+        }
+
+        // a string sharding column
+        preparedSql = "insert into offer (member_id, gmt) values (?, ?)";
+        stmt = "insert into offer (member_id, gmt) values ('abc', 1)";
+        rrs = route(stmt, ServerParse.INSERT, "offer", "abc");
+        plan = RouteShapePlan.analyzePrepared(schema, preparedSql, 2, new String[]{"abc", "1"}, stmt, rrs);
+        Assert.assertTrue(plan.isCacheable());
+        Assert.assertEquals(0, plan.getLiteralIndex());
+        for (String value : new String[]{"abc", "member-12345678", "007"}) {
+            String next = "insert into offer (member_id, gmt) values ('" + value + "', 2)";
+            assertSameRoute(route(next, ServerParse.INSERT, "offer", value), plan.route(next, ServerParse.INSERT, value));
+        }
+    }
+
+    @Test
+    public void testPreparedNotCacheable() {
+        String stmt = "select * from offer_detail where offer_id = 9";
+        RouteResultset rrs = route(stmt, ServerParse.SELECT, "offer_detail", "8");
+        // the sharding column is not compared with the parameter itself
+        Assert.assertFalse(RouteShapePlan.analyzePrepared(schema, "select * from offer_detail where offer_id = ? + 1", 1,
+                new String[]{"8"}, stmt, rrs).isCacheable());
+        stmt = "select * from offer_detail where offer_id in (8, 9)";
+        rrs = route(stmt, ServerParse.SELECT, "offer_detail", "8");
+        Assert.assertFalse(RouteShapePlan.analyzePrepared(schema, "select * from offer_detail where offer_id in (?, ?)", 2,
+                new String[]{"8", "9"}, stmt, rrs).isCacheable());
+
+        String preparedSql = "select * from offer_detail where offer_id = ?";
+        stmt = "select * from offer_detail where offer_id = 8";
+        rrs = route(stmt, ServerParse.SELECT, "offer_detail", "8");
+        // a bound value of a type without literal text
+        Assert.assertFalse(RouteShapePlan.analyzePrepared(schema, preparedSql, 1, new String[]{null}, stmt, rrs).isCacheable());
+        // the value doesn't give the node of the route
+        Assert.assertFalse(RouteShapePlan.analyzePrepared(schema, preparedSql, 1, new String[]{"800"}, stmt, rrs).isCacheable());
+        // more than one node
+        RouteResultset multi = new RouteResultset(stmt, ServerParse.SELECT);
+        multi.setNodes(new RouteResultsetNode[]{new RouteResultsetNode("detail_dn1", ServerParse.SELECT, stmt),
+                new RouteResultsetNode("detail_dn2", ServerParse.SELECT, stmt)});
+        Assert.assertFalse(RouteShapePlan.analyzePrepared(schema, preparedSql, 1, new String[]{"8"}, stmt, multi).isCacheable());
+        // a table which is not sharding
+        stmt = "select * from independent where id = 8";
+        rrs = new RouteResultset(stmt, ServerParse.SELECT);
+        RouterUtil.routeToSingleNode(rrs, "independent_dn0");
+        Assert.assertFalse(RouteShapePlan.analyzePrepared(schema, "select * from independent where id = ?", 1,
+                new String[]{"8"}, stmt, rrs).isCacheable());
+
+        Assert.assertNull(RouteShapePlan.NOT_CACHEABLE.route(stmt, ServerParse.SELECT, "8"));
+    }
+
+    @Test
+    public void testRouteByPreparedPlan() {
+        RouteService routeService = new RouteService(mock(CacheService.class));
+        String preparedSql = "delete from offer_detail where offer_id = ?";
+        String stmt = "delete from offer_detail where offer_id = 8";
+        RouteResultset rrs = route(stmt, ServerParse.DELETE, "offer_detail", "8");
+        RouteShapePlan plan = RouteShapePlan.analyzePrepared(schema, preparedSql, 1, new String[]{"8"}, stmt, rrs);
+        PreparedStatement pStmt = new PreparedStatement(1, preparedSql, 0, 1);
+
+        // no plan yet, the statement is executed as a query
+        Assert.assertNull(routeService.routeByPreparedPlan("cndb", stmt, pStmt, new String[]{"8"}));
+        pStmt.setRoutePlan(RouteShapePlan.NOT_CACHEABLE, ServerParse.DELETE, "cndb", routeService.getRoutePlanVersion());
+        Assert.assertNull(routeService.routeByPreparedPlan("cndb", stmt, pStmt, new String[]{"8"}));
+
+        pStmt.setRoutePlan(plan, ServerParse.DELETE, "cndb", routeService.getRoutePlanVersion());
+        String next = "delete from offer_detail where offer_id = 800";
+        assertSameRoute(route(next, ServerParse.DELETE, "offer_detail", "800"),
+                routeService.routeByPreparedPlan("cndb", next, pStmt, new String[]{"800"}));
+        Assert.assertEquals(1, routeService.getRoutePlanStatic().getHitTimes());
+        // the value can't be calculated
+        Assert.assertNull(routeService.routeByPreparedPlan("cndb", next, pStmt, new String[]{null}));
+        // another schema is used
+        Assert.assertNull(routeService.routeByPreparedPlan("dubbo", next, pStmt, new String[]{"800"}));
+        // a reload or a ddl drops the plans
+        routeService.clearRouteShapeCache();
+        Assert.assertNull(routeService.routeByPreparedPlan("cndb", next, pStmt, new String[]{"800"}));
+    }
+
+    @Test
+    public void testShapeRoute() {
+        String stmt = "select * from offer_detail where offer_id = 8 and gmt > 3";
+        RouteShapePlan plan = analyze(stmt, ServerParse.SELECT, "offer_detail", "8");
+        Assert.assertTrue(plan.isCacheable());
+        Assert.assertEquals(0, plan.getLiteralIndex());
+        for (String value : new String[]{"0", "9", "800", "1023", "123456"}) {
+            assertShapeRoute(plan, "select * from offer_detail where offer_id = " + value + " and gmt > 3",
+                    ServerParse.SELECT, "offer_detail", value);
+        }
+        // the number is calculated by its value
+        assertShapeRoute(plan, "select * from offer_detail where offer_id = 0800 and gmt > 3",
+                ServerParse.SELECT, "offer_detail", "800");
+
+        stmt = "delete from offer where gmt = 3 and member_id = 'abc'";
+        plan = analyze(stmt, ServerParse.DELETE, "offer", "abc");
+        Assert.assertTrue(plan.isCacheable());
+        Assert.assertEquals(1, plan.getLiteralIndex());
+        for (String value : new String[]{"abc", "member-12345678", "007"}) {
+            assertShapeRoute(plan, "delete from offer where gmt = 3 and member_id = '" + value + "'",
+                    ServerParse.DELETE, "offer", value);
+        }
+    }
+
+    @Test
+    public void testShapeOrPredicate() {
+        // 8 and 9 are in the same node, but the shape of another value may not be
+        Assert.assertFalse(analyze("select * from offer_detail where offer_id = 8 or offer_id = 9",
+                ServerParse.SELECT, "offer_detail", "8").isCacheable());
+        Assert.assertFalse(analyze("select * from offer_detail where offer_id = 8 or gmt = 3",
+                ServerParse.SELECT, "offer_detail", "8").isCacheable());
+        Assert.assertFalse(analyze("select * from offer_detail where (offer_id = 8 and gmt = 3) or gmt = 4",
+                ServerParse.SELECT, "offer_detail", "8").isCacheable());
+        Assert.assertFalse(analyze("update offer_detail set gmt = 4 where gmt = 3 or offer_id = 8",
+                ServerParse.UPDATE, "offer_detail", "8").isCacheable());
+    }
+
+    @Test
+    public void testShapeDuplicateValues() {
+        Assert.assertFalse(analyze("select * from offer_detail where offer_id in (8, 8)",
+                ServerParse.SELECT, "offer_detail", "8").isCacheable());
+        Assert.assertFalse(analyze("select * from offer_detail where offer_id in (8)",
+                ServerParse.SELECT, "offer_detail", "8").isCacheable());
+        // can't tell which literal is the sharding one
+        Assert.assertFalse(analyze("select * from offer_detail where offer_id = 8 and gmt = 8",
+                ServerParse.SELECT, "offer_detail", "8").isCacheable());
+        Assert.assertFalse(analyze("select * from offer where member_id = 'abc' and name = 'abc'",
+                ServerParse.SELECT, "offer", "abc").isCacheable());
+        Assert.assertFalse(analyze("select * from offer_detail where offer_id = 8 and offer_id = 8",
+                ServerParse.SELECT, "offer_detail", "8").isCacheable());
+    }
+
+    @Test
+    public void testShapeStringAndNumber() {
+        // the same value as a string and as a number
+        String stmt = "select * from offer where member_id = '8' and gmt = 8";
+        RouteShapePlan plan = analyze(stmt, ServerParse.SELECT, "offer", "8");
+        Assert.assertTrue(plan.isCacheable());
+        Assert.assertEquals(0, plan.getLiteralIndex());
+        assertShapeRoute(plan, "select * from offer where member_id = 'abc' and gmt = 8", ServerParse.SELECT, "offer", "abc");
+        assertShapeRoute(plan, "select * from offer where member_id = '08' and gmt = 9", ServerParse.SELECT, "offer", "08");
+
+        stmt = "select * from offer where member_id = 8 and gmt = '8'";
+        plan = analyze(stmt, ServerParse.SELECT, "offer", "8");
+        Assert.assertTrue(plan.isCacheable());
+        Assert.assertEquals(0, plan.getLiteralIndex());
+        assertShapeRoute(plan, "select * from offer where member_id = 123 and gmt = '8'", ServerParse.SELECT, "offer", "123");
+
+        // a string literal of a number column has another shape
+        Assert.assertFalse(SqlShape.parse("select * from offer_detail where offer_id = '8'").getShape().equals(
+                SqlShape.parse("select * from offer_detail where offer_id = 8").getShape()));
+        stmt = "select * from offer_detail where offer_id = '8'";
+        plan = analyze(stmt, ServerParse.SELECT, "offer_detail", "8");
+        Assert.assertTrue(plan.isCacheable());
+        assertShapeRoute(plan, "select * from offer_detail where offer_id = '800'", ServerParse.SELECT, "offer_detail", "800");
+        // the value can't be calculated, route it the normal way
+        Assert.assertNull(plan.route("select * from offer_detail where offer_id = 'abc'", ServerParse.SELECT,
+                SqlShape.parse("select * from offer_detail where offer_id = 'abc'")));
+    }
+
+    @Test
+    public void testShapeRewrittenStatement() {
+        // the limit added by the select parser
+        String stmt = "select * from offer_detail where offer_id = 8";
+        RouteResultset rrs = route(stmt, ServerParse.SELECT, "offer_detail", "8");
+        String limited = stmt + " LIMIT 100";
+        rrs.changeNodeSqlAfterAddLimit(limited, 0, 100);
+        Assert.assertFalse(RouteShapePlan.analyze(schema, stmt, SqlShape.parse(stmt), rrs).isCacheable());
+
+        // the in list pruned for the node
+        stmt = "select * from offer_detail where offer_id = 8 and gmt in (1, 2)";
+        rrs = route(stmt, ServerParse.SELECT, "offer_detail", "8");
+        rrs.getNodes()[0].setStatement("select * from offer_detail where offer_id = 8 and gmt in (1)");
+        Assert.assertFalse(RouteShapePlan.analyze(schema, stmt, SqlShape.parse(stmt), rrs).isCacheable());
+
+        // the node of the route is not the one of the literal
+        rrs = route(stmt, ServerParse.SELECT, "offer_detail", "800");
+        Assert.assertFalse(RouteShapePlan.analyze(schema, stmt, SqlShape.parse(stmt), rrs).isCacheable());
+    }
+
+    @Test
+    public void testShapeClearedByDdl() throws Exception {
+        CachePool shapeCache = new TinyLfuCachePool("SQLRouteShapeCache", 100, 0, false);
+        CacheService cacheService = mock(CacheService.class);
+        when(cacheService.getCachePool("SQLRouteShapeCache")).thenReturn(shapeCache);
+        RouteService routeService = new RouteService(cacheService);
+        Assert.assertTrue(routeService.isRouteShapeCacheEnabled());
+
+        String stmt = "delete from offer_detail where offer_id = 8";
+        shapeCache.putIfAbsent("cndb_test_" + ServerParse.DELETE + "_" + SqlShape.parse(stmt).getShape(),
+                analyze(stmt, ServerParse.DELETE, "offer_detail", "8"));
+        PreparedStatement pStmt = new PreparedStatement(1, "delete from offer_detail where offer_id = ?", 0, 1);
+        pStmt.setRoutePlan(RouteShapePlan.analyzePrepared(schema, pStmt.getStatement(), 1, new String[]{"8"}, stmt,
+                route(stmt, ServerParse.DELETE, "offer_detail", "8")), ServerParse.DELETE, "cndb",
+                routeService.getRoutePlanVersion());
+        Assert.assertNotNull(routeService.routeByPreparedPlan("cndb", stmt, pStmt, new String[]{"8"}));
+        Assert.assertEquals(1, shapeCache.getCacheStatic().getItemSize());
+
+        DbleServer server = DbleServer.getInstance();
+        Field field = DbleServer.class.getDeclaredField("routerService");
+        field.setAccessible(true);
+        Object old = field.get(server);
+        field.set(server, routeService);
+        try {
+            ProxyMetaManager metaManager = new ProxyMetaManager();
+            metaManager.addMetaLock("cndb", "offer_detail");
+            metaManager.removeMetaLock("cndb", "offer_detail");
+        } finally {
+            field.set(server, old);
+        }
+        // the plans of the shapes and of the prepared statements are dropped
+        Assert.assertEquals(0, shapeCache.getCacheStatic().getItemSize());
+        Assert.assertNull(routeService.routeByPreparedPlan("cndb", stmt, pStmt, new String[]{"8"}));
+        Assert.assertEquals(0, routeService.getRoutePlanStatic().getHitTimes());
+    }
+
+    private RouteShapePlan analyze(String stmt, int sqlType, String table, String value) {
+        return RouteShapePlan.analyze(schema, stmt, SqlShape.parse(stmt), route(stmt, sqlType, table, value));
+    }
+
+    /**
+     * the statement of the shape of plan is routed by the plan as the normal way does
+     */
+    private void assertShapeRoute(RouteShapePlan plan, String stmt, int sqlType, String table, String value) {
+        assertSameRoute(route(stmt, sqlType, table, value), plan.route(stmt, sqlType, SqlShape.parse(stmt)));
+    }
+
+    /**
+     * the route the druid parser gives to a statement of one sharding table whose sharding column is
+     * value: the route strategy needs the table meta of a running server
+     */
+    private RouteResultset route(String stmt, int sqlType, String table, String value) {
+        TableConfig tc = schema.getTables().get(table);
+        RouteResultset rrs = new RouteResultset(stmt, sqlType);
+        rrs.setSchema(schema.getName());
+        rrs.setTable(table);
+        Integer nodeIndex = tc.getRule().getRuleAlgorithm().calculate(value);
+        return RouterUtil.routeToSingleNode(rrs, tc.getDataNodes().get(nodeIndex));
+    }
+
+    private static void assertSameRoute(RouteResultset expected, RouteResultset actual) {
+        Assert.assertNotNull(actual);
+        Assert.assertEquals(expected.getStatement(), actual.getStatement());
+        Assert.assertEquals(expected.getSqlType(), actual.getSqlType());
+        Assert.assertEquals(expected.getSchema(), actual.getSchema());
+        Assert.assertEquals(expected.getTable(), actual.getTable());
+        Assert.assertEquals(1, actual.getNodes().length);
+        Assert.assertEquals(expected.getNodes()[0].getName(), actual.getNodes()[0].getName());
+        Assert.assertEquals(expected.getNodes()[0].getStatement(), actual.getNodes()[0].getStatement());
+    }
+}
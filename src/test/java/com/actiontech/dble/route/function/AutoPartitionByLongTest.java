@@ -87,5 +87,33 @@ public class AutoPartitionByLongTest {
 
     }
 
+    @Test
+    public void testTypedAndBatch() {
+        AutoPartitionByLong autoPartition = new AutoPartitionByLong();
+        autoPartition.setMapFile("autopartition-long.txt");
+        autoPartition.init();
+        String[] values = new String[]{"0", "2000000", "2000001", "4000001", "6000000", "6000001", "-1"};
+        Integer[] batch = autoPartition.calculateBatch(values);
+        for (int i = 0; i < values.length; i++) {
+            Assert.assertEquals(autoPartition.calculate(values[i]), batch[i]);
+            Assert.assertEquals(autoPartition.calculate(values[i]), autoPartition.calculate(Long.parseLong(values[i])));
+            byte[] bytes = ("'" + values[i] + "'").getBytes();
+            Assert.assertEquals(autoPartition.calculate(values[i]), autoPartition.calculate(bytes, 1, bytes.length - 2));
+        }
+    }
 
-}
\ No newline at end of file
+    @Test
+    public void testSearchRanges() {
+        LongRange[] ranges = new LongRange[]{new LongRange(2, 201, 300), new LongRange(0, 0, 100), new LongRange(1, 101, 200)};
+        LongRange[] sorted = LongRange.sortIfDisjoint(ranges);
+        Assert.assertNotNull(sorted);
+        for (long value = -10; value < 310; value++) {
+            Assert.assertEquals(LongRange.find(ranges, false, value), LongRange.find(sorted, true, value));
+        }
+        Assert.assertNull(LongRange.find(sorted, true, 301));
+        Assert.assertEquals(1, LongRange.find(sorted, true, 200).getNodeIndex());
+
+        LongRange[] overlapped = new LongRange[]{new LongRange(0, 0, 100), new LongRange(1, 50, 200)};
+        Assert.assertNull(LongRange.sortIfDisjoint(overlapped));
+    }
+}
@@ -154,4 +154,39 @@ public class PartitionByDateTest {
         partition.init();
         Assert.assertEquals(true, 0 == partition.calculate("2012-12-31"));
     }
-}
\ No newline at end of file
+
+    @Test
+    public void testBatchAndRange() {
+        PartitionByDate partition = new PartitionByDate();
+
+        partition.setDateFormat("yyyy-MM-dd");
+        partition.setsBeginDate("2014-01-01");
+        partition.setsEndDate("2014-01-30");
+        partition.setsPartionDay("10");
+        partition.setDefaultNode(0);
+        partition.init();
+        String[] values = new String[]{"2012-12-31", "2014-01-01", "2014-01-15", "2014-01-30", "2014-02-05"};
+        Integer[] batch = partition.calculateBatch(values);
+        for (int i = 0; i < values.length; i++) {
+            Assert.assertEquals(partition.calculate(values[i]), batch[i]);
+        }
+        Assert.assertArrayEquals(new Integer[]{0, 1, 2}, partition.calculateRange("2014-01-01", "2015-01-01"));
+        Assert.assertArrayEquals(new Integer[]{1, 2}, partition.calculateRange("2014-01-12", "2014-01-25"));
+    }
+
+    @Test
+    public void testRangeOfMonthFormat() {
+        PartitionByDate partition = new PartitionByDate();
+
+        partition.setDateFormat("yyyy-MM");
+        partition.setsBeginDate("2014-01");
+        partition.setsEndDate("2015-01");
+        partition.setsPartionDay("10");
+        partition.init();
+        // only the first day of every month can be a value
+        Integer[] range = partition.calculateRange("2014-01", "2014-03");
+        Assert.assertArrayEquals(new Integer[]{partition.calculate("2014-01"), partition.calculate("2014-02"),
+                partition.calculate("2014-03")}, range);
+        Assert.assertArrayEquals(new Integer[]{0, 3, 5}, range);
+    }
+}
@@ -0,0 +1,65 @@
+/*
+ * Copyright (C) 2016-2018 ActionTech.
+ * License: http://www.gnu.org/licenses/gpl.html GPL version 2 or higher.
+ */
+
+package com.actiontech.dble.route.parser.util;
+
+import junit.framework.Assert;
+import org.junit.Test;
+
+public class SqlShapeTest {
+
+    @Test
+    public void testLiterals() {
+        SqlShape shape = SqlShape.parse("select * from t1 where id = 12 and name = 'abc' and price > 1.5");
+        Assert.assertEquals("select * from t1 where id = ? and name = '?' and price > ?", shape.getShape());
+        Assert.assertEquals(3, shape.getLiteralCount());
+        Assert.assertEquals("12", shape.getLiteral(0));
+        Assert.assertFalse(shape.isStringLiteral(0));
+        Assert.assertEquals("abc", shape.getLiteral(1));
+        Assert.assertTrue(shape.isStringLiteral(1));
+        Assert.assertEquals("1.5", shape.getLiteral(2));
+
+        Assert.assertEquals(shape.getShape(),
+                SqlShape.parse("select * from t1 where id = 345 and name = 'x' and price > 0.25").getShape());
+    }
+
+    @Test
+    public void testInsert() {
+        SqlShape shape = SqlShape.parse("insert into t2(id,name) values(7,\"abc\")");
+        Assert.assertEquals("insert into t2(id,name) values(?,\"?\")", shape.getShape());
+        Assert.assertEquals("abc", shape.getLiteral(1));
+        Assert.assertTrue(shape.isStringLiteral(1));
+    }
+
+    @Test
+    public void testKeptAsIs() {
+        // identifiers, comments, hex/exponent numbers and escaped strings are not replaced
+        String sql = "update `t3` set c_1 = 0x1f, c2 = 1e5, c3 = 'it''s', c4 = 'a\\'b' /* 123 */ where id = 1 # 2\n";
+        SqlShape shape = SqlShape.parse(sql);
+        Assert.assertEquals("update `t3` set c_1 = 0x1f, c2 = 1e5, c3 = 'it''s', c4 = 'a\\'b' /* 123 */ where id = ? # 2\n",
+                shape.getShape());
+        Assert.assertEquals(1, shape.getLiteralCount());
+        Assert.assertEquals("1", shape.getLiteral(0));
+    }
+
+    @Test
+    public void testValue() {
+        // the same shape, a cached route must use the value the parser gives
+        SqlShape shape = SqlShape.parse("select * from t1 where id = 007 and price > 007.50 and name = '007'");
+        Assert.assertEquals(SqlShape.parse("select * from t1 where id = 7 and price > 7.50 and name = '7'").getShape(),
+                shape.getShape());
+        Assert.assertEquals("007", shape.getLiteral(0));
+        Assert.assertEquals("7", shape.getValue(0));
+        Assert.assertEquals("7.50", shape.getValue(1));
+        Assert.assertEquals("007", shape.getValue(2));
+    }
+
+    @Test
+    public void testUnclosed() {
+        SqlShape shape = SqlShape.parse("select 1 from t where name = 'abc");
+        Assert.assertEquals("select ? from t where name = 'abc", shape.getShape());
+        Assert.assertEquals(1, shape.getLiteralCount());
+    }
+}
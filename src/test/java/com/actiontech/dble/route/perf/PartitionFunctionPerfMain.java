@@ -0,0 +1,127 @@
+/*
+ * Copyright (C) 2016-2018 ActionTech.
+ * License: http://www.gnu.org/licenses/gpl.html GPL version 2 or higher.
+ */
+
+package com.actiontech.dble.route.perf;
+
+import com.actiontech.dble.route.function.*;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * the cost of every partition function in route.function, calculating the values one by one with strings,
+ * in batch, and with numbers for the functions which work on numbers
+ */
+public class PartitionFunctionPerfMain {
+    private static final int VALUES = 1000;
+    private static final int ROUNDS = 2000;
+
+    private static Map<String, AbstractPartitionAlgorithm> functions() {
+        Map<String, AbstractPartitionAlgorithm> functions = new LinkedHashMap<>();
+
+        AutoPartitionByLong autoPartitionByLong = new AutoPartitionByLong();
+        autoPartitionByLong.setMapFile("autopartition-long.txt");
+        autoPartitionByLong.setDefaultNode(0);
+        autoPartitionByLong.init();
+        functions.put("AutoPartitionByLong", autoPartitionByLong);
+
+        PartitionByDate partitionByDate = new PartitionByDate();
+        partitionByDate.setDateFormat("yyyy-MM-dd");
+        partitionByDate.setsBeginDate("2014-01-01");
+        partitionByDate.setsPartionDay("10");
+        partitionByDate.init();
+        functions.put("PartitionByDate", partitionByDate);
+
+        PartitionByFileMap partitionByFileMap = new PartitionByFileMap();
+        partitionByFileMap.setMapFile("partition-hash-int.txt");
+        partitionByFileMap.setDefaultNode(0);
+        partitionByFileMap.init();
+        functions.put("PartitionByFileMap", partitionByFileMap);
+
+        PartitionByJumpConsistentHash jumpConsistentHash = new PartitionByJumpConsistentHash();
+        jumpConsistentHash.setPartitionCount(64);
+        jumpConsistentHash.init();
+        functions.put("PartitionByJumpConsistentHash", jumpConsistentHash);
+
+        PartitionByLong partitionByLong = new PartitionByLong();
+        partitionByLong.setPartitionCount("2");
+        partitionByLong.setPartitionLength("512");
+        partitionByLong.init();
+        functions.put("PartitionByLong", partitionByLong);
+
+        PartitionByPattern partitionByPattern = new PartitionByPattern();
+        partitionByPattern.setPatternValue(256);
+        partitionByPattern.setDefaultNode(2);
+        partitionByPattern.setMapFile("partition-pattern.txt");
+        partitionByPattern.init();
+        functions.put("PartitionByPattern", partitionByPattern);
+
+        PartitionByString partitionByString = new PartitionByString();
+        partitionByString.setPartitionCount("2");
+        partitionByString.setPartitionLength("512");
+        partitionByString.setHashSlice("0:2");
+        partitionByString.init();
+        functions.put("PartitionByString", partitionByString);
+        return functions;
+    }
+
+    private static String[] values(String name) {
+        String[] values = new String[VALUES];
+        for (int i = 0; i < VALUES; i++) {
+            if ("PartitionByDate".equals(name)) {
+                values[i] = "2014-" + (i % 12 + 1) + "-" + (i % 28 + 1);
+            } else {
+                values[i] = String.valueOf(i * 6007L);
+            }
+        }
+        return values;
+    }
+
+    public static void main(String[] args) {
+        for (Map.Entry<String, AbstractPartitionAlgorithm> entry : functions().entrySet()) {
+            AbstractPartitionAlgorithm function = entry.getValue();
+            String[] values = values(entry.getKey());
+            long[] longValues = new long[VALUES];
+            for (int i = 0; i < VALUES; i++) {
+                longValues[i] = "PartitionByDate".equals(entry.getKey()) ? 0 : Long.parseLong(values[i]);
+            }
+            long blackHole = 0;
+            for (int warmUp = 0; warmUp < 2; warmUp++) {
+                long start = System.nanoTime();
+                for (int round = 0; round < ROUNDS; round++) {
+                    for (String value : values) {
+                        Integer node = function.calculate(value);
+                        blackHole += node == null ? 0 : node;
+                    }
+                }
+                long oneByOne = System.nanoTime() - start;
+
+                start = System.nanoTime();
+                for (int round = 0; round < ROUNDS; round++) {
+                    for (Integer node : function.calculateBatch(values)) {
+                        blackHole += node == null ? 0 : node;
+                    }
+                }
+                long batch = System.nanoTime() - start;
+
+                String typed = "-";
+                if (!"PartitionByDate".equals(entry.getKey())) {
+                    start = System.nanoTime();
+                    for (int round = 0; round < ROUNDS; round++) {
+                        for (long value : longValues) {
+                            Integer node = function.calculate(value);
+                            blackHole += node == null ? 0 : node;
+                        }
+                    }
+                    typed = (System.nanoTime() - start) / ROUNDS / VALUES + " ns";
+                }
+                if (warmUp == 1) {
+                    System.out.println(entry.getKey() + ": string " + oneByOne / ROUNDS / VALUES + " ns, batch " +
+                            batch / ROUNDS / VALUES + " ns, long " + typed + " per value (" + blackHole + ")");
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,88 @@
+/*
+ * Copyright (C) 2016-2018 ActionTech.
+ * License: http://www.gnu.org/licenses/gpl.html GPL version 2 or higher.
+ */
+
+package com.actiontech.dble.route.util;
+
+import com.actiontech.dble.route.function.PartitionByLong;
+import com.alibaba.druid.sql.ast.SQLExpr;
+import com.alibaba.druid.sql.ast.expr.SQLBinaryOpExpr;
+import com.alibaba.druid.sql.ast.expr.SQLInListExpr;
+import com.alibaba.druid.sql.ast.statement.SQLSelectStatement;
+import com.alibaba.druid.sql.dialect.mysql.ast.statement.MySqlSelectQueryBlock;
+import com.alibaba.druid.sql.dialect.mysql.parser.MySqlStatementParser;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.*;
+
+public class InListRewriterTest {
+    private static final List<String> DATA_NODES = Arrays.asList("dn1", "dn2", "dn3", "dn4");
+
+    /* 0-255 -> dn1, 256-511 -> dn2, 512-767 -> dn3, 768-1023 -> dn4 */
+    private static PartitionByLong function() {
+        PartitionByLong function = new PartitionByLong();
+        function.setPartitionCount("4");
+        function.setPartitionLength("256");
+        function.init();
+        return function;
+    }
+
+    @Test
+    public void testSplitInList() {
+        String sql = "select * from t where id in (1, 257, 2, 513) and name = 'a'";
+        SQLSelectStatement stmt = parse(sql);
+        String origin = stmt.toString();
+        Map<String, String> nodeSqls = InListRewriter.rewrite(stmt, "ID", function(), DATA_NODES, Arrays.asList("dn1", "dn2", "dn3"));
+        Assert.assertEquals(3, nodeSqls.size());
+        Assert.assertEquals(Arrays.asList("1", "2"), inValues(nodeSqls.get("dn1")));
+        Assert.assertEquals(Collections.singletonList("257"), inValues(nodeSqls.get("dn2")));
+        Assert.assertEquals(Collections.singletonList("513"), inValues(nodeSqls.get("dn3")));
+        Assert.assertTrue(nodeSqls.get("dn1").contains("name = 'a'"));
+        // the statement is restored
+        Assert.assertEquals(origin, stmt.toString());
+    }
+
+    @Test
+    public void testNoValueForNode() {
+        // dn4 is routed by the OR, it keeps the whole list
+        SQLSelectStatement stmt = parse("select * from t where `id` in (1, 257) or id = 800");
+        Map<String, String> nodeSqls = InListRewriter.rewrite(stmt, "ID", function(), DATA_NODES, Arrays.asList("dn1", "dn2", "dn4"));
+        Assert.assertEquals(Collections.singletonList("1"), inValues(nodeSqls.get("dn1")));
+        Assert.assertEquals(Collections.singletonList("257"), inValues(nodeSqls.get("dn2")));
+        Assert.assertEquals(Arrays.asList("1", "257"), inValues(nodeSqls.get("dn4")));
+    }
+
+    @Test
+    public void testNotRewritten() {
+        // not the partition column
+        Assert.assertTrue(InListRewriter.rewrite(parse("select * from t where name in (1, 257)"), "ID", function(),
+                DATA_NODES, Arrays.asList("dn1", "dn2")).isEmpty());
+        // not a literal
+        Assert.assertTrue(InListRewriter.rewrite(parse("select * from t where id in (1, 257 + 1)"), "ID", function(),
+                DATA_NODES, Arrays.asList("dn1", "dn2")).isEmpty());
+        // all the values are in the same node
+        Assert.assertTrue(InListRewriter.rewrite(parse("select * from t where id in (1, 2) or name = 'a'"), "ID", function(),
+                DATA_NODES, Arrays.asList("dn1", "dn2")).isEmpty());
+        // only one node
+        Assert.assertTrue(InListRewriter.rewrite(parse("select * from t where id in (1, 257)"), "ID", function(),
+                DATA_NODES, Collections.singletonList("dn1")).isEmpty());
+    }
+
+    private static SQLSelectStatement parse(String sql) {
+        return (SQLSelectStatement) new MySqlStatementParser(sql).parseStatement();
+    }
+
+    private static List<String> inValues(String sql) {
+        SQLExpr where = ((MySqlSelectQueryBlock) parse(sql).getSelect().getQuery()).getWhere();
+        while (!(where instanceof SQLInListExpr)) {
+            where = ((SQLBinaryOpExpr) where).getLeft();
+        }
+        List<String> values = new ArrayList<>();
+        for (SQLExpr value : ((SQLInListExpr) where).getTargetList()) {
+            values.add(value.toString());
+        }
+        return values;
+    }
+}
@@ -0,0 +1,84 @@
+/*
+ * Copyright (C) 2016-2018 ActionTech.
+ * License: http://www.gnu.org/licenses/gpl.html GPL version 2 or higher.
+ */
+
+package com.actiontech.dble.sequence;
+
+import com.actiontech.dble.route.sequence.handler.Counter;
+import junit.framework.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class CounterTest {
+
+    @Test
+    public void testSegmentSize() {
+        Counter counter = new Counter(0, 11);
+        Assert.assertEquals(10, counter.getSegmentSize());
+        int count = 0;
+        while (counter.getNext() != -1) {
+            count++;
+        }
+        Assert.assertEquals(10, count);
+        Assert.assertEquals(10, counter.getCurrent());
+    }
+
+    @Test
+    public void testGetNextCount() {
+        Counter counter = new Counter(0, 11);
+        Assert.assertEquals(1, counter.getNext(5));
+        // not so many values left, nothing is consumed
+        Assert.assertEquals(-1, counter.getNext(6));
+        Assert.assertEquals(5, counter.getCurrent());
+        Assert.assertEquals(6, counter.getNext(5));
+        Assert.assertEquals(-1, counter.getNext(1));
+        Assert.assertEquals(-1, counter.getNext());
+    }
+
+    @Test
+    public void testGetNextCountConcurrently() throws InterruptedException {
+        final Counter counter = new Counter(0, 10001);
+        final BitSet used = new BitSet();
+        final AtomicInteger handed = new AtomicInteger(0);
+        final CountDownLatch startLatch = new CountDownLatch(1);
+        List<Thread> threads = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            final int count = i + 1;
+            Thread thread = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        startLatch.await();
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                    long first;
+                    while ((first = counter.getNext(count)) != -1) {
+                        handed.addAndGet(count);
+                        synchronized (used) {
+                            used.set((int) first, (int) first + count);
+                        }
+                    }
+                }
+            });
+            thread.start();
+            threads.add(thread);
+        }
+        startLatch.countDown();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        // the values left are fewer than the smallest batch, none is handed out over the segment
+        Assert.assertEquals(-1, counter.getNext(1));
+        Assert.assertEquals(10000, handed.get());
+        Assert.assertEquals(10000, used.cardinality());
+        Assert.assertEquals(1, used.nextSetBit(0));
+        Assert.assertEquals(10000, used.length() - 1);
+    }
+}
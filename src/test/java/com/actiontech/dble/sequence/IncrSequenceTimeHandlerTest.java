@@ -0,0 +1,65 @@
+/*
+ * Copyright (C) 2016-2018 ActionTech.
+ * License: http://www.gnu.org/licenses/gpl.html GPL version 2 or higher.
+ */
+
+package com.actiontech.dble.sequence;
+
+import com.actiontech.dble.route.sequence.handler.IncrSequenceTimeHandler;
+import junit.framework.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+public class IncrSequenceTimeHandlerTest {
+    private IncrSequenceTimeHandler handler;
+
+    @Before
+    public void initialize() {
+        handler = IncrSequenceTimeHandler.getInstance();
+        handler.load();
+    }
+
+    @Test
+    public void testNextIds() {
+        Set<Long> idSet = new HashSet<>();
+        // more than the autoincrement values of one millisecond
+        for (long id : handler.nextIds("", 10000)) {
+            Assert.assertTrue(idSet.add(id));
+        }
+        for (int i = 0; i < 1000; i++) {
+            Assert.assertTrue(idSet.add(handler.nextId("")));
+        }
+    }
+
+    @Test
+    public void testUniqueID() throws Exception {
+        final ConcurrentHashMap<Long, String> idSet = new ConcurrentHashMap<>();
+        Thread[] threads = new Thread[8];
+        for (int i = 0; i < threads.length; i++) {
+            final boolean batch = i % 2 == 0;
+            threads[i] = new Thread() {
+                @Override
+                public void run() {
+                    for (int j = 0; j < 1000; j++) {
+                        if (batch) {
+                            for (long id : handler.nextIds("", 10)) {
+                                idSet.put(id, "");
+                            }
+                        } else {
+                            idSet.put(handler.nextId(""), "");
+                        }
+                    }
+                }
+            };
+            threads[i].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        Assert.assertEquals(4 * 1000 * 10 + 4 * 1000, idSet.size());
+    }
+}
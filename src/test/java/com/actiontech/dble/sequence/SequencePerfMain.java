@@ -0,0 +1,72 @@
+/*
+ * Copyright (C) 2016-2018 ActionTech.
+ * License: http://www.gnu.org/licenses/gpl.html GPL version 2 or higher.
+ */
+
+package com.actiontech.dble.sequence;
+
+import com.actiontech.dble.route.sequence.handler.IncrSequenceTimeHandler;
+import com.actiontech.dble.route.sequence.handler.SequenceHandler;
+
+import java.sql.SQLNonTransientException;
+import java.util.concurrent.CountDownLatch;
+
+/**
+ * ids per second of the time sequence, one by one and by batch, with 1 to 64 threads
+ */
+public class SequencePerfMain {
+    private static final int IDS_PER_THREAD = 1000000;
+    private static final int BATCH_SIZE = 100;
+
+    private final SequenceHandler handler;
+
+    public SequencePerfMain(SequenceHandler handler) {
+        this.handler = handler;
+    }
+
+    public void run(int threadCount, final int batchSize) throws InterruptedException {
+        final CountDownLatch start = new CountDownLatch(1);
+        final CountDownLatch end = new CountDownLatch(threadCount);
+        for (int i = 0; i < threadCount; i++) {
+            new Thread() {
+                @Override
+                public void run() {
+                    try {
+                        start.await();
+                        for (int j = 0; j < IDS_PER_THREAD; j += batchSize) {
+                            if (batchSize == 1) {
+                                handler.nextId("");
+                            } else {
+                                handler.nextIds("", batchSize);
+                            }
+                        }
+                    } catch (InterruptedException | SQLNonTransientException e) {
+                        e.printStackTrace();
+                    } finally {
+                        end.countDown();
+                    }
+                }
+            }.start();
+        }
+        long t1 = System.nanoTime();
+        start.countDown();
+        end.await();
+        long t2 = System.nanoTime();
+        long ids = (long) threadCount * IDS_PER_THREAD;
+        System.out.println("threads:" + threadCount + " batch:" + batchSize + " take time:" +
+                (t2 - t1) / 1000000 + " ms, ids/s:" + ids * 1000000000L / (t2 - t1));
+    }
+
+    public static void main(String[] args) throws InterruptedException {
+        IncrSequenceTimeHandler timeHandler = IncrSequenceTimeHandler.getInstance();
+        timeHandler.load();
+        SequencePerfMain perf = new SequencePerfMain(timeHandler);
+        // warm up
+        perf.run(4, 1);
+        perf.run(4, BATCH_SIZE);
+        for (int threads = 1; threads <= 64; threads *= 2) {
+            perf.run(threads, 1);
+            perf.run(threads, BATCH_SIZE);
+        }
+    }
+}
@@ -0,0 +1,55 @@
+/*
+ * Copyright (C) 2016-2018 ActionTech.
+ * License: http://www.gnu.org/licenses/gpl.html GPL version 2 or higher.
+ */
+
+package com.actiontech.dble.sequence;
+
+import com.actiontech.dble.route.sequence.handler.SequenceVal;
+import junit.framework.Assert;
+import org.junit.Test;
+
+public class SequenceValTest {
+
+    @Test
+    public void testSegmentSize() {
+        SequenceVal seqVal = new SequenceVal("`testdb`.`GLOBAL`", "dn1");
+        Assert.assertEquals("SELECT dble_seq_nextval('`testdb`.`GLOBAL`')", seqVal.nextFetchSql());
+        // the fetcher returns 1 itself, the counter hands out 2 to 10
+        seqVal.setNewCounter(1, 11, 70);
+        Assert.assertEquals(9, seqVal.getCurrentSegmentSize());
+        Assert.assertEquals(1, seqVal.getCurrentValue());
+
+        // used at once, the segment doubles
+        seqVal.adjustSegmentSize(1000);
+        Assert.assertEquals("SELECT dble_seq_nextvals('`testdb`.`GLOBAL`', 18)", seqVal.nextFetchSql());
+        // but never over the max size
+        seqVal.adjustSegmentSize(15);
+        Assert.assertEquals("SELECT dble_seq_nextvals('`testdb`.`GLOBAL`', 15)", seqVal.nextFetchSql());
+        // nor under the increment in dble_sequence
+        seqVal.adjustSegmentSize(1);
+        Assert.assertEquals("SELECT dble_seq_nextvals('`testdb`.`GLOBAL`', 10)", seqVal.nextFetchSql());
+    }
+
+    @Test
+    public void testPrefetched() {
+        SequenceVal seqVal = new SequenceVal("seq", "dn1");
+        seqVal.setNewCounter(1, 11, 70);
+        Assert.assertFalse(seqVal.hasPrefetched());
+        seqVal.setPrefetched(11, 31, 70);
+        Assert.assertTrue(seqVal.hasPrefetched());
+        Assert.assertEquals(9, seqVal.getCurrentSegmentSize());
+    }
+
+    @Test
+    public void testStatistics() {
+        SequenceVal seqVal = new SequenceVal("seq", "dn1");
+        seqVal.recordFetch(10);
+        seqVal.recordFetch(30);
+        seqVal.recordStall();
+        Assert.assertEquals(2, seqVal.getFetchCount());
+        Assert.assertEquals(20, seqVal.getAvgFetchTime());
+        Assert.assertEquals(30, seqVal.getLastFetchTime());
+        Assert.assertEquals(1, seqVal.getStallCount());
+    }
+}
@@ -0,0 +1,120 @@
+/*
+ * Copyright (C) 2016-2018 ActionTech.
+ * License: http://www.gnu.org/licenses/gpl.html GPL version 2 or higher.
+ */
+
+package com.actiontech.dble.sqlengine.mpp;
+
+import com.actiontech.dble.net.AbstractConnection;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * load data of ROWS rows into NODES data nodes: the rows are streamed to the backends while routing,
+ * or kept for every node until all the rows are routed like the not streaming load data.
+ * A backend is a thread which reads the packets written to the connection and counts the rows in them,
+ * it stands in for the LOAD DATA LOCAL of MySQL.
+ */
+public class LoadDataStreamPerfMain {
+    private static final int ROWS = 2000000;
+    private static final int NODES = 4;
+    private static final int PACKET_SIZE = 4096 - 5;
+    private static final int MAX_PENDING_PACKETS = 64;
+
+    private final AtomicLong loadedRows = new AtomicLong();
+
+    private long stream(boolean streaming) throws InterruptedException {
+        loadedRows.set(0);
+        CountDownLatch done = new CountDownLatch(NODES);
+        List<AbstractConnection> conns = new ArrayList<>();
+        List<LoadDataStream> streams = new ArrayList<>();
+        for (int i = 0; i < NODES; i++) {
+            conns.add(standIn(done));
+            streams.add(new LoadDataStream("dn" + i, PACKET_SIZE, streaming ? MAX_PENDING_PACKETS : Integer.MAX_VALUE));
+        }
+        long start = System.nanoTime();
+        if (streaming) {
+            for (int i = 0; i < NODES; i++) {
+                streams.get(i).start((byte) 1, conns.get(i));
+            }
+        }
+        for (int i = 0; i < ROWS; i++) {
+            byte[] line = (i + "\tname_" + i + "\t" + (i * 7L) + "\n").getBytes();
+            streams.get(i % NODES).write(line);
+        }
+        for (int i = 0; i < NODES; i++) {
+            LoadDataStream stream = streams.get(i);
+            stream.finish();
+            if (!streaming) {
+                stream.start((byte) 1, conns.get(i));
+            }
+        }
+        done.await();
+        long cost = (System.nanoTime() - start) / 1000000;
+        if (loadedRows.get() != ROWS) {
+            throw new IllegalStateException("loaded " + loadedRows.get() + " rows");
+        }
+        return cost;
+    }
+
+    private AbstractConnection standIn(final CountDownLatch done) {
+        final AbstractConnection conn = new AbstractConnection() {
+            @Override
+            public void register() {
+            }
+
+            @Override
+            public void handle(byte[] data) {
+            }
+
+            @Override
+            public void write(byte[] data) {
+                writeQueue.offer(ByteBuffer.wrap(data));
+            }
+        };
+        final Queue<ByteBuffer> writeQueue = conn.getWriteQueue();
+        Thread backend = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                while (true) {
+                    ByteBuffer packet = writeQueue.peek();
+                    if (packet == null) {
+                        Thread.yield();
+                        continue;
+                    }
+                    if (packet.remaining() == 4) {
+                        writeQueue.poll();
+                        done.countDown();
+                        return;
+                    }
+                    long rows = 0;
+                    for (int i = 4; i < packet.limit(); i++) {
+                        if (packet.get(i) == '\n') {
+                            rows++;
+                        }
+                    }
+                    loadedRows.addAndGet(rows);
+                    writeQueue.poll();
+                }
+            }
+        });
+        backend.setDaemon(true);
+        backend.start();
+        return conn;
+    }
+
+    public static void main(String[] args) throws InterruptedException {
+        LoadDataStreamPerfMain main = new LoadDataStreamPerfMain();
+        for (int round = 0; round < 5; round++) {
+            long kept = main.stream(false);
+            long streamed = main.stream(true);
+            System.out.println("round " + round + ": kept until routed " + kept + " ms, streamed " + streamed + " ms");
+        }
+        System.exit(0);
+    }
+}
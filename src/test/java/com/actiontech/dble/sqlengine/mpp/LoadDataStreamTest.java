@@ -0,0 +1,170 @@
+/*
+ * Copyright (C) 2016-2018 ActionTech.
+ * License: http://www.gnu.org/licenses/gpl.html GPL version 2 or higher.
+ */
+
+package com.actiontech.dble.sqlengine.mpp;
+
+import com.actiontech.dble.net.AbstractConnection;
+import junit.framework.Assert;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+public class LoadDataStreamTest {
+
+    @Test
+    public void testRowsBeforeRequest() {
+        List<byte[]> packets = new ArrayList<>();
+        AbstractConnection conn = new CollectConnection(packets);
+        LoadDataStream stream = new LoadDataStream("dn1", 16, 100);
+        StringBuilder expected = new StringBuilder();
+        for (int i = 0; i < 20; i++) {
+            String line = i + "\tname" + i + "\n";
+            expected.append(line);
+            stream.write(line.getBytes());
+        }
+        stream.finish();
+        Assert.assertTrue(packets.isEmpty());
+
+        stream.start((byte) 2, conn);
+        Assert.assertEquals(expected.toString(), content(packets, (byte) 3));
+        Assert.assertEquals(20, stream.getRows());
+        Assert.assertEquals(expected.length(), stream.getBytes());
+    }
+
+    @Test
+    public void testRowsAfterRequest() {
+        List<byte[]> packets = new ArrayList<>();
+        AbstractConnection conn = new CollectConnection(packets);
+        LoadDataStream stream = new LoadDataStream("dn1", 8, 100);
+        stream.start((byte) 2, conn);
+        // a row longer than a packet is cut into several packets
+        String line = "0123456789abcdefghij\n";
+        stream.write(line.getBytes());
+        Assert.assertEquals(2, packets.size());
+        stream.write(line.getBytes());
+        stream.finish();
+        stream.finish();
+        Assert.assertEquals(line + line, content(packets, (byte) 3));
+    }
+
+    @Test
+    public void testAbort() {
+        List<byte[]> packets = new ArrayList<>();
+        AbstractConnection conn = new CollectConnection(packets);
+        LoadDataStream stream = new LoadDataStream("dn1", 8, 100);
+        stream.start((byte) 2, conn);
+        stream.write("0123456789\n".getBytes());
+        stream.abort();
+        // the file is not ended, the connection is closed to roll back the rows sent
+        Assert.assertTrue(conn.isClosed());
+        stream.write("0123456789\n".getBytes());
+        stream.finish();
+        Assert.assertEquals(1, packets.size());
+        Assert.assertTrue(stream.isAborted());
+    }
+
+    @Test
+    public void testWaitForRequest() throws InterruptedException {
+        List<byte[]> packets = new ArrayList<>();
+        AbstractConnection conn = new CollectConnection(packets);
+        final LoadDataStream stream = new LoadDataStream("dn1", 4, 2);
+        Thread writer = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                for (int i = 0; i < 10; i++) {
+                    stream.write("abc\n".getBytes());
+                }
+                stream.finish();
+            }
+        });
+        writer.start();
+        writer.join(200);
+        // at most 2 packets are kept before the file is requested
+        Assert.assertTrue(writer.isAlive());
+        Assert.assertTrue(stream.getRows() <= 3);
+
+        stream.start((byte) 2, conn);
+        writer.join(TimeUnit.SECONDS.toMillis(10));
+        Assert.assertFalse(writer.isAlive());
+        StringBuilder expected = new StringBuilder();
+        for (int i = 0; i < 10; i++) {
+            expected.append("abc\n");
+        }
+        synchronized (packets) {
+            Assert.assertEquals(expected.toString(), content(packets, (byte) 3));
+        }
+    }
+
+    @Test
+    public void testFrontClosed() throws InterruptedException {
+        AbstractConnection front = new CollectConnection(new ArrayList<byte[]>());
+        final LoadDataStream stream = new LoadDataStream("dn1", 4, 2, front);
+        Thread writer = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                for (int i = 0; i < 10; i++) {
+                    stream.write("abc\n".getBytes());
+                }
+            }
+        });
+        writer.start();
+        writer.join(200);
+        Assert.assertTrue(writer.isAlive());
+
+        // the client is gone before the file is requested, the writer gives up
+        front.close("quit");
+        writer.join(TimeUnit.SECONDS.toMillis(10));
+        Assert.assertFalse(writer.isAlive());
+        Assert.assertTrue(stream.isAborted());
+    }
+
+    /**
+     * check the headers of the packets and the empty packet at the end, return the file sent
+     */
+    private static String content(List<byte[]> packets, byte firstPacketId) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte packetId = firstPacketId;
+        for (int i = 0; i < packets.size(); i++) {
+            byte[] packet = packets.get(i);
+            int length = (packet[0] & 0xff) | ((packet[1] & 0xff) << 8) | ((packet[2] & 0xff) << 16);
+            Assert.assertEquals(packet.length - 4, length);
+            Assert.assertEquals(packetId++, packet[3]);
+            Assert.assertEquals(i == packets.size() - 1, length == 0);
+            out.write(packet, 4, length);
+        }
+        return new String(out.toByteArray());
+    }
+
+    private static class CollectConnection extends AbstractConnection {
+        private final List<byte[]> packets;
+
+        CollectConnection(List<byte[]> packets) {
+            this.packets = packets;
+        }
+
+        @Override
+        public void register() {
+        }
+
+        @Override
+        public void handle(byte[] data) {
+        }
+
+        @Override
+        public void write(byte[] data) {
+            synchronized (packets) {
+                packets.add(data);
+            }
+        }
+
+        @Override
+        public void close(String reason) {
+            isClosed.set(true);
+        }
+    }
+}
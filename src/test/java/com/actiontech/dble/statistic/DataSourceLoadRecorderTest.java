@@ -0,0 +1,54 @@
+/*
+ * Copyright (C) 2016-2018 ActionTech.
+ * License: http://www.gnu.org/licenses/gpl.html GPL version 2 or higher.
+ */
+
+package com.actiontech.dble.statistic;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+public class DataSourceLoadRecorderTest {
+
+    @Test
+    public void testInFlight() {
+        DataSourceLoadRecorder recorder = new DataSourceLoadRecorder();
+        long idle = recorder.getScore(0);
+        recorder.start();
+        recorder.start();
+        Assert.assertEquals(2, recorder.getInFlight());
+        Assert.assertTrue(recorder.getScore(0) > idle);
+        recorder.end(-1);
+        recorder.end(-1);
+        Assert.assertEquals(0, recorder.getInFlight());
+        // a failed request records no response time
+        Assert.assertEquals(0, recorder.getResponseTime());
+    }
+
+    @Test
+    public void testResponseTime() {
+        DataSourceLoadRecorder fast = new DataSourceLoadRecorder();
+        DataSourceLoadRecorder slow = new DataSourceLoadRecorder();
+        for (int i = 0; i < 10; i++) {
+            fast.start();
+            fast.end(TimeUnit.MICROSECONDS.toNanos(200));
+            slow.start();
+            slow.end(TimeUnit.MILLISECONDS.toNanos(20));
+        }
+        Assert.assertTrue(fast.getResponseTime() > 0);
+        Assert.assertTrue(fast.getResponseTime() <= 200);
+        Assert.assertTrue(slow.getResponseTime() > 10000);
+        Assert.assertTrue(fast.getScore(0) < slow.getScore(0));
+    }
+
+    @Test
+    public void testLag() {
+        DataSourceLoadRecorder recorder = new DataSourceLoadRecorder();
+        recorder.start();
+        recorder.end(TimeUnit.MILLISECONDS.toNanos(1));
+        Assert.assertTrue(recorder.getScore(0) < recorder.getScore(5));
+        Assert.assertEquals(recorder.getScore(0), recorder.getScore(-1));
+    }
+}
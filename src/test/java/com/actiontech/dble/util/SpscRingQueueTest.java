@@ -0,0 +1,121 @@
+/*
+ * Copyright (C) 2016-2018 ActionTech.
+ * License: http://www.gnu.org/licenses/gpl.html GPL version 2 or higher.
+ */
+
+package com.actiontech.dble.util;
+
+import junit.framework.Assert;
+import org.junit.Test;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+public class SpscRingQueueTest {
+
+    @Test
+    public void testOfferPoll() {
+        SpscRingQueue<Integer> queue = new SpscRingQueue<>(3);
+        Assert.assertEquals(4, queue.capacity());
+        Assert.assertNull(queue.poll());
+        for (int i = 0; i < 4; i++) {
+            Assert.assertTrue(queue.offer(i));
+        }
+        Assert.assertFalse(queue.offer(4));
+        Assert.assertEquals(4, queue.size());
+        Assert.assertEquals(Integer.valueOf(0), queue.poll());
+        Assert.assertTrue(queue.offer(4));
+        for (int i = 1; i <= 4; i++) {
+            Assert.assertEquals(Integer.valueOf(i), queue.poll());
+        }
+        Assert.assertTrue(queue.isEmpty());
+    }
+
+    @Test
+    public void testProducerConsumer() throws Exception {
+        final int count = 1000000;
+        final SpscRingQueue<Integer> queue = new SpscRingQueue<>(64);
+        final AtomicReference<Throwable> error = new AtomicReference<>();
+        Thread producer = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    for (int i = 0; i < count; i++) {
+                        queue.put(i);
+                    }
+                } catch (Throwable e) {
+                    error.set(e);
+                }
+            }
+        });
+        producer.start();
+        for (int i = 0; i < count; i++) {
+            Assert.assertEquals(Integer.valueOf(i), queue.take());
+        }
+        producer.join();
+        Assert.assertNull(error.get());
+        Assert.assertTrue(queue.isEmpty());
+    }
+
+    @Test
+    public void testOverflow() {
+        SpscRingQueue<Integer> queue = new SpscRingQueue<>(2);
+        for (int i = 0; i < 5; i++) {
+            Assert.assertTrue(queue.offerOrOverflow(i));
+        }
+        Assert.assertEquals(5, queue.size());
+        Assert.assertEquals(Integer.valueOf(0), queue.poll());
+        // the ring has room again, but the overflow comes first
+        Assert.assertFalse(queue.offer(5));
+        Assert.assertTrue(queue.offerOrOverflow(5));
+        for (int i = 1; i <= 5; i++) {
+            Assert.assertEquals(Integer.valueOf(i), queue.poll());
+        }
+        Assert.assertTrue(queue.isEmpty());
+        Assert.assertTrue(queue.offer(6));
+        Assert.assertEquals(Integer.valueOf(6), queue.poll());
+    }
+
+    @Test
+    public void testOverflowProducerConsumer() throws Exception {
+        final int count = 1000000;
+        final SpscRingQueue<Integer> queue = new SpscRingQueue<>(64);
+        Thread producer = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                for (int i = 0; i < count; i++) {
+                    queue.offerOrOverflow(i);
+                }
+            }
+        });
+        producer.start();
+        for (int i = 0; i < count; i++) {
+            Assert.assertEquals(Integer.valueOf(i), queue.take());
+        }
+        producer.join();
+        Assert.assertTrue(queue.isEmpty());
+    }
+
+    @Test
+    public void testCloseWakeUp() throws Exception {
+        final SpscRingQueue<Integer> queue = new SpscRingQueue<>(1);
+        final AtomicReference<Object> taken = new AtomicReference<>();
+        Thread consumer = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    Integer item = queue.take();
+                    taken.set(item == null ? "closed" : item);
+                } catch (InterruptedException e) {
+                    taken.set(e);
+                }
+            }
+        });
+        consumer.start();
+        Thread.sleep(50);
+        queue.close();
+        consumer.join(5000);
+        Assert.assertEquals("closed", taken.get());
+        Assert.assertFalse(queue.offer(1));
+        Assert.assertFalse(queue.put(1));
+    }
+}